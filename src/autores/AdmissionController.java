@@ -0,0 +1,369 @@
+package autores;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which queries may run, so that a few expensive queries cannot take the memory every other one needs.<br>
+ * Every query reserves the memory and work of its estimated QueryCost before it runs. A query waits, in order of
+ * arrival, while the queries running already hold the concurrency, memory or work budget, and it is rejected with
+ * a QueryRejectedException if it could never fit the memory budget, if too many queries are waiting already or if it
+ * waits for too long. A query alone may go over the work budget, which only makes it slower.<br>
+ * A query may also wait without holding a thread, with admitAsync: it then takes its place in the same queue, and
+ * its future is completed by whichever thread makes room for it, or by a timer once it has waited for too long.<br>
+ * Once admitted, a query may allocate a multiple of its estimate, checked by its QueryTracker at every checkpoint
+ * against the bytes allocated by its thread, and is aborted past it.
+ *
+ */
+
+public class AdmissionController {
+	/** allocation allowed to a query for every byte of its estimate, as allocations include the garbage it leaves */
+	public static final int ALLOCATION_FACTOR = 16;
+	/** smallest allocation allowed to a query */
+	public static final long MIN_ALLOCATION = 64L << 20;
+
+	private int maxRunning;
+	private long memoryBudget;
+	private long workBudget;
+	private int maxQueued;
+	private long maxWaitMillis;
+
+	private int running;
+	private long reservedBytes;
+	private long reservedWork;
+	private ArrayDeque<Object> waiting;
+	private long admitted;
+	private long rejected;
+	private long overAllocation;
+	private int peakQueued;
+
+	/**
+	 * Creates a controller with the given budgets
+	 * @param maxRunning number of queries running at the same time
+	 * @param memoryBudget bytes the running queries may hold together
+	 * @param workBudget entries the running queries may read together
+	 * @param maxQueued number of queries waiting at the same time, others being rejected
+	 * @param maxWaitMillis time a query may wait before being rejected
+	 */
+	public AdmissionController(int maxRunning, long memoryBudget, long workBudget, int maxQueued, long maxWaitMillis) {
+		this.maxRunning = Math.max(1, maxRunning);
+		this.memoryBudget = memoryBudget;
+		this.workBudget = workBudget;
+		this.maxQueued = Math.max(0, maxQueued);
+		this.maxWaitMillis = Math.max(0, maxWaitMillis);
+		this.running = 0;
+		this.reservedBytes = 0;
+		this.reservedWork = 0;
+		this.waiting = new ArrayDeque<>();
+		this.admitted = 0;
+		this.rejected = 0;
+		this.overAllocation = 0;
+		this.peakQueued = 0;
+	}
+
+	/**
+	 * Creates a controller sized for this machine: two queries per processor, half of the maximum heap, no work
+	 * budget, and up to 256 queries waiting for 30 seconds at most
+	 * @return controller sized for this machine
+	 */
+	public static AdmissionController forRuntime() {
+		Runtime runtime = Runtime.getRuntime();
+		return new AdmissionController(2 * runtime.availableProcessors(), runtime.maxMemory() / 2, Long.MAX_VALUE, 256, 30000);
+	}
+
+	/**
+	 * Waits until a query with the given cost may run
+	 * @param cost estimated cost of the query
+	 * @return ticket to give back to release once the query is over
+	 * @throws QueryRejectedException if the query may not run
+	 */
+	public Ticket admit(QueryCost cost) {
+		try {
+			synchronized (this) {
+				if (cost.getBytes() > this.memoryBudget)
+					throw this.tooLarge(cost);
+
+				Object me = new Object();
+				if (!this.fits(cost) || !this.waiting.isEmpty()) {
+					if (this.waiting.size() >= this.maxQueued)
+						throw this.tooManyWaiting();
+
+					this.enqueue(me);
+					long deadline = System.nanoTime() + this.maxWaitMillis * 1000000L;
+
+					try {
+						while (this.waiting.peekFirst() != me || !this.fits(cost)) {
+							long left = (deadline - System.nanoTime()) / 1000000L;
+							if (left <= 0)
+								throw this.waitedTooLong();
+
+							this.wait(left);
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw this.reject("Interrupted while waiting to run");
+					} finally {
+						this.waiting.remove(me);
+						this.notifyAll();
+					}
+				}
+
+				return this.reserve(cost);
+			}
+		} finally {
+			// whether admitted or not, the query left the queue, and those waiting behind it may fit now
+			complete( this.dispatch() );
+		}
+	}
+
+	/**
+	 * Admits a query with the given cost without waiting for it: the future is completed with the ticket of the
+	 * query once it may run, by the thread making room for it, or with a QueryRejectedException if it may not run,
+	 * for the same reasons as admit
+	 * @param cost estimated cost of the query
+	 * @return future ticket, to give back to release once the query is over
+	 */
+	public CompletableFuture<Ticket> admitAsync(QueryCost cost) {
+		final Waiter waiter = new Waiter(cost);
+		synchronized (this) {
+			if (cost.getBytes() > this.memoryBudget)
+				waiter.future.completeExceptionally( this.tooLarge(cost) );
+			else if (this.fits(cost) && this.waiting.isEmpty())
+				waiter.future.complete( this.reserve(cost) );
+			else if (this.waiting.size() >= this.maxQueued)
+				waiter.future.completeExceptionally( this.tooManyWaiting() );
+			else {
+				this.enqueue(waiter);
+				final AdmissionController admission = this;
+				waiter.timeout = Timer.EXECUTOR.schedule(new Runnable() {
+					public void run() {
+						admission.expire(waiter);
+					}
+				}, this.maxWaitMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		return waiter.future;
+	}
+
+	/**
+	 * Gives back what a query reserved
+	 * @param ticket ticket given by admit
+	 * @param tracker tracker the query ran with, or null
+	 */
+	public void release(Ticket ticket, QueryTracker tracker) {
+		List<Waiter> admitted;
+		synchronized (this) {
+			this.running--;
+			this.reservedBytes -= ticket.getCost().getBytes();
+			this.reservedWork -= ticket.getCost().getWork();
+			if (tracker != null && tracker.isOverAllocated()) this.overAllocation++;
+			this.notifyAll();
+			admitted = this.dispatch();
+		}
+
+		complete(admitted);
+	}
+
+	/**
+	 * Rejects a query waiting with admitAsync for too long, if it is still waiting
+	 * @param waiter
+	 */
+	private void expire(Waiter waiter) {
+		QueryRejectedException rejection;
+		synchronized (this) {
+			if (!this.waiting.remove(waiter)) return;
+
+			rejection = this.waitedTooLong();
+			this.notifyAll();
+		}
+
+		waiter.future.completeExceptionally(rejection);
+		complete( this.dispatch() );
+	}
+
+	/**
+	 * Admits the queries waiting with admitAsync at the head of the queue, as long as they fit.<br>
+	 * Their futures are completed by the caller, once it holds no lock, with complete
+	 * @return queries admitted
+	 */
+	private synchronized List<Waiter> dispatch() {
+		List<Waiter> admitted = null;
+		while (this.waiting.peekFirst() instanceof Waiter && this.fits( ((Waiter) this.waiting.peekFirst()).cost )) {
+			Waiter waiter = (Waiter) this.waiting.pollFirst();
+			waiter.ticket = this.reserve(waiter.cost);
+			if (admitted == null) admitted = new ArrayList<>();
+			admitted.add(waiter);
+		}
+
+		return admitted;
+	}
+
+	private static void complete(List<Waiter> admitted) {
+		if (admitted == null) return;
+
+		for (Waiter waiter : admitted) {
+			waiter.timeout.cancel(false);
+			waiter.future.complete(waiter.ticket);
+		}
+	}
+
+	private void enqueue(Object waiter) {
+		this.waiting.addLast(waiter);
+		this.peakQueued = Math.max(this.peakQueued, this.waiting.size());
+	}
+
+	private Ticket reserve(QueryCost cost) {
+		this.running++;
+		this.reservedBytes += cost.getBytes();
+		this.reservedWork += cost.getWork();
+		this.admitted++;
+		return new Ticket(cost, Math.max(MIN_ALLOCATION, cost.getBytes() * ALLOCATION_FACTOR));
+	}
+
+	/**
+	 * Checks if a query fits the budgets left by the ones running
+	 * @param cost
+	 * @return true if the query fits
+	 */
+	private boolean fits(QueryCost cost) {
+		return this.running < this.maxRunning && this.reservedBytes + cost.getBytes() <= this.memoryBudget
+				&& (this.running == 0 || this.reservedWork + cost.getWork() <= this.workBudget);
+	}
+
+	private QueryRejectedException reject(String reason) {
+		this.rejected++;
+		return new QueryRejectedException(reason);
+	}
+
+	private QueryRejectedException tooLarge(QueryCost cost) {
+		return this.reject("Query needs about " + (cost.getBytes() >> 20) + " MB, over the budget of " + (this.memoryBudget >> 20) + " MB");
+	}
+
+	private QueryRejectedException tooManyWaiting() {
+		return this.reject("Too many queries waiting (" + this.waiting.size() + ")");
+	}
+
+	private QueryRejectedException waitedTooLong() {
+		return this.reject("Query waited " + this.maxWaitMillis + " ms to run");
+	}
+
+	/**
+	 * Holder of the timer rejecting the queries waiting with admitAsync for too long, shared by every controller and
+	 * only started once a query waits that way
+	 */
+	private static class Timer {
+		private static final ScheduledThreadPoolExecutor EXECUTOR = newTimer();
+
+		private static ScheduledThreadPoolExecutor newTimer() {
+			ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "admission-timer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			timer.setRemoveOnCancelPolicy(true); // most queries are admitted long before they would expire
+			return timer;
+		}
+	}
+
+	/**
+	 * A query waiting with admitAsync
+	 */
+	private static class Waiter {
+		private QueryCost cost;
+		private CompletableFuture<Ticket> future;
+		private ScheduledFuture<?> timeout;
+		private Ticket ticket;
+
+		private Waiter(QueryCost cost) {
+			this.cost = cost;
+			this.future = new CompletableFuture<>();
+			this.timeout = null;
+			this.ticket = null;
+		}
+	}
+
+	public synchronized int getRunning() {
+		return this.running;
+	}
+
+	/**
+	 * Returns the number of queries waiting to run
+	 * @return number of queries waiting
+	 */
+	public synchronized int getQueued() {
+		return this.waiting.size();
+	}
+
+	public synchronized long getReservedBytes() {
+		return this.reservedBytes;
+	}
+
+	public synchronized long getAdmitted() {
+		return this.admitted;
+	}
+
+	public synchronized long getRejected() {
+		return this.rejected;
+	}
+
+	/**
+	 * Returns the number of queries aborted for allocating more than allowed
+	 * @return number of queries over their allocation
+	 */
+	public synchronized long getOverAllocation() {
+		return this.overAllocation;
+	}
+
+	/**
+	 * Returns every counter of the controller, by name
+	 * @return counters of the controller
+	 */
+	public synchronized Map<String, Long> getMetrics() {
+		LinkedHashMap<String, Long> res = new LinkedHashMap<>();
+		res.put("running", (long) this.running);
+		res.put("queued", (long) this.waiting.size());
+		res.put("peakQueued", (long) this.peakQueued);
+		res.put("reservedBytes", this.reservedBytes);
+		res.put("memoryBudget", this.memoryBudget);
+		res.put("admitted", this.admitted);
+		res.put("rejected", this.rejected);
+		res.put("overAllocation", this.overAllocation);
+		return res;
+	}
+
+	/**
+	 * What an admitted query reserved, and how much it may allocate
+	 */
+	public static class Ticket {
+		private QueryCost cost;
+		private long allocationLimit;
+
+		public Ticket(QueryCost cost, long allocationLimit) {
+			this.cost = cost;
+			this.allocationLimit = allocationLimit;
+		}
+
+		public QueryCost getCost() {
+			return this.cost;
+		}
+
+		/**
+		 * Returns the bytes the query may allocate before it is aborted
+		 * @return bytes the query may allocate
+		 */
+		public long getAllocationLimit() {
+			return this.allocationLimit;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package autores;
+
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the queries of an AuthorNetwork in the background on a bounded pool of threads.<br>
+ * Every query gets a QueryTracker and returns a QueryFuture: cancelling the future, or reaching the deadline given
+ * when it was submitted, stops the query at its next checkpoint, once per year it goes through, and completes the
+ * future with a QueryAbortedException telling how far it got. Queries submitted while the queue is full fail
+ * with a RejectedExecutionException.
+ *
+ */
+
+public class AsyncAuthorNetwork {
+	private AuthorNetwork network;
+	private ThreadPoolExecutor executor;
+
+	/**
+	 * Interface to allow any query of the network to run in the background
+	 */
+	public interface Query<T> {
+		public T exec(AuthorNetwork network) throws Exception;
+	}
+
+	/**
+	 * Creates a facade over the given network
+	 * @param network
+	 * @param threads number of queries running at the same time
+	 * @param queueCapacity number of queries waiting for a thread
+	 */
+	public AsyncAuthorNetwork(AuthorNetwork network, int threads, int queueCapacity) {
+		final AtomicInteger count = new AtomicInteger();
+		this.network = network;
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>( Math.max(1, queueCapacity) ), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "async-query-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Runs a query in the background
+	 * @param query
+	 * @param timeoutMillis time the query may take from now, or 0 for no deadline
+	 * @return future result of the query
+	 */
+	public <T> QueryFuture<T> submit(final Query<T> query, long timeoutMillis) {
+		final QueryTracker tracker = new QueryTracker(timeoutMillis);
+		final QueryFuture<T> future = new QueryFuture<T>(tracker);
+		final AuthorNetwork network = this.network;
+
+		try {
+			this.executor.execute(new Runnable() {
+				public void run() {
+					if (future.isDone()) return;
+
+					QueryTracker previous = tracker.enter();
+					try {
+						tracker.check();
+						future.complete( query.exec(network) );
+					} catch (Throwable t) {
+						future.completeExceptionally(t);
+					} finally {
+						tracker.exit(previous);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+
+		return future;
+	}
+
+	/**
+	 * Runs a query of QueryCommands in the background
+	 * @param name
+	 * @param params
+	 * @param timeoutMillis time the query may take from now, or 0 for no deadline
+	 * @return future result of the query
+	 */
+	public QueryFuture<Object> submit(final String name, final QueryParameters params, long timeoutMillis) {
+		return this.submit(new Query<Object>() {
+			public Object exec(AuthorNetwork network) throws Exception {
+				return QueryCommands.run(network, name, params);
+			}
+		}, timeoutMillis);
+	}
+
+	public QueryFuture<NavigableSet<Tuple<String, Integer>>> topPublishersInInterval(final int min, final int max, final int nrAuthors, long timeoutMillis) {
+		return this.submit(new Query<NavigableSet<Tuple<String, Integer>>>() {
+			public NavigableSet<Tuple<String, Integer>> exec(AuthorNetwork network) {
+				return network.topPublishersInInterval(min, max, nrAuthors);
+			}
+		}, timeoutMillis);
+	}
+
+	public QueryFuture<NavigableSet<Tuple<Tuple<String, String>, Integer>>> topPairs(final int min, final int max, final int nrAuthors, long timeoutMillis) {
+		return this.submit(new Query<NavigableSet<Tuple<Tuple<String, String>, Integer>>>() {
+			public NavigableSet<Tuple<Tuple<String, String>, Integer>> exec(AuthorNetwork network) {
+				return network.topPairs(min, max, nrAuthors);
+			}
+		}, timeoutMillis);
+	}
+
+	public QueryFuture<NavigableSet<String>> commonCoauthors(final Collection<String> authors, final int min, final int max, long timeoutMillis) {
+		return this.submit(new Query<NavigableSet<String>>() {
+			public NavigableSet<String> exec(AuthorNetwork network) {
+				return network.commonCoauthors(authors, min, max);
+			}
+		}, timeoutMillis);
+	}
+
+	public QueryFuture<NavigableSet<String>> authorsInInterval(final int min, final int max, long timeoutMillis) {
+		return this.submit(new Query<NavigableSet<String>>() {
+			public NavigableSet<String> exec(AuthorNetwork network) throws NoAuthorsInIntervalException {
+				return network.authorsInInterval(min, max);
+			}
+		}, timeoutMillis);
+	}
+
+	/**
+	 * Returns the number of queries running
+	 * @return number of queries running
+	 */
+	public int getRunning() {
+		return this.executor.getActiveCount();
+	}
+
+	/**
+	 * Returns the number of queries waiting for a thread
+	 * @return number of queries waiting
+	 */
+	public int getQueued() {
+		return this.executor.getQueue().size();
+	}
+
+	/**
+	 * Stops accepting queries, letting the submitted ones finish
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Result of a query running in the background, with the progress of the query
+	 */
+	public static class QueryFuture<T> extends CompletableFuture<T> {
+		private QueryTracker tracker;
+
+		public QueryFuture(QueryTracker tracker) {
+			this.tracker = tracker;
+		}
+
+		/**
+		 * Cancels the future and stops the query at its next checkpoint
+		 */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			this.tracker.cancel();
+			return super.cancel(mayInterruptIfRunning);
+		}
+
+		/**
+		 * Returns the fraction of the years of the query already gone through
+		 * @return progress of the query, between 0 and 1
+		 */
+		public double getProgress() {
+			return this.isDone() && !this.isCompletedExceptionally() ? 1.0 : this.tracker.getProgress();
+		}
+
+		public QueryTracker getTracker() {
+			return this.tracker;
+		}
+	}
+}
@@ -5,6 +5,7 @@ package autores;
 */
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NavigableSet;
@@ -17,27 +18,78 @@ import java.util.TreeSet;
 public class AuthorCatalog implements Serializable {
 	private HashMap<String, AuthorInfo> authors;
 	private int nrPublications;
+	private int nrCoauthorships;
+	private transient Object writer;
 
 	public AuthorCatalog() {
+		this(null);
+	}
+
+	/**
+	 * Creates an empty catalog owned by the given writer, which may change it in place
+	 * @param writer
+	 */
+	public AuthorCatalog(Object writer) {
 		this.authors = new HashMap<String, AuthorInfo>();
 		this.nrPublications = 0;
+		this.nrCoauthorships = 0;
+		this.writer = writer;
+	}
+
+	/**
+	 * Returns a copy of the catalog owned by the given writer, sharing the information of every author
+	 * until the copy changes it
+	 * @param writer
+	 * @return copy of the catalog
+	 */
+	public AuthorCatalog copy(Object writer) {
+		AuthorCatalog copy = new AuthorCatalog(writer);
+		copy.authors = new HashMap<String, AuthorInfo>(this.authors);
+		copy.nrPublications = this.nrPublications;
+		copy.nrCoauthorships = this.nrCoauthorships;
+		return copy;
+	}
+
+	/**
+	 * Checks if the catalog may be changed in place by the given writer
+	 * @param writer
+	 * @return true if the catalog belongs to the writer
+	 */
+	public boolean isOwnedBy(Object writer) {
+		return this.writer == writer;
 	}
 
 	/**
-	 * Receives a collection of authors, adding the co-authors to each of them
+	 * Receives a collection of authors, adding the co-authors to each of them.<br>
+	 * The information of an author shared with another catalog is copied before being changed
 	 * @param coauthors
 	 */
 	public void addPublication(Collection<String> coauthors) {
+		this.addPublication(coauthors, coauthors);
+	}
+
+	/**
+	 * Adds a publication, keeping information only about some of its authors
+	 * @param coauthors every author of the publication
+	 * @param owned authors whose information is kept
+	 */
+	public void addPublication(Collection<String> coauthors, Collection<String> owned) {
 
-		for (String coauthor : coauthors) {
+		for (String coauthor : owned) {
 			AuthorInfo info = this.authors.get(coauthor);
 
 			if (info == null) {
-				info = new AuthorInfo(coauthor);
+				info = new AuthorInfo(coauthor, this.writer);
+				this.authors.put(coauthor, info);
+			}
+			else if (!info.isOwnedBy(this.writer)) {
+				info = info.copy(this.writer);
 				this.authors.put(coauthor, info);
 			}
 
+			int before = info.totalCoauthors();
 			info.addPublication(coauthors);
+			this.nrCoauthorships += info.totalCoauthors() - before;
 		}
 
 		this.nrPublications++;
@@ -51,13 +103,21 @@ public class AuthorCatalog implements Serializable {
 		return this.nrPublications;
 	}
 
-	public NavigableSet<String> getAuthorsBy(char c) {
-		TreeSet<String> authors = new TreeSet<>();
-		for( AuthorInfo ai : this.authors.values() )
-			if( ai.getName().charAt(0) == c )
-				authors.add( ai.getName() );
+	/**
+	 * Returns the number of authors of a year
+	 * @return
+	 */
+	public int getNrAuthors() {
+		return this.authors.size();
+	}
 
-		return authors;
+	/**
+	 * Returns the number of coauthors of every author of a year added together, each pair of coauthors being counted
+	 * once by each of its authors
+	 * @return
+	 */
+	public int getNrCoauthorships() {
+		return this.nrCoauthorships;
 	}
 
 	/**
@@ -98,6 +158,31 @@ public class AuthorCatalog implements Serializable {
 		return authors;
 	}
 
+	/**
+	 * Returns the names of the authors that published in the current year, in no particular order and without copying them
+	 * @return
+	 */
+	public Set<String> getAuthorNames() {
+		return Collections.unmodifiableSet( this.authors.keySet() );
+	}
+
+	/**
+	 * Returns the information of every author that published in the current year
+	 * @return
+	 */
+	public Collection<AuthorInfo> getAuthorInfos() {
+		return Collections.unmodifiableCollection( this.authors.values() );
+	}
+
+	/**
+	 * Returns the information of the author with the given name, or null if it did not publish in current year
+	 * @param name
+	 * @return
+	 */
+	public AuthorInfo getAuthorInfo(String name) {
+		return this.authors.get(name);
+	}
+
 	/**
 	 * Returns the coauthors of a given author
 	 * @param author
@@ -0,0 +1,268 @@
+package autores;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Connected components of the coauthor graph, kept in a union-find structure over author identifiers
+ * with path halving and union by size.<br>
+ * Authors are only part of the structure once added; the number of components of each size is kept up to date on every union.
+ * The arrays are paged, so that a copy shares them with the original: paths are then only halved on the pages a
+ * structure already owns, and a union copies the at most two pages it writes to.
+ *
+ */
+
+@SuppressWarnings("serial")
+public class AuthorComponents implements Serializable {
+	private PagedIntArray parent;
+	private PagedIntArray size;
+	private int nrComponents;
+	private TreeMap<Integer, Integer> sizeHistogram;
+
+	/**
+	 * Empty constructor
+	 */
+	public AuthorComponents() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty structure able to hold the given number of identifiers before growing
+	 * @param capacity
+	 */
+	public AuthorComponents(int capacity) {
+		this.parent = new PagedIntArray(-1);
+		this.size = new PagedIntArray(0);
+		this.parent.ensureCapacity(capacity);
+		this.size.ensureCapacity(capacity);
+		this.nrComponents = 0;
+		this.sizeHistogram = new TreeMap<>();
+	}
+
+	/**
+	 * Returns the components of the coauthorships in the given catalogs, only holding the authors that published in them.<br>
+	 * The forest of each catalog is computed in parallel on the common ForkJoinPool, then the forests are joined.
+	 * @param catalogs
+	 * @param dictionary dictionary holding every author in the catalogs
+	 * @return components of the coauthorships in the given catalogs
+	 */
+	public static AuthorComponents of(List<AuthorCatalog> catalogs, AuthorDictionary dictionary) {
+		AuthorComponents components = new AuthorComponents( dictionary.size() );
+		if (catalogs.isEmpty()) return components;
+
+		IntList forest = ForkJoinPool.commonPool().invoke( new ForestTask(catalogs, 0, catalogs.size(), dictionary) );
+		for (int i = 0; i < forest.size(); i += 2)
+			components.union(forest.get(i), forest.get(i + 1));
+
+		return components;
+	}
+
+	/**
+	 * Returns a copy of the structure that can be changed without changing this one, sharing its pages with it
+	 * @return copy of the structure
+	 */
+	public AuthorComponents copy() {
+		AuthorComponents copy = new AuthorComponents(0);
+		copy.parent = this.parent.fork();
+		copy.size = this.size.fork();
+		copy.nrComponents = this.nrComponents;
+		copy.sizeHistogram = new TreeMap<Integer, Integer>(this.sizeHistogram);
+		return copy;
+	}
+
+	/**
+	 * Adds an author as a component of its own, unless it is already part of the structure
+	 * @param id
+	 */
+	public void add(int id) {
+		this.parent.ensureCapacity(id + 1);
+		this.size.ensureCapacity(id + 1);
+
+		if (this.parent.get(id) < 0) {
+			this.parent.set(id, id);
+			this.size.set(id, 1);
+			this.nrComponents++;
+			this.countSize(1, 1);
+		}
+	}
+
+	/**
+	 * Checks if the given author is part of the structure
+	 * @param id
+	 * @return true if the author is part of the structure
+	 */
+	public boolean contains(int id) {
+		return id >= 0 && id < this.parent.length() && this.parent.get(id) >= 0;
+	}
+
+	/**
+	 * Returns the representative of the component of the given author
+	 * @param id
+	 * @return representative of the component
+	 */
+	public int find(int id) {
+		int p;
+		while ((p = this.parent.get(id)) != id) {
+			int grandparent = this.parent.get(p);
+			if (this.parent.isOwned(id)) this.parent.set(id, grandparent);
+			id = grandparent;
+		}
+
+		return id;
+	}
+
+	/**
+	 * Joins the components of two authors, adding them first if needed
+	 * @param a
+	 * @param b
+	 */
+	public void union(int a, int b) {
+		this.add(a);
+		this.add(b);
+
+		int ra = this.find(a), rb = this.find(b);
+		if (ra == rb) return;
+
+		if (this.size.get(ra) < this.size.get(rb)) {
+			int t = ra;
+			ra = rb;
+			rb = t;
+		}
+
+		this.countSize(this.size.get(ra), -1);
+		this.countSize(this.size.get(rb), -1);
+		this.parent.set(rb, ra);
+		this.size.add(ra, this.size.get(rb));
+		this.countSize(this.size.get(ra), 1);
+		this.nrComponents--;
+	}
+
+	/**
+	 * Returns the number of authors in the component of the given author
+	 * @param id
+	 * @return number of authors in the component
+	 */
+	public int componentSize(int id) {
+		return this.size.get( this.find(id) );
+	}
+
+	/**
+	 * Returns the number of components
+	 * @return number of components
+	 */
+	public int nrComponents() {
+		return this.nrComponents;
+	}
+
+	/**
+	 * Returns the number of authors in the largest component
+	 * @return number of authors in the largest component
+	 */
+	public int largestComponentSize() {
+		return this.sizeHistogram.isEmpty() ? 0 : this.sizeHistogram.lastKey();
+	}
+
+	/**
+	 * Returns a map from component size to the number of components with that size
+	 * @return number of components of each size
+	 */
+	public NavigableMap<Integer, Integer> getSizeDistribution() {
+		return new TreeMap<Integer, Integer>(this.sizeHistogram);
+	}
+
+	/**
+	 * Returns the link from every author to the representative of its component, as consecutive pairs of identifiers.<br>
+	 * Joining every pair in an empty structure rebuilds the same components.
+	 * @return pairs of author and representative
+	 */
+	public IntList getForest() {
+		IntList forest = new IntList();
+		for (int id = 0; id < this.parent.length(); id++)
+			if (this.parent.get(id) >= 0) {
+				forest.add(id);
+				forest.add(this.find(id));
+			}
+
+		return forest;
+	}
+
+	/**
+	 * Computes the forests of a range of catalogs, splitting the range in halves until a single catalog is left
+	 */
+	private static class ForestTask extends RecursiveTask<IntList> {
+		private List<AuthorCatalog> catalogs;
+		private int from;
+		private int to;
+		private AuthorDictionary dictionary;
+
+		public ForestTask(List<AuthorCatalog> catalogs, int from, int to, AuthorDictionary dictionary) {
+			this.catalogs = catalogs;
+			this.from = from;
+			this.to = to;
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		protected IntList compute() {
+			if (this.to - this.from == 1) return forestOf( this.catalogs.get(this.from) );
+
+			int mid = (this.from + this.to) >>> 1;
+			ForestTask left = new ForestTask(this.catalogs, this.from, mid, this.dictionary);
+			left.fork();
+			IntList right = new ForestTask(this.catalogs, mid, this.to, this.dictionary).compute();
+			IntList forest = left.join();
+
+			for (int i = 0; i < right.size(); i++)
+				forest.add( right.get(i) );
+
+			return forest;
+		}
+
+		/**
+		 * Returns the forest of the components of one catalog, numbering its authors locally so it only costs the size of the catalog
+		 * @param catalog
+		 * @return pairs of author and representative, as global identifiers
+		 */
+		private IntList forestOf(AuthorCatalog catalog) {
+			HashMap<String, Integer> local = new HashMap<>();
+			int[] global = new int[catalog.getAuthorInfos().size()];
+
+			for (AuthorInfo info : catalog.getAuthorInfos()) {
+				global[local.size()] = this.dictionary.idOf( info.getName() );
+				local.put(info.getName(), local.size());
+			}
+
+			AuthorComponents components = new AuthorComponents(global.length);
+			for (AuthorInfo info : catalog.getAuthorInfos()) {
+				int a = local.get( info.getName() );
+				components.add(a);
+				for (String coauthor : info.getCoauthors())
+					components.union(a, local.get(coauthor));
+			}
+
+			IntList forest = components.getForest();
+			for (int i = 0; i < forest.size(); i++)
+				forest.set(i, global[forest.get(i)]);
+
+			return forest;
+		}
+	}
+
+	/**
+	 * Updates the number of components with the given size
+	 * @param size
+	 * @param delta
+	 */
+	private void countSize(int size, int delta) {
+		Integer count = this.sizeHistogram.get(size);
+		int c = (count == null ? 0 : count) + delta;
+
+		if (c == 0) this.sizeHistogram.remove(size);
+		else this.sizeHistogram.put(size, c);
+	}
+}
@@ -0,0 +1,169 @@
+package autores;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns a dense integer identifier to every author name.<br>
+ * Identifiers are given in order of appearance and are never reused, so the dictionary only grows. A copy shares the
+ * names with the original, which from then on only sees the names it already had: the copy is the only one to register
+ * new names, and any name with an identifier past the size of the original at the time of the copy is unknown to it.
+ * Should the original register names again, or be copied again, it first takes a copy of its own names.<br>
+ * The original is usually being read while the copy registers names, so its bound and the number of names are
+ * volatile: the bound is set before the copy is handed out, and the number of names is read before the bound.
+ *
+ */
+
+@SuppressWarnings("serial")
+public class AuthorDictionary implements Serializable {
+	private static final int PAGE_BITS = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	private transient Names names;
+	/** number of names seen by this dictionary, or -1 if it sees every name, registering new ones */
+	private transient volatile int limit;
+
+	/**
+	 * Empty constructor
+	 */
+	public AuthorDictionary() {
+		this.names = new Names();
+		this.limit = -1;
+	}
+
+	/**
+	 * Returns the identifier of the given name, registering it if it is new
+	 * @param name
+	 * @return identifier of the given name
+	 */
+	public int register(String name) {
+		if (this.limit >= 0) this.detach();
+
+		Integer id = this.names.ids.get(name);
+		if (id == null) {
+			id = this.names.size;
+			this.names.add(name);
+			this.names.ids.put(name, id);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Returns a copy of the dictionary that can grow without changing this one, sharing the names known so far
+	 * @return copy of the dictionary
+	 */
+	public synchronized AuthorDictionary copy() {
+		if (this.limit >= 0) this.detach();
+
+		AuthorDictionary copy = new AuthorDictionary();
+		copy.names = this.names;
+		this.limit = this.names.size;
+		return copy;
+	}
+
+	/**
+	 * Returns the identifier of the given name, or -1 if the name is unknown
+	 * @param name
+	 * @return identifier of the given name, or -1 if the name is unknown
+	 */
+	public int idOf(String name) {
+		Integer id = this.names.ids.get(name);
+		if (id == null) return -1;
+
+		int limit = this.limit;
+		return limit >= 0 && id >= limit ? -1 : id;
+	}
+
+	/**
+	 * Returns the name with the given identifier
+	 * @param id
+	 * @return name with the given identifier
+	 */
+	public String nameOf(int id) {
+		if (id < 0 || id >= this.size()) throw new IndexOutOfBoundsException("Id " + id + ", size " + this.size());
+		return this.names.pages[id >>> PAGE_BITS][id & (PAGE_SIZE - 1)];
+	}
+
+	/**
+	 * Checks if the given name is known
+	 * @param name
+	 * @return true if the given name is known
+	 */
+	public boolean contains(String name) {
+		return this.idOf(name) >= 0;
+	}
+
+	/**
+	 * Returns the number of registered names
+	 * @return number of registered names
+	 */
+	public int size() {
+		int size = this.names.size;
+		int limit = this.limit;
+		return limit >= 0 ? limit : size;
+	}
+
+	/**
+	 * Stops sharing the names with the copy they were handed to, taking a copy of the ones this dictionary sees
+	 */
+	private void detach() {
+		Names own = new Names();
+		for (int id = 0; id < this.limit; id++) {
+			String name = this.nameOf(id);
+			own.add(name);
+			own.ids.put(name, id);
+		}
+
+		this.names = own;
+		this.limit = -1;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		int size = this.size();
+		out.writeInt(size);
+		for (int id = 0; id < size; id++)
+			out.writeObject( this.nameOf(id) );
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.names = new Names();
+		this.limit = -1;
+
+		int size = in.readInt();
+		for (int id = 0; id < size; id++)
+			this.register( (String) in.readObject() );
+	}
+
+	/**
+	 * Names shared by a dictionary and its copies, only ever registered by the last copy.<br>
+	 * Identifiers are looked up in a concurrent map, so that the dictionaries seeing only the older names can be read
+	 * while the last copy registers new ones, and names are kept in pages that never move once filled.
+	 */
+	private static class Names {
+		private ConcurrentHashMap<String, Integer> ids;
+		private volatile String[][] pages;
+		private volatile int size;
+
+		public Names() {
+			this.ids = new ConcurrentHashMap<>();
+			this.pages = new String[1][];
+			this.size = 0;
+		}
+
+		public void add(String name) {
+			int page = this.size >>> PAGE_BITS;
+			if (page == this.pages.length) this.pages = Arrays.copyOf(this.pages, this.pages.length * 2);
+			if (this.pages[page] == null) this.pages[page] = new String[PAGE_SIZE];
+
+			this.pages[page][this.size & (PAGE_SIZE - 1)] = name;
+			this.size++;
+		}
+	}
+}
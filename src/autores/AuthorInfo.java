@@ -1,30 +1,87 @@
 package autores;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
 /**
- * Class used to store information about an author
+ * Class used to store information about an author.<br>
+ * Coauthors are mapped to their position in two parallel arrays, joint publications and collaboration strengths, so
+ * that a coauthor costs an int and a double next to its map entry, and a publication looks up each coauthor once.
+ * Positions are boxed once for every author. Authors saved when the map held the joint publications still load,
+ * with no strength.
  * 
  */
 
-@SuppressWarnings("serial")
 public class AuthorInfo implements Serializable {
+	/** computed by the versions that kept no strengths, so that the authors they saved still load */
+	private static final long serialVersionUID = -3795743735709603406L;
+	/** boxed positions shared by every author, so that the position of a coauthor costs a reference only */
+	private static volatile Integer[] sharedPositions = new Integer[0];
+	
 	private String name;
 	private int soloPublications;
 	private int jointPublications;
+	/** position of every coauthor in the arrays below */
 	private TreeMap<String, Integer> coauthorsInfo; 
+	private int[] publications;
+	private double[] strengths;
+	private transient Object writer;
 
 	public AuthorInfo(String name) {
+		this(name, null);
+	}
+	
+	/**
+	 * Creates an author owned by the given writer, which may change it in place
+	 * @param name
+	 * @param writer
+	 */
+	public AuthorInfo(String name, Object writer) {
 		this.name = name;
 		this.soloPublications = 0;
 		this.jointPublications = 0;
 		this.coauthorsInfo = new TreeMap<>();
+		this.publications = new int[4];
+		this.strengths = new double[4];
+		this.writer = writer;
+	}
+	
+	/**
+	 * Returns a copy of the author that can be changed without changing this one, owned by the given writer
+	 * @param writer
+	 * @return copy of the author
+	 */
+	public AuthorInfo copy(Object writer) {
+		AuthorInfo copy = new AuthorInfo(this.name);
+		copy.soloPublications = this.soloPublications;
+		copy.jointPublications = this.jointPublications;
+		copy.coauthorsInfo.putAll(this.coauthorsInfo);
+		copy.publications = Arrays.copyOf(this.publications, Math.max(4, this.coauthorsInfo.size()));
+		copy.strengths = Arrays.copyOf(this.strengths, copy.publications.length);
+		copy.writer = writer;
+		
+		return copy;
+	}
+	
+	/**
+	 * Checks if the author may be changed in place by the given writer
+	 * @param writer
+	 * @return true if the author belongs to the writer
+	 */
+	public boolean isOwnedBy(Object writer) {
+		return this.writer == writer;
 	}
 	
 	public String getName() {
@@ -44,16 +101,26 @@ public class AuthorInfo implements Serializable {
 	}
 	
 	/**
-	 * adds a publication to the author
+	 * adds a publication to the author; each coauthor gets one more joint publication and 1/(n - 1) of strength,
+	 * n being the number of authors of the publication
 	 */
 	public void addPublication(Collection<String> coauthors) {
-		Integer coauthorTotal;
+		Integer position;
+		double strength = coauthors.size() > 1 ? 1.0 / (coauthors.size() - 1) : 0;
 		
 		for (String coauthor : coauthors) {
 			if (!coauthor.equals(this.name)) {
-				coauthorTotal = this.coauthorsInfo.get(coauthor);
-				if (coauthorTotal == null) this.coauthorsInfo.put(coauthor, 1);
-				else this.coauthorsInfo.put(coauthor, coauthorTotal + 1);
+				position = this.coauthorsInfo.get(coauthor);
+				if (position == null) {
+					position = position( this.coauthorsInfo.size() );
+					this.coauthorsInfo.put(coauthor, position);
+					if (position == this.publications.length) {
+						this.publications = Arrays.copyOf(this.publications, position + (position >> 1));
+						this.strengths = Arrays.copyOf(this.strengths, this.publications.length);
+					}
+				}
+				this.publications[position]++;
+				this.strengths[position] += strength;
 			}
 		}
 		
@@ -72,7 +139,7 @@ public class AuthorInfo implements Serializable {
 		Tuple<String, Integer> t;
 		
 		for (Map.Entry<String, Integer> entry : this.coauthorsInfo.entrySet()) {
-			t = new Tuple<String, Integer>(entry.getKey(), entry.getValue());
+			t = new Tuple<String, Integer>(entry.getKey(), this.publications[entry.getValue()]);
 			
 			if (ret.size() < numberOfCoauthors) ret.add(t);
 			else if (t.getSecond() > ret.first().getSecond()) {
@@ -84,6 +151,28 @@ public class AuthorInfo implements Serializable {
 		return ret;
 	}
 	
+	/**
+	 * Returns the coauthors with the highest collaboration strength, where each publication with n authors adds 1/(n - 1)
+	 * @param numberOfCoauthors
+	 * @return coauthors with the highest collaboration strength, lowest first
+	 */
+	public Set<Tuple<String, Double>> topCoauthorsByStrength(int numberOfCoauthors) {
+		TreeSet<Tuple<String, Double>> ret = new TreeSet<Tuple<String, Double>>(new AuthorScoreTupleComparator());
+		Tuple<String, Double> t;
+		
+		for (Map.Entry<String, Integer> entry : this.coauthorsInfo.entrySet()) {
+			t = new Tuple<String, Double>(entry.getKey(), this.strengths[entry.getValue()]);
+			
+			if (ret.size() < numberOfCoauthors) ret.add(t);
+			else if (ret.comparator().compare(t, ret.first()) > 0) {
+				ret.pollFirst();
+				ret.add(t);
+			}
+		}
+		
+		return ret;
+	}
+	
 	/**
 	 * Returns true if the author only published alone
 	 * @return true if the author only published alone
@@ -105,7 +194,25 @@ public class AuthorInfo implements Serializable {
 	 * @return information about coauthors as a map, mapping the name to the number of publications with the coauthor
 	 */
 	public Map<String, Integer> getCoauthorsInfo() {
-		return this.coauthorsInfo;
+		return new PublicationView();
+	}
+	
+	/**
+	 * Returns the collaboration strength with every coauthor, where each publication with n authors adds 1/(n - 1)
+	 * @return information about coauthors as a map, mapping the name to the collaboration strength with the coauthor
+	 */
+	public Map<String, Double> getCoauthorStrengths() {
+		return new StrengthView();
+	}
+	
+	/**
+	 * Returns the collaboration strength with a coauthor, where each publication with n authors adds 1/(n - 1)
+	 * @param coauthor
+	 * @return collaboration strength with the coauthor, 0 if they never published together
+	 */
+	public double getStrength(String coauthor) {
+		Integer position = this.coauthorsInfo.get(coauthor);
+		return position == null ? 0 : this.strengths[position];
 	}
 	
 	/**
@@ -113,7 +220,7 @@ public class AuthorInfo implements Serializable {
 	 * @return set with all the coauthors
 	 */
 	public Set<String> getCoauthors() {
-		return this.coauthorsInfo.keySet();
+		return Collections.unmodifiableSet( this.coauthorsInfo.keySet() );
 	}
 	
 	/** 
@@ -123,7 +230,7 @@ public class AuthorInfo implements Serializable {
 	public Map<Tuple<String, String>, Integer> getAuthorPairs() {
 		TreeMap<Tuple<String, String>, Integer> pairs = new TreeMap<>( new AuthorTupleComparator() );
 		for( Map.Entry<String, Integer> coauthor : this.coauthorsInfo.entrySet() ) {
-			int val = coauthor.getValue();
+			int val = this.publications[coauthor.getValue()];
 			String coauthorName = coauthor.getKey();
 			if( this.name.compareTo(coauthorName) < 0 )
 				pairs.put(new Tuple<String, String>(this.name, coauthorName), val);
@@ -150,7 +257,7 @@ public class AuthorInfo implements Serializable {
 		Tuple<Set<String>, Integer> t = new Tuple<Set<String>, Integer>(new HashSet<String>(), 0); 
 		for (Map.Entry<String, Integer> entry : this.coauthorsInfo.entrySet()) {
 			t.getFirst().add(entry.getKey());
-			t.setSecond(t.getSecond() + entry.getValue());
+			t.setSecond(t.getSecond() + this.publications[entry.getValue()]);
 		}
 		
 		return t;
@@ -169,11 +276,135 @@ public class AuthorInfo implements Serializable {
 			sb.append("\n\t: ");
 			sb.append(coauthor.getKey());
 			sb.append("- ");
-			sb.append(coauthor.getValue());
+			sb.append(this.publications[coauthor.getValue()]);
 		}
 		
 		return sb.toString();
 	}
 	
+	/**
+	 * Returns the given position boxed, shared by every author
+	 * @param position
+	 * @return boxed position
+	 */
+	private static Integer position(int position) {
+		Integer[] positions = sharedPositions;
+		if (position < positions.length) return positions[position];
+		
+		synchronized (AuthorInfo.class) {
+			positions = sharedPositions;
+			if (position >= positions.length) {
+				Integer[] grown = Arrays.copyOf(positions, Math.max(position + 1, Math.max(256, positions.length * 2)));
+				for (int i = positions.length; i < grown.length; i++) grown[i] = i;
+				sharedPositions = positions = grown;
+			}
+			return positions[position];
+		}
+	}
+	
+	/**
+	 * Authors saved when the map held the joint publications of every coauthor load with no strength
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (this.publications == null) {
+			this.publications = new int[Math.max(4, this.coauthorsInfo.size())];
+			this.strengths = new double[this.publications.length];
+			int position = 0;
+			for (Map.Entry<String, Integer> entry : this.coauthorsInfo.entrySet()) {
+				this.publications[position] = entry.getValue();
+				entry.setValue( position(position++) );
+			}
+		}
+	}
+	
+	/**
+	 * Read only view of the joint publications, mapping each coauthor to the publications with it
+	 */
+	private class PublicationView extends AbstractMap<String, Integer> {
+		@Override
+		public Integer get(Object key) {
+			Integer position = coauthorsInfo.get(key);
+			return position == null ? null : publications[position];
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return coauthorsInfo.containsKey(key);
+		}
+		
+		@Override
+		public int size() {
+			return coauthorsInfo.size();
+		}
+		
+		@Override
+		public Set<Map.Entry<String, Integer>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Integer>>() {
+				public int size() {
+					return coauthorsInfo.size();
+				}
+				
+				public Iterator<Map.Entry<String, Integer>> iterator() {
+					final Iterator<Map.Entry<String, Integer>> it = coauthorsInfo.entrySet().iterator();
+					return new Iterator<Map.Entry<String, Integer>>() {
+						public boolean hasNext() {
+							return it.hasNext();
+						}
+						
+						public Map.Entry<String, Integer> next() {
+							Map.Entry<String, Integer> e = it.next();
+							return new AbstractMap.SimpleImmutableEntry<String, Integer>( e.getKey(), publications[e.getValue()] );
+						}
+					};
+				}
+			};
+		}
+	}
+	
+	/**
+	 * Read only view of the collaboration strengths, mapping each coauthor to its strength
+	 */
+	private class StrengthView extends AbstractMap<String, Double> {
+		@Override
+		public Double get(Object key) {
+			Integer position = coauthorsInfo.get(key);
+			return position == null ? null : strengths[position];
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return coauthorsInfo.containsKey(key);
+		}
+		
+		@Override
+		public int size() {
+			return coauthorsInfo.size();
+		}
+		
+		@Override
+		public Set<Map.Entry<String, Double>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Double>>() {
+				public int size() {
+					return coauthorsInfo.size();
+				}
+				
+				public Iterator<Map.Entry<String, Double>> iterator() {
+					final Iterator<Map.Entry<String, Integer>> it = coauthorsInfo.entrySet().iterator();
+					return new Iterator<Map.Entry<String, Double>>() {
+						public boolean hasNext() {
+							return it.hasNext();
+						}
+						
+						public Map.Entry<String, Double> next() {
+							Map.Entry<String, Integer> e = it.next();
+							return new AbstractMap.SimpleImmutableEntry<String, Double>( e.getKey(), strengths[e.getValue()] );
+						}
+					};
+				}
+			};
+		}
+	}
+	
 	
 }
\ No newline at end of file
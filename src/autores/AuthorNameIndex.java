@@ -0,0 +1,159 @@
+package autores;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted index over the names of an AuthorDictionary, used to answer prefix queries.<br>
+ * Names are ordered ignoring case, so every prefix maps to one contiguous range of the index,
+ * found with two binary searches.
+ *
+ */
+
+public class AuthorNameIndex {
+	private AuthorDictionary dictionary;
+	private int[] sortedIds;
+	private int[] ranks;
+
+	/**
+	 * Builds the index over every name currently in the dictionary
+	 * @param dictionary
+	 */
+	public AuthorNameIndex(final AuthorDictionary dictionary) {
+		Integer[] ids = new Integer[dictionary.size()];
+		for (int i = 0; i < ids.length; i++) ids[i] = i;
+
+		Arrays.sort(ids, new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				String n1 = dictionary.nameOf(i1), n2 = dictionary.nameOf(i2);
+				int c = String.CASE_INSENSITIVE_ORDER.compare(n1, n2);
+				return c != 0 ? c : n1.compareTo(n2);
+			}
+		});
+
+		this.dictionary = dictionary;
+		this.sortedIds = new int[ids.length];
+		this.ranks = new int[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			this.sortedIds[i] = ids[i];
+			this.ranks[ids[i]] = i;
+		}
+	}
+
+	/**
+	 * Returns the number of indexed names
+	 * @return number of indexed names
+	 */
+	public int size() {
+		return this.sortedIds.length;
+	}
+
+	/**
+	 * Returns the position of a name in the index
+	 * @param name
+	 * @return position of the name, or -1 if it is not indexed
+	 */
+	public int rankOf(String name) {
+		int id = this.dictionary.idOf(name);
+		return id < 0 || id >= this.ranks.length ? -1 : this.ranks[id];
+	}
+
+	/**
+	 * Returns the name at the given position of the index
+	 * @param rank
+	 * @return name at the given position
+	 */
+	public String nameAt(int rank) {
+		return this.dictionary.nameOf(this.sortedIds[rank]);
+	}
+
+	/**
+	 * Returns the positions of the given names in the index, in order
+	 * @param names indexed names
+	 * @return sorted positions of the names
+	 */
+	public int[] ranksOf(Collection<String> names) {
+		int[] res = new int[names.size()];
+		int i = 0;
+		for (String name : names) res[i++] = this.rankOf(name);
+
+		Arrays.sort(res);
+		return res;
+	}
+
+	/**
+	 * Returns the names started by the given prefix, ignoring case, read from the index as the cursor advances
+	 * @param prefix
+	 * @return cursor over the names started by the given prefix
+	 */
+	public RankCursor cursor(String prefix) {
+		int lo = lowerBound(prefix);
+		return RankCursor.range(this, lo, upperBound(prefix, lo));
+	}
+
+	/**
+	 * Returns the number of names started by the given prefix, ignoring case
+	 * @param prefix
+	 * @return number of names started by the given prefix
+	 */
+	public int count(String prefix) {
+		int lo = lowerBound(prefix);
+		return upperBound(prefix, lo) - lo;
+	}
+
+	/**
+	 * Returns a page of the names started by the given prefix, ignoring case
+	 * @param prefix
+	 * @param offset number of matching names to skip
+	 * @param limit maximum number of names to return
+	 * @return page of the names started by the given prefix
+	 */
+	public List<String> find(String prefix, int offset, int limit) {
+		int lo = lowerBound(prefix);
+		int hi = upperBound(prefix, lo);
+		ArrayList<String> page = new ArrayList<>();
+
+		for (int i = lo + Math.max(offset, 0); i < hi && page.size() < limit; i++)
+			page.add( this.dictionary.nameOf(this.sortedIds[i]) );
+
+		return page;
+	}
+
+	/**
+	 * Returns the position of the first name not smaller than the prefix
+	 * @param prefix
+	 * @return position of the first name not smaller than the prefix
+	 */
+	private int lowerBound(String prefix) {
+		int lo = 0, hi = this.sortedIds.length;
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (String.CASE_INSENSITIVE_ORDER.compare(this.dictionary.nameOf(this.sortedIds[mid]), prefix) < 0) lo = mid + 1;
+			else hi = mid;
+		}
+
+		return lo;
+	}
+
+	/**
+	 * Returns the position of the first name, starting at from, that is not started by the prefix
+	 * @param prefix
+	 * @param from
+	 * @return position of the first name that is not started by the prefix
+	 */
+	private int upperBound(String prefix, int from) {
+		int lo = from, hi = this.sortedIds.length;
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (this.dictionary.nameOf(this.sortedIds[mid]).regionMatches(true, 0, prefix, 0, prefix.length())) lo = mid + 1;
+			else hi = mid;
+		}
+
+		return lo;
+	}
+}
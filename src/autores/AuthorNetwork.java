@@ -10,11 +10,16 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Class responsible for:<br>
@@ -28,17 +33,170 @@ import java.util.TreeSet;
 
 @SuppressWarnings("serial")
 public class AuthorNetwork  implements Serializable {
-	private String currentFile;
-	private Statistics stats;
-	private GlobalAuthorNetwork network;
+	private volatile Snapshot snapshot;
+	private transient volatile QueryCache cache;
+	private volatile boolean serveStale;
+	
+	private static final long CACHE_BYTES = 64L * 1024 * 1024;
+	/** guards the creation of the cache, apart from the lock held by writers while reading files */
+	private static final Object CACHE_LOCK = new Object();
+	/** how often a query waiting for another one checks its own cancellation and deadline */
+	private static final long FLIGHT_POLL_MILLIS = 10;
 	
 	/**
 	 * Empty constructor
 	 */
 	public AuthorNetwork() {
-		this.currentFile = "";
-		this.stats = new Statistics();
-		this.network = new GlobalAuthorNetwork();
+		this.snapshot = new Snapshot("", new Statistics(), new GlobalAuthorNetwork(), 0);
+		this.cache = null;
+		this.serveStale = false;
+	}
+	
+	/**
+	 * Returns the cache of query results, creating it if needed
+	 * @return cache of query results
+	 */
+	public QueryCache getQueryCache() {
+		QueryCache cache = this.cache;
+		if (cache == null)
+			synchronized (CACHE_LOCK) {
+				if (this.cache == null) {
+					this.cache = new QueryCache(CACHE_BYTES);
+					this.cache.setKeepStale(this.serveStale);
+				}
+				cache = this.cache;
+			}
+		
+		return cache;
+	}
+	
+	/**
+	 * Chooses whether a query whose result is being computed after new data was read shall get the result from
+	 * before that read, if it is still cached, instead of waiting for the computation
+	 * @param serveStale
+	 */
+	public void setServeStale(boolean serveStale) {
+		this.serveStale = serveStale;
+		this.getQueryCache().setKeepStale(serveStale);
+	}
+	
+	public boolean isServingStale() {
+		return this.serveStale;
+	}
+	
+	/**
+	 * Returns the result of a query on the current snapshot, computing it only if it is neither cached nor being
+	 * computed already.<br>
+	 * Concurrent calls with the same key wait for the first one and share its result, so a burst of identical
+	 * queries costs a single computation. A caller waiting for another one still stops at its own cancellation or
+	 * deadline, and if the computation it waits for is aborted, the caller computes the result itself, being admitted
+	 * first if its admission was left for when it computes
+	 * @param key
+	 * @param computation
+	 * @return result of the query, immutable and shared by every caller
+	 * @throws E
+	 */
+	@SuppressWarnings("unchecked")
+	private <E extends Exception> Object cached(QueryKey key, Computation<E> computation) throws E {
+		QueryCache cache = this.getQueryCache();
+		
+		for (;;) {
+			Snapshot snapshot = this.snapshot;
+			long version = snapshot.version;
+			Object res = cache.get(key, version);
+			if (res != null) return res;
+			
+			CompletableFuture<Object> mine = new CompletableFuture<>();
+			CompletableFuture<Object> flight = cache.joinFlight(key, version, mine);
+			if (flight == null) {
+				try {
+					res = cache.get(key, version); // may have been cached by a computation that ended since the first lookup
+					if (res == null) {
+						QueryTracker.admitCurrent();
+						res = computation.compute(snapshot.network);
+						cache.put(key, version, res);
+					}
+					mine.complete(res);
+					return res;
+				} catch (Throwable t) {
+					mine.completeExceptionally(t);
+					throw t;
+				} finally {
+					cache.endFlight(key, version, mine);
+				}
+			}
+			
+			if (this.serveStale) {
+				res = cache.getStale(key);
+				if (res != null) return res;
+			}
+			
+			try {
+				return awaitFlight(flight);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				// a computation that was aborted, or whose caller was not admitted, is taken over by its waiters
+				if (cause instanceof QueryAbortedException || cause instanceof QueryRejectedException) continue;
+				if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+				if (cause instanceof Error) throw (Error) cause;
+				throw (E) cause;
+			}
+		}
+	}
+	
+	/**
+	 * Returns an unmodifiable copy of a set of tuples to be cached, in the same order, whose tuples cannot be changed
+	 * either, so no caller can change the result every later caller gets
+	 * @param set
+	 * @return unmodifiable copy of the set
+	 */
+	private static <T> NavigableSet<T> immutableSet(NavigableSet<T> set) {
+		TreeSet<T> res = new TreeSet<>( set.comparator() );
+		for (T t : set) res.add( Tuple.immutable(t) );
+		return Collections.unmodifiableNavigableSet(res);
+	}
+	
+	/**
+	 * Checks if the result of a query is cached or being computed on the current snapshot, so that asking for it
+	 * computes nothing, unless the computation it would wait for is aborted or the result evicted in between
+	 * @param key key of the query, as cached
+	 * @return true if the result is cached or being computed
+	 */
+	public boolean isAnswered(QueryKey key) {
+		QueryCache cache = this.cache;
+		return cache != null && cache.peek(key, this.snapshot.version);
+	}
+	
+	/**
+	 * Waits for a computation started by another caller, checking the tracker of the current query while waiting
+	 * @param flight
+	 * @return result of the computation
+	 * @throws ExecutionException if the computation failed
+	 */
+	private static Object awaitFlight(CompletableFuture<Object> flight) throws ExecutionException {
+		try {
+			if (QueryTracker.current() == null)
+				return flight.get();
+			
+			for (;;) {
+				try {
+					return flight.get(FLIGHT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					QueryTracker.checkpoint(0);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new QueryAbortedException("interrupted", 0, 0, 0);
+		}
+	}
+	
+	/**
+	 * Returns the data version, which changes every time data is read
+	 * @return data version
+	 */
+	public long getVersion() {
+		return this.snapshot.version;
 	}
 
 	/**
@@ -46,7 +204,7 @@ public class AuthorNetwork  implements Serializable {
 	 * @return read file name
 	 */
 	public String getCurrentFile() {
-		return this.currentFile;
+		return this.snapshot.currentFile;
 	}
 	
 	/**
@@ -54,7 +212,7 @@ public class AuthorNetwork  implements Serializable {
 	 * @return total number of solo publications
 	 */
 	public int getSoloPublications() {
-		return stats.getSoloArticles();
+		return this.snapshot.stats.getSoloArticles();
 	}
 	
 	/**
@@ -62,7 +220,11 @@ public class AuthorNetwork  implements Serializable {
 	 * @return number of authors who only published alone
 	 */
 	public int getTotalSoloAuthors() {
-		return this.network.getSoloAuthors().size();
+		return (Integer) this.cached(new QueryKey("soloAuthors"), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return network.getSoloAuthors().size();
+			}
+		});
 	}
 	
 	/**
@@ -70,7 +232,11 @@ public class AuthorNetwork  implements Serializable {
 	 * @return number of authors who never published alone
 	 */
 	public int getTotalNonSoloAuthors() {
-		return this.network.getNonSoloAuthors().size();
+		return (Integer) this.cached(new QueryKey("nonSoloAuthors"), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return network.getNonSoloAuthors().size();
+			}
+		});
 	}
 	
 	/**
@@ -78,7 +244,7 @@ public class AuthorNetwork  implements Serializable {
 	 * @return total number of authors
 	 */
 	public int getTotalAuthors() {
-		return network.totalAuthors();
+		return this.snapshot.network.totalAuthors();
 	}
 	
 	/**
@@ -86,7 +252,7 @@ public class AuthorNetwork  implements Serializable {
 	 * @return total number of names read
 	 */
 	public int getTotalNamesRead() {
-		return stats.getTotalNames();
+		return this.snapshot.stats.getTotalNames();
 	}
 	
 	/**
@@ -94,7 +260,7 @@ public class AuthorNetwork  implements Serializable {
 	 * @return total number of publications
 	 */
 	public int getTotalPublications() {
-		return stats.getTotalArticles();
+		return this.snapshot.stats.getTotalArticles();
 	}
 	
 	/**
@@ -102,7 +268,25 @@ public class AuthorNetwork  implements Serializable {
 	 * @return tuple containing minimum and maximum years that have publications
 	 */
 	public Tuple<Integer, Integer> getYearInterval() {
-		return network.getYearInterval();
+		return this.snapshot.network.getYearInterval();
+	}
+	
+	/**
+	 * Returns the sizes of the catalogs of the years of an interval added together
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return number of authors and number of coauthorships of the years of the interval
+	 */
+	public Tuple<Long, Long> catalogSizes(int min, int max) {
+		return this.snapshot.network.catalogSizes(min, max);
+	}
+	
+	/**
+	 * Returns an empty batch of queries over the current data, going through the years once for every query added to it
+	 * @return batch of queries, not cached, unaffected by later changes
+	 */
+	public QueryBatch batch() {
+		return new QueryBatch(this.snapshot.network);
 	}
 	
 	/**
@@ -110,16 +294,26 @@ public class AuthorNetwork  implements Serializable {
 	 * @param name
 	 * @return set containing the name of all the coauthors of the author with the given name
 	 */
+	@SuppressWarnings("unchecked")
 	public NavigableSet<String> getCoauthorsOf(String name) {
-		return this.network.getCoauthorsOf(name);
+		return (NavigableSet<String>) this.cached(new QueryKey("coauthorsOf", name), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return Collections.unmodifiableNavigableSet( network.getCoauthorsOf(name) );
+			}
+		});
 	}
 	
 	/**
 	 * Returns a navigable map of the year table. The table shall contain an association of year - number of publications
 	 * @return navigable map of the year table. The table shall contain an association of year - number of publications
 	 */
+	@SuppressWarnings("unchecked")
 	public NavigableMap<Integer, Integer> getYearTable() {
-		return this.network.getYearTable();
+		return (NavigableMap<Integer, Integer>) this.cached(new QueryKey("yearTable"), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return Collections.unmodifiableNavigableMap( network.getYearTable() );
+			}
+		});
 	}
 	
 	/**
@@ -129,8 +323,24 @@ public class AuthorNetwork  implements Serializable {
 	 * @param nrAuthors maximum number of authors to display
 	 * @return set with a certain number of authors that published in the year interval
 	 */
+	@SuppressWarnings("unchecked")
 	public NavigableSet<Tuple<String, Integer>> topPublishersInInterval(int min, int max, int nrAuthors) {
-		return this.network.topPublishers(min, max, nrAuthors);
+		return (NavigableSet<Tuple<String, Integer>>) this.cached(new QueryKey("topPublishers", min, max, nrAuthors), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return immutableSet( network.topPublishers(min, max, nrAuthors) );
+			}
+		});
+	}
+	
+	/**
+	 * Returns the statistics of every rolling window of the given number of years: publications, active authors,
+	 * authors that published every year and top publishers. All windows are computed in a single pass over the years
+	 * @param width number of years in each window
+	 * @param nrAuthors number of top publishers to report for each window
+	 * @return statistics of every window, in order
+	 */
+	public List<WindowStats> slidingWindows(int width, int nrAuthors) {
+		return this.snapshot.network.slidingWindows(width, nrAuthors);
 	}
 	
 	/**
@@ -140,8 +350,13 @@ public class AuthorNetwork  implements Serializable {
 	 * @return set with the names of authors that published in the given year interval
 	 * @throws NoAuthorsInIntervalException
 	 */
+	@SuppressWarnings("unchecked")
 	public NavigableSet<String> authorsInInterval(int min, int max) throws NoAuthorsInIntervalException {
-		return this.network.authorsInInterval(min, max);
+		return (NavigableSet<String>) this.cached(new QueryKey("authorsInInterval", min, max), new Computation<NoAuthorsInIntervalException>() {
+			public Object compute(GlobalAuthorNetwork network) throws NoAuthorsInIntervalException {
+				return Collections.unmodifiableNavigableSet( network.authorsInInterval(min, max) );
+			}
+		});
 	}
 	
 	/**
@@ -150,7 +365,7 @@ public class AuthorNetwork  implements Serializable {
 	 * @return number of authors with more publications than the given number
 	 */
 	public int nrAuthorsWithOver(int nrPublications) {
-		return this.network.nrAuthorsWithOver(nrPublications);
+		return this.snapshot.network.nrAuthorsWithOver(nrPublications);
 	}
 	
 	/**
@@ -162,45 +377,430 @@ public class AuthorNetwork  implements Serializable {
 	 * @throws NoSuchAuthorException
 	 */
 	public Tuple<Set<String>, Integer> authorPartnershipInfo(int year, String author) throws NoSuchYearException, NoSuchAuthorException {
-		return this.network.authorPartnershipInfo(year, author);
+		return this.snapshot.network.authorPartnershipInfo(year, author);
 	}
 	
 	/**
-	 * Resets the statistics and sets the new filename
-	 * @param filename
-	 */
-	private void reset(String filename) {
-		this.stats = new Statistics();
-		this.currentFile = filename;
-		this.network = new GlobalAuthorNetwork();
-	}
-	/**
-	 * Returns a navigable set of authors started by the given initial
+	 * Returns a navigable set of authors started by the given initial, ignoring case
 	 * @param c
 	 * @return navigable set of authors started by the given initial
 	 */
 	public NavigableSet<String> getAuthorsBy(char c) {
-		return this.network.getAuthorsBy(c);
+		return this.snapshot.network.getAuthorsBy(c);
+	}
+	
+	/**
+	 * Returns a page of the authors started by the given prefix, ignoring case, ordered by name
+	 * @param prefix
+	 * @param offset number of matching authors to skip
+	 * @param limit maximum number of authors to return
+	 * @return page of the authors started by the given prefix
+	 */
+	public List<String> getAuthorsByPrefix(String prefix, int offset, int limit) {
+		return this.snapshot.network.getAuthorsByPrefix(prefix, offset, limit);
+	}
+	
+	/**
+	 * Returns the number of authors started by the given prefix, ignoring case
+	 * @param prefix
+	 * @return number of authors started by the given prefix
+	 */
+	public int countAuthorsByPrefix(String prefix) {
+		return this.snapshot.network.countAuthorsByPrefix(prefix);
+	}
+	
+	/**
+	 * Returns the authors started by the given prefix, ignoring case, read as they are iterated
+	 * @param prefix
+	 * @return authors started by the given prefix, ordered by name ignoring case
+	 */
+	public Iterable<String> cursorAuthorsByPrefix(String prefix) {
+		return this.snapshot.network.cursorAuthorsByPrefix(prefix);
+	}
+	
+	/**
+	 * Returns the coauthors of the author with the given name, merged from every year as they are iterated
+	 * @param name
+	 * @return coauthors of the author, ordered by name ignoring case
+	 */
+	public Iterable<String> cursorCoauthorsOf(String name) {
+		return this.snapshot.network.cursorCoauthorsOf(name);
+	}
+	
+	/**
+	 * Returns the authors that published in every year of the given interval with publications, found as they are iterated
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return authors that published in every year of the interval, ordered by name ignoring case
+	 * @throws NoAuthorsInIntervalException if no year of the interval has publications
+	 */
+	public Iterable<String> cursorAuthorsInInterval(int min, int max) throws NoAuthorsInIntervalException {
+		return this.snapshot.network.cursorAuthorsInInterval(min, max);
+	}
+	
+	/**
+	 * Returns a shortest chain of coauthors linking two authors, both included, or an empty list if they are not connected
+	 * @param from
+	 * @param to
+	 * @return names of the authors in the chain
+	 * @throws NoSuchAuthorException
+	 */
+	public List<String> collaborationPath(String from, String to) throws NoSuchAuthorException {
+		return this.snapshot.network.collaborationPath(from, to, Integer.MIN_VALUE, Integer.MAX_VALUE, CollaborationDistance.DEFAULT_MAX_VISITED);
+	}
+	
+	/**
+	 * Returns a shortest chain of coauthors linking two authors through publications in the given interval, both authors included,
+	 * or an empty list if they are not connected in that interval
+	 * @param from
+	 * @param to
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return names of the authors in the chain
+	 * @throws NoSuchAuthorException
+	 */
+	public List<String> collaborationPath(String from, String to, int min, int max) throws NoSuchAuthorException {
+		return this.snapshot.network.collaborationPath(from, to, min, max, CollaborationDistance.DEFAULT_MAX_VISITED);
+	}
+	
+	/**
+	 * Returns the authors within the given number of hops from an author through publications in the given interval,
+	 * with every coauthorship between them and its number of joint publications
+	 * @param name
+	 * @param hops
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return neighborhood of the author, holding at most EgoNetwork.DEFAULT_MAX_VERTICES authors
+	 * @throws NoSuchAuthorException
+	 */
+	public EgoNetwork egoNetwork(String name, int hops, int min, int max) throws NoSuchAuthorException {
+		return this.snapshot.network.egoNetwork(name, hops, min, max, EgoNetwork.DEFAULT_MAX_VERTICES);
+	}
+	
+	/**
+	 * Returns the authors whose sets of coauthors are most similar to the ones of the given author, by Jaccard similarity
+	 * @param name
+	 * @param nrAuthors number of authors to return
+	 * @return names and similarities of the most similar authors, most similar first
+	 * @throws NoSuchAuthorException
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Tuple<String, Double>> similarAuthors(String name, int nrAuthors) throws NoSuchAuthorException {
+		return (List<Tuple<String, Double>>) this.cached(new QueryKey("similarAuthors", name, nrAuthors), new Computation<NoSuchAuthorException>() {
+			public Object compute(GlobalAuthorNetwork network) throws NoSuchAuthorException {
+				return Tuple.immutable( network.similarAuthors(name, nrAuthors) );
+			}
+		});
+	}
+	
+	/**
+	 * Returns every pair of authors whose sets of coauthors have at least the given Jaccard similarity
+	 * @param threshold
+	 * @return pairs of names and their similarity, most similar first
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Tuple<Tuple<String, String>, Double>> similarPairs(double threshold) {
+		return (List<Tuple<Tuple<String, String>, Double>>) this.cached(new QueryKey("similarPairs", threshold), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return Tuple.immutable( network.similarPairs(threshold) );
+			}
+		});
+	}
+	
+	/**
+	 * Returns the number of joint publications of two authors in each year they published together
+	 * @param a
+	 * @param b
+	 * @return number of joint publications in each year
+	 * @throws NoSuchAuthorException
+	 */
+	public NavigableMap<Integer, Integer> pairTimeline(String a, String b) throws NoSuchAuthorException {
+		return this.snapshot.network.pairTimeline(a, b);
+	}
+	
+	/**
+	 * Returns the number of joint publications of two authors in the given interval
+	 * @param a
+	 * @param b
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return number of joint publications in the interval
+	 * @throws NoSuchAuthorException
+	 */
+	public int pairPublications(String a, String b, int min, int max) throws NoSuchAuthorException {
+		return this.snapshot.network.pairPublications(a, b, min, max);
+	}
+	
+	/**
+	 * Returns the first year and length of the longest run of consecutive years in which two authors published together
+	 * @param a
+	 * @param b
+	 * @return first year and number of years of the longest streak, or null if they never published together
+	 * @throws NoSuchAuthorException
+	 */
+	public Tuple<Integer, Integer> pairStreak(String a, String b) throws NoSuchAuthorException {
+		return this.snapshot.network.pairStreak(a, b);
+	}
+	
+	/**
+	 * Returns the first and last year, active years, peak year and solo publications of the given author
+	 * @param name
+	 * @return career of the author
+	 * @throws NoSuchAuthorException
+	 */
+	public CareerProfile getCareer(String name) throws NoSuchAuthorException {
+		return this.snapshot.network.careerOf(name);
+	}
+	
+	/**
+	 * Returns the authors whose first and last publications are at least the given number of years apart, both years included
+	 * @param years
+	 * @return names of the authors
+	 */
+	@SuppressWarnings("unchecked")
+	public NavigableSet<String> authorsWithCareerSpan(int years) {
+		return (NavigableSet<String>) this.cached(new QueryKey("authorsWithCareerSpan", years), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return Collections.unmodifiableNavigableSet( network.getCareers().withCareerSpan(years) );
+			}
+		});
+	}
+	
+	/**
+	 * Returns the authors with publications in at least the given number of years
+	 * @param years
+	 * @return names of the authors
+	 */
+	@SuppressWarnings("unchecked")
+	public NavigableSet<String> authorsWithActiveYears(int years) {
+		return (NavigableSet<String>) this.cached(new QueryKey("authorsWithActiveYears", years), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return Collections.unmodifiableNavigableSet( network.getCareers().withActiveYears(years) );
+			}
+		});
+	}
+	
+	/**
+	 * Returns the most influential authors by PageRank over the coauthor graph, weighted by joint publications
+	 * @param nrAuthors number of authors to return
+	 * @return names and ranks of the most influential authors, lowest rank first
+	 */
+	public NavigableSet<Tuple<String, Double>> topCentralAuthors(int nrAuthors) {
+		return this.topCentralAuthors(Integer.MIN_VALUE, Integer.MAX_VALUE, nrAuthors);
+	}
+	
+	/**
+	 * Returns the most influential authors by PageRank over the coauthor graph of the given interval, weighted by joint publications
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @param nrAuthors number of authors to return
+	 * @return names and ranks of the most influential authors, lowest rank first
+	 */
+	public NavigableSet<Tuple<String, Double>> topCentralAuthors(int min, int max, int nrAuthors) {
+		return this.topCentralAuthors(min, max, nrAuthors, false);
+	}
+	
+	/**
+	 * Returns the most influential authors by PageRank over the coauthor graph of the given interval
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @param nrAuthors number of authors to return
+	 * @param fractional true to weight coauthorships by collaboration strength instead of joint publications
+	 * @return names and ranks of the most influential authors, lowest rank first
+	 */
+	@SuppressWarnings("unchecked")
+	public NavigableSet<Tuple<String, Double>> topCentralAuthors(int min, int max, int nrAuthors, boolean fractional) {
+		return (NavigableSet<Tuple<String, Double>>) this.cached(new QueryKey("topCentralAuthors", min, max, nrAuthors, fractional), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return immutableSet( network.topCentralAuthors(min, max, nrAuthors, fractional) );
+			}
+		});
+	}
+	
+	/**
+	 * Returns the global transitivity of the coauthor graph of the given interval:
+	 * the fraction of pairs of coauthors of the same author that also published together
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return global transitivity of the interval
+	 */
+	public double getTransitivity(int min, int max) {
+		return this.snapshot.network.triangleStats(min, max).getTransitivity();
+	}
+	
+	/**
+	 * Returns the number of triangles of coauthors in the coauthor graph of the given interval
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return number of triangles in the interval
+	 */
+	public long getTotalTriangles(int min, int max) {
+		return this.snapshot.network.triangleStats(min, max).getTotalTriangles();
+	}
+	
+	/**
+	 * Returns the fraction of pairs of coauthors of the given author that also published together in the given interval
+	 * @param name
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return local clustering coefficient of the author
+	 * @throws NoSuchAuthorException
+	 */
+	public double getClusteringCoefficient(String name, int min, int max) throws NoSuchAuthorException {
+		return this.snapshot.network.clusteringCoefficient(name, min, max);
+	}
+	
+	/**
+	 * Returns the global transitivity of the coauthor graph of each year
+	 * @return global transitivity of each year
+	 */
+	@SuppressWarnings("unchecked")
+	public NavigableMap<Integer, Double> getTransitivityByYear() {
+		return (NavigableMap<Integer, Double>) this.cached(new QueryKey("transitivityByYear"), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return Collections.unmodifiableNavigableMap( network.transitivityByYear() );
+			}
+		});
+	}
+	
+	/**
+	 * Returns the largest research communities of the coauthor graph of the given interval, largest first
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @param nrCommunities number of communities to return
+	 * @param nrAuthors number of members to return of each community
+	 * @return size and strongest members of each of the largest communities
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Tuple<Integer, List<String>>> getCommunities(int min, int max, int nrCommunities, int nrAuthors) {
+		return (List<Tuple<Integer, List<String>>>) this.cached(new QueryKey("communities", min, max, nrCommunities, nrAuthors), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return Tuple.immutable( network.communities(min, max).summary(nrCommunities, nrAuthors) );
+			}
+		});
+	}
+	
+	/**
+	 * Returns the number of authors in the collaboration cluster of the given author, or 0 if the author is unknown
+	 * @param name
+	 * @return number of authors in the collaboration cluster of the given author
+	 */
+	public int componentSize(String name) {
+		return this.snapshot.network.componentSize(name);
+	}
+	
+	/**
+	 * Checks if two authors are linked by any chain of coauthors
+	 * @param a
+	 * @param b
+	 * @return true if both authors belong to the same collaboration cluster
+	 */
+	public boolean inSameComponent(String a, String b) {
+		return this.snapshot.network.inSameComponent(a, b);
+	}
+	
+	/**
+	 * Returns the total number of collaboration clusters
+	 * @return total number of collaboration clusters
+	 */
+	public int getTotalComponents() {
+		return this.snapshot.network.getComponents().nrComponents();
+	}
+	
+	/**
+	 * Returns a map from cluster size to the number of collaboration clusters with that size
+	 * @return number of collaboration clusters of each size
+	 */
+	public NavigableMap<Integer, Integer> getComponentSizes() {
+		return this.snapshot.network.getComponents().getSizeDistribution();
+	}
+	
+	/**
+	 * Returns a map from cluster size to the number of collaboration clusters with that size, only counting the publications of the given interval
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return number of collaboration clusters of each size in the interval
+	 */
+	public NavigableMap<Integer, Integer> getComponentSizes(int min, int max) {
+		return this.snapshot.network.getComponents(min, max).getSizeDistribution();
+	}
+	
+	/**
+	 * Registers a range of years whose totals shall be kept precomputed for interval queries
+	 * @param min first year of the range
+	 * @param max last year of the range
+	 */
+	public synchronized void registerRollup(int min, int max) {
+		this.snapshot.network.registerRollup(min, max);
+	}
+	
+	/**
+	 * Registers precomputed ranges of the given width aligned to multiples of it, and of every doubling of that width,
+	 * so any interval query combines O(log years) of them
+	 * @param width
+	 */
+	public synchronized void registerAlignedRollups(int width) {
+		this.snapshot.network.registerAlignedRollups(width);
+	}
+	
+	/**
+	 * Returns up to k author names ordered by decreasing similarity to the given name, to be offered when a name is not found
+	 * @param name
+	 * @param k maximum number of suggestions
+	 * @return author names ordered by decreasing similarity to the given name
+	 */
+	public List<String> suggestAuthors(String name, int k) {
+		return this.snapshot.network.suggestAuthors(name, k);
+	}
+	
+	/**
+	 * Checks if an author with the given name published in any year
+	 * @param name
+	 * @return true if the author published in any year
+	 */
+	public boolean hasAuthor(String name) {
+		return this.snapshot.network.hasAuthor(name);
 	}
 	
 	/**
 	 * Reads from a file, populating the database
 	 * @param filename name of the file to be read
 	 */
-	public void readFromFile(String filename) throws IOException {
-		this.reset(filename);
-		
+	public synchronized void readFromFile(String filename) throws IOException {
+		this.ingest(filename, filename, new Statistics(), new GlobalAuthorNetwork());
+	}
+	
+	/**
+	 * Reads from a file, adding its publications to the ones already read
+	 * @param filename name of the file to be read
+	 */
+	public synchronized void appendFromFile(String filename) throws IOException {
+		Snapshot old = this.snapshot;
+		this.ingest(filename, old.currentFile, new Statistics(old.stats), old.network.copyForWrite());
+	}
+	
+	/**
+	 * Reads a file into a network that is not published yet, then publishes it with the given statistics.<br>
+	 * Queries keep using the previous snapshot until the file is completely read, and if reading fails nothing changes
+	 * @param filename name of the file to be read
+	 * @param currentFile name of the file to report as read
+	 * @param stats statistics to update
+	 * @param network network to add the publications to
+	 * @throws IOException
+	 */
+	private void ingest(String filename, String currentFile, Statistics stats, GlobalAuthorNetwork network) throws IOException {
 		BufferedReader br = new BufferedReader( new FileReader(filename) );
 		String line = br.readLine();
 		
 		while(line != null) {
 			if(line.length() > 1)
-				processData( getLineArgs(line) );
+				processData( getLineArgs(line), stats, network );
 			
 			line = br.readLine();
 		}
 		
 		br.close(); // I don't know if this won't give some exceptions
+		this.snapshot = new Snapshot(currentFile, stats, network, this.snapshot.version + 1);
 	}
 	
 	/**
@@ -209,7 +809,7 @@ public class AuthorNetwork  implements Serializable {
 	 * @param line
 	 * @return 
 	 */
-	private List<String> getLineArgs(String line) {
+	static List<String> getLineArgs(String line) {
 		ArrayList<String> args = new ArrayList<>();
 		
 		for( String s : line.split(",") )
@@ -221,14 +821,16 @@ public class AuthorNetwork  implements Serializable {
 	/**
 	 * Processes the data, inserting to databases
 	 * @param args
+	 * @param stats statistics to update
+	 * @param network network to add the publication to
 	 */
-	private void processData(List<String> args) {
+	private void processData(List<String> args, Statistics stats, GlobalAuthorNetwork network) {
 		int year = Integer.parseInt( args.get(args.size() - 1) );
 		List<String> authorArgs = args.subList(0, args.size() - 1);
 		
-		this.network.addPublication(year, authorArgs);
+		network.addPublication(year, authorArgs);
 		
-		this.stats.process(authorArgs);
+		stats.process(authorArgs);
 	}
 	
 	/**
@@ -264,8 +866,13 @@ public class AuthorNetwork  implements Serializable {
 	 * @param max last year of the interval
 	 * @return
 	 */
+	@SuppressWarnings("unchecked")
 	public NavigableSet<String> commonCoauthors(Collection<String> authors, int min, int max) {
-		return this.network.getCommonCoauthors(authors, min, max);
+		return (NavigableSet<String>) this.cached(new QueryKey("commonCoauthors", new ArrayList<String>(authors), min, max), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return Collections.unmodifiableNavigableSet( network.getCommonCoauthors(authors, min, max) );
+			}
+		});
 	}
 	
 	/**
@@ -275,8 +882,43 @@ public class AuthorNetwork  implements Serializable {
 	 * @param nrAuthors number of authors
 	 * @return
 	 */
+	@SuppressWarnings("unchecked")
 	public NavigableSet<Tuple<Tuple<String, String>, Integer>> topPairs(int min, int max, int nrAuthors) {
-		return this.network.topPairs(min, max, nrAuthors);
+		return (NavigableSet<Tuple<Tuple<String, String>, Integer>>) this.cached(new QueryKey("topPairs", min, max, nrAuthors), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return immutableSet( network.topPairs(min, max, nrAuthors) );
+			}
+		});
+	}
+	
+	/**
+	 * Returns a set with the pairs of authors with the highest collaboration strength in the given interval,
+	 * where each publication with n authors adds 1/(n - 1) to each of its pairs
+	 * @param min first year
+	 * @param max last year
+	 * @param nrPairs number of pairs
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public NavigableSet<Tuple<Tuple<String, String>, Double>> topPairsByStrength(int min, int max, int nrPairs) {
+		return (NavigableSet<Tuple<Tuple<String, String>, Double>>) this.cached(new QueryKey("topPairsByStrength", min, max, nrPairs), new Computation<RuntimeException>() {
+			public Object compute(GlobalAuthorNetwork network) {
+				return immutableSet( network.topPairsByStrength(min, max, nrPairs) );
+			}
+		});
+	}
+	
+	/**
+	 * Returns the coauthors of an author with the highest collaboration strength in the given interval
+	 * @param name
+	 * @param min first year
+	 * @param max last year
+	 * @param nrAuthors number of coauthors
+	 * @return names and collaboration strength of the strongest coauthors, lowest first
+	 * @throws NoSuchAuthorException
+	 */
+	public NavigableSet<Tuple<String, Double>> topCoauthorsByStrength(String name, int min, int max, int nrAuthors) throws NoSuchAuthorException {
+		return Collections.unmodifiableNavigableSet( this.snapshot.network.topCoauthorsByStrength(name, min, max, nrAuthors) );
 	}
 	
 	
@@ -307,7 +949,48 @@ public class AuthorNetwork  implements Serializable {
 	}
 	
 	
-	private class Statistics implements Serializable {
+	/**
+	 * Reads a network from a structure saved with writeToFile if the file name ends in .obj, or from a file of publications otherwise
+	 * @param filename
+	 * @return network read
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public static AuthorNetwork open(String filename) throws IOException, ClassNotFoundException {
+		if (filename.endsWith(".obj"))
+			return readStructureFromFile(filename);
+
+		AuthorNetwork network = new AuthorNetwork();
+		network.readFromFile(filename);
+		return network;
+	}
+	
+	
+	/**
+	 * Computation of a query result over a snapshot of the network
+	 */
+	private interface Computation<E extends Exception> {
+		public Object compute(GlobalAuthorNetwork network) throws E;
+	}
+	
+	/**
+	 * Everything a query reads, published as a whole once a file is completely read and never changed afterwards
+	 */
+	private static class Snapshot implements Serializable {
+		private final String currentFile;
+		private final Statistics stats;
+		private final GlobalAuthorNetwork network;
+		private final long version;
+		
+		public Snapshot(String currentFile, Statistics stats, GlobalAuthorNetwork network, long version) {
+			this.currentFile = currentFile;
+			this.stats = stats;
+			this.network = network;
+			this.version = version;
+		}
+	}
+	
+	private static class Statistics implements Serializable {
 		private int totalArticles;
 		private int totalNames;
 		private int soloArticles;
@@ -321,6 +1004,16 @@ public class AuthorNetwork  implements Serializable {
 			this.soloArticles = 0;
 		}
 		
+		/**
+		 * Copy constructor
+		 * @param s
+		 */
+		public Statistics(Statistics s) {
+			this.totalArticles = s.totalArticles;
+			this.totalNames = s.totalNames;
+			this.soloArticles = s.soloArticles;
+		}
+		
 		/**
 		 * Returns total number of articles read
 		 * @return
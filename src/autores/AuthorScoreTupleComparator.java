@@ -0,0 +1,14 @@
+package autores;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+@SuppressWarnings("serial")
+public class AuthorScoreTupleComparator implements Serializable, Comparator<Tuple<String, Double>> {
+	
+	public int compare(Tuple<String, Double> t1, Tuple<String, Double> t2) {
+		int c = Double.compare(t1.getSecond(), t2.getSecond());
+		if (c != 0) return c;
+		else return t1.getFirst().compareTo(t2.getFirst());
+	}
+}
@@ -0,0 +1,384 @@
+package autores;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a script of queries without user interaction, writing the result of each one to its own file.<br>
+ * Each line of the script holds the name of a query from QueryCommands followed by its parameters as name=value
+ * pairs separated by commas, which never appear in author names, as in
+ * <pre>topPublishers min=1990, max=2000, n=10</pre>
+ * Empty lines and lines started by # are ignored. The result of the query on line i is written as JSON to NNNN-name.json
+ * in the output directory, and the time taken by every query to timings.tsv. Queries run on a fixed pool of threads.<br>
+ * The interval queries a QueryBatch answers are not run one by one: they are sorted by interval and answered in
+ * batches, each one going through the years of its queries once, so queries over the same or overlapping intervals
+ * share their pass. A batch holds the counters of all its intervals at the same time, so it only takes intervals
+ * while their estimated memory fits a share of the heap. Each query of a batch is given an equal share of its time.
+ *
+ */
+
+public class BatchRunner {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/** share of the maximum heap the batches running at the same time may hold together */
+	private static final int BATCH_MEMORY_SHARE = 4;
+
+	private AuthorNetwork network;
+	private int parallelism;
+
+	/**
+	 * Creates a runner over the given network
+	 * @param network
+	 * @param parallelism number of queries run at the same time
+	 */
+	public BatchRunner(AuthorNetwork network, int parallelism) {
+		this.network = network;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Reads the queries of a script file
+	 * @param filename
+	 * @return lines of the script holding queries
+	 * @throws IOException
+	 */
+	public static List<String> readScript(String filename) throws IOException {
+		ArrayList<String> lines = new ArrayList<>();
+		BufferedReader br = new BufferedReader( new FileReader(filename) );
+		String line = br.readLine();
+
+		while (line != null) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#"))
+				lines.add(line);
+
+			line = br.readLine();
+		}
+
+		br.close();
+		return lines;
+	}
+
+	/**
+	 * Runs every query, writing their results and timings to the given directory
+	 * @param queries lines of the script
+	 * @param outputDir
+	 * @return timing of every query, in the order of the script
+	 * @throws IOException if the output directory or the timings cannot be written
+	 */
+	public List<Timing> run(List<String> queries, File outputDir) throws IOException {
+		if (!outputDir.isDirectory() && !outputDir.mkdirs())
+			throw new IOException("Cannot create " + outputDir);
+
+		ArrayList<Line> batched = new ArrayList<>();
+		ArrayList<Line> single = new ArrayList<>();
+		for (int i = 0; i < queries.size(); i++) {
+			Line line = new Line(i + 1, queries.get(i));
+			if (line.interval != null) batched.add(line);
+			else single.add(line);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+		ArrayList<Future<List<Timing>>> futures = new ArrayList<>();
+		for (List<Line> lines : this.batches(batched))
+			futures.add( executor.submit(new BatchTask(lines, outputDir)) );
+		for (Line line : single)
+			futures.add( executor.submit(new QueryTask(line, outputDir)) );
+
+		ArrayList<Timing> res = new ArrayList<>();
+		try {
+			for (Future<List<Timing>> f : futures)
+				res.addAll( f.get() );
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException( e.getCause() );
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Collections.sort(res, new Comparator<Timing>() {
+			public int compare(Timing a, Timing b) {
+				return Integer.compare(a.getIndex(), b.getIndex());
+			}
+		});
+
+		Writer out = new BufferedWriter( new OutputStreamWriter(new FileOutputStream( new File(outputDir, "timings.tsv") ), StandardCharsets.UTF_8) );
+		out.write("#\tquery\tmillis\titems\terror\n");
+		for (Timing t : res)
+			out.write(t.getIndex() + "\t" + t.getQuery() + "\t" + String.format("%.3f", t.getMillis()) + "\t" + t.getItems() + "\t" + (t.getError() == null ? "" : t.getError()) + "\n");
+		out.close();
+
+		return res;
+	}
+
+	/**
+	 * Splits the lines a QueryBatch can answer into batches, in order of interval, closing a batch once the estimated
+	 * memory of its distinct intervals would go over its share of the heap
+	 * @param lines
+	 * @return lines of every batch
+	 */
+	private List<List<Line>> batches(List<Line> lines) {
+		Collections.sort(lines, new Comparator<Line>() {
+			public int compare(Line a, Line b) {
+				int c = Integer.compare(a.interval.getFirst(), b.interval.getFirst());
+				return c != 0 ? c : Integer.compare(a.interval.getSecond(), b.interval.getSecond());
+			}
+		});
+
+		long budget = Runtime.getRuntime().maxMemory() / BATCH_MEMORY_SHARE / this.parallelism;
+		ArrayList<List<Line>> res = new ArrayList<>();
+		ArrayList<Line> current = new ArrayList<>();
+		HashSet<String> intervals = new HashSet<>();
+		long bytes = 0;
+		for (Line line : lines) {
+			String interval = line.query + " " + line.interval.getFirst() + " " + line.interval.getSecond();
+			boolean shared = intervals.contains(interval);
+			if (!shared && !current.isEmpty() && bytes + line.bytes > budget) {
+				res.add(current);
+				current = new ArrayList<>();
+				intervals.clear();
+				bytes = 0;
+			}
+
+			current.add(line);
+			if (!shared) {
+				intervals.add(interval);
+				bytes += line.bytes;
+			}
+		}
+		if (!current.isEmpty()) res.add(current);
+
+		return res;
+	}
+
+	/**
+	 * Writes the result of a query to its own file
+	 * @param line line of the query
+	 * @param result result of the query
+	 * @param status status of the query
+	 * @param error reason the query failed, or null if it succeeded
+	 * @param millis time the query took
+	 * @param outputDir
+	 * @return timing of the query
+	 * @throws IOException
+	 */
+	private static Timing write(Line line, Object result, int status, String error, double millis, File outputDir) throws IOException {
+		String filename = String.format("%04d-%s.json", line.index, line.query.replaceAll("[^A-Za-z0-9]", "_"));
+		Writer out = new BufferedWriter( new OutputStreamWriter(new FileOutputStream( new File(outputDir, filename) ), StandardCharsets.UTF_8), BUFFER_SIZE );
+		try {
+			JsonWriter json = new JsonWriter(out);
+			if (error == null) json.writePage(line.query, result, 0, Integer.MAX_VALUE);
+			else json.writeError(status, error);
+			out.write('\n');
+		} finally {
+			out.close();
+		}
+
+		int items = result instanceof Collection ? ((Collection<?>) result).size() : result instanceof Map ? ((Map<?, ?>) result).size() : error == null ? 1 : 0;
+		return new Timing(line.index, line.text, millis, items, error);
+	}
+
+	/**
+	 * A line of a script, with its query and parameters
+	 */
+	private class Line {
+		private int index;
+		private String text;
+		private String query;
+		private QueryParameters params;
+		/** why the parameters could not be read, or null */
+		private RuntimeException malformed;
+		/** interval of the query, or null if a QueryBatch cannot answer it */
+		private Tuple<Integer, Integer> interval;
+		/** estimated memory of the query, if a QueryBatch can answer it */
+		private long bytes;
+
+		public Line(int index, String text) {
+			int space = text.indexOf(' ');
+			this.index = index;
+			this.text = text;
+			this.query = space < 0 ? text : text.substring(0, space);
+
+			try {
+				this.params = QueryParameters.parse(space < 0 ? "" : text.substring(space + 1), ',');
+				if (QueryCommands.canBatch(this.query, this.params)) {
+					this.params.getInt("n"); // queries with malformed parameters fail on their own
+					this.interval = QueryCommands.intervalOf(network, this.params);
+					this.bytes = QueryCommands.estimate(network, this.query, this.params).getBytes();
+				}
+			} catch (RuntimeException e) {
+				if (this.params == null) this.malformed = e;
+				this.interval = null;
+			}
+		}
+	}
+
+	/**
+	 * Runs a single line of a script
+	 */
+	private class QueryTask implements Callable<List<Timing>> {
+		private Line line;
+		private File outputDir;
+
+		public QueryTask(Line line, File outputDir) {
+			this.line = line;
+			this.outputDir = outputDir;
+		}
+
+		@Override
+		public List<Timing> call() throws IOException {
+			String error = null;
+			int status = 200;
+			Object result = null;
+
+			long start = System.nanoTime();
+			try {
+				if (this.line.malformed != null) throw this.line.malformed;
+				result = QueryCommands.run(network, this.line.query, this.line.params);
+			} catch (NoSuchAuthorException | NoSuchYearException | NoAuthorsInIntervalException | RuntimeException e) {
+				status = QueryCommands.statusOf(e);
+				error = QueryCommands.messageOf(e);
+			}
+			double millis = (System.nanoTime() - start) / 1e6;
+
+			return Collections.singletonList( write(this.line, result, status, error, millis, this.outputDir) );
+		}
+	}
+
+	/**
+	 * Answers several lines of a script with a single QueryBatch
+	 */
+	private class BatchTask implements Callable<List<Timing>> {
+		private List<Line> lines;
+		private File outputDir;
+
+		public BatchTask(List<Line> lines, File outputDir) {
+			this.lines = lines;
+			this.outputDir = outputDir;
+		}
+
+		@Override
+		public List<Timing> call() throws IOException {
+			long start = System.nanoTime();
+			QueryBatch batch = network.batch();
+			ArrayList<QueryCommand> commands = new ArrayList<>();
+			for (Line line : this.lines)
+				commands.add( QueryCommands.batch(batch, network, line.query, line.params) );
+
+			int status = 200;
+			String error = null;
+			try {
+				batch.run();
+			} catch (RuntimeException e) {
+				status = QueryCommands.statusOf(e);
+				error = QueryCommands.messageOf(e);
+			}
+			double millis = (System.nanoTime() - start) / 1e6 / this.lines.size();
+
+			ArrayList<Timing> res = new ArrayList<>();
+			for (int i = 0; i < this.lines.size(); i++) {
+				Object result = null;
+				try {
+					if (error == null) result = commands.get(i).exec(network, this.lines.get(i).params);
+				} catch (NoSuchAuthorException | NoSuchYearException | NoAuthorsInIntervalException e) {
+					// not thrown by the queries of a batch
+				}
+				res.add( write(this.lines.get(i), result, status, error, millis, this.outputDir) );
+			}
+
+			return res;
+		}
+	}
+
+	/**
+	 * Time taken by one query of a script
+	 */
+	public static class Timing {
+		private int index;
+		private String query;
+		private double millis;
+		private int items;
+		private String error;
+
+		public Timing(int index, String query, double millis, int items, String error) {
+			this.index = index;
+			this.query = query;
+			this.millis = millis;
+			this.items = items;
+			this.error = error;
+		}
+
+		public int getIndex() {
+			return this.index;
+		}
+
+		public String getQuery() {
+			return this.query;
+		}
+
+		public double getMillis() {
+			return this.millis;
+		}
+
+		public int getItems() {
+			return this.items;
+		}
+
+		/**
+		 * Returns the reason the query failed, or null if it succeeded
+		 * @return reason the query failed, or null
+		 */
+		public String getError() {
+			return this.error;
+		}
+	}
+
+	/**
+	 * Reads a network and runs a script of queries over it
+	 * @param args data file, saved structure or file of publications, script file, output directory and, optionally, number of threads
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.out.println("Usage: BatchRunner DATA SCRIPT OUTPUT_DIR [THREADS]");
+			return;
+		}
+
+		Crono.start();
+		AuthorNetwork network = AuthorNetwork.open(args[0]);
+		Crono.stop();
+		System.out.println("Read " + args[0] + " - " + Crono.print());
+
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		List<String> queries = readScript(args[1]);
+
+		Crono.start();
+		List<Timing> timings = new BatchRunner(network, threads).run(queries, new File(args[2]));
+		Crono.stop();
+
+		int failed = 0;
+		for (Timing t : timings)
+			if (t.getError() != null) failed++;
+
+		System.out.println(queries.size() + " queries, " + failed + " failed - " + Crono.print());
+	}
+}
@@ -0,0 +1,18 @@
+package autores;
+
+/**
+ * Query whose result an AuthorNetwork caches, telling the key it is cached under so that a query already answered
+ * is not admitted again
+ *
+ */
+
+public interface CachedQueryCommand extends QueryCommand {
+	/**
+	 * Returns the key the network caches the result of the query under
+	 * @param network
+	 * @param params
+	 * @return key of the result
+	 * @throws IllegalArgumentException if a parameter is missing or malformed
+	 */
+	public QueryKey key(AuthorNetwork network, QueryParameters params);
+}
@@ -0,0 +1,90 @@
+package autores;
+
+/**
+ * Summary of the career of an author: the years it published in and how much it published
+ *
+ */
+
+public class CareerProfile {
+	private String name;
+	private int firstYear;
+	private int lastYear;
+	private int activeYears;
+	private int peakYear;
+	private int peakPublications;
+	private int soloPublications;
+	private int totalPublications;
+
+	public CareerProfile(String name, int firstYear, int lastYear, int activeYears, int peakYear, int peakPublications, int soloPublications, int totalPublications) {
+		this.name = name;
+		this.firstYear = firstYear;
+		this.lastYear = lastYear;
+		this.activeYears = activeYears;
+		this.peakYear = peakYear;
+		this.peakPublications = peakPublications;
+		this.soloPublications = soloPublications;
+		this.totalPublications = totalPublications;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public int getFirstYear() {
+		return this.firstYear;
+	}
+
+	public int getLastYear() {
+		return this.lastYear;
+	}
+
+	/**
+	 * Returns the number of years from the first to the last publication, both included
+	 * @return
+	 */
+	public int getSpan() {
+		return this.lastYear - this.firstYear + 1;
+	}
+
+	/**
+	 * Returns the number of years with at least one publication
+	 * @return
+	 */
+	public int getActiveYears() {
+		return this.activeYears;
+	}
+
+	/**
+	 * Returns the earliest year with the most publications
+	 * @return
+	 */
+	public int getPeakYear() {
+		return this.peakYear;
+	}
+
+	public int getPeakPublications() {
+		return this.peakPublications;
+	}
+
+	public int getSoloPublications() {
+		return this.soloPublications;
+	}
+
+	public int getTotalPublications() {
+		return this.totalPublications;
+	}
+
+	/**
+	 * Returns the fraction of the publications without coauthors
+	 * @return
+	 */
+	public double getSoloRatio() {
+		return this.totalPublications == 0 ? 0 : (double) this.soloPublications / this.totalPublications;
+	}
+
+	@Override
+	public String toString() {
+		return this.name + " [" + this.firstYear + ", " + this.lastYear + "] active " + this.activeYears + " years, peak "
+				+ this.peakYear + " (" + this.peakPublications + "), " + this.soloPublications + "/" + this.totalPublications + " solo";
+	}
+}
@@ -0,0 +1,199 @@
+package autores;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Career of every author, kept in parallel primitive arrays indexed by author identifier and updated as publications are added.<br>
+ * Filters over every author are plain scans of one or two of the arrays. The arrays are paged, so that a copy shares
+ * them with the original until either one changes a page.
+ *
+ */
+
+@SuppressWarnings("serial")
+public class CareerProfiles implements Serializable {
+	private AuthorDictionary dictionary;
+	private PagedIntArray firstYear;
+	private PagedIntArray lastYear;
+	private PagedIntArray activeYears;
+	private PagedIntArray peakYear;
+	private PagedIntArray peakPublications;
+	private PagedIntArray soloPublications;
+	private PagedIntArray totalPublications;
+	/** identifiers of the authors of the publication being added, reused from one publication to the next */
+	private transient int[] scratch;
+
+	/**
+	 * Creates empty profiles for the authors of the given dictionary
+	 * @param dictionary
+	 */
+	public CareerProfiles(AuthorDictionary dictionary) {
+		this.dictionary = dictionary;
+		this.firstYear = new PagedIntArray(0);
+		this.lastYear = new PagedIntArray(0);
+		this.activeYears = new PagedIntArray(0);
+		this.peakYear = new PagedIntArray(0);
+		this.peakPublications = new PagedIntArray(0);
+		this.soloPublications = new PagedIntArray(0);
+		this.totalPublications = new PagedIntArray(0);
+	}
+
+	/**
+	 * Builds the profiles of every author from the catalogs of each year
+	 * @param annualNetworks catalog of each year
+	 * @param dictionary dictionary holding every author in the catalogs
+	 * @return profiles of every author in the catalogs
+	 */
+	public static CareerProfiles of(NavigableMap<Integer, AuthorCatalog> annualNetworks, AuthorDictionary dictionary) {
+		CareerProfiles profiles = new CareerProfiles(dictionary);
+		profiles.ensureCapacity( dictionary.size() );
+
+		for (Map.Entry<Integer, AuthorCatalog> year : annualNetworks.entrySet())
+			for (AuthorInfo info : year.getValue().getAuthorInfos()) {
+				int id = dictionary.idOf( info.getName() );
+				profiles.addYear(id, year.getKey(), info.getTotalPublications(), true);
+				profiles.soloPublications.add(id, info.getSoloPublications());
+			}
+
+		return profiles;
+	}
+
+	/**
+	 * Returns a copy of the profiles that can be updated without changing these, sharing their pages with them
+	 * @param dictionary dictionary of the copy, holding at least the authors of this one
+	 * @return copy of the profiles
+	 */
+	public CareerProfiles copy(AuthorDictionary dictionary) {
+		CareerProfiles copy = new CareerProfiles(dictionary);
+		copy.firstYear = this.firstYear.fork();
+		copy.lastYear = this.lastYear.fork();
+		copy.activeYears = this.activeYears.fork();
+		copy.peakYear = this.peakYear.fork();
+		copy.peakPublications = this.peakPublications.fork();
+		copy.soloPublications = this.soloPublications.fork();
+		copy.totalPublications = this.totalPublications.fork();
+		return copy;
+	}
+
+	/**
+	 * Updates the profiles of the authors of a publication that was just added to the catalog of its year
+	 * @param year
+	 * @param authors
+	 * @param catalog catalog of the year, already holding the publication; authors it keeps no information about are skipped
+	 * @param newInYear authors that had not published in that year before this publication
+	 */
+	public void addPublication(int year, Collection<String> authors, AuthorCatalog catalog, Collection<String> newInYear) {
+		if (this.scratch == null || this.scratch.length < authors.size())
+			this.scratch = new int[Math.max(authors.size(), 16)];
+		int nrDone = 0;
+
+		authors:
+		for (String author : authors) {
+			AuthorInfo info = catalog.getAuthorInfo(author);
+			int id = this.dictionary.idOf(author);
+			if (info == null) continue;
+
+			// a publication has few authors, so a repeated one is found faster by a scan than by hashing
+			for (int i = 0; i < nrDone; i++)
+				if (this.scratch[i] == id) continue authors;
+			this.scratch[nrDone++] = id;
+
+			this.ensureCapacity(id + 1);
+			this.addYear(id, year, info.getTotalPublications(), newInYear.contains(author));
+			if (authors.size() == 1) this.soloPublications.add(id, 1);
+		}
+	}
+
+	/**
+	 * Records that an author has the given number of publications in a year
+	 * @param id
+	 * @param year
+	 * @param publications publications of the author in that year so far
+	 * @param newYear true if the author had no publications in that year before
+	 */
+	private void addYear(int id, int year, int publications, boolean newYear) {
+		if (this.activeYears.get(id) == 0) {
+			this.firstYear.set(id, year);
+			this.lastYear.set(id, year);
+		}
+		else {
+			if (year < this.firstYear.get(id)) this.firstYear.set(id, year);
+			if (year > this.lastYear.get(id)) this.lastYear.set(id, year);
+		}
+
+		if (newYear) {
+			this.activeYears.add(id, 1);
+			this.totalPublications.add(id, publications);
+		}
+		else this.totalPublications.add(id, 1);
+
+		int peak = this.peakPublications.get(id);
+		if (publications > peak || (publications == peak && year < this.peakYear.get(id))) {
+			this.peakYear.set(id, year);
+			this.peakPublications.set(id, publications);
+		}
+	}
+
+	/**
+	 * Returns the profile of the given author, or null if it has no publications
+	 * @param id
+	 * @return profile of the author
+	 */
+	public CareerProfile profileOf(int id) {
+		if (id < 0 || id >= this.firstYear.length() || this.activeYears.get(id) == 0) return null;
+
+		return new CareerProfile(this.dictionary.nameOf(id), this.firstYear.get(id), this.lastYear.get(id),
+				this.activeYears.get(id), this.peakYear.get(id), this.peakPublications.get(id),
+				this.soloPublications.get(id), this.totalPublications.get(id));
+	}
+
+	/**
+	 * Returns the authors whose first and last publications are at least the given number of years apart, both years included
+	 * @param years
+	 * @return names of the authors
+	 */
+	public NavigableSet<String> withCareerSpan(int years) {
+		TreeSet<String> res = new TreeSet<>();
+		int n = Math.min(this.dictionary.size(), this.firstYear.length());
+
+		for (int id = 0; id < n; id++)
+			if (this.activeYears.get(id) > 0 && this.lastYear.get(id) - this.firstYear.get(id) + 1 >= years)
+				res.add( this.dictionary.nameOf(id) );
+
+		return res;
+	}
+
+	/**
+	 * Returns the authors with publications in at least the given number of years
+	 * @param years
+	 * @return names of the authors
+	 */
+	public NavigableSet<String> withActiveYears(int years) {
+		TreeSet<String> res = new TreeSet<>();
+		int n = Math.min(this.dictionary.size(), this.firstYear.length());
+
+		for (int id = 0; id < n; id++)
+			if (this.activeYears.get(id) >= Math.max(years, 1))
+				res.add( this.dictionary.nameOf(id) );
+
+		return res;
+	}
+
+	/**
+	 * Grows the arrays to hold at least the given number of authors
+	 * @param capacity
+	 */
+	private void ensureCapacity(int capacity) {
+		this.firstYear.ensureCapacity(capacity);
+		this.lastYear.ensureCapacity(capacity);
+		this.activeYears.ensureCapacity(capacity);
+		this.peakYear.ensureCapacity(capacity);
+		this.peakPublications.ensureCapacity(capacity);
+		this.soloPublications.ensureCapacity(capacity);
+		this.totalPublications.ensureCapacity(capacity);
+	}
+}
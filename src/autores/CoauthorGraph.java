@@ -0,0 +1,286 @@
+package autores;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Immutable weighted coauthor graph in compressed sparse row form.<br>
+ * Vertices are the author identifiers of an AuthorDictionary; the neighbours of vertex v are
+ * targets[offsets[v] .. offsets[v + 1]), sorted by identifier, and weights holds the number of joint publications
+ * of each edge. strengths holds the fractional weight of each edge, where every publication with n authors adds
+ * 1/(n - 1) to each of its pairs. Every edge is stored once in each direction.
+ *
+ */
+
+public class CoauthorGraph {
+	/** vertices gone through by the loops over every vertex between two checks of the running query */
+	static final int CHECK_MASK = (1 << 14) - 1;
+
+	private AuthorDictionary dictionary;
+	private int nrVertices;
+	private int[] offsets;
+	private int[] targets;
+	private int[] weights;
+	private double[] strengths;
+
+	private CoauthorGraph(AuthorDictionary dictionary, int nrVertices, int[] offsets, int[] targets, int[] weights) {
+		this.dictionary = dictionary;
+		this.nrVertices = nrVertices;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		this.strengths = new double[targets.length];
+	}
+
+	/**
+	 * Builds the graph of the coauthorships in the given catalogs, adding up the publications of each pair over all of them.<br>
+	 * Each of the three passes over the catalogs is a step of the query building the graph, which may abort it.
+	 * @param catalogs
+	 * @param dictionary dictionary holding every author in the catalogs
+	 * @return graph of the coauthorships in the given catalogs
+	 */
+	public static CoauthorGraph build(Collection<AuthorCatalog> catalogs, AuthorDictionary dictionary) {
+		int n = dictionary.size();
+		int[] offsets = new int[n + 1];
+		QueryTracker.begin( 3 * catalogs.size() );
+
+		for (AuthorCatalog catalog : catalogs) {
+			for (AuthorInfo info : catalog.getAuthorInfos())
+				offsets[dictionary.idOf( info.getName() ) + 1] += info.totalCoauthors();
+			QueryTracker.checkpoint();
+		}
+
+		for (int v = 0; v < n; v++)
+			offsets[v + 1] += offsets[v];
+
+		long[] slots = new long[offsets[n]];
+		int[] cursor = Arrays.copyOf(offsets, n);
+
+		for (AuthorCatalog catalog : catalogs) {
+			for (AuthorInfo info : catalog.getAuthorInfos()) {
+				int v = dictionary.idOf( info.getName() );
+				for (Map.Entry<String, Integer> coauthor : info.getCoauthorsInfo().entrySet())
+					slots[cursor[v]++] = ((long) dictionary.idOf( coauthor.getKey() ) << 32) | coauthor.getValue();
+			}
+			QueryTracker.checkpoint();
+		}
+
+		int[] targets = new int[slots.length];
+		int[] weights = new int[slots.length];
+		int m = 0;
+
+		for (int v = 0; v < n; v++) {
+			if ((v & CHECK_MASK) == 0) QueryTracker.checkpoint(0);
+			int from = offsets[v], to = offsets[v + 1];
+			Arrays.sort(slots, from, to);
+			offsets[v] = m;
+
+			for (int i = from; i < to; i++) {
+				int target = (int) (slots[i] >>> 32);
+				int weight = (int) slots[i];
+
+				if (m > offsets[v] && targets[m - 1] == target) weights[m - 1] += weight;
+				else {
+					targets[m] = target;
+					weights[m++] = weight;
+				}
+			}
+		}
+		offsets[n] = m;
+
+		CoauthorGraph graph = new CoauthorGraph(dictionary, n, offsets, Arrays.copyOf(targets, m), Arrays.copyOf(weights, m));
+		for (AuthorCatalog catalog : catalogs) {
+			for (AuthorInfo info : catalog.getAuthorInfos()) {
+				int v = dictionary.idOf( info.getName() );
+				for (Map.Entry<String, Double> coauthor : info.getCoauthorStrengths().entrySet())
+					graph.strengths[graph.edgeIndex(v, dictionary.idOf( coauthor.getKey() ))] += coauthor.getValue();
+			}
+			QueryTracker.checkpoint();
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Returns the number of vertices, which is the number of authors known when the graph was built
+	 * @return number of vertices
+	 */
+	public int nrVertices() {
+		return this.nrVertices;
+	}
+
+	/**
+	 * Returns the number of distinct coauthor pairs
+	 * @return number of distinct coauthor pairs
+	 */
+	public long nrEdges() {
+		return this.targets.length / 2;
+	}
+
+	/**
+	 * Returns the number of coauthors of the given vertex
+	 * @param v
+	 * @return number of coauthors of the given vertex
+	 */
+	public int degree(int v) {
+		return this.offsets[v + 1] - this.offsets[v];
+	}
+
+	/**
+	 * Returns the vertex of the author with the given name, or -1 if the author is not part of the graph
+	 * @param name
+	 * @return vertex of the author, or -1
+	 */
+	public int vertexOf(String name) {
+		int id = this.dictionary.idOf(name);
+		return id < this.nrVertices ? id : -1;
+	}
+
+	/**
+	 * Returns the name of the author of the given vertex
+	 * @param v
+	 * @return name of the author of the given vertex
+	 */
+	public String nameOf(int v) {
+		return this.dictionary.nameOf(v);
+	}
+
+	/**
+	 * Returns the row offsets; the neighbours of v are at positions offsets[v] to offsets[v + 1] - 1.<br>
+	 * The array is shared, not copied, and must not be changed.
+	 * @return row offsets
+	 */
+	public int[] getOffsets() {
+		return this.offsets;
+	}
+
+	/**
+	 * Returns the neighbour of every edge slot. The array is shared, not copied, and must not be changed.
+	 * @return neighbour of every edge slot
+	 */
+	public int[] getTargets() {
+		return this.targets;
+	}
+
+	/**
+	 * Returns the joint publications of every edge slot. The array is shared, not copied, and must not be changed.
+	 * @return joint publications of every edge slot
+	 */
+	public int[] getWeights() {
+		return this.weights;
+	}
+
+	/**
+	 * Returns the fractional weight of every edge slot. The array is shared, not copied, and must not be changed.
+	 * @return collaboration strength of every edge slot
+	 */
+	public double[] getStrengths() {
+		return this.strengths;
+	}
+
+	/**
+	 * Returns the weight of every edge slot as a double, either the joint publications or the fractional weight
+	 * @param fractional
+	 * @return weight of every edge slot
+	 */
+	public double[] edgeWeights(boolean fractional) {
+		if (fractional) return this.strengths;
+
+		double[] res = new double[this.weights.length];
+		for (int e = 0; e < res.length; e++)
+			res[e] = this.weights[e];
+
+		return res;
+	}
+
+	/**
+	 * Returns the coauthor pairs with the highest fractional weight, ordered like the results of topPairs (lowest first)
+	 * @param nrPairs number of pairs to return
+	 * @return names and collaboration strength of the strongest pairs
+	 */
+	public NavigableSet<Tuple<Tuple<String, String>, Double>> topPairsByStrength(int nrPairs) {
+		TreeSet<Tuple<Tuple<String, String>, Double>> top = new TreeSet<>( new PairScoreTupleComparator() );
+		if (nrPairs < 1) return top;
+
+		for (int u = 0; u < this.nrVertices; u++)
+			for (int e = this.offsets[u]; e < this.offsets[u + 1]; e++) {
+				int v = this.targets[e];
+				if (v < u || (top.size() == nrPairs && this.strengths[e] < top.first().getSecond())) continue;
+
+				String a = this.nameOf(u), b = this.nameOf(v);
+				Tuple<String, String> pair = a.compareTo(b) < 0 ? new Tuple<String, String>(a, b) : new Tuple<String, String>(b, a);
+				Tuple<Tuple<String, String>, Double> t = new Tuple<Tuple<String, String>, Double>(pair, this.strengths[e]);
+
+				if (top.size() < nrPairs)
+					top.add(t);
+				else if (top.comparator().compare(t, top.first()) > 0) {
+					top.pollFirst();
+					top.add(t);
+				}
+			}
+
+		return top;
+	}
+
+	/**
+	 * Returns the coauthors of a vertex with the highest fractional weight, ordered like the results of topPublishers (lowest first)
+	 * @param v
+	 * @param nrAuthors number of coauthors to return
+	 * @return names and collaboration strength of the strongest coauthors
+	 */
+	public NavigableSet<Tuple<String, Double>> topCoauthorsByStrength(int v, int nrAuthors) {
+		TreeSet<Tuple<String, Double>> top = new TreeSet<>( new AuthorScoreTupleComparator() );
+		if (nrAuthors < 1) return top;
+
+		for (int e = this.offsets[v]; e < this.offsets[v + 1]; e++) {
+			Tuple<String, Double> t = new Tuple<String, Double>(this.nameOf(this.targets[e]), this.strengths[e]);
+			if (top.size() < nrAuthors)
+				top.add(t);
+			else if (top.comparator().compare(t, top.first()) > 0) {
+				top.pollFirst();
+				top.add(t);
+			}
+		}
+
+		return top;
+	}
+
+	/**
+	 * Returns the vertices with the highest scores, ordered like the results of topPublishers (lowest score first),
+	 * leaving out the vertices with no score, such as the authors without coauthors
+	 * @param scores score of every vertex
+	 * @param nrAuthors number of vertices to return
+	 * @return names and scores of the vertices with the highest scores
+	 */
+	public NavigableSet<Tuple<String, Double>> topScores(double[] scores, int nrAuthors) {
+		TreeSet<Tuple<String, Double>> top = new TreeSet<>( new AuthorScoreTupleComparator() );
+		if (nrAuthors < 1) return top;
+
+		for (int v = 0; v < scores.length; v++) {
+			if (scores[v] <= 0)
+				continue;
+			else if (top.size() < nrAuthors)
+				top.add( new Tuple<String, Double>(this.nameOf(v), scores[v]) );
+			else if (scores[v] > top.first().getSecond()) {
+				top.pollFirst();
+				top.add( new Tuple<String, Double>(this.nameOf(v), scores[v]) );
+			}
+		}
+
+		return top;
+	}
+
+	/**
+	 * Returns the position of the edge between u and v in the edge arrays, or -1 if they never published together
+	 * @param u
+	 * @param v
+	 * @return position of the edge, or -1
+	 */
+	public int edgeIndex(int u, int v) {
+		int i = Arrays.binarySearch(this.targets, this.offsets[u], this.offsets[u + 1], v);
+		return i >= 0 ? i : -1;
+	}
+}
@@ -0,0 +1,148 @@
+package autores;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shortest coauthor paths over a CoauthorGraph, found with a bidirectional breadth-first search.<br>
+ * Each search grows the smaller of the two frontiers one level at a time and stops at the level where they meet.
+ * The visited sets, parent arrays and queues are kept per thread and reused between searches.
+ *
+ */
+
+public class CollaborationDistance {
+	/** default maximum number of vertices visited by one search */
+	public static final int DEFAULT_MAX_VISITED = 2000000;
+
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	private CoauthorGraph graph;
+	private int maxVisited;
+
+	/**
+	 * Creates a search over the given graph, giving up once the given number of vertices has been visited
+	 * @param graph
+	 * @param maxVisited
+	 */
+	public CollaborationDistance(CoauthorGraph graph, int maxVisited) {
+		this.graph = graph;
+		this.maxVisited = maxVisited;
+	}
+
+	/**
+	 * Returns a shortest path of coauthors from source to target, both included.<br>
+	 * The path is empty if the vertices are not connected, or if no path was found before visiting the maximum number of vertices.
+	 * @param source
+	 * @param target
+	 * @return names of the authors along the path
+	 */
+	public List<String> shortestPath(int source, int target) {
+		ArrayList<String> path = new ArrayList<>();
+		if (source == target) {
+			path.add( this.graph.nameOf(source) );
+			return path;
+		}
+
+		Scratch s = SCRATCH.get();
+		s.reset( this.graph.nrVertices() );
+
+		s.visited[0].set(source);
+		s.parent[0][source] = -1;
+		s.frontier[0].add(source);
+		s.visited[1].set(target);
+		s.parent[1][target] = -1;
+		s.frontier[1].add(target);
+
+		int[] offsets = this.graph.getOffsets();
+		int[] targets = this.graph.getTargets();
+		int visitedCount = 2;
+		int meetFrom = -1, meetTo = -1, meetLength = Integer.MAX_VALUE;
+
+		while (meetFrom < 0 && !s.frontier[0].isEmpty() && !s.frontier[1].isEmpty()) {
+			int side = s.frontier[0].size() <= s.frontier[1].size() ? 0 : 1;
+			int other = 1 - side;
+			IntList current = s.frontier[side];
+			IntList next = s.next[side];
+			next.clear();
+
+			for (int i = 0; i < current.size(); i++) {
+				if ((i & CoauthorGraph.CHECK_MASK) == 0) QueryTracker.checkpoint(0);
+				int u = current.get(i);
+
+				for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+					int w = targets[e];
+
+					if (s.visited[other].get(w)) {
+						int length = depth(s.parent[side], u) + 1 + depth(s.parent[other], w);
+						if (length < meetLength) {
+							meetLength = length;
+							meetFrom = side == 0 ? u : w;
+							meetTo = side == 0 ? w : u;
+						}
+					}
+					else if (!s.visited[side].get(w)) {
+						s.visited[side].set(w);
+						s.parent[side][w] = u;
+						next.add(w);
+						visitedCount++;
+					}
+				}
+			}
+
+			s.next[side] = current;
+			s.frontier[side] = next;
+
+			if (meetFrom < 0 && visitedCount > this.maxVisited) return path;
+		}
+
+		if (meetFrom < 0) return path;
+
+		for (int v = meetFrom; v != -1; v = s.parent[0][v])
+			path.add( this.graph.nameOf(v) );
+		Collections.reverse(path);
+		for (int v = meetTo; v != -1; v = s.parent[1][v])
+			path.add( this.graph.nameOf(v) );
+
+		return path;
+	}
+
+	/**
+	 * Returns the number of edges between a vertex and the root of its search tree
+	 * @param parent
+	 * @param v
+	 * @return depth of the vertex
+	 */
+	private static int depth(int[] parent, int v) {
+		int d = 0;
+		for (; parent[v] != -1; v = parent[v]) d++;
+		return d;
+	}
+
+	/**
+	 * Buffers reused by every search made on the same thread. The parent arrays are only read for visited vertices,
+	 * so only the bitsets need to be cleared between searches.
+	 */
+	private static class Scratch {
+		private BitSet[] visited = { new BitSet(), new BitSet() };
+		private int[][] parent = { new int[0], new int[0] };
+		private IntList[] frontier = { new IntList(), new IntList() };
+		private IntList[] next = { new IntList(), new IntList() };
+
+		private void reset(int nrVertices) {
+			for (int side = 0; side < 2; side++) {
+				this.visited[side].clear();
+				this.frontier[side].clear();
+				this.next[side].clear();
+				if (this.parent[side].length < nrVertices)
+					this.parent[side] = new int[nrVertices];
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package autores;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Communities of a CoauthorGraph, numbered from the largest to the smallest.<br>
+ * Authors without coauthors are not part of any community. The members of every community are kept contiguous in a
+ * single array, so the whole structure only costs a few integers per author.
+ *
+ */
+
+public class Communities {
+	private CoauthorGraph graph;
+	private int[] community;
+	private int[] memberOffsets;
+	private int[] members;
+
+	/**
+	 * Groups the vertices of the graph by label
+	 * @param graph
+	 * @param labels label of every vertex
+	 */
+	public Communities(CoauthorGraph graph, int[] labels) {
+		int n = graph.nrVertices();
+		this.graph = graph;
+
+		int[] labelSize = new int[n];
+		for (int v = 0; v < n; v++)
+			if (graph.degree(v) > 0) labelSize[labels[v]]++;
+
+		int k = 0;
+		for (int l = 0; l < n; l++)
+			if (labelSize[l] > 0) k++;
+
+		long[] bySize = new long[k];
+		k = 0;
+		for (int l = 0; l < n; l++)
+			if (labelSize[l] > 0) bySize[k++] = ((long) (n - labelSize[l]) << 32) | l;
+		Arrays.sort(bySize);
+
+		int[] rank = new int[n];
+		this.memberOffsets = new int[k + 1];
+		for (int c = 0; c < k; c++) {
+			int l = (int) bySize[c];
+			rank[l] = c;
+			this.memberOffsets[c + 1] = this.memberOffsets[c] + labelSize[l];
+		}
+
+		this.community = new int[n];
+		this.members = new int[this.memberOffsets[k]];
+		int[] next = Arrays.copyOf(this.memberOffsets, k);
+
+		for (int v = 0; v < n; v++) {
+			if (graph.degree(v) == 0) {
+				this.community[v] = -1;
+				continue;
+			}
+
+			this.community[v] = rank[labels[v]];
+			this.members[next[this.community[v]]++] = v;
+		}
+	}
+
+	/**
+	 * Returns the number of communities
+	 * @return number of communities
+	 */
+	public int nrCommunities() {
+		return this.memberOffsets.length - 1;
+	}
+
+	/**
+	 * Returns the community of the given vertex, or -1 if it has no coauthors
+	 * @param v
+	 * @return community of the vertex
+	 */
+	public int communityOf(int v) {
+		return this.community[v];
+	}
+
+	/**
+	 * Returns the number of authors in the given community
+	 * @param c
+	 * @return number of authors in the community
+	 */
+	public int size(int c) {
+		return this.memberOffsets[c + 1] - this.memberOffsets[c];
+	}
+
+	/**
+	 * Returns the authors of the given community with the most joint publications inside the whole graph, strongest first
+	 * @param c
+	 * @param nrAuthors number of authors to return
+	 * @return names of the strongest members of the community
+	 */
+	public List<String> topMembers(int c, int nrAuthors) {
+		TreeSet<Tuple<String, Double>> top = new TreeSet<>( new AuthorScoreTupleComparator() );
+		int[] offsets = this.graph.getOffsets();
+		int[] weights = this.graph.getWeights();
+
+		for (int i = this.memberOffsets[c]; i < this.memberOffsets[c + 1] && nrAuthors > 0; i++) {
+			int v = this.members[i];
+			double strength = 0;
+			for (int e = offsets[v]; e < offsets[v + 1]; e++)
+				strength += weights[e];
+
+			Tuple<String, Double> t = new Tuple<String, Double>(this.graph.nameOf(v), strength);
+			if (top.size() < nrAuthors)
+				top.add(t);
+			else if (top.comparator().compare(t, top.first()) > 0) {
+				top.pollFirst();
+				top.add(t);
+			}
+		}
+
+		ArrayList<String> res = new ArrayList<>();
+		Iterator<Tuple<String, Double>> it = top.descendingIterator();
+		while (it.hasNext())
+			res.add( it.next().getFirst() );
+
+		return res;
+	}
+
+	/**
+	 * Returns the size and strongest members of the largest communities, largest first
+	 * @param nrCommunities number of communities to return
+	 * @param nrAuthors number of members to return of each community
+	 * @return size and strongest members of each of the largest communities
+	 */
+	public List<Tuple<Integer, List<String>>> summary(int nrCommunities, int nrAuthors) {
+		ArrayList<Tuple<Integer, List<String>>> res = new ArrayList<>();
+		for (int c = 0; c < Math.min(nrCommunities, this.nrCommunities()); c++)
+			res.add( new Tuple<Integer, List<String>>(this.size(c), this.topMembers(c, nrAuthors)) );
+
+		return res;
+	}
+}
@@ -0,0 +1,307 @@
+package autores;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Subgraph of a CoauthorGraph holding the authors within a number of hops from a central author and every
+ * coauthorship between them, with its weight.<br>
+ * Vertices are numbered locally from 0, in the order of their identifiers in the whole graph, and the edges are
+ * kept in the same compressed sparse row layout as the graph they came from.
+ * The frontiers are expanded with visited bitsets kept per thread and reused between queries; frontiers larger than
+ * PARALLEL_FRONTIER are split in ranges expanded on the common ForkJoinPool.
+ *
+ */
+
+public class EgoNetwork {
+	/** default maximum number of authors in a neighborhood */
+	public static final int DEFAULT_MAX_VERTICES = 100000;
+
+	/** smallest frontier expanded in parallel */
+	private static final int PARALLEL_FRONTIER = 4096;
+
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	private int[] vertices;
+	private String[] names;
+	private int[] distances;
+	private int[] offsets;
+	private int[] targets;
+	private int[] weights;
+	private boolean truncated;
+
+	private EgoNetwork(int[] vertices, String[] names, int[] distances, int[] offsets, int[] targets, int[] weights, boolean truncated) {
+		this.vertices = vertices;
+		this.names = names;
+		this.distances = distances;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		this.truncated = truncated;
+	}
+
+	/**
+	 * Extracts the neighborhood of the given vertex
+	 * @param graph
+	 * @param center
+	 * @param hops maximum number of edges between the center and any author of the neighborhood
+	 * @param maxVertices the expansion stops once the neighborhood holds this number of authors
+	 * @return neighborhood of the vertex
+	 */
+	public static EgoNetwork of(CoauthorGraph graph, int center, int hops, int maxVertices) {
+		Scratch s = SCRATCH.get();
+		s.reset( graph.nrVertices() );
+
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		IntList found = new IntList();
+		IntList levels = new IntList();
+		boolean truncated = false;
+
+		s.visited.set(center);
+		s.frontier.add(center);
+		found.add(center);
+		levels.add(0);
+
+		for (int level = 1; level <= hops && !s.frontier.isEmpty() && !truncated; level++) {
+			QueryTracker.checkpoint(0);
+			IntList candidates;
+			if (s.frontier.size() >= PARALLEL_FRONTIER)
+				candidates = ForkJoinPool.commonPool().invoke( new ExpandTask(offsets, targets, s.visited, s.frontier, 0, s.frontier.size()) );
+			else
+				candidates = expand(offsets, targets, s.visited, s.frontier, 0, s.frontier.size());
+
+			s.next.clear();
+			for (int i = 0; i < candidates.size(); i++) {
+				int w = candidates.get(i);
+				if (s.visited.get(w)) continue;
+
+				if (found.size() >= maxVertices) {
+					truncated = true;
+					break;
+				}
+
+				s.visited.set(w);
+				s.next.add(w);
+				found.add(w);
+				levels.add(level);
+			}
+
+			IntList t = s.frontier;
+			s.frontier = s.next;
+			s.next = t;
+		}
+
+		QueryTracker.checkpoint(0);
+		int n = found.size();
+		long[] byId = new long[n];
+		for (int i = 0; i < n; i++)
+			byId[i] = ((long) found.get(i) << 32) | levels.get(i);
+		Arrays.sort(byId);
+
+		int[] vertices = new int[n];
+		String[] names = new String[n];
+		int[] distances = new int[n];
+		for (int i = 0; i < n; i++) {
+			vertices[i] = (int) (byId[i] >>> 32);
+			distances[i] = (int) byId[i];
+			names[i] = graph.nameOf(vertices[i]);
+			s.local[vertices[i]] = i;
+		}
+
+		int[] subOffsets = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			int v = vertices[i];
+			subOffsets[i + 1] = subOffsets[i];
+			for (int e = offsets[v]; e < offsets[v + 1]; e++)
+				if (s.visited.get(targets[e])) subOffsets[i + 1]++;
+		}
+
+		int[] subTargets = new int[subOffsets[n]];
+		int[] subWeights = new int[subOffsets[n]];
+		int[] weights = graph.getWeights();
+		for (int i = 0, k = 0; i < n; i++) {
+			int v = vertices[i];
+			for (int e = offsets[v]; e < offsets[v + 1]; e++)
+				if (s.visited.get(targets[e])) {
+					subTargets[k] = s.local[targets[e]];
+					subWeights[k++] = weights[e];
+				}
+		}
+
+		return new EgoNetwork(vertices, names, distances, subOffsets, subTargets, subWeights, truncated);
+	}
+
+	/**
+	 * Returns the neighbors of a range of the frontier that were not visited before this level, possibly repeated
+	 * @param offsets
+	 * @param targets
+	 * @param visited
+	 * @param frontier
+	 * @param from
+	 * @param to
+	 * @return candidates for the next frontier
+	 */
+	private static IntList expand(int[] offsets, int[] targets, BitSet visited, IntList frontier, int from, int to) {
+		IntList candidates = new IntList();
+		for (int i = from; i < to; i++) {
+			int u = frontier.get(i);
+			for (int e = offsets[u]; e < offsets[u + 1]; e++)
+				if (!visited.get(targets[e])) candidates.add(targets[e]);
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Returns the number of authors in the neighborhood
+	 * @return number of authors in the neighborhood
+	 */
+	public int nrVertices() {
+		return this.vertices.length;
+	}
+
+	/**
+	 * Returns the number of coauthorships between authors of the neighborhood
+	 * @return number of coauthorships
+	 */
+	public int nrEdges() {
+		return this.targets.length / 2;
+	}
+
+	/**
+	 * Returns the identifier in the whole graph of the given local vertex
+	 * @param i
+	 * @return identifier of the vertex in the whole graph
+	 */
+	public int vertexOf(int i) {
+		return this.vertices[i];
+	}
+
+	/**
+	 * Returns the name of the author of the given local vertex
+	 * @param i
+	 * @return name of the author
+	 */
+	public String nameOf(int i) {
+		return this.names[i];
+	}
+
+	/**
+	 * Returns the number of hops between the center and the given local vertex
+	 * @param i
+	 * @return distance from the center
+	 */
+	public int distanceOf(int i) {
+		return this.distances[i];
+	}
+
+	/**
+	 * Returns the local vertex of the given author, or -1 if it is not part of the neighborhood
+	 * @param name
+	 * @return local vertex of the author, or -1
+	 */
+	public int indexOf(String name) {
+		for (int i = 0; i < this.names.length; i++)
+			if (this.names[i].equals(name)) return i;
+
+		return -1;
+	}
+
+	/**
+	 * Checks if the expansion stopped at the maximum number of authors before reaching every hop
+	 * @return true if the neighborhood is incomplete
+	 */
+	public boolean isTruncated() {
+		return this.truncated;
+	}
+
+	/**
+	 * Returns where the neighbors of each local vertex start in the target and weight arrays; shared, not to be modified
+	 * @return offsets of the neighbors of each vertex
+	 */
+	public int[] getOffsets() {
+		return this.offsets;
+	}
+
+	/**
+	 * Returns the local neighbors of every vertex; shared, not to be modified
+	 * @return neighbors of every vertex
+	 */
+	public int[] getTargets() {
+		return this.targets;
+	}
+
+	/**
+	 * Returns the number of joint publications of every edge; shared, not to be modified
+	 * @return weight of every edge
+	 */
+	public int[] getWeights() {
+		return this.weights;
+	}
+
+	/**
+	 * Expands a range of a frontier, splitting the range in halves until it is small enough
+	 */
+	@SuppressWarnings("serial")
+	private static class ExpandTask extends RecursiveTask<IntList> {
+		private int[] offsets;
+		private int[] targets;
+		private BitSet visited;
+		private IntList frontier;
+		private int from;
+		private int to;
+
+		public ExpandTask(int[] offsets, int[] targets, BitSet visited, IntList frontier, int from, int to) {
+			this.offsets = offsets;
+			this.targets = targets;
+			this.visited = visited;
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected IntList compute() {
+			if (this.to - this.from <= PARALLEL_FRONTIER)
+				return expand(this.offsets, this.targets, this.visited, this.frontier, this.from, this.to);
+
+			int mid = (this.from + this.to) >>> 1;
+			ExpandTask left = new ExpandTask(this.offsets, this.targets, this.visited, this.frontier, this.from, mid);
+			left.fork();
+			IntList right = new ExpandTask(this.offsets, this.targets, this.visited, this.frontier, mid, this.to).compute();
+			IntList candidates = left.join();
+
+			for (int i = 0; i < right.size(); i++)
+				candidates.add( right.get(i) );
+
+			return candidates;
+		}
+	}
+
+	/**
+	 * Buffers reused by every extraction made on the same thread. The local numbering is only read for visited
+	 * vertices, so only the bitset needs to be cleared between extractions.
+	 */
+	private static class Scratch {
+		private BitSet visited = new BitSet();
+		private int[] local = new int[0];
+		private IntList frontier = new IntList();
+		private IntList next = new IntList();
+
+		private void reset(int nrVertices) {
+			this.visited.clear();
+			this.frontier.clear();
+			this.next.clear();
+			if (this.local.length < nrVertices)
+				this.local = new int[nrVertices];
+		}
+	}
+}
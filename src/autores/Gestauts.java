@@ -25,7 +25,8 @@ public class Gestauts {
 		"Exit", "Read from file", "Count repeated lines",
 		"Get File Statistics", "Get Data Statistics", "Year Table", "Get Authors By",
 		"Get Top Authors In Interval", "Get Top Pairs In Interval", "Get Published Authors In Interval",
-		"Get Common Coauthors", "Get Coauthor Info", "Get Coauthors Of", "Save", "Load"
+		"Get Common Coauthors", "Get Coauthor Info", "Get Coauthors Of", "Save", "Load",
+		"Get Collaboration Distance", "Get Most Central Authors", "Get Research Communities"
 	};
 	
 	private interface PrintFunction<T> {
@@ -98,6 +99,9 @@ public class Gestauts {
 		sb.append("\nYear interval: ");
 		Tuple<Integer, Integer> interval = this.network.getYearInterval();
 		sb.append("[" + interval.getFirst() + ", " + interval.getSecond() + "]");
+		QueryCache cache = this.network.getQueryCache();
+		sb.append("\nQuery cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses, " + cache.getEvictions() + " evictions, "
+				+ cache.getCoalesced() + " coalesced, " + cache.getStaleHits() + " stale");
 		Crono.stop();
 		System.out.println(Crono.print());
 		System.out.println( sb.toString() );
@@ -141,17 +145,18 @@ public class Gestauts {
 	}
 	
 	/**
-	 * Prints the list of author names started with a scanned character
+	 * Prints the list of author names started with a scanned prefix, ignoring case
 	 */
 	private void getAuthorsBy() {
-		char c = Character.toUpperCase( Input.scanChar("Enter an initial") );
+		String prefix = Input.scanString("Enter an initial or the beginning of a name").trim();
 		
 		Crono.start();
-		Set<String> s = this.network.getAuthorsBy(c);
+		Iterable<String> authors = this.network.cursorAuthorsByPrefix(prefix);
+		int count = this.network.countAuthorsByPrefix(prefix);
 		Crono.stop();
 		System.out.println(Crono.print());
 		
-		strNavigation(c + "\n", s);
+		strNavigation(prefix + "\n", authors, count);
 	}
 	
 	/**
@@ -167,6 +172,12 @@ public class Gestauts {
 		for( String s : Arrays.asList(args))
 			authors.add( s.trim() );
 		
+		for( String s : authors )
+			if( !this.network.hasAuthor(s) ) {
+				System.out.println(s + " not found.");
+				this.printSuggestions(s);
+			}
+		
 		int min = Input.scanInt("Please enter the first year");
 		int max = Input.intInRange("Please enter the second year", min + 1, Integer.MAX_VALUE);
 
@@ -239,11 +250,11 @@ public class Gestauts {
 		
 		try {
 			Crono.start();
-			TreeSet<String> t = new TreeSet<String>(this.network.authorsInInterval(min, max));
+			Iterable<String> authors = this.network.cursorAuthorsInInterval(min, max);
 			Crono.stop();
 			System.out.println(Crono.print());
 			
-			strNavigation("Authors that published every year between " + min + " and " + max +".\n", t);
+			strNavigation("Authors that published every year between " + min + " and " + max +".\n", authors, -1);
 			
 		} catch (NoAuthorsInIntervalException e) {
 			System.out.println("No authors available in given interval");
@@ -274,6 +285,7 @@ public class Gestauts {
 			strNavigation("Partnership Information:\nTotal Publications: " + info.getSecond() + "\nCo-authors:\n", info.getFirst());
 		} catch(NoSuchAuthorException e) {
 			System.out.println( e.getMessage() );
+			this.printSuggestions(author);
 			Input.pressEnterToContinue();
 		} catch(NoSuchYearException e) {
 			System.out.println( e.getMessage() );
@@ -288,20 +300,89 @@ public class Gestauts {
 		String author = Input.scanString("Please enter an author name");
 		
 		Crono.start();
-		NavigableSet<String> coauthors = this.network.getCoauthorsOf(author);
+		Iterable<String> coauthors = this.network.cursorCoauthorsOf(author);
 		Crono.stop();
 		System.out.println(Crono.print());
 		
-		if( coauthors.size() == 0 ) {
+		if( !coauthors.iterator().hasNext() ) {
 			System.out.println("Author does not exist");
+			this.printSuggestions(author);
 			Input.pressEnterToContinue();
 		}
 		else {
-			strNavigation("Coauthors of " + author + "\n", coauthors);
+			strNavigation("Coauthors of " + author + "\n", coauthors, -1);
 		}
 			
 	}
 	
+	/**
+	 * Shortest chain of coauthors between two authors view
+	 */
+	private void getCollaborationDistance() {
+		String from = Input.scanString("Please enter the first author name").trim();
+		String to = Input.scanString("Please enter the second author name").trim();
+		
+		try {
+			Crono.start();
+			List<String> path = this.network.collaborationPath(from, to);
+			Crono.stop();
+			System.out.println(Crono.print());
+			
+			if( path.isEmpty() ) {
+				System.out.println(from + " and " + to + " are not connected");
+				Input.pressEnterToContinue();
+			}
+			else {
+				strNavigation("Collaboration distance between " + from + " and " + to + ": " + (path.size() - 1) + "\n", path);
+			}
+		} catch(NoSuchAuthorException e) {
+			System.out.println( e.getMessage() );
+			this.printSuggestions( this.network.hasAuthor(from) ? to : from );
+			Input.pressEnterToContinue();
+		}
+	}
+	
+	/**
+	 * Most central authors in interval view
+	 */
+	private void getCentralAuthors() {
+		int min = Input.scanInt("Please enter the first year");
+		int max = Input.intInRange("Please enter the second year", min, Integer.MAX_VALUE);
+		
+		int nrAuthors = 0;
+		while(nrAuthors < 1)
+			nrAuthors = Input.scanInt("Enter the desired number of authors.");
+		
+		Crono.start();
+		NavigableSet<Tuple<String, Double>> authors = this.network.topCentralAuthors(min, max, nrAuthors);
+		Crono.stop();
+		System.out.println(Crono.print());
+		strDoubleNavigation("Most central authors in [" + min + ", " + max + "]\n", authors.descendingSet());
+	}
+	
+	/**
+	 * Research communities in interval view
+	 */
+	private void getCommunities() {
+		int min = Input.scanInt("Please enter the first year");
+		int max = Input.intInRange("Please enter the second year", min, Integer.MAX_VALUE);
+		
+		int nrCommunities = 0;
+		while(nrCommunities < 1)
+			nrCommunities = Input.scanInt("Enter the desired number of communities.");
+		
+		Crono.start();
+		List<Tuple<Integer, List<String>>> communities = this.network.getCommunities(min, max, nrCommunities, 5);
+		Crono.stop();
+		System.out.println(Crono.print());
+		
+		ArrayList<String> lines = new ArrayList<>();
+		for( Tuple<Integer, List<String>> c : communities )
+			lines.add(c.getFirst() + " authors -\t" + String.join(", ", c.getSecond()));
+		
+		strNavigation("Largest research communities in [" + min + ", " + max + "]\n", lines);
+	}
+	
 	/**
 	 * Save structure to file view
 	 */
@@ -343,6 +424,19 @@ public class Gestauts {
 	
 	/* ##### UI methods ##### */
 	
+	/**
+	 * Prints the known author names closest to a name that was not found
+	 * @param author
+	 */
+	private void printSuggestions(String author) {
+		List<String> suggestions = this.network.suggestAuthors(author, 5);
+		if( suggestions.isEmpty() ) return;
+		
+		System.out.println("Did you mean:");
+		for( String s : suggestions )
+			System.out.println("\t" + s);
+	}
+	
 	/**
 	 * Navigation for a set of pairs of years and publications
 	 * @param header
@@ -373,6 +467,21 @@ public class Gestauts {
 		__navigation(nav, pf, header, 20);
 	}
 	
+	/**
+	 * Navigation for a set of Tuple<String, Double>
+	 * @param header
+	 * @param set
+	 */
+	private static void strDoubleNavigation(String header, Set<Tuple<String, Double>> set) {
+		Navigator<Tuple<String, Double>> nav = new Navigator<Tuple<String, Double>>(set);
+		PrintFunction<Tuple<String, Double>> pf = new PrintFunction<Tuple<String, Double>>() { 
+			public void exec(Tuple<String, Double> arg) { 
+				System.out.printf("%.6f -\t%s%n", arg.getSecond(), arg.getFirst()); 
+			} 
+		};
+		__navigation(nav, pf, header, 20);
+	}
+	
 	/*
 	private static void strIntNavigation(String header, Set<Tuple<String, Integer>> s) {
 		Navigator<Tuple<String, Integer>> nav = new Navigator<Tuple<String, Integer>>(s);
@@ -392,7 +501,29 @@ public class Gestauts {
 	 * @param s
 	 */
 	private static void strNavigation(String header, Set<String> set) {
-		Navigator<String> nav = new Navigator<>(set);
+		strNavigation(header, new Navigator<String>(set));
+	}
+	
+	/**
+	 * Navigation for strings read as the pages are shown
+	 * @param header
+	 * @param it
+	 * @param size number of strings, or -1 if unknown
+	 */
+	private static void strNavigation(String header, Iterable<String> it, int size) {
+		strNavigation(header, new Navigator<String>(it, size));
+	}
+	
+	/**
+	 * Navigation for a list of strings
+	 * @param header
+	 * @param l
+	 */
+	private static void strNavigation(String header, List<String> l) {
+		strNavigation(header, new Navigator<String>(l));
+	}
+	
+	private static void strNavigation(String header, Navigator<String> nav) {
 		PrintFunction<String> pf = new PrintFunction<String>() { public void exec(String arg) { System.out.println(arg); } };
 		__navigation(nav, pf, header, 20);
 	}
@@ -419,7 +550,7 @@ public class Gestauts {
         		}
         		
         		System.out.println("\n Showing " + (nav.current() - items.size() + 1)
-        				           + " - " + nav.current() + " of " + nav.size() + "\n");
+        				           + " - " + nav.current() + " of " + nav.size() + (nav.isSizeKnown() ? "" : "+") + "\n");
         	}
         	catch (NoMoreItemsException e) {
         		System.out.println("No more items available\n");
@@ -501,7 +632,10 @@ public class Gestauts {
 				new MenuOption() { public void exec() { app.getCoauthorInfo(); } },
 				new MenuOption() { public void exec() { app.getCoauthorsOf(); } },
 				new MenuOption() { public void exec() { app.save(); } },
-				new MenuOption() { public void exec() { app.load(); } }
+				new MenuOption() { public void exec() { app.load(); } },
+				new MenuOption() { public void exec() { app.getCollaborationDistance(); } },
+				new MenuOption() { public void exec() { app.getCentralAuthors(); } },
+				new MenuOption() { public void exec() { app.getCommunities(); } }
 		};
 	}
 	
@@ -555,10 +689,21 @@ public class Gestauts {
 	}
 	
 	/**
-	 * Let the party start
+	 * Let the party start.<br>
+	 * With --batch DATA SCRIPT OUTPUT_DIR [THREADS], runs a script of queries without the menu instead
 	 * @param args
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("--parallel")) {
+			GlobalAuthorNetwork.setParallel(true);
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+		
+		if (args.length > 0 && args[0].equals("--batch")) {
+			BatchRunner.main( Arrays.copyOfRange(args, 1, args.length) );
+			return;
+		}
+		
 		Gestauts.greet();
 		new Gestauts().run();
 	}
@@ -2,24 +2,86 @@ package autores;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @SuppressWarnings("serial")
 public class GlobalAuthorNetwork implements Serializable {
+	/** number of coauthor graphs of different intervals kept */
+	private static final int CACHED_GRAPHS = 4;
+	/** time a query waiting for a graph built by another one waits between checks of its own deadline */
+	private static final long GRAPH_WAIT_MILLIS = 50;
+	/** number of authors whose sorted coauthors are kept for paging through them */
+	private static final int CACHED_COAUTHOR_RANKS = 256;
+	private static volatile boolean parallel = false;
+	
 	private TreeMap<Integer, AuthorCatalog> annualNetworks;
+	private AuthorDictionary dictionary;
+	private AuthorComponents components;
+	private CareerProfiles careers;
+	private volatile TreeMap<Integer, TreeMap<Integer, YearRollup>> rollups;
+	private transient AuthorNameIndex nameIndex;
+	private transient volatile ConcurrentHashMap<Integer, int[]> yearRanks;
+	private transient volatile Map<String, int[]> coauthorRanks;
+	private transient TrigramIndex trigramIndex;
+	private transient LinkedHashMap<Long, FutureTask<CoauthorGraph>> graphs;
+	private transient SimilarAuthors similarity;
+	private transient PairTimelines timelines;
+	private transient Object writer;
+	
+	/**
+	 * Chooses whether queries over at least ParallelYearScan.THRESHOLD years go through them on several threads
+	 * @param parallel
+	 */
+	public static void setParallel(boolean parallel) {
+		GlobalAuthorNetwork.parallel = parallel;
+	}
+	
+	public static boolean isParallel() {
+		return GlobalAuthorNetwork.parallel;
+	}
+	
+	/**
+	 * Checks if the given number of years shall be gone through in parallel
+	 * @param nrYears
+	 * @return true if the years shall be gone through in parallel
+	 */
+	private static boolean inParallel(int nrYears) {
+		return GlobalAuthorNetwork.parallel && nrYears >= ParallelYearScan.THRESHOLD;
+	}
 	
 	public GlobalAuthorNetwork() {
 		this.annualNetworks = new TreeMap<Integer, AuthorCatalog>();
+		this.dictionary = new AuthorDictionary();
+		this.components = new AuthorComponents();
+		this.careers = new CareerProfiles(this.dictionary);
+		this.rollups = new TreeMap<>();
+		this.nameIndex = null;
+		this.yearRanks = null;
+		this.coauthorRanks = null;
+		this.trigramIndex = null;
+		this.graphs = null;
+		this.similarity = null;
+		this.timelines = null;
 	}
 	
 	/**
@@ -28,14 +90,103 @@ public class GlobalAuthorNetwork implements Serializable {
 	 * @param authors
 	 */
 	public void addPublication(int year, Collection<String> authors) {
-		if( !this.annualNetworks.containsKey(year) ) {
-			AuthorCatalog newCatalog = new AuthorCatalog();
-			newCatalog.addPublication(authors);
-			this.annualNetworks.put(year, newCatalog);
+		this.addPublication(year, authors, authors);
+	}
+	
+	/**
+	 * Adds a publication to a given year, keeping information only about some of its authors.<br>
+	 * Used by the shards of a partitioned network, where each author is kept by a single shard
+	 * along with every publication of that author. A publication with authors but none of them kept only adds its
+	 * year, so the names registered are the ones kept and their coauthors.
+	 * @param year
+	 * @param authors every author of the publication
+	 * @param owned authors of the publication whose information is kept
+	 */
+	public void addPublication(int year, Collection<String> authors, Collection<String> owned) {
+		if (owned.isEmpty() && !authors.isEmpty()) {
+			if (!this.annualNetworks.containsKey(year)) {
+				this.annualNetworks.put(year, new AuthorCatalog(this.writer));
+				this.invalidateRollups(year);
+			}
+			return;
 		}
-		else {
-			this.annualNetworks.get(year).addPublication(authors);
+		
+		int first = -1;
+		for (String author : authors) {
+			if (!this.dictionary.contains(author)) {
+				this.nameIndex = null;
+				this.yearRanks = null;
+				this.coauthorRanks = null;
+			}
+			
+			int id = this.dictionary.register(author);
+			if (first < 0) first = id;
+			this.components.union(first, id);
 		}
+		
+		this.graphs = null;
+		this.similarity = null;
+		this.timelines = null;
+		if (this.yearRanks != null) this.yearRanks.remove(year);
+		if (this.coauthorRanks != null)
+			for (String author : owned) this.coauthorRanks.remove(author);
+		
+		this.invalidateRollups(year);
+		
+		CareerProfiles careers = getCareers();
+		ArrayList<String> newInYear = new ArrayList<>();
+		AuthorCatalog catalog = this.annualNetworks.get(year);
+		
+		if( catalog == null ) {
+			catalog = new AuthorCatalog(this.writer);
+			this.annualNetworks.put(year, catalog);
+		}
+		else if( !catalog.isOwnedBy(this.writer) ) {
+			catalog = catalog.copy(this.writer);
+			this.annualNetworks.put(year, catalog);
+		}
+		
+		for (String author : owned)
+			if (!catalog.hasAuthor(author)) newInYear.add(author);
+		catalog.addPublication(authors, owned);
+		
+		careers.addPublication(year, authors, catalog, newInYear);
+	}
+	
+	/**
+	 * Invalidates the rollups whose range holds the given year
+	 * @param year
+	 */
+	private void invalidateRollups(int year) {
+		for (TreeMap<Integer, YearRollup> starting : this.rollups.headMap(year, true).values())
+			for (YearRollup rollup : starting.tailMap(year, true).values())
+				rollup.invalidate();
+	}
+	
+	/**
+	 * Returns a copy of the network to add publications to while this one keeps being queried.<br>
+	 * The catalogs of every year are shared, and each one is only copied by the first publication added to its year,
+	 * and then only the information of the authors of that publication. From then on neither network changes
+	 * the catalogs shared with the other one.
+	 * @return copy of the network
+	 */
+	public synchronized GlobalAuthorNetwork copyForWrite() {
+		GlobalAuthorNetwork copy = new GlobalAuthorNetwork();
+		copy.annualNetworks = new TreeMap<Integer, AuthorCatalog>(this.annualNetworks);
+		copy.dictionary = this.dictionary.copy();
+		copy.components = this.components.copy();
+		copy.careers = this.getCareers().copy(copy.dictionary);
+		copy.writer = new Object();
+		this.writer = new Object();
+		
+		for (Map.Entry<Integer, TreeMap<Integer, YearRollup>> starting : this.rollups.entrySet()) {
+			TreeMap<Integer, YearRollup> copies = new TreeMap<>();
+			for (Map.Entry<Integer, YearRollup> rollup : starting.getValue().entrySet())
+				copies.put( rollup.getKey(), rollup.getValue().copy() );
+			copy.rollups.put(starting.getKey(), copies);
+		}
+		
+		return copy;
 	}
 	
 	public NavigableMap<Integer, Integer> getYearTable() {
@@ -46,12 +197,99 @@ public class GlobalAuthorNetwork implements Serializable {
 		return table;
 	}
 	
+	/**
+	 * Returns the sizes of the catalogs of the years of an interval added together, telling how much a query going
+	 * through them has to read
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return number of authors and number of coauthorships of the years of the interval
+	 */
+	public Tuple<Long, Long> catalogSizes(int min, int max) {
+		long authors = 0, coauthorships = 0;
+		if (min <= max)
+			for (AuthorCatalog catalog : this.annualNetworks.subMap(min, true, max, true).values()) {
+				authors += catalog.getNrAuthors();
+				coauthorships += catalog.getNrCoauthorships();
+			}
+		
+		return new Tuple<Long, Long>(authors, coauthorships);
+	}
+	
 	public Tuple<Integer, Integer> getYearInterval() {
 		int min = this.annualNetworks.firstKey();
 		int max = this.annualNetworks.lastKey();
 		return new Tuple<Integer, Integer>(min, max);
 	}
 	
+	/**
+	 * Registers a range of years whose totals shall be kept precomputed for interval queries.<br>
+	 * The totals are only built when a query first needs them. The rollups are replaced rather than changed, so
+	 * queries running meanwhile keep the ones they started with.
+	 * @param min first year of the range
+	 * @param max last year of the range
+	 */
+	public synchronized void registerRollup(int min, int max) {
+		if (min > max) throw new IllegalArgumentException(min + " > " + max);
+		
+		TreeMap<Integer, TreeMap<Integer, YearRollup>> rollups = new TreeMap<>(this.rollups);
+		addRollup(rollups, min, max);
+		this.rollups = rollups;
+	}
+	
+	/**
+	 * Adds a rollup to a copy of the rollups, unless it already holds one of the same range
+	 * @param rollups copy of the rollups, whose ranges starting at the given year are copied before being changed
+	 * @param min first year of the range
+	 * @param max last year of the range
+	 */
+	private static void addRollup(TreeMap<Integer, TreeMap<Integer, YearRollup>> rollups, int min, int max) {
+		TreeMap<Integer, YearRollup> starting = rollups.get(min);
+		if (starting != null && starting.containsKey(max)) return;
+		
+		starting = starting == null ? new TreeMap<Integer, YearRollup>() : new TreeMap<Integer, YearRollup>(starting);
+		starting.put(max, new YearRollup(min, max));
+		rollups.put(min, starting);
+	}
+	
+	/**
+	 * Registers rollups over the known years as the levels of a segment tree: ranges of the given width aligned to
+	 * multiples of it (decades for a width of 10), then ranges of twice that width, and so on until one range covers every year.<br>
+	 * Any interval is then covered by O(log years) rollups plus the single years at its edges.
+	 * @param width
+	 */
+	public synchronized void registerAlignedRollups(int width) {
+		if (width < 1) throw new IllegalArgumentException("width " + width);
+		if (this.annualNetworks.isEmpty()) return;
+		
+		int first = this.annualNetworks.firstKey();
+		int last = this.annualNetworks.lastKey();
+		TreeMap<Integer, TreeMap<Integer, YearRollup>> rollups = new TreeMap<>(this.rollups);
+		
+		for (int w = width; ; w *= 2) {
+			int start = Math.floorDiv(first, w) * w;
+			for (int min = start; min <= last; min += w)
+				addRollup(rollups, min, min + w - 1);
+			
+			if (start + w > last) break;
+		}
+		
+		this.rollups = rollups;
+	}
+	
+	/**
+	 * Returns the widest registered rollup starting at the given year and ending before max, or null if there is none
+	 * @param year
+	 * @param max
+	 * @return
+	 */
+	YearRollup widestRollup(int year, int max) {
+		TreeMap<Integer, YearRollup> starting = this.rollups.get(year);
+		if (starting == null) return null;
+		
+		Map.Entry<Integer, YearRollup> e = starting.floorEntry(max);
+		return e == null ? null : e.getValue();
+	}
+	
 	/**
 	 * Returns the ordered names of the top authors in a given interval
 	 * @param interval
@@ -59,11 +297,53 @@ public class GlobalAuthorNetwork implements Serializable {
 	 * @return
 	 */
 	public NavigableSet<Tuple<String, Integer>> topPublishers(int min, int max, int nrAuthors) {
+		return GlobalAuthorNetwork.functorAddMax( authorTotals(min, max), nrAuthors, new AuthorPubsTupleComparator() );
+	}
+	
+	/**
+	 * Returns the number of publications of every author in the given interval
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return publications of every author, by name
+	 */
+	public TreeMap<String, Integer> authorTotals(int min, int max) {
 		TreeMap<String, Integer> authorsTotal = new TreeMap<>();
-		for(int i = min; i <= max; i++)
-			addYearsTotal(authorsTotal, i);
+		ArrayList<AuthorCatalog> scanned = new ArrayList<>();
+		boolean inParallel = min <= max && inParallel( this.annualNetworks.subMap(min, true, max, true).size() );
+		int i = min;
+		QueryTracker.begin( nrYears(min, max) );
+		while(i <= max) {
+			YearRollup rollup = widestRollup(i, max);
+			if(rollup != null) {
+				GlobalAuthorNetwork.functorMapAdd( authorsTotal, rollup.getAuthorTotals(this.annualNetworks) );
+				QueryTracker.checkpoint( rollup.getMax() - i + 1 );
+				i = rollup.getMax() + 1;
+			}
+			else if(inParallel && this.annualNetworks.containsKey(i))
+				scanned.add( this.annualNetworks.get(i++) ); // reported by the scan
+			else {
+				addYearsTotal(authorsTotal, i++);
+				QueryTracker.checkpoint();
+			}
+		}
 		
-		return GlobalAuthorNetwork.functorAddMax( authorsTotal, nrAuthors, new AuthorPubsTupleComparator() );
+		if(!scanned.isEmpty()) {
+			TreeMap<String, Integer> yearsTotal = new ParallelYearScan(scanned, this.dictionary).authorTotals();
+			if(authorsTotal.isEmpty()) return yearsTotal;
+			GlobalAuthorNetwork.functorMapAdd(authorsTotal, yearsTotal);
+		}
+		
+		return authorsTotal;
+	}
+	
+	/**
+	 * Returns the statistics of every window of consecutive years with the given width, computed in a single pass over the years
+	 * @param width number of years in each window
+	 * @param nrAuthors number of top publishers to report for each window
+	 * @return
+	 */
+	public List<WindowStats> slidingWindows(int width, int nrAuthors) {
+		return new SlidingWindowSweep(this.annualNetworks, this.dictionary).sweep(width, nrAuthors);
 	}
 	
 	/**
@@ -87,12 +367,43 @@ public class GlobalAuthorNetwork implements Serializable {
 	 * @return
 	 */
 	public NavigableSet<Tuple<Tuple<String, String>, Integer>> topPairs(int min, int max, int nrAuthors) {
+		return GlobalAuthorNetwork.functorAddMax( pairTotals(min, max), nrAuthors, new PairPubsTupleComparator() ); // return a clone, please
+	}
+	
+	/**
+	 * Returns the number of joint publications of every pair of coauthors in the given interval
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return joint publications of every pair, the names of each pair in order
+	 */
+	public TreeMap<Tuple<String, String>, Integer> pairTotals(int min, int max) {
 		TreeMap<Tuple<String, String>, Integer> authorPairs = new TreeMap<>( new AuthorTupleComparator() );
-
-		for(int i = min; i <= max; i++)
-				addYearPairs(authorPairs, i);
+		ArrayList<AuthorCatalog> scanned = new ArrayList<>();
+		boolean inParallel = min <= max && inParallel( this.annualNetworks.subMap(min, true, max, true).size() );
+		int i = min;
+		QueryTracker.begin( nrYears(min, max) );
+		while(i <= max) {
+			YearRollup rollup = widestRollup(i, max);
+			if(rollup != null) {
+				GlobalAuthorNetwork.functorMapAdd( authorPairs, rollup.getPairTotals(this.annualNetworks) );
+				QueryTracker.checkpoint( rollup.getMax() - i + 1 );
+				i = rollup.getMax() + 1;
+			}
+			else if(inParallel && this.annualNetworks.containsKey(i))
+				scanned.add( this.annualNetworks.get(i++) ); // reported by the scan
+			else {
+				addYearPairs(authorPairs, i++);
+				QueryTracker.checkpoint();
+			}
+		}
+		
+		if(!scanned.isEmpty()) {
+			TreeMap<Tuple<String, String>, Integer> yearPairs = new ParallelYearScan(scanned, this.dictionary).pairTotals();
+			if(authorPairs.isEmpty()) return yearPairs;
+			GlobalAuthorNetwork.functorMapAdd(authorPairs, yearPairs);
+		}
 		
-		return GlobalAuthorNetwork.functorAddMax( authorPairs, nrAuthors, new PairPubsTupleComparator() ); // return a clone, please
+		return authorPairs;
 	}
 	
 	/**
@@ -128,47 +439,54 @@ public class GlobalAuthorNetwork implements Serializable {
 	 * @throws NoAuthorsInIntervalException 
 	 */
 	public NavigableSet<String> authorsInInterval(int min, int max) throws NoAuthorsInIntervalException {
-		NavigableSet<String> authors = getAuthorsInYear(min, max);
-		if(authors == null)
-			throw new NoAuthorsInIntervalException();
+		NavigableSet<String> authors = null;
+		int i = min;
+		QueryTracker.begin( nrYears(min, max) );
 		
-		for(int i = min + 1; i <= max; i++) {
-			NavigableSet<String> currentYear = getAuthorsInYear(i, max);
-			if(currentYear != null) {
+		while(i <= max) {
+			NavigableSet<String> current;
+			YearRollup rollup = widestRollup(i, max);
+			if(rollup != null) {
+				current = rollup.getAuthorsEveryYear(this.annualNetworks);
+				QueryTracker.checkpoint( rollup.getMax() - i + 1 );
+				i = rollup.getMax() + 1;
+			}
+			else {
+				AuthorCatalog catalog = this.annualNetworks.get(i++);
+				current = catalog == null ? null : catalog.getAuthors();
+				QueryTracker.checkpoint();
+			}
+			
+			if(current == null) continue;
+			
+			if(authors == null)
+				authors = new TreeSet<String>(current);
+			else {
 				Iterator<String> it = authors.iterator();
 				while( it.hasNext() ) {
-					if( !currentYear.contains( it.next() ) )
+					if( !current.contains( it.next() ) )
 						it.remove();
 				}
 			}
 		}
 		
+		if(authors == null)
+			throw new NoAuthorsInIntervalException();
+		
 		return authors;
 	}
 	
 	
-	/**
-	 * Returns a NavigableSet with the authors in min year.
-	 * If min year contains no authors it will advance a year until max
-	 * If no authors are found, returns null
-	 * @param min
-	 * @param max
-	 * @return
-	 */
-	private NavigableSet<String> getAuthorsInYear(int min, int max) {
-		try {
-			return annualNetworks.get(min).getAuthors();
-		} catch(NullPointerException e) {
-			if(min == max) return null;
-			else return getAuthorsInYear(min + 1, max);
-		}
-	}
-	
-	
 	public int nrAuthorsWithOver(int nrPublications) {
+		QueryTracker.begin( this.annualNetworks.size() );
+		if( inParallel( this.annualNetworks.size() ) )
+			return new ParallelYearScan(this.annualNetworks.values(), this.dictionary).nrAuthorsWithOver(nrPublications);
+		
 		TreeMap<String, Integer> totals = new TreeMap<>();
-		for( AuthorCatalog a : this.annualNetworks.values() )
+		for( AuthorCatalog a : this.annualNetworks.values() ) {
 			GlobalAuthorNetwork.functorMapAdd( totals, a.getAuthorPublications() );
+			QueryTracker.checkpoint();
+		}
 		
 		int total = 0;
 		for( Integer i : totals.values() )
@@ -184,9 +502,12 @@ public class GlobalAuthorNetwork implements Serializable {
 	 */
 	public NavigableSet<String> getCoauthorsOf(String name) {
 		TreeSet<String> coauthors = new TreeSet<>();
-		for( AuthorCatalog ac : this.annualNetworks.values() )
+		QueryTracker.begin( this.annualNetworks.size() );
+		for( AuthorCatalog ac : this.annualNetworks.values() ) {
 			if( ac.hasAuthor(name) )
 				coauthors.addAll( ac.getCoauthors(name) );
+			QueryTracker.checkpoint();
+		}
 		
 		return coauthors;
 	}
@@ -198,6 +519,7 @@ public class GlobalAuthorNetwork implements Serializable {
 	public Set<String> getSoloAuthors() {
 		HashMap<String, Boolean> map = new HashMap<>();
 		HashSet<String> set = new HashSet<>();
+		QueryTracker.begin( this.annualNetworks.size() );
 		
 		for (AuthorCatalog catalog : this.annualNetworks.values()) {
 			for (Map.Entry<String, Boolean> entry : catalog.getSoloAuthors().entrySet()) {
@@ -206,6 +528,7 @@ public class GlobalAuthorNetwork implements Serializable {
 				if (b == null) map.put(entry.getKey(), entry.getValue());
 				else map.put(entry.getKey(), b && entry.getValue());
 			}
+			QueryTracker.checkpoint();
 		}
 		
 		for (Map.Entry<String, Boolean> entry : map.entrySet()) {
@@ -220,6 +543,7 @@ public class GlobalAuthorNetwork implements Serializable {
 	public Set<String> getNonSoloAuthors() {
 		HashMap<String, Boolean> map = new HashMap<>();
 		HashSet<String> set = new HashSet<>();
+		QueryTracker.begin( this.annualNetworks.size() );
 		
 		for (AuthorCatalog catalog : this.annualNetworks.values()) {
 			for (Map.Entry<String, Boolean> entry : catalog.getNonSoloAuthors().entrySet()) {
@@ -228,6 +552,7 @@ public class GlobalAuthorNetwork implements Serializable {
 				if (b == null) map.put(entry.getKey(), entry.getValue());
 				else map.put(entry.getKey(), b && entry.getValue());
 			}
+			QueryTracker.checkpoint();
 		}
 		
 		for (Map.Entry<String, Boolean> entry : map.entrySet()) {
@@ -248,13 +573,19 @@ public class GlobalAuthorNetwork implements Serializable {
 		
 		for (i = 0; i < authors.size(); i++) coauthors.add(new TreeSet<String>());
 		
-		for (AuthorCatalog catalog : this.annualNetworks.subMap(min, true, max, true).values()) {
+		NavigableMap<Integer, AuthorCatalog> years = this.annualNetworks.subMap(min, true, max, true);
+		QueryTracker.begin( years.size() );
+		if (!authors.isEmpty() && inParallel( years.size() ))
+			return new ParallelYearScan(years.values(), this.dictionary).commonCoauthors( new ArrayList<String>(authors) );
+		
+		for (AuthorCatalog catalog : years.values()) {
 			i = 0;
 			for (String s : authors) {
 				if (catalog.hasAuthor(s)) 
 					coauthors.get(i).addAll( catalog.getCoauthors(s) );
 			i++;
 			}
+			QueryTracker.checkpoint();
 		}
 		
 		for (i = 1; i < authors.size(); i++) coauthors.get(0).retainAll(coauthors.get(i));
@@ -270,21 +601,623 @@ public class GlobalAuthorNetwork implements Serializable {
 		return an.authorPartnershipInfo(author);
 	}
 	
+	/**
+	 * Returns the authors started by the given initial, ignoring case
+	 * @param c
+	 * @return
+	 */
 	public NavigableSet<String> getAuthorsBy(char c) {
-		TreeSet<String> authors = new TreeSet<>();
-		for( AuthorCatalog ac : this.annualNetworks.values() )
-			authors.addAll( ac.getAuthorsBy(c) );
-		
+		TreeSet<String> authors = new TreeSet<String>();
+		for( String name : cursorAuthorsByPrefix( String.valueOf(c) ) )
+			authors.add(name);
 		
 		return authors;
 	}
 	
-	public int totalAuthors() {
-		TreeSet<String> authors = new TreeSet<>();
-		for( AuthorCatalog ac : this.annualNetworks.values() )
-			authors.addAll( ac.getAuthors() );
+	/**
+	 * Returns a page of the authors started by the given prefix, ignoring case, ordered by name
+	 * @param prefix
+	 * @param offset number of matching authors to skip
+	 * @param limit maximum number of authors to return
+	 * @return
+	 */
+	public List<String> getAuthorsByPrefix(String prefix, int offset, int limit) {
+		return getNameIndex().find(prefix, offset, limit);
+	}
+	
+	/**
+	 * Returns the number of authors started by the given prefix, ignoring case
+	 * @param prefix
+	 * @return
+	 */
+	public int countAuthorsByPrefix(String prefix) {
+		return getNameIndex().count(prefix);
+	}
+	
+	/**
+	 * Returns the authors started by the given prefix, ignoring case, read from the name index as they are iterated
+	 * @param prefix
+	 * @return authors started by the given prefix, ordered by name ignoring case
+	 */
+	public Iterable<String> cursorAuthorsByPrefix(final String prefix) {
+		final AuthorNameIndex index = getNameIndex();
+		return new Iterable<String>() {
+			public Iterator<String> iterator() {
+				return index.cursor(prefix);
+			}
+		};
+	}
+	
+	/**
+	 * Returns the coauthors of a given author, read from their sorted positions in the name index as they are iterated
+	 * @param name
+	 * @return coauthors of the author, ordered by name ignoring case
+	 */
+	public Iterable<String> cursorCoauthorsOf(String name) {
+		final AuthorNameIndex index = getNameIndex();
+		final int[] ranks = getCoauthorRanks(name);
+		return new Iterable<String>() {
+			public Iterator<String> iterator() {
+				return RankCursor.of(index, ranks);
+			}
+		};
+	}
+	
+	/**
+	 * Returns the authors that published in every year of the given interval with publications, found by
+	 * intersecting the sorted authors of every year as they are iterated
+	 * @param min
+	 * @param max
+	 * @return authors that published in every year of the interval, ordered by name ignoring case
+	 * @throws NoAuthorsInIntervalException if no year of the interval has publications
+	 */
+	public Iterable<String> cursorAuthorsInInterval(int min, int max) throws NoAuthorsInIntervalException {
+		NavigableMap<Integer, AuthorCatalog> years = catalogsIn(min, max);
+		if( years.isEmpty() )
+			throw new NoAuthorsInIntervalException();
+		
+		AuthorNameIndex index = getNameIndex();
+		int[][] ranks = new int[years.size()][];
+		int i = 0;
+		
+		QueryTracker.begin( years.size() );
+		for( Map.Entry<Integer, AuthorCatalog> e : years.entrySet() ) {
+			ranks[i++] = getYearRanks( e.getKey(), e.getValue() );
+			QueryTracker.checkpoint();
+		}
+		
+		return new Iterable<String>() {
+			public Iterator<String> iterator() {
+				return RankCursor.intersection(index, ranks);
+			}
+		};
+	}
+	
+	/**
+	 * Returns the name index, building it if the known authors changed since it was last built
+	 * @return
+	 */
+	private synchronized AuthorNameIndex getNameIndex() {
+		if (this.nameIndex == null)
+			this.nameIndex = new AuthorNameIndex(this.dictionary);
+		
+		return this.nameIndex;
+	}
+	
+	/**
+	 * Returns the sorted positions in the name index of the authors of a year, kept until the year or the index changes.<br>
+	 * The positions are worked out without any lock held, so readers of other years never wait for them, and the
+	 * first ones kept are the ones every reader gets
+	 * @param year
+	 * @param catalog catalog of the year
+	 * @return sorted positions of the authors of the year
+	 */
+	private int[] getYearRanks(int year, AuthorCatalog catalog) {
+		ConcurrentHashMap<Integer, int[]> cache = this.yearRanks;
+		if (cache == null)
+			synchronized (this) {
+				if (this.yearRanks == null) this.yearRanks = new ConcurrentHashMap<>();
+				cache = this.yearRanks;
+			}
+		
+		int[] ranks = cache.get(year);
+		if (ranks == null) {
+			ranks = getNameIndex().ranksOf( catalog.getAuthorNames() );
+			int[] kept = cache.putIfAbsent(year, ranks);
+			if (kept != null) ranks = kept;
+		}
+		
+		return ranks;
+	}
+	
+	/**
+	 * Returns the sorted positions in the name index of the coauthors of an author in every year, kept for the last
+	 * CACHED_COAUTHOR_RANKS authors asked for until the author publishes again or the index changes.<br>
+	 * The positions are worked out without any lock held, and the first ones kept are the ones every reader gets
+	 * @param name
+	 * @return sorted positions of the coauthors, each one once
+	 */
+	private int[] getCoauthorRanks(String name) {
+		Map<String, int[]> cache = this.coauthorRanks;
+		if (cache == null)
+			synchronized (this) {
+				if (this.coauthorRanks == null)
+					this.coauthorRanks = Collections.synchronizedMap( new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+						private static final long serialVersionUID = 1L;
+						
+						protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+							return this.size() > CACHED_COAUTHOR_RANKS;
+						}
+					} );
+				cache = this.coauthorRanks;
+			}
+		
+		int[] ranks = cache.get(name);
+		if (ranks == null) {
+			AuthorNameIndex index = getNameIndex();
+			int[] all = new int[16];
+			int n = 0;
+			
+			QueryTracker.begin( this.annualNetworks.size() );
+			for( AuthorCatalog ac : this.annualNetworks.values() ) {
+				AuthorInfo info = ac.getAuthorInfo(name);
+				if( info != null )
+					for( String coauthor : info.getCoauthors() ) {
+						if( n == all.length ) all = Arrays.copyOf(all, 2 * n);
+						all[n++] = index.rankOf(coauthor);
+					}
+				QueryTracker.checkpoint();
+			}
+			
+			// the coauthors of every year sorted together, without repeating the ones of several years
+			Arrays.sort(all, 0, n);
+			int distinct = 0;
+			for( int i = 0; i < n; i++ )
+				if( distinct == 0 || all[i] != all[distinct - 1] ) all[distinct++] = all[i];
+			
+			ranks = Arrays.copyOf(all, distinct);
+			int[] kept = cache.putIfAbsent(name, ranks);
+			if (kept != null) ranks = kept;
+		}
 		
-		return authors.size();
+		return ranks;
+	}
+	
+	/**
+	 * Returns up to k known author names ordered by decreasing similarity to the given name.<br>
+	 * The trigram index is only built on the first call, and then extended with the authors added since the previous one
+	 * @param name
+	 * @param k
+	 * @return
+	 */
+	public synchronized List<String> suggestAuthors(String name, int k) {
+		if (this.trigramIndex == null)
+			this.trigramIndex = new TrigramIndex(this.dictionary);
+		
+		this.trigramIndex.update();
+		return this.trigramIndex.suggest(name, k);
+	}
+	
+	/**
+	 * Returns the coauthor graph of every year
+	 * @return
+	 */
+	public CoauthorGraph getCoauthorGraph() {
+		return getCoauthorGraph(Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Returns the coauthor graph of the given interval, reusing one of the last CACHED_GRAPHS graphs built.<br>
+	 * The graph is built outside the lock of the network, by the first query asking for it; queries asking for the
+	 * same graph meanwhile wait for it, checking their own deadline, and build it again if that query fails
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return
+	 */
+	public CoauthorGraph getCoauthorGraph(int min, int max) {
+		final Long key = LongIntMap.pack(min, max);
+		FutureTask<CoauthorGraph> task;
+		boolean mine = false;
+		
+		synchronized (this) {
+			if (this.graphs == null)
+				this.graphs = new LinkedHashMap<Long, FutureTask<CoauthorGraph>>(CACHED_GRAPHS, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+					
+					protected boolean removeEldestEntry(Map.Entry<Long, FutureTask<CoauthorGraph>> eldest) {
+						return this.size() > CACHED_GRAPHS;
+					}
+				};
+			
+			task = this.graphs.get(key);
+			if (task == null) {
+				final ArrayList<AuthorCatalog> catalogs = new ArrayList<>( this.annualNetworks.subMap(min, true, max, true).values() );
+				final AuthorDictionary dictionary = this.dictionary;
+				task = new FutureTask<CoauthorGraph>(new Callable<CoauthorGraph>() {
+					public CoauthorGraph call() {
+						return CoauthorGraph.build(catalogs, dictionary);
+					}
+				});
+				this.graphs.put(key, task);
+				mine = true;
+			}
+		}
+		
+		if (mine) task.run();
+		try {
+			for (;;) {
+				try {
+					return task.get(GRAPH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					QueryTracker.checkpoint(0);
+				}
+			}
+		} catch (ExecutionException e) {
+			synchronized (this) {
+				if (this.graphs != null && this.graphs.get(key) == task) this.graphs.remove(key);
+			}
+			if (!mine) return getCoauthorGraph(min, max);
+			
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error) throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new QueryAbortedException("interrupted", 0, 0, 0);
+		}
+	}
+	
+	/**
+	 * Returns a shortest chain of coauthors linking two authors through publications in the given interval, both authors included.<br>
+	 * The chain is empty if there is none, or if none was found before visiting maxVisited authors
+	 * @param from
+	 * @param to
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @param maxVisited
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	public List<String> collaborationPath(String from, String to, int min, int max, int maxVisited) throws NoSuchAuthorException {
+		CoauthorGraph g = getCoauthorGraph(min, max);
+		int source = g.vertexOf(from);
+		int target = g.vertexOf(to);
+		
+		if (source < 0) throw new NoSuchAuthorException(from + " not found.");
+		if (target < 0) throw new NoSuchAuthorException(to + " not found.");
+		
+		return new CollaborationDistance(g, maxVisited).shortestPath(source, target);
+	}
+	
+	/**
+	 * Returns the authors within the given number of hops from an author through publications in the given interval,
+	 * with every coauthorship between them
+	 * @param name
+	 * @param hops
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @param maxVertices maximum number of authors in the neighborhood
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	public EgoNetwork egoNetwork(String name, int hops, int min, int max, int maxVertices) throws NoSuchAuthorException {
+		CoauthorGraph g = getCoauthorGraph(min, max);
+		int center = g.vertexOf(name);
+		
+		if (center < 0) throw new NoSuchAuthorException(name + " not found.");
+		
+		return EgoNetwork.of(g, center, hops, maxVertices);
+	}
+	
+	/**
+	 * Returns the similarity index over the coauthor sets of every author, building it after the publications were added
+	 * @return
+	 */
+	public synchronized SimilarAuthors getSimilarAuthors() {
+		if (this.similarity == null)
+			this.similarity = new SimilarAuthors( getCoauthorGraph() );
+		
+		return this.similarity;
+	}
+	
+	/**
+	 * Returns the authors whose sets of coauthors are most similar to the ones of the given author, most similar first
+	 * @param name
+	 * @param nrAuthors
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	public List<Tuple<String, Double>> similarAuthors(String name, int nrAuthors) throws NoSuchAuthorException {
+		SimilarAuthors index = getSimilarAuthors();
+		int v = this.dictionary.idOf(name);
+		
+		if (v < 0) throw new NoSuchAuthorException(name + " not found.");
+		
+		return index.similarTo(v, nrAuthors);
+	}
+	
+	/**
+	 * Returns the pairs of authors whose sets of coauthors have at least the given Jaccard similarity, most similar first
+	 * @param threshold
+	 * @return
+	 */
+	public List<Tuple<Tuple<String, String>, Double>> similarPairs(double threshold) {
+		return getSimilarAuthors().similarPairs(threshold);
+	}
+	
+	/**
+	 * Returns the yearly timelines of every coauthor pair, building them after the publications were added
+	 * @return
+	 */
+	public synchronized PairTimelines getPairTimelines() {
+		if (this.timelines == null)
+			this.timelines = new PairTimelines( getCoauthorGraph(), this.annualNetworks, this.dictionary );
+		
+		return this.timelines;
+	}
+	
+	/**
+	 * Returns the number of joint publications of two authors in each year they published together
+	 * @param a
+	 * @param b
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	public NavigableMap<Integer, Integer> pairTimeline(String a, String b) throws NoSuchAuthorException {
+		PairTimelines index = getPairTimelines();
+		return index.timeline( this.idOfAuthor(a), this.idOfAuthor(b) );
+	}
+	
+	/**
+	 * Returns the number of joint publications of two authors in the given interval
+	 * @param a
+	 * @param b
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	public int pairPublications(String a, String b, int min, int max) throws NoSuchAuthorException {
+		PairTimelines index = getPairTimelines();
+		return index.publications( this.idOfAuthor(a), this.idOfAuthor(b), min, max );
+	}
+	
+	/**
+	 * Returns the first year and length of the longest run of consecutive years in which two authors published together,
+	 * or null if they never did
+	 * @param a
+	 * @param b
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	public Tuple<Integer, Integer> pairStreak(String a, String b) throws NoSuchAuthorException {
+		PairTimelines index = getPairTimelines();
+		return index.longestStreak( this.idOfAuthor(a), this.idOfAuthor(b) );
+	}
+	
+	/**
+	 * Returns the identifier of an author
+	 * @param name
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	private int idOfAuthor(String name) throws NoSuchAuthorException {
+		int id = this.dictionary.idOf(name);
+		if (id < 0) throw new NoSuchAuthorException(name + " not found.");
+		
+		return id;
+	}
+	
+	/**
+	 * Returns the authors with the highest weighted PageRank in the coauthor graph of the given interval,
+	 * ordered like the results of topPublishers
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @param nrAuthors number of authors to return
+	 * @return
+	 */
+	public NavigableSet<Tuple<String, Double>> topCentralAuthors(int min, int max, int nrAuthors) {
+		return topCentralAuthors(min, max, nrAuthors, false);
+	}
+	
+	/**
+	 * Returns the authors with the highest PageRank in the coauthor graph of the given interval, ordered like the results of topPublishers
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @param nrAuthors number of authors to return
+	 * @param fractional true to weight coauthorships by collaboration strength instead of joint publications
+	 * @return
+	 */
+	public NavigableSet<Tuple<String, Double>> topCentralAuthors(int min, int max, int nrAuthors, boolean fractional) {
+		CoauthorGraph g = getCoauthorGraph(min, max);
+		return g.topScores( new PageRank(g, fractional).compute(), nrAuthors );
+	}
+	
+	/**
+	 * Returns the coauthor pairs with the highest collaboration strength in the given interval, where each publication
+	 * with n authors adds 1/(n - 1) to each of its pairs, ordered like the results of topPairs
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @param nrPairs number of pairs to return
+	 * @return
+	 */
+	public NavigableSet<Tuple<Tuple<String, String>, Double>> topPairsByStrength(int min, int max, int nrPairs) {
+		return getCoauthorGraph(min, max).topPairsByStrength(nrPairs);
+	}
+	
+	/**
+	 * Returns the coauthors of an author with the highest collaboration strength in the given interval, ordered like the results of topPublishers
+	 * @param name
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @param nrAuthors number of coauthors to return
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	public NavigableSet<Tuple<String, Double>> topCoauthorsByStrength(String name, int min, int max, int nrAuthors) throws NoSuchAuthorException {
+		CoauthorGraph g = getCoauthorGraph(min, max);
+		int v = g.vertexOf(name);
+		
+		if (v < 0) throw new NoSuchAuthorException(name + " not found.");
+		
+		return g.topCoauthorsByStrength(v, nrAuthors);
+	}
+	
+	/**
+	 * Returns the triangles of the coauthor graph of the given interval, with the clustering coefficient of every author
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return
+	 */
+	public TriangleStats triangleStats(int min, int max) {
+		return TriangleStats.of( getCoauthorGraph(min, max) );
+	}
+	
+	/**
+	 * Returns the fraction of pairs of coauthors of the given author that also published together in the given interval
+	 * @param name
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	public double clusteringCoefficient(String name, int min, int max) throws NoSuchAuthorException {
+		CoauthorGraph g = getCoauthorGraph(min, max);
+		int v = g.vertexOf(name);
+		
+		if (v < 0) throw new NoSuchAuthorException(name + " not found.");
+		
+		return TriangleStats.clusteringCoefficient(g, v);
+	}
+	
+	/**
+	 * Returns the global transitivity of the coauthor graph of every year on its own.<br>
+	 * The graph of every year is built over the authors of that year alone, so it is as small as the year, and the
+	 * graph kept for interval queries is not replaced
+	 * @return
+	 */
+	public NavigableMap<Integer, Double> transitivityByYear() {
+		TreeMap<Integer, Double> res = new TreeMap<>();
+		QueryTracker.begin( this.annualNetworks.size() );
+		
+		for (Map.Entry<Integer, AuthorCatalog> entry : this.annualNetworks.entrySet()) {
+			res.put( entry.getKey(), TriangleStats.transitivity( entry.getValue() ) );
+			QueryTracker.checkpoint();
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * Returns the research communities of the coauthor graph of the given interval, found by label propagation
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return
+	 */
+	public Communities communities(int min, int max) {
+		return new LabelPropagation( getCoauthorGraph(min, max) ).compute();
+	}
+	
+	/**
+	 * Returns the career of every author, kept up to date as publications are added
+	 * @return
+	 */
+	public synchronized CareerProfiles getCareers() {
+		if (this.careers == null)
+			this.careers = CareerProfiles.of(this.annualNetworks, this.dictionary);
+		
+		return this.careers;
+	}
+	
+	/**
+	 * Returns the career of the given author
+	 * @param name
+	 * @return
+	 * @throws NoSuchAuthorException
+	 */
+	public CareerProfile careerOf(String name) throws NoSuchAuthorException {
+		return getCareers().profileOf( this.idOfAuthor(name) );
+	}
+	
+	/**
+	 * Returns the connected components of the coauthor graph of every year, kept up to date as publications are added
+	 * @return
+	 */
+	public AuthorComponents getComponents() {
+		return this.components;
+	}
+	
+	/**
+	 * Returns the connected components of the coauthor graph of the given interval, computed by a parallel pass over its years
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return
+	 */
+	public AuthorComponents getComponents(int min, int max) {
+		return AuthorComponents.of( new ArrayList<AuthorCatalog>(this.annualNetworks.subMap(min, true, max, true).values()), this.dictionary );
+	}
+	
+	/**
+	 * Returns the number of authors in the collaboration cluster of the given author, or 0 if the author is unknown
+	 * @param name
+	 * @return
+	 */
+	public int componentSize(String name) {
+		int id = this.dictionary.idOf(name);
+		return id < 0 ? 0 : this.components.componentSize(id);
+	}
+	
+	/**
+	 * Checks if two authors belong to the same collaboration cluster
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public boolean inSameComponent(String a, String b) {
+		int ia = this.dictionary.idOf(a), ib = this.dictionary.idOf(b);
+		return ia >= 0 && ib >= 0 && this.components.find(ia) == this.components.find(ib);
+	}
+	
+	/**
+	 * Checks if an author with the given name published in any year
+	 * @param name
+	 * @return
+	 */
+	public boolean hasAuthor(String name) {
+		return this.dictionary.contains(name);
+	}
+	
+	/**
+	 * Returns the dictionary of the authors of the network, to be read only
+	 * @return dictionary of the authors
+	 */
+	AuthorDictionary getDictionary() {
+		return this.dictionary;
+	}
+	
+	/**
+	 * Returns the catalogs of the years of an interval, to be read only
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return catalogs by year
+	 */
+	NavigableMap<Integer, AuthorCatalog> catalogsIn(int min, int max) {
+		if (min > max) return Collections.<Integer, AuthorCatalog>emptyNavigableMap();
+		return Collections.unmodifiableNavigableMap( this.annualNetworks.subMap(min, true, max, true) );
+	}
+	
+	public int totalAuthors() {
+		return this.dictionary.size();
+	}
+	
+	/**
+	 * Returns the number of years in an interval, as announced to the tracker of the running query
+	 * @param min
+	 * @param max
+	 * @return number of years in the interval
+	 */
+	private static int nrYears(int min, int max) {
+		return (int) Math.max(0, Math.min(Integer.MAX_VALUE, (long) max - min + 1));
 	}
 	
 	/**
@@ -293,7 +1226,7 @@ public class GlobalAuthorNetwork implements Serializable {
 	 * @param totals
 	 * @param target
 	 */
-	private static <T> void functorMapAdd(Map<T, Integer> totals, Map<T, Integer> target) {
+	static <T> void functorMapAdd(Map<T, Integer> totals, Map<T, Integer> target) {
 		for( Map.Entry<T, Integer> p : target.entrySet() ) {
 			if( totals.containsKey( p.getKey() ) ) {
 				int newVal = p.getValue() + totals.get( p.getKey() );
@@ -310,7 +1243,7 @@ public class GlobalAuthorNetwork implements Serializable {
 	 * @param max
 	 * @return
 	 */
-	private static <T> NavigableSet< Tuple<T, Integer> > functorAddMax(Map<T, Integer> totals, int max, Comparator<Tuple<T, Integer>> c) {
+	static <T> NavigableSet< Tuple<T, Integer> > functorAddMax(Map<T, Integer> totals, int max, Comparator<Tuple<T, Integer>> c) {
 		TreeSet< Tuple<T, Integer> > orderedAuthors = new TreeSet<>(c);
 		for( Map.Entry<T, Integer> p : totals.entrySet() ) {
 			if(orderedAuthors.size() < max)
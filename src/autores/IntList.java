@@ -0,0 +1,93 @@
+package autores;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, avoiding the boxing of an ArrayList&#060Integer&#062
+ *
+ */
+
+@SuppressWarnings("serial")
+public class IntList implements Serializable {
+	private int[] items;
+	private int size;
+
+	/**
+	 * Empty constructor
+	 */
+	public IntList() {
+		this(8);
+	}
+
+	/**
+	 * Creates an empty list able to hold the given number of items before growing
+	 * @param capacity
+	 */
+	public IntList(int capacity) {
+		this.items = new int[Math.max(capacity, 1)];
+		this.size = 0;
+	}
+
+	/**
+	 * Appends a value to the end of the list
+	 * @param value
+	 */
+	public void add(int value) {
+		if (this.size == this.items.length)
+			this.items = Arrays.copyOf(this.items, this.items.length * 2);
+
+		this.items[this.size++] = value;
+	}
+
+	/**
+	 * Returns the value at the given position
+	 * @param i
+	 * @return value at the given position
+	 */
+	public int get(int i) {
+		if (i >= this.size) throw new IndexOutOfBoundsException(i + " >= " + this.size);
+		return this.items[i];
+	}
+
+	/**
+	 * Replaces the value at the given position
+	 * @param i
+	 * @param value
+	 */
+	public void set(int i, int value) {
+		if (i >= this.size) throw new IndexOutOfBoundsException(i + " >= " + this.size);
+		this.items[i] = value;
+	}
+
+	/**
+	 * Returns the number of values in the list
+	 * @return number of values in the list
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Checks if the list is empty
+	 * @return true if the list is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Removes every value, keeping the allocated capacity
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Returns a copy of the values as an array
+	 * @return copy of the values as an array
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(this.items, this.size);
+	}
+}
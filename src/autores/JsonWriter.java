@@ -0,0 +1,207 @@
+package autores;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes query results as JSON, item by item, to a character stream.<br>
+ * Tuples and map entries are written as arrays of two values and maps as objects keyed by the text of their keys.
+ * Results that are collections or maps can be written a page at a time, with the page placed next to the total
+ * number of items, as Navigator does.
+ *
+ */
+
+public class JsonWriter {
+	private Writer out;
+
+	/**
+	 * Creates a writer over the given stream
+	 * @param out
+	 */
+	public JsonWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes a page of the result of a query.<br>
+	 * Collections and maps are written as {"query", "total", "offset", "items"}, where items holds at most limit items
+	 * starting at offset, and any other result as {"query", "result"}. A ResultPage is already the page asked for, and
+	 * is written with its own total and offset
+	 * @param query name of the query
+	 * @param result
+	 * @param offset number of items to skip
+	 * @param limit maximum number of items to write
+	 * @throws IOException
+	 */
+	public void writePage(String query, Object result, int offset, int limit) throws IOException {
+		this.out.write("{\"query\":");
+		this.writeString(query);
+
+		if (result instanceof ResultPage) {
+			ResultPage<?> page = (ResultPage<?>) result;
+			this.out.write(",\"total\":" + page.getTotal() + ",\"offset\":" + page.getOffset() + ",\"items\":");
+			this.writeArray(page.iterator(), 0, Math.max(limit, 0));
+		}
+		else if (result instanceof Collection || result instanceof Map) {
+			Collection<?> items = result instanceof Map ? ((Map<?, ?>) result).entrySet() : (Collection<?>) result;
+			this.out.write(",\"total\":" + items.size() + ",\"offset\":" + Math.max(offset, 0) + ",\"items\":");
+			this.writeArray(items.iterator(), Math.max(offset, 0), Math.max(limit, 0));
+		}
+		else {
+			this.out.write(",\"result\":");
+			this.writeValue(result);
+		}
+
+		this.out.write("}");
+	}
+
+	/**
+	 * Writes an error message
+	 * @param status status code of the error
+	 * @param message
+	 * @throws IOException
+	 */
+	public void writeError(int status, String message) throws IOException {
+		this.out.write("{\"status\":" + status + ",\"error\":");
+		this.writeString(message);
+		this.out.write("}");
+	}
+
+	/**
+	 * Writes a single value
+	 * @param value
+	 * @throws IOException
+	 */
+	public void writeValue(Object value) throws IOException {
+		if (value == null)
+			this.out.write("null");
+		else if (value instanceof String)
+			this.writeString((String) value);
+		else if (value instanceof Double || value instanceof Float) {
+			double d = ((Number) value).doubleValue();
+			this.out.write(Double.isNaN(d) || Double.isInfinite(d) ? "null" : Double.toString(d));
+		}
+		else if (value instanceof Number || value instanceof Boolean)
+			this.out.write(value.toString());
+		else if (value instanceof Tuple)
+			this.writePair( ((Tuple<?, ?>) value).getFirst(), ((Tuple<?, ?>) value).getSecond() );
+		else if (value instanceof Map.Entry)
+			this.writePair( ((Map.Entry<?, ?>) value).getKey(), ((Map.Entry<?, ?>) value).getValue() );
+		else if (value instanceof Map)
+			this.writeObject( (Map<?, ?>) value );
+		else if (value instanceof Iterable)
+			this.writeArray(((Iterable<?>) value).iterator(), 0, Integer.MAX_VALUE);
+		else if (value instanceof CareerProfile)
+			this.writeCareer( (CareerProfile) value );
+		else if (value instanceof WindowStats)
+			this.writeWindow( (WindowStats) value );
+		else if (value instanceof EgoNetwork)
+			this.writeEgoNetwork( (EgoNetwork) value );
+		else
+			this.writeString( value.toString() );
+	}
+
+	/**
+	 * Writes a string, escaping quotes, backslashes and control characters
+	 * @param s
+	 * @throws IOException
+	 */
+	public void writeString(String s) throws IOException {
+		this.out.write('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"': this.out.write("\\\""); break;
+				case '\\': this.out.write("\\\\"); break;
+				case '\n': this.out.write("\\n"); break;
+				case '\r': this.out.write("\\r"); break;
+				case '\t': this.out.write("\\t"); break;
+				default:
+					if (c < 0x20) this.out.write( String.format("\\u%04x", (int) c) );
+					else this.out.write(c);
+			}
+		}
+		this.out.write('"');
+	}
+
+	private void writePair(Object first, Object second) throws IOException {
+		this.out.write('[');
+		this.writeValue(first);
+		this.out.write(',');
+		this.writeValue(second);
+		this.out.write(']');
+	}
+
+	private void writeArray(Iterator<?> it, int offset, int limit) throws IOException {
+		for (int i = 0; i < offset && it.hasNext(); i++)
+			it.next();
+
+		this.out.write('[');
+		for (int i = 0; i < limit && it.hasNext(); i++) {
+			if (i > 0) this.out.write(',');
+			this.writeValue( it.next() );
+		}
+		this.out.write(']');
+	}
+
+	private void writeObject(Map<?, ?> map) throws IOException {
+		this.out.write('{');
+		boolean first = true;
+		for (Map.Entry<?, ?> e : map.entrySet()) {
+			if (!first) this.out.write(',');
+			first = false;
+			this.writeString( String.valueOf(e.getKey()) );
+			this.out.write(':');
+			this.writeValue( e.getValue() );
+		}
+		this.out.write('}');
+	}
+
+	private void writeCareer(CareerProfile p) throws IOException {
+		this.out.write("{\"name\":");
+		this.writeString( p.getName() );
+		this.out.write(",\"firstYear\":" + p.getFirstYear() + ",\"lastYear\":" + p.getLastYear() + ",\"activeYears\":" + p.getActiveYears()
+				+ ",\"peakYear\":" + p.getPeakYear() + ",\"peakPublications\":" + p.getPeakPublications()
+				+ ",\"soloPublications\":" + p.getSoloPublications() + ",\"totalPublications\":" + p.getTotalPublications() + "}");
+	}
+
+	private void writeWindow(WindowStats w) throws IOException {
+		this.out.write("{\"min\":" + w.getMin() + ",\"max\":" + w.getMax() + ",\"publications\":" + w.getPublications()
+				+ ",\"activeAuthors\":" + w.getActiveAuthors() + ",\"authorsEveryYear\":" + w.getAuthorsEveryYear() + ",\"topPublishers\":");
+		this.writeValue( w.getTopPublishers().descendingSet() );
+		this.out.write("}");
+	}
+
+	/**
+	 * Writes the authors of an ego network with their distance to the center, and each coauthorship between them
+	 * once, as [first author, second author, joint publications], the authors given by their position
+	 * @param ego
+	 * @throws IOException
+	 */
+	private void writeEgoNetwork(EgoNetwork ego) throws IOException {
+		int[] offsets = ego.getOffsets();
+		int[] targets = ego.getTargets();
+		int[] weights = ego.getWeights();
+
+		this.out.write("{\"truncated\":" + ego.isTruncated() + ",\"vertices\":[");
+		for (int i = 0; i < ego.nrVertices(); i++) {
+			if (i > 0) this.out.write(',');
+			this.writePair(ego.nameOf(i), ego.distanceOf(i));
+		}
+
+		this.out.write("],\"edges\":[");
+		boolean first = true;
+		for (int i = 0; i < ego.nrVertices(); i++)
+			for (int e = offsets[i]; e < offsets[i + 1]; e++)
+				if (i < targets[e]) {
+					if (!first) this.out.write(',');
+					first = false;
+					this.out.write("[" + i + "," + targets[e] + "," + weights[e] + "]");
+				}
+
+		this.out.write("]}");
+	}
+}
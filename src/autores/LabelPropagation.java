@@ -0,0 +1,200 @@
+package autores;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Community detection over a CoauthorGraph by semi-synchronous label propagation.<br>
+ * Every author starts with a label of its own and repeatedly takes the label carrying the most joint publications among
+ * its coauthors, keeping its current label on ties and otherwise preferring the smallest one. Every iteration visits
+ * the vertices in an order shuffled from the given seed, cut in about SLICES slices of at most MAX_SLICE vertices, or
+ * of a single vertex on smaller graphs: the new labels of a slice are worked out from the labels left by the slices
+ * before it, by work-stealing tasks on the common ForkJoinPool, and written only once the whole slice is done. Later
+ * slices already see them, while the same seed always gives the same communities, whatever the number of threads.
+ * Reshuffling every iteration keeps neighbours from landing in the same slice over and over, where they could keep
+ * swapping labels. Every iteration is a step of the running query, which may abort it between two slices.
+ *
+ */
+
+public class LabelPropagation {
+	public static final long DEFAULT_SEED = 42;
+	public static final int DEFAULT_MAX_ITERATIONS = 50;
+
+	/** number of slices an iteration is cut in, unless they would be larger than MAX_SLICE */
+	private static final int SLICES = 64;
+	/** largest number of vertices whose new labels are worked out from the same labels */
+	private static final int MAX_SLICE = 8192;
+	/** number of vertices processed sequentially by a single task */
+	private static final int CHUNK = 1024;
+
+	/** per thread buffer of packed (label, weight) pairs, grown to the largest degree seen */
+	private static final ThreadLocal<long[]> BUFFER = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[16];
+		}
+	};
+
+	private CoauthorGraph graph;
+	private long seed;
+	private int maxIterations;
+	private int iterations;
+
+	/**
+	 * Creates a detection over the given graph with the default seed and iteration cap
+	 * @param graph
+	 */
+	public LabelPropagation(CoauthorGraph graph) {
+		this(graph, DEFAULT_SEED, DEFAULT_MAX_ITERATIONS);
+	}
+
+	/**
+	 * Creates a detection over the given graph
+	 * @param graph
+	 * @param seed seed of the order in which vertices are visited
+	 * @param maxIterations the detection stops after this number of iterations even if labels are still changing
+	 */
+	public LabelPropagation(CoauthorGraph graph, long seed, int maxIterations) {
+		this.graph = graph;
+		this.seed = seed;
+		this.maxIterations = maxIterations;
+		this.iterations = 0;
+	}
+
+	/**
+	 * Returns the number of iterations run by the last detection
+	 * @return number of iterations run by the last detection
+	 */
+	public int getIterations() {
+		return this.iterations;
+	}
+
+	/**
+	 * Runs the detection until no label changes during a whole iteration
+	 * @return communities found
+	 */
+	public Communities compute() {
+		int n = this.graph.nrVertices();
+		int[] labels = new int[n];
+		int[] order = new int[n];
+		int slice = Math.max(1, Math.min(n / SLICES, MAX_SLICE));
+		int[] next = new int[slice];
+
+		for (int v = 0; v < n; v++) {
+			labels[v] = v;
+			order[v] = v;
+		}
+
+		Random random = new Random(this.seed);
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		QueryTracker.begin(this.maxIterations);
+
+		for (this.iterations = 1; this.iterations <= this.maxIterations; this.iterations++) {
+			for (int i = n - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int t = order[i];
+				order[i] = order[j];
+				order[j] = t;
+			}
+
+			int changed = 0;
+			for (int from = 0; from < n; from += slice) {
+				QueryTracker.checkpoint(0);
+				int to = Math.min(from + slice, n);
+				PropagationTask task = new PropagationTask(labels, order, next, from, from, to);
+				if (to - from > CHUNK) pool.invoke(task);
+				else task.compute();
+
+				for (int i = from; i < to; i++) {
+					int v = order[i];
+					if (labels[v] != next[i - from]) {
+						labels[v] = next[i - from];
+						changed++;
+					}
+				}
+			}
+
+			QueryTracker.checkpoint();
+			if (changed == 0) break;
+		}
+
+		this.iterations = Math.min(this.iterations, this.maxIterations);
+
+		return new Communities(this.graph, labels);
+	}
+
+	/**
+	 * Works out the new labels of a range of the visiting order, without changing the labels, into the buffer of
+	 * its slice
+	 */
+	@SuppressWarnings("serial")
+	private class PropagationTask extends RecursiveAction {
+		private int[] labels;
+		private int[] order;
+		private int[] next;
+		private int slice;
+		private int from;
+		private int to;
+
+		public PropagationTask(int[] labels, int[] order, int[] next, int slice, int from, int to) {
+			this.labels = labels;
+			this.order = order;
+			this.next = next;
+			this.slice = slice;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > CHUNK) {
+				int mid = (this.from + this.to) >>> 1;
+				invokeAll(new PropagationTask(this.labels, this.order, this.next, this.slice, this.from, mid),
+						new PropagationTask(this.labels, this.order, this.next, this.slice, mid, this.to));
+				return;
+			}
+
+			int[] offsets = graph.getOffsets();
+			int[] targets = graph.getTargets();
+			int[] weights = graph.getWeights();
+
+			for (int i = this.from; i < this.to; i++) {
+				int v = this.order[i];
+				int degree = offsets[v + 1] - offsets[v];
+				this.next[i - this.slice] = this.labels[v];
+				if (degree == 0) continue;
+
+				long[] pairs = BUFFER.get();
+				if (pairs.length < degree) {
+					pairs = new long[Math.max(degree, pairs.length * 2)];
+					BUFFER.set(pairs);
+				}
+
+				for (int e = offsets[v], k = 0; e < offsets[v + 1]; e++, k++)
+					pairs[k] = ((long) this.labels[targets[e]] << 32) | weights[e];
+				Arrays.sort(pairs, 0, degree);
+
+				int current = this.labels[v];
+				int best = current;
+				long bestWeight = -1, currentWeight = 0;
+
+				for (int k = 0; k < degree; ) {
+					int label = (int) (pairs[k] >>> 32);
+					long weight = 0;
+					for (; k < degree && (int) (pairs[k] >>> 32) == label; k++)
+						weight += (int) pairs[k];
+
+					if (label == current) currentWeight = weight;
+					if (weight > bestWeight) {
+						bestWeight = weight;
+						best = label;
+					}
+				}
+
+				if (currentWeight < bestWeight) this.next[i - this.slice] = best;
+			}
+		}
+	}
+}
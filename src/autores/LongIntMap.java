@@ -0,0 +1,148 @@
+package autores;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive longs to primitive ints with open addressing, avoiding the boxing of a HashMap&#060Long, Integer&#062.<br>
+ * Used to count pairs of authors, each pair being the two identifiers of its authors packed in a long.
+ *
+ */
+
+public class LongIntMap {
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+
+	/**
+	 * Empty constructor
+	 */
+	public LongIntMap() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map able to hold the given number of keys before growing
+	 * @param capacity
+	 */
+	public LongIntMap(int capacity) {
+		int n = 16;
+		while (n < capacity * 2) n <<= 1;
+
+		this.keys = new long[n];
+		this.values = new int[n];
+		this.size = 0;
+		Arrays.fill(this.keys, EMPTY);
+	}
+
+	/**
+	 * Packs two identifiers in a key
+	 * @param first
+	 * @param second
+	 * @return key holding both identifiers
+	 */
+	public static long pack(int first, int second) {
+		return ((long) first << 32) | (second & 0xFFFFFFFFL);
+	}
+
+	public static int first(long key) {
+		return (int) (key >>> 32);
+	}
+
+	public static int second(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * Adds a value to the one of a key, which starts at 0
+	 * @param key any long but Long.MIN_VALUE
+	 * @param value
+	 */
+	public void add(long key, int value) {
+		int i = this.slot(key);
+		if (this.keys[i] == EMPTY) {
+			this.keys[i] = key;
+			this.values[i] = value;
+			if (++this.size * 2 > this.keys.length) this.grow();
+		}
+		else this.values[i] += value;
+	}
+
+	/**
+	 * Returns the value of a key, 0 if it was never added
+	 * @param key
+	 * @return value of the key
+	 */
+	public int get(long key) {
+		int i = this.slot(key);
+		return this.keys[i] == EMPTY ? 0 : this.values[i];
+	}
+
+	/**
+	 * Adds every value of another map to the values of this one
+	 * @param other
+	 */
+	public void addAll(LongIntMap other) {
+		for (int i = 0; i < other.keys.length; i++)
+			if (other.keys[i] != EMPTY) this.add(other.keys[i], other.values[i]);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the number of slots of the map, to go through its keys with keyAt and valueAt
+	 * @return number of slots
+	 */
+	public int capacity() {
+		return this.keys.length;
+	}
+
+	/**
+	 * Checks if a slot holds a key
+	 * @param slot
+	 * @return true if the slot holds a key
+	 */
+	public boolean hasKeyAt(int slot) {
+		return this.keys[slot] != EMPTY;
+	}
+
+	public long keyAt(int slot) {
+		return this.keys[slot];
+	}
+
+	public int valueAt(int slot) {
+		return this.values[slot];
+	}
+
+	/**
+	 * Returns the slot holding a key, or the empty slot where it belongs
+	 * @param key
+	 * @return slot of the key
+	 */
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		int mask = this.keys.length - 1;
+		int i = (int) (h >>> 32) & mask;
+
+		while (this.keys[i] != EMPTY && this.keys[i] != key)
+			i = (i + 1) & mask;
+
+		return i;
+	}
+
+	private void grow() {
+		long[] oldKeys = this.keys;
+		int[] oldValues = this.values;
+
+		this.keys = new long[oldKeys.length * 2];
+		this.values = new int[oldValues.length * 2];
+		this.size = 0;
+		Arrays.fill(this.keys, EMPTY);
+
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != EMPTY) this.add(oldKeys[i], oldValues[i]);
+	}
+}
@@ -1,62 +1,116 @@
 package autores;
 
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Pages through a result.<br>
+ * A list is paged through as it is. Any other result is read from its iterator as the pages are asked for, in blocks
+ * of BLOCK_SIZE items, and only the last CACHED_BLOCKS blocks read are kept for going back; going back further
+ * iterates the result again from the start.
+ *
+ */
+
 public class Navigator<T> {
+	/** number of items read from the iterator of a result at once */
+	public static final int BLOCK_SIZE = 64;
+	/** number of blocks kept for going back */
+	public static final int CACHED_BLOCKS = 16;
+
 	private List<T> items;
+	private Iterable<T> source;
+	private Iterator<T> cursor;
+	private int cursorPosition;
+	private int itemsRead;
+	private int size;
+	private LinkedHashMap<Integer, List<T>> blocks;
 	int current;
-	
+
 	public Navigator(List<T> l) {
-		this.items = new ArrayList<T>(l);
+		this.items = Collections.unmodifiableList(l);
+		this.size = l.size();
 		this.current = 0;
 	}
-	
+
 	public Navigator(Set<T> s) {
-		this.items = new ArrayList<T>(s);
+		this(s, s.size());
+	}
+
+	/**
+	 * Creates a navigator over a result of unknown size
+	 * @param source result, iterated as pages are asked for
+	 */
+	public Navigator(Iterable<T> source) {
+		this(source, -1);
+	}
+
+	/**
+	 * Creates a navigator over a result
+	 * @param source result, iterated as pages are asked for
+	 * @param size number of items of the result, or -1 if unknown
+	 */
+	public Navigator(Iterable<T> source, int size) {
+		this.source = source;
+		this.cursor = source.iterator();
+		this.cursorPosition = 0;
+		this.itemsRead = 0;
+		this.size = size;
+		this.blocks = new LinkedHashMap<Integer, List<T>>(CACHED_BLOCKS, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+				return this.size() > CACHED_BLOCKS;
+			}
+		};
 		this.current = 0;
 	}
-	
+
 	public T getNext() throws NoMoreItemsException {
-		if (this.current >= this.items.size()) {
-			throw new NoMoreItemsException();
-		}
-		else {
-			this.current++;
-			return this.items.get(this.current - 1);
-		}
+		return this.getNext(1).get(0);
 	}
-	
+
 	public List<T> getNext(int n) throws NoMoreItemsException {
-		if (this.current >= this.items.size()) {
+		if (!this.hasItem(this.current)) {
 			throw new NoMoreItemsException();
 		}
-		else {
+		else if (this.items != null) {
 			int curr = this.current;
-			this.current += n;
-			
-			if (this.current > this.items.size()) {
-				this.current = this.items.size();
-			}
-			
+			this.current = Math.min(this.current + n, this.items.size());
 			return this.items.subList(curr, this.current);
 		}
+		else {
+			ArrayList<T> page = new ArrayList<T>();
+			try {
+				while (page.size() < n && this.hasItem(this.current)) {
+					page.add(this.item(this.current));
+					this.current++;
+				}
+			} catch (NoMoreItemsException e) {
+				// the result was shorter than the size it was given, which is now corrected
+				if (page.isEmpty()) throw e;
+			}
+			return page;
+		}
 	}
-	
+
 	public void back(int n) throws NoMoreItemsException {
 		if (this.current <= 0) {
 			throw new NoMoreItemsException();
 		}
 		else {
 			this.current -= n;
-			
+
 			if (this.current < 0) {
 				this.current = 0;
 			}
 		}
 	}
-	
+
 	public void back() throws NoMoreItemsException {
 		if (this.current <= 0) {
 			throw new NoMoreItemsException();
@@ -65,16 +119,84 @@ public class Navigator<T> {
 			this.current--;
 		}
 	}
-	
+
+	/**
+	 * Returns the number of items, or the number of items read so far if the result was not read to its end yet
+	 * @return number of items known
+	 */
 	public int size() {
-		return this.items.size();
+		return this.isSizeKnown() ? this.size : this.itemsRead;
+	}
+
+	/**
+	 * Checks if the number of items is known, either given or found by reading the result to its end
+	 * @return true if the number of items is known
+	 */
+	public boolean isSizeKnown() {
+		return this.size >= 0;
 	}
-	
+
 	public int current() {
 		return this.current;
 	}
-	
+
+	/**
+	 * Returns the number of items after the current one, counting only the ones read so far if the size is not known
+	 * @return number of items left, greater than zero if there is any
+	 */
 	public int itemsLeft() {
-		return this.items.size() - this.current;
+		return this.hasItem(this.current) ? this.size() - this.current : 0;
+	}
+
+	/**
+	 * Checks if the result has an item at the given position, reading it up to that position if needed
+	 * @param i
+	 * @return true if there is an item at the given position
+	 */
+	private boolean hasItem(int i) {
+		while (!this.isSizeKnown() && this.itemsRead <= i) this.readBlock();
+		return i < this.size();
+	}
+
+	/**
+	 * Returns the item at a position already read, or within the size given, reading its block again if it is no
+	 * longer kept
+	 * @param i
+	 * @return item at the given position
+	 * @throws NoMoreItemsException if the result ends before the position, setting its size to the one found
+	 */
+	private T item(int i) throws NoMoreItemsException {
+		int block = i / BLOCK_SIZE;
+		List<T> items = this.blocks.get(block);
+
+		if (items == null) {
+			if (this.cursorPosition > block * BLOCK_SIZE) {
+				this.cursor = this.source.iterator();
+				this.cursorPosition = 0;
+			}
+			while ((items = this.blocks.get(block)) == null && this.cursor.hasNext()) this.readBlock();
+		}
+
+		if (items == null || i % BLOCK_SIZE >= items.size()) {
+			this.size = this.cursorPosition;
+			throw new NoMoreItemsException();
+		}
+
+		return items.get(i % BLOCK_SIZE);
+	}
+
+	/**
+	 * Reads the block of the result at the position of the iterator
+	 */
+	private void readBlock() {
+		int block = this.cursorPosition / BLOCK_SIZE;
+		ArrayList<T> items = new ArrayList<T>(BLOCK_SIZE);
+
+		while (items.size() < BLOCK_SIZE && this.cursor.hasNext()) items.add(this.cursor.next());
+
+		this.blocks.put(block, items);
+		this.cursorPosition += items.size();
+		this.itemsRead = Math.max(this.itemsRead, this.cursorPosition);
+		if (items.size() < BLOCK_SIZE) this.size = this.cursorPosition;
 	}
 }
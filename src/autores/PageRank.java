@@ -0,0 +1,190 @@
+package autores;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Weighted PageRank over a CoauthorGraph, where each author passes its rank to its coauthors in proportion to
+ * the number of publications they share.<br>
+ * Every iteration reads the ranks of the previous one and writes second arrays, so the vertices can be split in
+ * ranges and computed in parallel without locking; the arrays are swapped at the end of the iteration.
+ * Authors without coauthors are left out and get a rank of 0. Every iteration is a step of the running query, whose
+ * tracker the tasks also check before each range of vertices.
+ *
+ */
+
+public class PageRank {
+	public static final double DEFAULT_DAMPING = 0.85;
+	public static final double DEFAULT_TOLERANCE = 1e-9;
+	public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+	/** number of vertices computed sequentially by a single task */
+	private static final int CHUNK = 4096;
+
+	private CoauthorGraph graph;
+	private double damping;
+	private double tolerance;
+	private int maxIterations;
+	private boolean fractional;
+	private double[] edgeWeights;
+	private int iterations;
+	private QueryTracker tracker;
+
+	/**
+	 * Creates a computation over the given graph with the default damping, tolerance and iteration cap
+	 * @param graph
+	 */
+	public PageRank(CoauthorGraph graph) {
+		this(graph, false);
+	}
+
+	/**
+	 * Creates a computation over the given graph with the default damping, tolerance and iteration cap
+	 * @param graph
+	 * @param fractional true to weight the edges by collaboration strength instead of joint publications
+	 */
+	public PageRank(CoauthorGraph graph, boolean fractional) {
+		this(graph, DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS, fractional);
+	}
+
+	/**
+	 * Creates a computation over the given graph, weighting the edges by joint publications
+	 * @param graph
+	 * @param damping probability of following an edge instead of jumping to a random author
+	 * @param tolerance the computation stops when the ranks change less than this in total (L1 norm)
+	 * @param maxIterations the computation stops after this number of iterations even if it did not converge
+	 */
+	public PageRank(CoauthorGraph graph, double damping, double tolerance, int maxIterations) {
+		this(graph, damping, tolerance, maxIterations, false);
+	}
+
+	/**
+	 * Creates a computation over the given graph
+	 * @param graph
+	 * @param damping probability of following an edge instead of jumping to a random author
+	 * @param tolerance the computation stops when the ranks change less than this in total (L1 norm)
+	 * @param maxIterations the computation stops after this number of iterations even if it did not converge
+	 * @param fractional true to weight the edges by collaboration strength instead of joint publications
+	 */
+	public PageRank(CoauthorGraph graph, double damping, double tolerance, int maxIterations, boolean fractional) {
+		this.graph = graph;
+		this.damping = damping;
+		this.tolerance = tolerance;
+		this.maxIterations = maxIterations;
+		this.fractional = fractional;
+		this.iterations = 0;
+	}
+
+	/**
+	 * Returns the number of iterations run by the last computation
+	 * @return number of iterations run by the last computation
+	 */
+	public int getIterations() {
+		return this.iterations;
+	}
+
+	/**
+	 * Computes the rank of every vertex; the ranks of the authors with coauthors add up to 1
+	 * @return rank of every vertex
+	 */
+	public double[] compute() {
+		int n = this.graph.nrVertices();
+		int[] offsets = this.graph.getOffsets();
+		double[] weights = this.edgeWeights = this.graph.edgeWeights(this.fractional);
+		double[] strength = new double[n];
+		int linked = 0;
+
+		for (int v = 0; v < n; v++) {
+			for (int e = offsets[v]; e < offsets[v + 1]; e++)
+				strength[v] += weights[e];
+			if (strength[v] > 0) linked++;
+		}
+
+		double[][] rank = { new double[n], new double[n] };
+		double[][] share = { new double[n], new double[n] };
+		if (linked == 0) return rank[0];
+
+		for (int v = 0; v < n; v++)
+			if (strength[v] > 0) {
+				rank[0][v] = 1.0 / linked;
+				share[0][v] = rank[0][v] / strength[v];
+			}
+
+		double base = (1 - this.damping) / linked;
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int current = 0;
+		this.tracker = QueryTracker.current();
+		QueryTracker.begin(this.maxIterations);
+
+		for (this.iterations = 1; this.iterations <= this.maxIterations; this.iterations++) {
+			double delta = pool.invoke( new IterationTask(rank[current], rank[1 - current], share[current], share[1 - current], strength, base, 0, n) );
+			current = 1 - current;
+			QueryTracker.checkpoint();
+
+			if (delta < this.tolerance) break;
+		}
+
+		this.iterations = Math.min(this.iterations, this.maxIterations);
+		return rank[current];
+	}
+
+	/**
+	 * Computes the new rank of a range of vertices, returning how much the ranks changed
+	 */
+	@SuppressWarnings("serial")
+	private class IterationTask extends RecursiveTask<Double> {
+		private double[] rank;
+		private double[] next;
+		private double[] share;
+		private double[] nextShare;
+		private double[] strength;
+		private double base;
+		private int from;
+		private int to;
+
+		public IterationTask(double[] rank, double[] next, double[] share, double[] nextShare, double[] strength, double base, int from, int to) {
+			this.rank = rank;
+			this.next = next;
+			this.share = share;
+			this.nextShare = nextShare;
+			this.strength = strength;
+			this.base = base;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Double compute() {
+			if (this.to - this.from > CHUNK) {
+				int mid = (this.from + this.to) >>> 1;
+				IterationTask left = new IterationTask(rank, next, share, nextShare, strength, base, this.from, mid);
+				left.fork();
+				double right = new IterationTask(rank, next, share, nextShare, strength, base, mid, this.to).compute();
+				return left.join() + right;
+			}
+
+			if (tracker != null) tracker.check();
+			int[] offsets = graph.getOffsets();
+			int[] targets = graph.getTargets();
+			double[] weights = edgeWeights;
+			double delta = 0;
+
+			for (int v = this.from; v < this.to; v++) {
+				if (this.strength[v] == 0) {
+					this.next[v] = 0;
+					continue;
+				}
+
+				double sum = 0;
+				for (int e = offsets[v]; e < offsets[v + 1]; e++)
+					sum += this.share[targets[e]] * weights[e];
+
+				this.next[v] = this.base + damping * sum;
+				this.nextShare[v] = this.next[v] / this.strength[v];
+				delta += Math.abs(this.next[v] - this.rank[v]);
+			}
+
+			return delta;
+		}
+	}
+}
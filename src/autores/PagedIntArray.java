@@ -0,0 +1,122 @@
+package autores;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints kept in pages of PAGE_SIZE items, which can be forked without copying them.<br>
+ * A fork shares every page with the array it was forked from, and from then on each one copies a shared page the first
+ * time it writes to it, so forking costs the number of pages and every later write at most one page.
+ *
+ */
+
+@SuppressWarnings("serial")
+public class PagedIntArray implements Serializable {
+	private static final int PAGE_BITS = 10;
+	/** number of items of a page */
+	public static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	private int[][] pages;
+	private boolean[] owned;
+	private int fill;
+
+	/**
+	 * Creates an empty array
+	 * @param fill value of the items no one wrote to yet
+	 */
+	public PagedIntArray(int fill) {
+		this.pages = new int[0][];
+		this.owned = new boolean[0];
+		this.fill = fill;
+	}
+
+	/**
+	 * Returns an array with the same items, sharing the pages of this one until either of them writes to them
+	 * @return fork of the array
+	 */
+	public PagedIntArray fork() {
+		PagedIntArray fork = new PagedIntArray(this.fill);
+		fork.pages = this.pages.clone();
+		fork.owned = new boolean[this.pages.length];
+		this.owned = new boolean[this.pages.length];
+		return fork;
+	}
+
+	/**
+	 * Returns the number of items the array holds without growing
+	 * @return capacity of the array
+	 */
+	public int length() {
+		return this.pages.length << PAGE_BITS;
+	}
+
+	/**
+	 * Grows the array to hold at least the given number of items
+	 * @param capacity
+	 */
+	public void ensureCapacity(int capacity) {
+		int nrPages = (capacity + PAGE_SIZE - 1) >>> PAGE_BITS;
+		if (nrPages <= this.pages.length) return;
+
+		int old = this.pages.length;
+		nrPages = Math.max(nrPages, old * 2);
+		this.pages = Arrays.copyOf(this.pages, nrPages);
+		this.owned = Arrays.copyOf(this.owned, nrPages);
+
+		for (int p = old; p < nrPages; p++) {
+			this.pages[p] = new int[PAGE_SIZE];
+			if (this.fill != 0) Arrays.fill(this.pages[p], this.fill);
+			this.owned[p] = true;
+		}
+	}
+
+	public int get(int i) {
+		return this.pages[i >>> PAGE_BITS][i & (PAGE_SIZE - 1)];
+	}
+
+	public void set(int i, int value) {
+		this.page(i >>> PAGE_BITS)[i & (PAGE_SIZE - 1)] = value;
+	}
+
+	/**
+	 * Adds a number to an item
+	 * @param i
+	 * @param delta
+	 */
+	public void add(int i, int delta) {
+		this.page(i >>> PAGE_BITS)[i & (PAGE_SIZE - 1)] += delta;
+	}
+
+	/**
+	 * Checks if an item can be written without copying its page
+	 * @param i
+	 * @return true if the page of the item belongs to this array only
+	 */
+	public boolean isOwned(int i) {
+		return this.owned[i >>> PAGE_BITS];
+	}
+
+	/**
+	 * Returns a page to write to, copying it first if it is shared
+	 * @param p
+	 * @return page of this array only
+	 */
+	private int[] page(int p) {
+		if (!this.owned[p]) {
+			this.pages[p] = this.pages[p].clone();
+			this.owned[p] = true;
+		}
+
+		return this.pages[p];
+	}
+
+	/**
+	 * An array read back shares its pages with no other one
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		Arrays.fill(this.owned, true);
+	}
+}
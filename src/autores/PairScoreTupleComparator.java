@@ -0,0 +1,15 @@
+package autores;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+@SuppressWarnings("serial")
+public class PairScoreTupleComparator implements Serializable, Comparator<Tuple<Tuple<String, String>, Double>> {
+	
+	public int compare(Tuple<Tuple<String, String>, Double> t1, Tuple<Tuple<String, String>, Double> t2) {
+		int v = Double.compare(t1.getSecond(), t2.getSecond());
+		if (v != 0) return v;
+		else if ((v = t1.getFirst().getFirst().compareTo(t2.getFirst().getFirst())) != 0) return v;
+		else return t1.getFirst().getSecond().compareTo(t2.getFirst().getSecond());
+	}
+}
@@ -0,0 +1,209 @@
+package autores;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Number of joint publications of every coauthor pair in each year, indexed by the edges of a CoauthorGraph.<br>
+ * The timeline of a pair is a sequence of (year gap, publications) varints, the first gap counted from the first
+ * year of the network, and every timeline is stored back to back in a single byte array. Each pair is found through
+ * the edge slot of its smaller endpoint; the slot of the other direction holds an empty timeline. A pair with joint
+ * publications in a few years takes about two bytes per year.
+ *
+ */
+
+public class PairTimelines {
+	private CoauthorGraph graph;
+	private int baseYear;
+	private int[] start;
+	private byte[] arena;
+
+	/**
+	 * Builds the timelines of every pair of the graph from the catalogs of each year
+	 * @param graph graph of every coauthorship in the catalogs
+	 * @param annualNetworks catalog of each year
+	 * @param dictionary dictionary holding every author in the catalogs
+	 */
+	public PairTimelines(CoauthorGraph graph, NavigableMap<Integer, AuthorCatalog> annualNetworks, AuthorDictionary dictionary) {
+		this.graph = graph;
+		this.baseYear = annualNetworks.isEmpty() ? 0 : annualNetworks.firstKey();
+		int slots = graph.getTargets().length;
+		int[] lastYear = new int[slots];
+		int[] size = new int[slots + 1];
+		Arrays.fill(lastYear, this.baseYear);
+
+		for (Map.Entry<Integer, AuthorCatalog> year : annualNetworks.entrySet())
+			for (AuthorInfo info : year.getValue().getAuthorInfos()) {
+				int a = dictionary.idOf( info.getName() );
+				for (Map.Entry<String, Integer> coauthor : info.getCoauthorsInfo().entrySet()) {
+					int b = dictionary.idOf( coauthor.getKey() );
+					if (a > b) continue;
+
+					int e = graph.edgeIndex(a, b);
+					size[e + 1] += varintLength( year.getKey() - lastYear[e] ) + varintLength( coauthor.getValue() );
+					lastYear[e] = year.getKey();
+				}
+			}
+
+		this.start = size;
+		for (int e = 0; e < slots; e++)
+			this.start[e + 1] += this.start[e];
+
+		this.arena = new byte[this.start[slots]];
+		int[] cursor = Arrays.copyOf(this.start, slots);
+		Arrays.fill(lastYear, this.baseYear);
+
+		for (Map.Entry<Integer, AuthorCatalog> year : annualNetworks.entrySet())
+			for (AuthorInfo info : year.getValue().getAuthorInfos()) {
+				int a = dictionary.idOf( info.getName() );
+				for (Map.Entry<String, Integer> coauthor : info.getCoauthorsInfo().entrySet()) {
+					int b = dictionary.idOf( coauthor.getKey() );
+					if (a > b) continue;
+
+					int e = graph.edgeIndex(a, b);
+					cursor[e] = this.writeVarint(cursor[e], year.getKey() - lastYear[e]);
+					cursor[e] = this.writeVarint(cursor[e], coauthor.getValue());
+					lastYear[e] = year.getKey();
+				}
+			}
+	}
+
+	/**
+	 * Returns the number of bytes taken by the timelines
+	 * @return size of the timelines in bytes
+	 */
+	public int sizeInBytes() {
+		return this.arena.length + 4 * this.start.length;
+	}
+
+	/**
+	 * Returns the number of joint publications of two vertices in each year they published together
+	 * @param u
+	 * @param v
+	 * @return number of joint publications in each year
+	 */
+	public NavigableMap<Integer, Integer> timeline(int u, int v) {
+		TreeMap<Integer, Integer> res = new TreeMap<>();
+		int e = this.slotOf(u, v);
+		if (e < 0) return res;
+
+		int[] cursor = { this.start[e] };
+		for (int year = this.baseYear; cursor[0] < this.start[e + 1]; ) {
+			year += this.readVarint(cursor);
+			res.put(year, this.readVarint(cursor));
+		}
+
+		return res;
+	}
+
+	/**
+	 * Returns the number of joint publications of two vertices in the given interval
+	 * @param u
+	 * @param v
+	 * @param min first year of the interval
+	 * @param max last year of the interval
+	 * @return number of joint publications in the interval
+	 */
+	public int publications(int u, int v, int min, int max) {
+		int e = this.slotOf(u, v);
+		if (e < 0) return 0;
+
+		int total = 0;
+		int[] cursor = { this.start[e] };
+		for (int year = this.baseYear; cursor[0] < this.start[e + 1]; ) {
+			year += this.readVarint(cursor);
+			int count = this.readVarint(cursor);
+			if (year > max) break;
+			if (year >= min) total += count;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Returns the first year and number of years of the longest run of consecutive years in which two vertices
+	 * published together, the earliest one on ties, or null if they never did
+	 * @param u
+	 * @param v
+	 * @return first year and length of the longest streak
+	 */
+	public Tuple<Integer, Integer> longestStreak(int u, int v) {
+		int e = this.slotOf(u, v);
+		if (e < 0) return null;
+
+		int bestStart = 0, bestLength = 0, runStart = 0, runLength = 0;
+		int[] cursor = { this.start[e] };
+		for (int year = this.baseYear; cursor[0] < this.start[e + 1]; ) {
+			int gap = this.readVarint(cursor);
+			year += gap;
+			this.readVarint(cursor);
+
+			if (runLength > 0 && gap == 1) runLength++;
+			else {
+				runStart = year;
+				runLength = 1;
+			}
+
+			if (runLength > bestLength) {
+				bestStart = runStart;
+				bestLength = runLength;
+			}
+		}
+
+		return new Tuple<Integer, Integer>(bestStart, bestLength);
+	}
+
+	/**
+	 * Returns the slot of the timeline of two vertices, or -1 if they never published together
+	 * @param u
+	 * @param v
+	 * @return slot of the timeline, or -1
+	 */
+	private int slotOf(int u, int v) {
+		if (u < 0 || v < 0 || u == v) return -1;
+		return this.graph.edgeIndex(Math.min(u, v), Math.max(u, v));
+	}
+
+	/**
+	 * Returns the number of bytes taken by the varint encoding of a non negative value
+	 * @param value
+	 * @return number of bytes
+	 */
+	private static int varintLength(int value) {
+		int length = 1;
+		while ((value >>>= 7) != 0) length++;
+		return length;
+	}
+
+	/**
+	 * Writes a non negative value at the given position, seven bits per byte with the high bit set on all bytes but the last
+	 * @param position
+	 * @param value
+	 * @return position after the value
+	 */
+	private int writeVarint(int position, int value) {
+		while ((value & ~0x7F) != 0) {
+			this.arena[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		this.arena[position++] = (byte) value;
+
+		return position;
+	}
+
+	/**
+	 * Reads a value at the position held by the cursor, moving the cursor past it
+	 * @param cursor
+	 * @return value read
+	 */
+	private int readVarint(int[] cursor) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = this.arena[cursor[0]++];
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+	}
+}
@@ -0,0 +1,346 @@
+package autores;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Goes through the catalogs of several years at the same time on the common ForkJoinPool.<br>
+ * The years are split in as many blocks as the pool has threads, each one with about the same number of authors and
+ * coauthorships to go through, every block is counted into its own primitive maps or sets indexed by author
+ * identifier, holding only the authors of its years, and the blocks are merged pairwise on the way back up, so no two
+ * threads ever write to the same counters and no more counters are allocated than there are threads. The results are the same as the ones of going through the years one at a
+ * time, and every year is reported to the tracker of the query that started the scan, which is also charged with what
+ * the threads of the pool allocate for it.
+ *
+ */
+
+public class ParallelYearScan {
+	/** smallest number of years worth going through in parallel */
+	public static final int THRESHOLD = 4;
+
+	private List<AuthorCatalog> catalogs;
+	private AuthorDictionary dictionary;
+	private QueryTracker tracker;
+	private ForkJoinPool pool;
+	/** first year of every block, and the number of years after the last one */
+	private int[] bounds;
+
+	/**
+	 * Prepares a scan of the given catalogs
+	 * @param catalogs catalogs of the years to go through
+	 * @param dictionary dictionary holding every author in the catalogs
+	 */
+	public ParallelYearScan(Collection<AuthorCatalog> catalogs, AuthorDictionary dictionary) {
+		this.catalogs = new ArrayList<>(catalogs);
+		this.dictionary = dictionary;
+		this.tracker = QueryTracker.current();
+		this.pool = ForkJoinPool.commonPool();
+		this.bounds = blocks(this.catalogs, this.pool.getParallelism());
+	}
+
+	/**
+	 * Splits the years in blocks with about the same number of authors and coauthorships each
+	 * @param catalogs
+	 * @param nrBlocks largest number of blocks
+	 * @return first year of every block, and the number of years after the last one
+	 */
+	private static int[] blocks(List<AuthorCatalog> catalogs, int nrBlocks) {
+		long[] sizes = new long[catalogs.size() + 1];
+		for (int i = 0; i < catalogs.size(); i++)
+			sizes[i + 1] = sizes[i] + 1 + catalogs.get(i).getNrAuthors() + catalogs.get(i).getNrCoauthorships();
+
+		nrBlocks = Math.max(1, Math.min(nrBlocks, catalogs.size()));
+		int[] bounds = new int[nrBlocks + 1];
+		for (int b = 1, i = 0; b < nrBlocks; b++) {
+			long target = sizes[catalogs.size()] * b / nrBlocks;
+			while (i < catalogs.size() && sizes[i] < target) i++;
+			// every block keeps at least one year
+			bounds[b] = Math.min(Math.max(i, bounds[b - 1] + 1), catalogs.size() - nrBlocks + b);
+		}
+		bounds[nrBlocks] = catalogs.size();
+
+		return bounds;
+	}
+
+	/**
+	 * Returns the number of publications of every author in the years
+	 * @return publications of every author, by name
+	 */
+	public TreeMap<String, Integer> authorTotals() {
+		LongIntMap totals = this.pool.invoke( new AuthorTotals(0, this.bounds.length - 1) );
+		TreeMap<String, Integer> res = new TreeMap<>();
+		for (int i = 0; i < totals.capacity(); i++)
+			if (totals.hasKeyAt(i)) res.put( this.dictionary.nameOf( (int) totals.keyAt(i) ), totals.valueAt(i) );
+
+		return res;
+	}
+
+	/**
+	 * Returns the number of authors with more publications than the given number in the years
+	 * @param nrPublications
+	 * @return number of authors
+	 */
+	public int nrAuthorsWithOver(int nrPublications) {
+		LongIntMap totals = this.pool.invoke( new AuthorTotals(0, this.bounds.length - 1) );
+		int total = 0;
+		for (int i = 0; i < totals.capacity(); i++)
+			if (totals.hasKeyAt(i) && totals.valueAt(i) > 0 && totals.valueAt(i) > nrPublications) total++;
+
+		return total;
+	}
+
+	/**
+	 * Returns the number of joint publications of every pair of coauthors in the years
+	 * @return joint publications of every pair, the names of each pair in order
+	 */
+	public TreeMap<Tuple<String, String>, Integer> pairTotals() {
+		return pairMap( this.pool.invoke( new PairTotals(0, this.bounds.length - 1) ), this.dictionary );
+	}
+
+	/**
+	 * Returns the coauthors common to every one of the given authors in the years
+	 * @param authors
+	 * @return names of the common coauthors
+	 */
+	public TreeSet<String> commonCoauthors(List<String> authors) {
+		BitSet[] coauthors = this.pool.invoke( new Coauthors(0, this.bounds.length - 1, authors) );
+		BitSet common = coauthors[0];
+		for (int i = 1; i < coauthors.length; i++) common.and(coauthors[i]);
+
+		TreeSet<String> res = new TreeSet<>();
+		for (int id = common.nextSetBit(0); id >= 0; id = common.nextSetBit(id + 1))
+			res.add( this.dictionary.nameOf(id) );
+
+		return res;
+	}
+
+	/**
+	 * Adds the publications of every author of a year to the totals indexed by author identifier
+	 * @param totals
+	 * @param catalog catalog of the year
+	 * @param dictionary
+	 */
+	static void addAuthorTotals(int[] totals, AuthorCatalog catalog, AuthorDictionary dictionary) {
+		for (AuthorInfo info : catalog.getAuthorInfos())
+			totals[ dictionary.idOf( info.getName() ) ] += info.getTotalPublications();
+	}
+
+	/**
+	 * Adds the joint publications of every pair of coauthors of a year to the totals indexed by the packed
+	 * identifiers of the pair, the author whose name comes first in the pair first
+	 * @param totals
+	 * @param catalog catalog of the year
+	 * @param dictionary
+	 */
+	static void addPairTotals(LongIntMap totals, AuthorCatalog catalog, AuthorDictionary dictionary) {
+		for (AuthorInfo info : catalog.getAuthorInfos())
+			addPairTotals(totals, info, dictionary.idOf( info.getName() ), catalog, dictionary);
+	}
+
+	/**
+	 * Adds the joint publications of an author of a year with each of its coauthors to the totals indexed by the
+	 * packed identifiers of the pair
+	 * @param totals
+	 * @param info information of the author in the year
+	 * @param id identifier of the author
+	 * @param catalog catalog of the year
+	 * @param dictionary
+	 */
+	static void addPairTotals(LongIntMap totals, AuthorInfo info, int id, AuthorCatalog catalog, AuthorDictionary dictionary) {
+		String name = info.getName();
+
+		// a pair is counted once a year, by the author of the pair whose name comes first if the catalog has both
+		for (Map.Entry<String, Integer> e : info.getCoauthorsInfo().entrySet()) {
+			String coauthor = e.getKey();
+			if (name.compareTo(coauthor) < 0)
+				totals.add( LongIntMap.pack(id, dictionary.idOf(coauthor)), e.getValue() );
+			else if (!catalog.hasAuthor(coauthor))
+				totals.add( LongIntMap.pack(dictionary.idOf(coauthor), id), e.getValue() );
+		}
+	}
+
+	/**
+	 * Returns the totals indexed by author identifier as a map by name, without the authors with no publications
+	 * @param totals
+	 * @param dictionary
+	 * @return totals by name
+	 */
+	static TreeMap<String, Integer> authorMap(int[] totals, AuthorDictionary dictionary) {
+		TreeMap<String, Integer> res = new TreeMap<>();
+		for (int id = 0; id < totals.length; id++)
+			if (totals[id] > 0) res.put( dictionary.nameOf(id), totals[id] );
+
+		return res;
+	}
+
+	/**
+	 * Returns the totals indexed by the packed identifiers of pairs as a map by the names of each pair
+	 * @param totals
+	 * @param dictionary
+	 * @return totals by pair
+	 */
+	static TreeMap<Tuple<String, String>, Integer> pairMap(LongIntMap totals, AuthorDictionary dictionary) {
+		TreeMap<Tuple<String, String>, Integer> res = new TreeMap<>( new AuthorTupleComparator() );
+		for (int i = 0; i < totals.capacity(); i++) {
+			if (!totals.hasKeyAt(i)) continue;
+
+			long key = totals.keyAt(i);
+			res.put( new Tuple<String, String>( dictionary.nameOf( LongIntMap.first(key) ), dictionary.nameOf( LongIntMap.second(key) ) ), totals.valueAt(i) );
+		}
+
+		return res;
+	}
+
+	/**
+	 * Counts a range of blocks, splitting it in halves down to a single block
+	 */
+	@SuppressWarnings("serial")
+	private abstract class Scan<T> extends RecursiveTask<T> {
+		protected int from;
+		protected int to;
+
+		public Scan(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected T compute() {
+			if (this.to - this.from <= 1) {
+				long mark = tracker == null ? -1 : tracker.allocationMark();
+				T counts = this.empty();
+				for (int i = bounds[this.from]; i < bounds[this.to]; i++) {
+					this.add(counts, catalogs.get(i));
+					if (tracker != null) {
+						mark = tracker.charge(mark);
+						tracker.advance(1);
+					}
+				}
+				return counts;
+			}
+
+			int mid = (this.from + this.to) >>> 1;
+			Scan<T> left = this.half(this.from, mid);
+			left.fork();
+			T right = this.half(mid, this.to).compute();
+			T counts = left.join();
+
+			long mark = tracker == null ? -1 : tracker.allocationMark();
+			counts = this.merge(counts, right);
+			if (tracker != null) {
+				tracker.charge(mark);
+				tracker.check();
+			}
+			return counts;
+		}
+
+		/** counters of a block, before any year */
+		protected abstract T empty();
+		/** adds a year to the counters of a block */
+		protected abstract void add(T counts, AuthorCatalog catalog);
+		/** adds the counters of the second block to the ones of the first */
+		protected abstract T merge(T counts, T other);
+		protected abstract Scan<T> half(int from, int to);
+	}
+
+	@SuppressWarnings("serial")
+	private class AuthorTotals extends Scan<LongIntMap> {
+		public AuthorTotals(int from, int to) {
+			super(from, to);
+		}
+
+		protected LongIntMap empty() {
+			return new LongIntMap();
+		}
+
+		protected void add(LongIntMap totals, AuthorCatalog catalog) {
+			for (AuthorInfo info : catalog.getAuthorInfos())
+				totals.add( dictionary.idOf( info.getName() ), info.getTotalPublications() );
+		}
+
+		protected LongIntMap merge(LongIntMap totals, LongIntMap other) {
+			if (totals.size() < other.size()) {
+				other.addAll(totals);
+				return other;
+			}
+
+			totals.addAll(other);
+			return totals;
+		}
+
+		protected Scan<LongIntMap> half(int from, int to) {
+			return new AuthorTotals(from, to);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private class PairTotals extends Scan<LongIntMap> {
+		public PairTotals(int from, int to) {
+			super(from, to);
+		}
+
+		protected LongIntMap empty() {
+			return new LongIntMap();
+		}
+
+		protected void add(LongIntMap totals, AuthorCatalog catalog) {
+			addPairTotals(totals, catalog, dictionary);
+		}
+
+		protected LongIntMap merge(LongIntMap totals, LongIntMap other) {
+			if (totals.size() < other.size()) {
+				other.addAll(totals);
+				return other;
+			}
+
+			totals.addAll(other);
+			return totals;
+		}
+
+		protected Scan<LongIntMap> half(int from, int to) {
+			return new PairTotals(from, to);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private class Coauthors extends Scan<BitSet[]> {
+		private List<String> authors;
+
+		public Coauthors(int from, int to, List<String> authors) {
+			super(from, to);
+			this.authors = authors;
+		}
+
+		protected BitSet[] empty() {
+			BitSet[] coauthors = new BitSet[this.authors.size()];
+			for (int i = 0; i < coauthors.length; i++) coauthors[i] = new BitSet();
+			return coauthors;
+		}
+
+		protected void add(BitSet[] coauthors, AuthorCatalog catalog) {
+			for (int i = 0; i < coauthors.length; i++) {
+				AuthorInfo info = catalog.getAuthorInfo( this.authors.get(i) );
+				if (info == null) continue;
+
+				for (String coauthor : info.getCoauthors())
+					coauthors[i].set( dictionary.idOf(coauthor) );
+			}
+		}
+
+		protected BitSet[] merge(BitSet[] coauthors, BitSet[] other) {
+			for (int i = 0; i < coauthors.length; i++) coauthors[i].or(other[i]);
+			return coauthors;
+		}
+
+		protected Scan<BitSet[]> half(int from, int to) {
+			return new Coauthors(from, to, this.authors);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package autores;
+
+/**
+ * Thrown inside a query that was cancelled or went past its deadline, telling how far it had got
+ *
+ */
+
+@SuppressWarnings("serial")
+public class QueryAbortedException extends RuntimeException {
+	private int done;
+	private int total;
+	private long elapsedMillis;
+
+	public QueryAbortedException(String reason, int done, int total, long elapsedMillis) {
+		super("Query " + reason + " after " + done + " of " + total + " steps (" + elapsedMillis + " ms)");
+		this.done = done;
+		this.total = total;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Returns the number of steps finished before the query was aborted
+	 * @return number of steps finished
+	 */
+	public int getDone() {
+		return this.done;
+	}
+
+	/**
+	 * Returns the number of steps the query had announced when it was aborted
+	 * @return number of steps announced
+	 */
+	public int getTotal() {
+		return this.total;
+	}
+
+	public long getElapsedMillis() {
+		return this.elapsedMillis;
+	}
+}
@@ -0,0 +1,474 @@
+package autores;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Answers several interval queries with a single pass over the years they go through.<br>
+ * Queries are added first, each one returning the Result it will be given, and then run together: queries
+ * needing the same counts over the same interval, such as the top 10 and the top 100 publishers of a decade, share
+ * one YearAggregator, and the catalog of every year of the union of the intervals is read once, looking up every
+ * author once and feeding every aggregator whose interval holds the year. Aggregators of counts kept by the rollups
+ * registered in the network take the years of their widest rollups from them instead. Results are the same as the
+ * ones of the queries of GlobalAuthorNetwork.
+ *
+ */
+
+public class QueryBatch {
+	private GlobalAuthorNetwork network;
+	private HashMap<QueryKey, Interval> aggregators;
+	private ArrayList<Result<?>> results;
+	private boolean done;
+
+	/**
+	 * Creates an empty batch over the given network
+	 * @param network
+	 */
+	public QueryBatch(GlobalAuthorNetwork network) {
+		this.network = network;
+		this.aggregators = new HashMap<>();
+		this.results = new ArrayList<>();
+		this.done = false;
+	}
+
+	/**
+	 * Adds a query for the authors who published the most in an interval
+	 * @param min first year
+	 * @param max last year
+	 * @param nrAuthors number of authors
+	 * @return future result of the query
+	 */
+	public Result<NavigableSet<Tuple<String, Integer>>> topPublishers(int min, int max, final int nrAuthors) {
+		final AuthorTotals totals = this.aggregator(new AuthorTotals(min, max));
+		return this.result(new Result<NavigableSet<Tuple<String, Integer>>>() {
+			protected NavigableSet<Tuple<String, Integer>> compute() {
+				return GlobalAuthorNetwork.functorAddMax( totals.byName(), nrAuthors, new AuthorPubsTupleComparator() );
+			}
+		});
+	}
+
+	/**
+	 * Adds a query for the number of authors with more publications than the given number in an interval
+	 * @param min first year
+	 * @param max last year
+	 * @param nrPublications
+	 * @return future result of the query
+	 */
+	public Result<Integer> nrAuthorsWithOver(int min, int max, final int nrPublications) {
+		final AuthorTotals totals = this.aggregator(new AuthorTotals(min, max));
+		return this.result(new Result<Integer>() {
+			protected Integer compute() {
+				int total = 0;
+				for (int n : totals.totals())
+					if (n > 0 && n > nrPublications) total++;
+
+				return total;
+			}
+		});
+	}
+
+	/**
+	 * Adds a query for the pairs of authors who published the most together in an interval
+	 * @param min first year
+	 * @param max last year
+	 * @param nrPairs number of pairs
+	 * @return future result of the query
+	 */
+	public Result<NavigableSet<Tuple<Tuple<String, String>, Integer>>> topPairs(int min, int max, final int nrPairs) {
+		final PairTotals totals = this.aggregator(new PairTotals(min, max));
+		return this.result(new Result<NavigableSet<Tuple<Tuple<String, String>, Integer>>>() {
+			protected NavigableSet<Tuple<Tuple<String, String>, Integer>> compute() {
+				return GlobalAuthorNetwork.functorAddMax( totals.byName(), nrPairs, new PairPubsTupleComparator() );
+			}
+		});
+	}
+
+	/**
+	 * Adds a query for the authors who only published alone in an interval
+	 * @param min first year
+	 * @param max last year
+	 * @return future result of the query
+	 */
+	public Result<Set<String>> soloAuthors(int min, int max) {
+		final SoloFlags flags = this.aggregator(new SoloFlags(min, max));
+		return this.result(new Result<Set<String>>() {
+			protected Set<String> compute() {
+				BitSet solo = (BitSet) flags.seen.clone();
+				solo.andNot(flags.notOnlySolo);
+				return names(solo);
+			}
+		});
+	}
+
+	/**
+	 * Adds a query for the authors who never published alone in an interval
+	 * @param min first year
+	 * @param max last year
+	 * @return future result of the query
+	 */
+	public Result<Set<String>> nonSoloAuthors(int min, int max) {
+		final SoloFlags flags = this.aggregator(new SoloFlags(min, max));
+		return this.result(new Result<Set<String>>() {
+			protected Set<String> compute() {
+				BitSet nonSolo = (BitSet) flags.seen.clone();
+				nonSolo.andNot(flags.notNeverSolo);
+				return names(nonSolo);
+			}
+		});
+	}
+
+	/**
+	 * Adds a query for the number of publications of every year of an interval
+	 * @param min first year
+	 * @param max last year
+	 * @return future result of the query
+	 */
+	public Result<NavigableMap<Integer, Integer>> yearTable(int min, int max) {
+		final YearTable table = this.aggregator(new YearTable(min, max));
+		return this.result(new Result<NavigableMap<Integer, Integer>>() {
+			protected NavigableMap<Integer, Integer> compute() {
+				return new TreeMap<Integer, Integer>(table.table);
+			}
+		});
+	}
+
+	/**
+	 * Adds a query for the authors who published in every year of an interval with publications
+	 * @param min first year
+	 * @param max last year
+	 * @return future result of the query, empty if there is no such author
+	 */
+	public Result<NavigableSet<String>> authorsInInterval(int min, int max) {
+		final EveryYear every = this.aggregator(new EveryYear(min, max));
+		return this.result(new Result<NavigableSet<String>>() {
+			protected NavigableSet<String> compute() {
+				return names( every.authors() );
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of counters the queries added so far need, queries asking for the same counts over the
+	 * same interval sharing one
+	 * @return number of counters
+	 */
+	public int getNrAggregators() {
+		return this.aggregators.size();
+	}
+
+	/**
+	 * Goes through the union of the intervals of every query once, then works out the result of every query
+	 */
+	public void run() {
+		if (this.done) throw new IllegalStateException("Batch already run");
+
+		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+		for (Interval a : this.aggregators.values()) {
+			min = Math.min(min, a.min);
+			max = Math.max(max, a.max);
+		}
+
+		for (Interval a : this.aggregators.values())
+			a.addRollups();
+
+		NavigableMap<Integer, AuthorCatalog> years = this.network.catalogsIn(min, max);
+		AuthorDictionary dictionary = this.network.getDictionary();
+		ArrayList<Interval> active = new ArrayList<>();
+		QueryTracker.begin( years.size() );
+		for (Map.Entry<Integer, AuthorCatalog> e : years.entrySet()) {
+			int year = e.getKey();
+			AuthorCatalog catalog = e.getValue();
+			boolean readsAuthors = false;
+
+			active.clear();
+			for (Interval a : this.aggregators.values())
+				if (a.reads(year)) {
+					a.addYear(year, catalog);
+					if (a.readsAuthors()) {
+						active.add(a);
+						readsAuthors = true;
+					}
+				}
+
+			if (readsAuthors)
+				for (AuthorInfo info : catalog.getAuthorInfos()) {
+					int id = dictionary.idOf( info.getName() );
+					for (Interval a : active) a.addAuthor(id, info, catalog);
+				}
+
+			QueryTracker.checkpoint();
+		}
+
+		for (Result<?> r : this.results) r.finish();
+		this.done = true;
+	}
+
+	/**
+	 * Returns the aggregator already in the batch with the same counts over the same interval, or the given one
+	 * @param aggregator
+	 * @return aggregator to feed
+	 */
+	@SuppressWarnings("unchecked")
+	private <A extends Interval> A aggregator(A aggregator) {
+		if (this.done) throw new IllegalStateException("Batch already run");
+
+		QueryKey key = new QueryKey(aggregator.getClass().getSimpleName(), aggregator.min, aggregator.max);
+		Interval same = this.aggregators.get(key);
+		if (same != null) return (A) same;
+
+		this.aggregators.put(key, aggregator);
+		return aggregator;
+	}
+
+	/**
+	 * Returns the names of the authors with the given identifiers
+	 * @param ids
+	 * @return names of the authors
+	 */
+	private TreeSet<String> names(BitSet ids) {
+		TreeSet<String> res = new TreeSet<>();
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+			res.add( this.network.getDictionary().nameOf(id) );
+
+		return res;
+	}
+
+	private <T> Result<T> result(Result<T> result) {
+		this.results.add(result);
+		return result;
+	}
+
+	/**
+	 * Result of a query of the batch, available once the batch has run
+	 */
+	public static abstract class Result<T> {
+		private T value;
+		private boolean finished = false;
+
+		/**
+		 * Returns the result of the query
+		 * @return result of the query
+		 * @throws IllegalStateException if the batch has not run yet
+		 */
+		public T get() {
+			if (!this.finished) throw new IllegalStateException("Batch not run yet");
+			return this.value;
+		}
+
+		private void finish() {
+			this.value = this.compute();
+			this.finished = true;
+		}
+
+		/** works out the result from the aggregators of the batch */
+		protected abstract T compute();
+	}
+
+	/**
+	 * Aggregator over the years of an interval
+	 */
+	private abstract class Interval implements YearAggregator {
+		protected int min;
+		protected int max;
+		/** rollups the aggregator took years from, in order */
+		private ArrayList<YearRollup> rollups;
+
+		public Interval(int min, int max) {
+			this.min = min;
+			this.max = max;
+			this.rollups = new ArrayList<>();
+		}
+
+		/** true if the aggregator reads the authors of its years */
+		protected boolean readsAuthors() {
+			return true;
+		}
+
+		/**
+		 * Adds the aggregates of a rollup of the network, if the aggregator can take years from rollups
+		 * @param rollup
+		 * @return true if the years of the rollup were added, false if they are to be read from their catalogs
+		 */
+		protected boolean addRollup(YearRollup rollup) {
+			return false;
+		}
+
+		/**
+		 * Takes the years of the interval covered by the widest rollups of the network from them, if the aggregator
+		 * can take years from rollups
+		 */
+		public void addRollups() {
+			int year = this.min;
+			while (year <= this.max) {
+				YearRollup rollup = network.widestRollup(year, this.max);
+				if (rollup == null) year++;
+				else if (!this.addRollup(rollup)) return;
+				else {
+					this.rollups.add(rollup);
+					QueryTracker.checkpoint(0);
+					year = rollup.getMax() + 1;
+				}
+			}
+		}
+
+		/**
+		 * Checks if a year is to be read from its catalog
+		 * @param year
+		 * @return true if the year is in the interval and not taken from a rollup
+		 */
+		public boolean reads(int year) {
+			if (year < this.min || year > this.max) return false;
+			for (YearRollup rollup : this.rollups)
+				if (year >= rollup.getMin() && year <= rollup.getMax()) return false;
+
+			return true;
+		}
+
+		public void addYear(int year, AuthorCatalog catalog) {
+		}
+
+		public void addAuthor(int id, AuthorInfo info, AuthorCatalog catalog) {
+		}
+	}
+
+	private class AuthorTotals extends Interval {
+		private int[] totals;
+		private TreeMap<String, Integer> byName;
+
+		public AuthorTotals(int min, int max) {
+			super(min, max);
+			this.totals = new int[network.getDictionary().size()];
+		}
+
+		protected boolean addRollup(YearRollup rollup) {
+			AuthorDictionary dictionary = network.getDictionary();
+			for (Map.Entry<String, Integer> e : rollup.getAuthorTotals( network.catalogsIn(rollup.getMin(), rollup.getMax()) ).entrySet())
+				this.totals[ dictionary.idOf( e.getKey() ) ] += e.getValue();
+			return true;
+		}
+
+		public void addAuthor(int id, AuthorInfo info, AuthorCatalog catalog) {
+			this.totals[id] += info.getTotalPublications();
+		}
+
+		public int[] totals() {
+			return this.totals;
+		}
+
+		/** totals by name, worked out once for every query sharing them */
+		public TreeMap<String, Integer> byName() {
+			if (this.byName == null) this.byName = ParallelYearScan.authorMap(this.totals, network.getDictionary());
+			return this.byName;
+		}
+	}
+
+	private class PairTotals extends Interval {
+		private LongIntMap totals;
+		private TreeMap<Tuple<String, String>, Integer> byName;
+
+		public PairTotals(int min, int max) {
+			super(min, max);
+			this.totals = new LongIntMap();
+		}
+
+		protected boolean addRollup(YearRollup rollup) {
+			AuthorDictionary dictionary = network.getDictionary();
+			for (Map.Entry<Tuple<String, String>, Integer> e : rollup.getPairTotals( network.catalogsIn(rollup.getMin(), rollup.getMax()) ).entrySet())
+				this.totals.add( LongIntMap.pack(dictionary.idOf( e.getKey().getFirst() ), dictionary.idOf( e.getKey().getSecond() )), e.getValue() );
+			return true;
+		}
+
+		public void addAuthor(int id, AuthorInfo info, AuthorCatalog catalog) {
+			ParallelYearScan.addPairTotals(this.totals, info, id, catalog, network.getDictionary());
+		}
+
+		/** totals by pair of names, worked out once for every query sharing them */
+		public TreeMap<Tuple<String, String>, Integer> byName() {
+			if (this.byName == null) this.byName = ParallelYearScan.pairMap(this.totals, network.getDictionary());
+			return this.byName;
+		}
+	}
+
+	private class SoloFlags extends Interval {
+		private BitSet seen = new BitSet();
+		private BitSet notOnlySolo = new BitSet();
+		private BitSet notNeverSolo = new BitSet();
+
+		public SoloFlags(int min, int max) {
+			super(min, max);
+		}
+
+		public void addAuthor(int id, AuthorInfo info, AuthorCatalog catalog) {
+			this.seen.set(id);
+			if (!info.onlySolo()) this.notOnlySolo.set(id);
+			if (!info.neverSolo()) this.notNeverSolo.set(id);
+		}
+	}
+
+	private class YearTable extends Interval {
+		private TreeMap<Integer, Integer> table = new TreeMap<>();
+
+		public YearTable(int min, int max) {
+			super(min, max);
+		}
+
+		protected boolean readsAuthors() {
+			return false;
+		}
+
+		public void addYear(int year, AuthorCatalog catalog) {
+			this.table.put(year, catalog.getNrPublications());
+		}
+	}
+
+	/**
+	 * Counts the years with publications of every author, a rollup counting as a single year for the authors who
+	 * published in every year of its range
+	 */
+	private class EveryYear extends Interval {
+		private int[] years;
+		private int nrYears;
+
+		public EveryYear(int min, int max) {
+			super(min, max);
+			this.years = new int[network.getDictionary().size()];
+			this.nrYears = 0;
+		}
+
+		protected boolean addRollup(YearRollup rollup) {
+			// a rollup with no publications holds no year to count
+			NavigableSet<String> authors = rollup.getAuthorsEveryYear( network.catalogsIn(rollup.getMin(), rollup.getMax()) );
+			if (authors == null) return true;
+
+			AuthorDictionary dictionary = network.getDictionary();
+			for (String name : authors) this.years[ dictionary.idOf(name) ]++;
+			this.nrYears++;
+			return true;
+		}
+
+		public void addYear(int year, AuthorCatalog catalog) {
+			this.nrYears++;
+		}
+
+		public void addAuthor(int id, AuthorInfo info, AuthorCatalog catalog) {
+			this.years[id]++;
+		}
+
+		/** authors with publications in every year of the interval with publications */
+		public BitSet authors() {
+			BitSet res = new BitSet();
+			if (this.nrYears > 0)
+				for (int id = 0; id < this.years.length; id++)
+					if (this.years[id] == this.nrYears) res.set(id);
+
+			return res;
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package autores;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of query results, evicting the least recently used entries once the estimated size of
+ * the cached results goes over a byte budget.<br>
+ * Every entry belongs to a data version; as soon as a lookup is made with a newer version the whole cache
+ * is dropped, since any ingestion may change any result. If asked to, the entries of the previous version are kept
+ * aside as stale results, each one dropped as soon as its key is cached again, and the whole stale generation at
+ * the next version. Stale results count against the same budget, and are the first to be evicted.<br>
+ * The cache also keeps the computations in flight, so concurrent callers asking for the same result can wait for
+ * a single computation instead of starting their own.
+ *
+ */
+
+public class QueryCache {
+	private static final long ENTRY_OVERHEAD = 64;
+	private static final long OBJECT_OVERHEAD = 32;
+
+	private LinkedHashMap<QueryKey, Entry> entries;
+	private LinkedHashMap<QueryKey, Entry> stale;
+	private ConcurrentHashMap<QueryKey, CompletableFuture<Object>> flights;
+	private boolean keepStale;
+	private long maxBytes;
+	private long bytes;
+	private long staleBytes;
+	private long version;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private AtomicLong coalesced;
+	private long staleHits;
+
+	/**
+	 * Creates an empty cache holding results up to the given estimated size
+	 * @param maxBytes
+	 */
+	public QueryCache(long maxBytes) {
+		this.entries = new LinkedHashMap<QueryKey, Entry>(16, 0.75f, true);
+		this.stale = new LinkedHashMap<>();
+		this.flights = new ConcurrentHashMap<>();
+		this.keepStale = false;
+		this.maxBytes = maxBytes;
+		this.bytes = 0;
+		this.staleBytes = 0;
+		this.version = 0;
+		this.hits = 0;
+		this.misses = 0;
+		this.evictions = 0;
+		this.coalesced = new AtomicLong();
+		this.staleHits = 0;
+	}
+
+	/**
+	 * Returns the cached result for the given key, or null if it is not cached for the given data version.<br>
+	 * Lookups made with an older version, by queries still running on a previous snapshot, always miss
+	 * @param key
+	 * @param version current data version
+	 * @return cached result, or null
+	 */
+	public synchronized Object get(QueryKey key, long version) {
+		this.invalidateBefore(version);
+
+		Entry e = version == this.version ? this.entries.get(key) : null;
+		if (e == null) {
+			this.misses++;
+			return null;
+		}
+
+		this.hits++;
+		return e.value;
+	}
+
+	/**
+	 * Checks if the result for the given key is cached or being computed for the given data version, without counting
+	 * a lookup or changing the order of eviction
+	 * @param key
+	 * @param version current data version
+	 * @return true if a lookup would get the result without computing it
+	 */
+	public boolean peek(QueryKey key, long version) {
+		if (this.flights.containsKey(new QueryKey("flight", key, version))) return true;
+
+		synchronized (this) {
+			return version == this.version && this.entries.containsKey(key);
+		}
+	}
+
+	/**
+	 * Caches a result computed for the given data version, evicting older entries if needed.<br>
+	 * The result should be immutable, since it will be shared with every following caller.
+	 * @param key
+	 * @param version data version the result was computed on
+	 * @param value
+	 */
+	public void put(QueryKey key, long version, Object value) {
+		long size = ENTRY_OVERHEAD + estimateSize(value);
+		if (size > this.maxBytes) return;
+
+		synchronized (this) {
+			this.invalidateBefore(version);
+			if (version < this.version) return;
+
+			Entry stale = this.stale.remove(key);
+			if (stale != null) this.staleBytes -= stale.size;
+			Entry old = this.entries.put(key, new Entry(value, size));
+			if (old != null) this.bytes -= old.size;
+			this.bytes += size;
+
+			Iterator<Entry> it = this.stale.values().iterator();
+			while (this.bytes + this.staleBytes > this.maxBytes && it.hasNext()) {
+				this.staleBytes -= it.next().size;
+				it.remove();
+				this.evictions++;
+			}
+
+			it = this.entries.values().iterator();
+			while (this.bytes > this.maxBytes && it.hasNext()) {
+				this.bytes -= it.next().size;
+				it.remove();
+				this.evictions++;
+			}
+		}
+	}
+
+	/**
+	 * Removes every entry, stale ones included, keeping the counters
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.stale.clear();
+		this.bytes = 0;
+		this.staleBytes = 0;
+	}
+	
+	/**
+	 * Chooses whether the entries of the previous data version are kept as stale results
+	 * @param keepStale
+	 */
+	public synchronized void setKeepStale(boolean keepStale) {
+		this.keepStale = keepStale;
+		if (!keepStale) {
+			this.stale.clear();
+			this.staleBytes = 0;
+		}
+	}
+	
+	/**
+	 * Returns the result cached for the given key on the previous data version, or null if there is none
+	 * @param key
+	 * @return stale result, or null
+	 */
+	public synchronized Object getStale(QueryKey key) {
+		Entry e = this.stale.get(key);
+		if (e == null) return null;
+		
+		this.staleHits++;
+		return e.value;
+	}
+	
+	/**
+	 * Registers a computation of the result of the given key on the given data version, unless one is in flight already
+	 * @param key
+	 * @param version
+	 * @param flight future to be completed with the result
+	 * @return computation already in flight, which the caller shall wait for, or null if the given one was registered
+	 */
+	public CompletableFuture<Object> joinFlight(QueryKey key, long version, CompletableFuture<Object> flight) {
+		CompletableFuture<Object> running = this.flights.putIfAbsent(new QueryKey("flight", key, version), flight);
+		if (running != null) this.coalesced.incrementAndGet();
+		return running;
+	}
+	
+	/**
+	 * Removes a computation registered by joinFlight, once its future is completed
+	 * @param key
+	 * @param version
+	 * @param flight
+	 */
+	public void endFlight(QueryKey key, long version, CompletableFuture<Object> flight) {
+		this.flights.remove(new QueryKey("flight", key, version), flight);
+	}
+	
+	/**
+	 * Returns the number of lookups that waited for a computation already in flight instead of starting one
+	 * @return number of coalesced lookups
+	 */
+	public long getCoalesced() {
+		return this.coalesced.get();
+	}
+	
+	public synchronized long getStaleHits() {
+		return this.staleHits;
+	}
+
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Returns the estimated size of the cached results, stale ones included
+	 * @return estimated size of the cached results, in bytes
+	 */
+	public synchronized long getBytes() {
+		return this.bytes + this.staleBytes;
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Drops every entry if the given data version is newer than the one of the cached entries
+	 * @param version
+	 */
+	private void invalidateBefore(long version) {
+		if (version > this.version) {
+			this.stale.clear();
+			this.staleBytes = 0;
+			if (this.keepStale) {
+				this.stale.putAll(this.entries);
+				this.staleBytes = this.bytes;
+			}
+			this.entries.clear();
+			this.bytes = 0;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * Returns a rough estimate of the heap used by a query result
+	 * @param o
+	 * @return estimated size in bytes
+	 */
+	private static long estimateSize(Object o) {
+		if (o == null) return 0;
+		if (o instanceof String) return OBJECT_OVERHEAD + 2L * ((String) o).length();
+		if (o instanceof Tuple) {
+			Tuple<?, ?> t = (Tuple<?, ?>) o;
+			return OBJECT_OVERHEAD + estimateSize(t.getFirst()) + estimateSize(t.getSecond());
+		}
+		if (o instanceof Collection) {
+			long size = OBJECT_OVERHEAD;
+			for (Object item : (Collection<?>) o)
+				size += OBJECT_OVERHEAD + estimateSize(item);
+			return size;
+		}
+		if (o instanceof Map) {
+			long size = OBJECT_OVERHEAD;
+			for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet())
+				size += OBJECT_OVERHEAD + estimateSize(e.getKey()) + estimateSize(e.getValue());
+			return size;
+		}
+
+		return OBJECT_OVERHEAD;
+	}
+
+	private static class Entry {
+		private Object value;
+		private long size;
+
+		public Entry(Object value, long size) {
+			this.value = value;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package autores;
+
+/**
+ * Interface to allow queries to be run by name, with their parameters given as text
+ *
+ */
+
+public interface QueryCommand {
+	public Object exec(AuthorNetwork network, QueryParameters params) throws NoSuchAuthorException, NoSuchYearException, NoAuthorsInIntervalException;
+}
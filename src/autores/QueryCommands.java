@@ -0,0 +1,554 @@
+package autores;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Every query of an AuthorNetwork, registered by name so front ends other than the menu can run them.<br>
+ * Interval queries take the years as min and max, defaulting to every year read, and the number of results as n.
+ * Any query may be given a timeout in milliseconds.
+ * The cost of a query is estimated from the sizes of the catalogs of its years, before it runs, unless its result is
+ * cached already.
+ * Lists of authors are separated by semicolons. Paged queries, such as authorsBy, take offset and limit and only
+ * build the page asked for.
+ *
+ */
+
+public class QueryCommands {
+	private static final TreeMap<String, QueryCommand> COMMANDS = new TreeMap<>();
+
+	/** memory held for every author of every year read by a query counting publications of authors */
+	private static final long BYTES_PER_AUTHOR = 120;
+	/** memory held for every coauthorship of every year read by a query counting pairs or building a graph */
+	private static final long BYTES_PER_COAUTHORSHIP = 160;
+	/** memory held for every author known, whatever the interval, by a query building a coauthor graph, whose
+	 * offsets, and the counts, ranks or labels of the algorithms going through it, are indexed by author identifier */
+	private static final long BYTES_PER_VERTEX = 32;
+	/** cost of a query reading a few authors only */
+	private static final QueryCost SMALL = new QueryCost(1L << 20, 1000);
+
+	/** queries going through every author of their years */
+	private static final Set<String> AUTHOR_SCANS = new HashSet<>(Arrays.asList(
+			"stats", "nrAuthorsWithOver", "topPublishers", "authorsInInterval", "authorsWithCareerSpan", "authorsWithActiveYears", "slidingWindows"));
+	/** queries going through every coauthorship of their years */
+	private static final Set<String> COAUTHORSHIP_SCANS = new HashSet<>(Arrays.asList(
+			"topPairs", "topPairsByStrength", "topCentralAuthors", "similarAuthors", "similarPairs", "transitivity", "triangles",
+			"clusteringCoefficient", "transitivityByYear", "communities", "componentSizes", "collaborationPath", "egoNetwork"));
+	/** queries building the coauthor graph of their interval */
+	private static final Set<String> GRAPH_BUILDS = new HashSet<>(Arrays.asList(
+			"topPairsByStrength", "topCentralAuthors", "similarAuthors", "similarPairs", "transitivity", "triangles",
+			"clusteringCoefficient", "communities", "collaborationPath", "egoNetwork"));
+	/** interval queries QueryBatch answers, several of them in a single pass over their years */
+	private static final Set<String> BATCHED = new HashSet<>(Arrays.asList("topPublishers", "topPairs"));
+
+	static {
+		register("stats", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				LinkedHashMap<String, Object> res = new LinkedHashMap<>();
+				res.put("file", network.getCurrentFile());
+				res.put("publications", network.getTotalPublications());
+				res.put("names", network.getTotalNamesRead());
+				res.put("authors", network.getTotalAuthors());
+				res.put("soloPublications", network.getSoloPublications());
+				res.put("soloAuthors", network.getTotalSoloAuthors());
+				res.put("nonSoloAuthors", network.getTotalNonSoloAuthors());
+				res.put("version", network.getVersion());
+				return res;
+			}
+		});
+		register("yearTable", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.getYearTable();
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("yearTable");
+			}
+		});
+		register("nrAuthorsWithOver", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.nrAuthorsWithOver( p.getInt("n") );
+			}
+		});
+		register("authorsBy", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				String prefix = p.getString("prefix");
+				int offset = Math.max(p.getInt("offset", 0), 0);
+				return new ResultPage<String>(network.getAuthorsByPrefix(prefix, offset, p.getInt("limit", Integer.MAX_VALUE)), network.countAuthorsByPrefix(prefix), offset);
+			}
+		});
+		register("suggestAuthors", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.suggestAuthors(p.getString("name"), p.getInt("n", 5));
+			}
+		});
+		register("hasAuthor", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.hasAuthor( p.getString("name") );
+			}
+		});
+		register("topPublishers", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.topPublishersInInterval(min(network, p), max(network, p), p.getInt("n")).descendingSet();
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("topPublishers", min(network, p), max(network, p), p.getInt("n"));
+			}
+		});
+		register("topPairs", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.topPairs(min(network, p), max(network, p), p.getInt("n")).descendingSet();
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("topPairs", min(network, p), max(network, p), p.getInt("n"));
+			}
+		});
+		register("topPairsByStrength", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.topPairsByStrength(min(network, p), max(network, p), p.getInt("n")).descendingSet();
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("topPairsByStrength", min(network, p), max(network, p), p.getInt("n"));
+			}
+		});
+		register("topCoauthorsByStrength", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException {
+				return network.topCoauthorsByStrength(p.getString("name"), min(network, p), max(network, p), p.getInt("n")).descendingSet();
+			}
+		});
+		register("topCentralAuthors", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.topCentralAuthors(min(network, p), max(network, p), p.getInt("n"), p.getBoolean("fractional", false)).descendingSet();
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("topCentralAuthors", min(network, p), max(network, p), p.getInt("n"), p.getBoolean("fractional", false));
+			}
+		});
+		register("authorsInInterval", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoAuthorsInIntervalException {
+				return network.authorsInInterval(min(network, p), max(network, p));
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("authorsInInterval", min(network, p), max(network, p));
+			}
+		});
+		register("coauthorsOf", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.getCoauthorsOf( p.getString("name") );
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("coauthorsOf", p.getString("name"));
+			}
+		});
+		register("commonCoauthors", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.commonCoauthors(p.getList("authors"), min(network, p), max(network, p));
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("commonCoauthors", p.getList("authors"), min(network, p), max(network, p));
+			}
+		});
+		register("partnership", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException, NoSuchYearException {
+				return network.authorPartnershipInfo(p.getInt("year"), p.getString("name"));
+			}
+		});
+		register("collaborationPath", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException {
+				return network.collaborationPath(p.getString("from"), p.getString("to"), min(network, p), max(network, p));
+			}
+		});
+		register("egoNetwork", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException {
+				return network.egoNetwork(p.getString("name"), p.getInt("hops", 1), min(network, p), max(network, p));
+			}
+		});
+		register("similarAuthors", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException {
+				return network.similarAuthors(p.getString("name"), p.getInt("n"));
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("similarAuthors", p.getString("name"), p.getInt("n"));
+			}
+		});
+		register("similarPairs", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.similarPairs( p.getDouble("threshold") );
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("similarPairs", p.getDouble("threshold"));
+			}
+		});
+		register("pairTimeline", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException {
+				return network.pairTimeline(p.getString("a"), p.getString("b"));
+			}
+		});
+		register("pairPublications", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException {
+				return network.pairPublications(p.getString("a"), p.getString("b"), min(network, p), max(network, p));
+			}
+		});
+		register("pairStreak", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException {
+				return network.pairStreak(p.getString("a"), p.getString("b"));
+			}
+		});
+		register("career", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException {
+				return network.getCareer( p.getString("name") );
+			}
+		});
+		register("authorsWithCareerSpan", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.authorsWithCareerSpan( p.getInt("years") );
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("authorsWithCareerSpan", p.getInt("years"));
+			}
+		});
+		register("authorsWithActiveYears", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.authorsWithActiveYears( p.getInt("years") );
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("authorsWithActiveYears", p.getInt("years"));
+			}
+		});
+		register("transitivity", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.getTransitivity(min(network, p), max(network, p));
+			}
+		});
+		register("triangles", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.getTotalTriangles(min(network, p), max(network, p));
+			}
+		});
+		register("clusteringCoefficient", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) throws NoSuchAuthorException {
+				return network.getClusteringCoefficient(p.getString("name"), min(network, p), max(network, p));
+			}
+		});
+		register("transitivityByYear", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.getTransitivityByYear();
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("transitivityByYear");
+			}
+		});
+		register("communities", new CachedQueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.getCommunities(min(network, p), max(network, p), p.getInt("n"), p.getInt("members", 5));
+			}
+
+			public QueryKey key(AuthorNetwork network, QueryParameters p) {
+				return new QueryKey("communities", min(network, p), max(network, p), p.getInt("n"), p.getInt("members", 5));
+			}
+		});
+		register("componentSize", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.componentSize( p.getString("name") );
+			}
+		});
+		register("sameComponent", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.inSameComponent(p.getString("a"), p.getString("b"));
+			}
+		});
+		register("totalComponents", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.getTotalComponents();
+			}
+		});
+		register("componentSizes", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				if (!p.has("min") && !p.has("max")) return network.getComponentSizes();
+				return network.getComponentSizes(min(network, p), max(network, p));
+			}
+		});
+		register("slidingWindows", new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return network.slidingWindows(p.getInt("width"), p.getInt("n", 10));
+			}
+		});
+	}
+
+	/**
+	 * Registers a query under the given name, replacing any query with that name
+	 * @param name
+	 * @param command
+	 */
+	public static synchronized void register(String name, QueryCommand command) {
+		COMMANDS.put(name, command);
+	}
+
+	/**
+	 * Returns the names of every registered query
+	 * @return names of every query, in order
+	 */
+	public static synchronized NavigableSet<String> names() {
+		return new TreeSet<String>( COMMANDS.keySet() );
+	}
+
+	/**
+	 * Returns the query with the given name
+	 * @param name
+	 * @return query with the given name
+	 * @throws IllegalArgumentException if there is no such query
+	 */
+	public static synchronized QueryCommand get(String name) {
+		QueryCommand command = COMMANDS.get(name);
+		if (command == null) throw new IllegalArgumentException("Unknown query: " + name);
+		return command;
+	}
+
+	/**
+	 * Runs the query with the given name over a network.<br>
+	 * A timeout parameter, in milliseconds, aborts the query with a QueryAbortedException once it is over
+	 * @param network
+	 * @param name
+	 * @param params
+	 * @return result of the query
+	 * @throws IllegalArgumentException if there is no such query or a parameter is missing or malformed
+	 */
+	public static Object run(AuthorNetwork network, String name, QueryParameters params) throws NoSuchAuthorException, NoSuchYearException, NoAuthorsInIntervalException {
+		QueryCommand command = get(name);
+		if (!params.has("timeout"))
+			return command.exec(network, params);
+
+		QueryTracker tracker = new QueryTracker( params.getInt("timeout") );
+		QueryTracker previous = tracker.enter();
+		try {
+			return command.exec(network, params);
+		} finally {
+			tracker.exit(previous);
+		}
+	}
+
+	/**
+	 * Runs the query with the given name over a network once the given controller admits it, limiting what it
+	 * may allocate to what the controller allows.<br>
+	 * A query whose result is cached, or being computed by another caller, reads or waits for it without being
+	 * admitted, since it computes nothing, and is only admitted if it has to compute the result after all
+	 * @param network
+	 * @param name
+	 * @param params
+	 * @param admission controller of the queries, or null to run the query at once
+	 * @return result of the query
+	 * @throws IllegalArgumentException if there is no such query or a parameter is missing or malformed
+	 * @throws QueryRejectedException if the controller does not admit the query
+	 */
+	public static Object run(AuthorNetwork network, String name, QueryParameters params, AdmissionController admission) throws NoSuchAuthorException, NoSuchYearException, NoAuthorsInIntervalException {
+		if (admission == null)
+			return run(network, name, params);
+
+		QueryCost cost = estimate(network, name, params);
+		QueryTracker tracker = new QueryTracker( params.getInt("timeout", 0) );
+		if (isAnswered(network, name, params))
+			tracker.admitLater(admission, cost);
+		else
+			tracker.admit(admission, cost);
+
+		return run(network, name, params, tracker);
+	}
+
+	/**
+	 * Admits the query with the given name without waiting for it, as run does with a controller: the future is
+	 * completed with the tracker to run the query with, once the query is admitted or at once if it reads its
+	 * result from the cache, or with a QueryRejectedException if the controller does not admit the query
+	 * @param network
+	 * @param name
+	 * @param params
+	 * @param admission controller of the queries, or null to run the query at once
+	 * @return future tracker of the query, to give to run
+	 * @throws IllegalArgumentException if there is no such query or a parameter is missing or malformed
+	 */
+	public static CompletableFuture<QueryTracker> admitAsync(AuthorNetwork network, String name, QueryParameters params, final AdmissionController admission) {
+		QueryCost cost = estimate(network, name, params);
+		final QueryTracker tracker = new QueryTracker( params.getInt("timeout", 0) );
+		if (admission == null)
+			return CompletableFuture.completedFuture(tracker);
+		if (isAnswered(network, name, params)) {
+			tracker.admitLater(admission, cost);
+			return CompletableFuture.completedFuture(tracker);
+		}
+
+		return admission.admitAsync(cost).thenApply(new Function<AdmissionController.Ticket, QueryTracker>() {
+			public QueryTracker apply(AdmissionController.Ticket ticket) {
+				tracker.admitted(admission, ticket);
+				return tracker;
+			}
+		});
+	}
+
+	/**
+	 * Runs the query with the given name over a network with the tracker it was admitted with, giving back what it
+	 * reserved once it is over
+	 * @param network
+	 * @param name
+	 * @param params
+	 * @param tracker tracker of the query, as given by admitAsync
+	 * @return result of the query
+	 * @throws IllegalArgumentException if there is no such query or a parameter is missing or malformed
+	 */
+	public static Object run(AuthorNetwork network, String name, QueryParameters params, QueryTracker tracker) throws NoSuchAuthorException, NoSuchYearException, NoAuthorsInIntervalException {
+		QueryTracker previous = tracker.enter();
+		try {
+			return get(name).exec(network, params);
+		} finally {
+			tracker.exit(previous);
+			tracker.release();
+		}
+	}
+
+	/**
+	 * Checks if the result of a query is cached, or being computed by another caller
+	 * @param network
+	 * @param name
+	 * @param params
+	 * @return true if the query only reads or waits for its result
+	 */
+	private static boolean isAnswered(AuthorNetwork network, String name, QueryParameters params) {
+		QueryCommand command = get(name);
+		return command instanceof CachedQueryCommand && network.isAnswered( ((CachedQueryCommand) command).key(network, params) );
+	}
+
+	/**
+	 * Returns the status a failed query is answered with, the same for every way of running queries: 400 for bad
+	 * parameters or unknown queries, 404 for unknown authors, years or empty intervals, 503 for queries past their
+	 * timeout or allocation, or not admitted, and 500 for anything else
+	 * @param e exception the query failed with
+	 * @return HTTP status of the failure
+	 */
+	public static int statusOf(Exception e) {
+		if (e instanceof NoSuchAuthorException || e instanceof NoSuchYearException || e instanceof NoAuthorsInIntervalException)
+			return 404;
+		if (e instanceof QueryAbortedException || e instanceof QueryRejectedException)
+			return 503;
+		if (e instanceof IllegalArgumentException)
+			return 400;
+
+		return 500;
+	}
+
+	/**
+	 * Returns the message a failed query is answered with, telling the whole exception only for unexpected failures
+	 * @param e exception the query failed with
+	 * @return message of the failure
+	 */
+	public static String messageOf(Exception e) {
+		if (statusOf(e) == 500) return e.toString();
+		return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+	}
+
+	/**
+	 * Estimates the cost of a query from the sizes of the catalogs of the years it goes through, and for the queries
+	 * building a coauthor graph, from the number of authors known
+	 * @param network
+	 * @param name
+	 * @param params
+	 * @return estimated cost of the query
+	 * @throws IllegalArgumentException if there is no such query or a year is malformed
+	 */
+	public static QueryCost estimate(AuthorNetwork network, String name, QueryParameters params) {
+		get(name);
+		boolean authors = AUTHOR_SCANS.contains(name);
+		if (!authors && !COAUTHORSHIP_SCANS.contains(name))
+			return SMALL;
+
+		Tuple<Long, Long> sizes = network.catalogSizes( min(network, params), max(network, params) );
+		if (authors)
+			return new QueryCost(SMALL.getBytes() + sizes.getFirst() * BYTES_PER_AUTHOR, sizes.getFirst());
+
+		long vertices = GRAPH_BUILDS.contains(name) ? network.getTotalAuthors() * BYTES_PER_VERTEX : 0;
+		return new QueryCost(SMALL.getBytes() + vertices + sizes.getSecond() * BYTES_PER_COAUTHORSHIP, sizes.getSecond());
+	}
+
+	/**
+	 * Checks if a query can be answered by a QueryBatch, with other queries, instead of on its own
+	 * @param name
+	 * @param params
+	 * @return true if the query is an interval query QueryBatch answers, and has no timeout of its own
+	 */
+	public static boolean canBatch(String name, QueryParameters params) {
+		return BATCHED.contains(name) && !params.has("timeout");
+	}
+
+	/**
+	 * Adds the query with the given name to a batch, if the batch can answer it
+	 * @param batch
+	 * @param network network the batch goes through
+	 * @param name
+	 * @param params
+	 * @return query giving the same result as the one registered under the name once the batch has run, or null if
+	 * the batch cannot answer it
+	 * @throws IllegalArgumentException if a parameter is missing or malformed
+	 */
+	public static QueryCommand batch(QueryBatch batch, AuthorNetwork network, String name, QueryParameters params) {
+		if (!canBatch(name, params))
+			return null;
+
+		final QueryBatch.Result<? extends NavigableSet<?>> result;
+		if (name.equals("topPublishers"))
+			result = batch.topPublishers(min(network, params), max(network, params), params.getInt("n"));
+		else
+			result = batch.topPairs(min(network, params), max(network, params), params.getInt("n"));
+
+		return new QueryCommand() {
+			public Object exec(AuthorNetwork network, QueryParameters p) {
+				return result.get().descendingSet();
+			}
+		};
+	}
+
+	/**
+	 * Returns the interval of a query, every year read by default
+	 * @param network
+	 * @param p
+	 * @return first and last year of the interval
+	 */
+	static Tuple<Integer, Integer> intervalOf(AuthorNetwork network, QueryParameters p) {
+		return new Tuple<Integer, Integer>(min(network, p), max(network, p));
+	}
+
+	/**
+	 * Returns the first year of the interval of a query, every year read by default
+	 * @param network
+	 * @param p
+	 * @return first year of the interval
+	 */
+	private static int min(AuthorNetwork network, QueryParameters p) {
+		return p.has("min") ? p.getInt("min") : network.getTotalPublications() == 0 ? 0 : network.getYearInterval().getFirst();
+	}
+
+	/**
+	 * Returns the last year of the interval of a query, every year read by default
+	 * @param network
+	 * @param p
+	 * @return last year of the interval
+	 */
+	private static int max(AuthorNetwork network, QueryParameters p) {
+		return p.has("max") ? p.getInt("max") : network.getTotalPublications() == 0 ? 0 : network.getYearInterval().getSecond();
+	}
+}
@@ -0,0 +1,34 @@
+package autores;
+
+/**
+ * Estimated cost of a query, worked out from the sizes of the catalogs it goes through before it runs
+ *
+ */
+
+public class QueryCost {
+	private long bytes;
+	private long work;
+
+	/**
+	 * Creates an estimate
+	 * @param bytes memory the query is expected to hold at once
+	 * @param work number of entries of the catalogs the query is expected to read
+	 */
+	public QueryCost(long bytes, long work) {
+		this.bytes = Math.max(0, bytes);
+		this.work = Math.max(0, work);
+	}
+
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	public long getWork() {
+		return this.work;
+	}
+
+	@Override
+	public String toString() {
+		return (this.bytes >> 20) + " MB, " + this.work + " entries";
+	}
+}
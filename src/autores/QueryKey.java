@@ -0,0 +1,46 @@
+package autores;
+
+import java.util.Arrays;
+
+/**
+ * Identifies a query by its type and parameters, to be used as a key for cached or shared results
+ *
+ */
+
+public class QueryKey {
+	private String type;
+	private Object[] params;
+
+	/**
+	 * Creates a key for a query of the given type with the given parameters
+	 * @param type
+	 * @param params
+	 */
+	public QueryKey(String type, Object... params) {
+		this.type = type;
+		this.params = params.clone();
+	}
+
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || o.getClass() != this.getClass()) return false;
+
+		QueryKey k = (QueryKey) o;
+		return this.type.equals(k.type) && Arrays.deepEquals(this.params, k.params);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * this.type.hashCode() + Arrays.deepHashCode(this.params);
+	}
+
+	@Override
+	public String toString() {
+		return this.type + Arrays.deepToString(this.params);
+	}
+}
@@ -0,0 +1,122 @@
+package autores;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Named parameters of a query, given as text and converted on demand.<br>
+ * A missing or malformed parameter is reported with an IllegalArgumentException naming it.
+ *
+ */
+
+public class QueryParameters {
+	private TreeMap<String, String> values;
+
+	/**
+	 * Creates an empty set of parameters
+	 */
+	public QueryParameters() {
+		this.values = new TreeMap<>();
+	}
+
+	/**
+	 * Creates a set of parameters with the given values
+	 * @param values
+	 */
+	public QueryParameters(Map<String, String> values) {
+		this.values = new TreeMap<>(values);
+	}
+
+	/**
+	 * Parses parameters written as name=value pairs separated by the given separator, ignoring empty pairs
+	 * @param text
+	 * @param separator
+	 * @return parameters read
+	 */
+	public static QueryParameters parse(String text, char separator) {
+		QueryParameters params = new QueryParameters();
+		if (text == null) return params;
+
+		for (String pair : text.split( Pattern.quote(String.valueOf(separator)) )) {
+			if (pair.trim().isEmpty()) continue;
+
+			int i = pair.indexOf('=');
+			if (i < 0) throw new IllegalArgumentException("Parameter without value: " + pair.trim());
+			params.put(pair.substring(0, i).trim(), pair.substring(i + 1).trim());
+		}
+
+		return params;
+	}
+
+	public void put(String name, String value) {
+		this.values.put(name, value);
+	}
+
+	public boolean has(String name) {
+		return this.values.containsKey(name);
+	}
+
+	/**
+	 * Returns the names and values of every parameter
+	 * @return names and values of every parameter
+	 */
+	public Map<String, String> asMap() {
+		return Collections.unmodifiableMap(this.values);
+	}
+
+	public String getString(String name) {
+		String value = this.values.get(name);
+		if (value == null) throw new IllegalArgumentException("Missing parameter: " + name);
+		return value;
+	}
+
+	public String getString(String name, String def) {
+		return this.has(name) ? this.values.get(name) : def;
+	}
+
+	public int getInt(String name) {
+		try {
+			return Integer.parseInt( this.getString(name) );
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Parameter " + name + " is not an integer: " + this.values.get(name));
+		}
+	}
+
+	public int getInt(String name, int def) {
+		return this.has(name) ? this.getInt(name) : def;
+	}
+
+	public double getDouble(String name) {
+		try {
+			return Double.parseDouble( this.getString(name) );
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Parameter " + name + " is not a number: " + this.values.get(name));
+		}
+	}
+
+	public boolean getBoolean(String name, boolean def) {
+		return this.has(name) ? Boolean.parseBoolean( this.values.get(name) ) : def;
+	}
+
+	/**
+	 * Returns the values of a parameter holding a list separated by semicolons
+	 * @param name
+	 * @return values of the list
+	 */
+	public List<String> getList(String name) {
+		ArrayList<String> res = new ArrayList<>();
+		for (String s : this.getString(name).split(";"))
+			if (!s.trim().isEmpty()) res.add( s.trim() );
+
+		return res;
+	}
+
+	@Override
+	public String toString() {
+		return this.values.toString();
+	}
+}
@@ -0,0 +1,14 @@
+package autores;
+
+/**
+ * Thrown instead of running a query that does not fit the budgets of an AdmissionController
+ *
+ */
+
+@SuppressWarnings("serial")
+public class QueryRejectedException extends RuntimeException {
+
+	public QueryRejectedException(String msg) {
+		super(msg);
+	}
+}
@@ -0,0 +1,329 @@
+package autores;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP front end answering every query of QueryCommands with JSON, listening on the loopback interface only.<br>
+ * <ul>
+ * 		<li>GET /queries lists the names of the queries;</li>
+ * 		<li>GET /metrics shows the counters of the server and of its AdmissionController;</li>
+ * 		<li>GET /query/NAME?param=value&amp;... runs a query, where offset and limit select the page of a collection
+ * 		result, 0 and PAGE_SIZE by default.</li>
+ * </ul>
+ * Each request is handled on a virtual thread when the runtime has them, and on a fixed pool of threads otherwise.
+ * Queries are answered from the published snapshot of the network, so requests never wait for each other, and the
+ * page is written item by item to a chunked response as it is serialized. Queries only run once the admission
+ * controller finds room for their estimated cost, and the ones it rejects are answered with 503. A query waits for
+ * its admission without holding a thread, so that queued queries never keep the handlers from other requests, and
+ * runs, once admitted, on a separate executor.
+ *
+ */
+
+public class QueryServer {
+	/** default number of items in a page, as shown by the menu */
+	public static final int PAGE_SIZE = 20;
+
+	/** number of connections waiting to be accepted */
+	private static final int BACKLOG = 4096;
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private AuthorNetwork network;
+	private AdmissionController admission;
+	private HttpServer server;
+	private ExecutorService executor;
+	private ExecutorService queries;
+	private boolean virtual;
+	private AtomicLong requests;
+	private AtomicLong failures;
+
+	/**
+	 * Creates a server for the given network on a port of the loopback interface, 0 for any free port
+	 * @param network
+	 * @param port
+	 * @throws IOException
+	 */
+	public QueryServer(AuthorNetwork network, int port) throws IOException {
+		this(network, port, AdmissionController.forRuntime());
+	}
+
+	/**
+	 * Creates a server for the given network on a port of the loopback interface, 0 for any free port, admitting
+	 * queries with the given controller
+	 * @param network
+	 * @param port
+	 * @param admission controller of the queries, or null to run every query at once
+	 * @throws IOException
+	 */
+	public QueryServer(AuthorNetwork network, int port, AdmissionController admission) throws IOException {
+		this.network = network;
+		this.admission = admission;
+		this.requests = new AtomicLong();
+		this.failures = new AtomicLong();
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+		this.executor = this.newExecutor("query-server", Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+		this.queries = this.newExecutor("query-runner", 0);
+
+		final QueryServer app = this;
+		this.server.createContext("/queries", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				app.handle(exchange, "queries", null);
+			}
+		});
+		this.server.createContext("/metrics", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				app.handle(exchange, "metrics", null);
+			}
+		});
+		this.server.createContext("/query/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				app.handle(exchange, exchange.getRequestURI().getPath().substring("/query/".length()), exchange.getRequestURI().getRawQuery());
+			}
+		});
+		this.server.setExecutor(this.executor);
+	}
+
+	public void start() {
+		this.server.start();
+	}
+
+	/**
+	 * Stops accepting requests, waiting at most the given number of seconds for the ones being answered
+	 * @param delay
+	 */
+	public void stop(int delay) {
+		this.server.stop(delay);
+		this.executor.shutdown();
+		this.queries.shutdown();
+	}
+
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	/**
+	 * Checks if requests run on virtual threads
+	 * @return true if requests run on virtual threads
+	 */
+	public boolean isVirtual() {
+		return this.virtual;
+	}
+
+	public long getRequests() {
+		return this.requests.get();
+	}
+
+	public long getFailures() {
+		return this.failures.get();
+	}
+
+	public AdmissionController getAdmission() {
+		return this.admission;
+	}
+
+	/**
+	 * Returns the counters of the server and of its admission controller
+	 * @return counters by name
+	 */
+	public Map<String, Long> getMetrics() {
+		LinkedHashMap<String, Long> res = new LinkedHashMap<>();
+		res.put("requests", this.requests.get());
+		res.put("failures", this.failures.get());
+		if (this.admission != null) res.putAll( this.admission.getMetrics() );
+		return res;
+	}
+
+	/**
+	 * Answers a request.<br>
+	 * A query is only admitted here, and runs once admitted on the executor of the queries, so a handler never
+	 * waits for the admission controller. The query runs before the response is started, so any error gets its own
+	 * status, as given by QueryCommands.statusOf
+	 * @param exchange
+	 * @param query name of the query
+	 * @param rawParams parameters of the query, as sent
+	 * @throws IOException
+	 */
+	private void handle(final HttpExchange exchange, final String query, String rawParams) throws IOException {
+		this.requests.incrementAndGet();
+
+		try {
+			if (!exchange.getRequestMethod().equals("GET"))
+				this.respond(exchange, query, 405, "Only GET is supported", null, 0, 0);
+			else if (query.equals("queries"))
+				this.respond(exchange, query, 200, null, QueryCommands.names(), 0, Integer.MAX_VALUE);
+			else if (query.equals("metrics"))
+				this.respond(exchange, query, 200, null, this.getMetrics(), 0, Integer.MAX_VALUE);
+			else {
+				final QueryParameters params = decode(rawParams);
+				final int offset = params.getInt("offset", 0);
+				final int limit = params.getInt("limit", PAGE_SIZE);
+				params.put("limit", String.valueOf(limit)); // so that paged queries only build the page
+
+				final QueryServer app = this;
+				QueryCommands.admitAsync(this.network, query, params, this.admission).whenCompleteAsync(new BiConsumer<QueryTracker, Throwable>() {
+					public void accept(QueryTracker tracker, Throwable failure) {
+						app.answer(exchange, query, params, offset, limit, tracker, failure);
+					}
+				}, this.queries);
+			}
+		} catch (RuntimeException e) {
+			this.respond(exchange, query, QueryCommands.statusOf(e), QueryCommands.messageOf(e), null, 0, 0);
+		}
+	}
+
+	/**
+	 * Runs an admitted query and writes its result, or writes why it was not admitted
+	 * @param exchange
+	 * @param query name of the query
+	 * @param params parameters of the query
+	 * @param offset first item of the page
+	 * @param limit number of items of the page
+	 * @param tracker tracker the query was admitted with, or null if it was not
+	 * @param failure why the query was not admitted, or null if it was
+	 */
+	private void answer(HttpExchange exchange, String query, QueryParameters params, int offset, int limit, QueryTracker tracker, Throwable failure) {
+		int status = 200;
+		String error = null;
+		Object result = null;
+
+		try {
+			if (failure instanceof CompletionException && failure.getCause() != null)
+				failure = failure.getCause();
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure != null)
+				throw new IllegalStateException(failure);
+
+			result = QueryCommands.run(this.network, query, params, tracker);
+		} catch (NoSuchAuthorException | NoSuchYearException | NoAuthorsInIntervalException | RuntimeException e) {
+			status = QueryCommands.statusOf(e);
+			error = QueryCommands.messageOf(e);
+		}
+
+		try {
+			this.respond(exchange, query, status, error, result, offset, limit);
+		} catch (IOException e) {
+			// the client is gone
+		}
+	}
+
+	/**
+	 * Writes the response to a request
+	 * @param exchange
+	 * @param query name of the query
+	 * @param status
+	 * @param error message of the failure, or null if the query was answered
+	 * @param result result of the query
+	 * @param offset first item of the page
+	 * @param limit number of items of the page
+	 * @throws IOException
+	 */
+	private void respond(HttpExchange exchange, String query, int status, String error, Object result, int offset, int limit) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+
+		try {
+			if (error != null) {
+				this.failures.incrementAndGet();
+				StringWriter sw = new StringWriter();
+				new JsonWriter(sw).writeError(status, error);
+				byte[] body = sw.toString().getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(status, body.length);
+				exchange.getResponseBody().write(body);
+			}
+			else {
+				exchange.sendResponseHeaders(status, 0);
+				Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE);
+				new JsonWriter(out).writePage(query, result, offset, limit);
+				out.flush();
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Decodes the parameters of a request URI
+	 * @param rawParams
+	 * @return parameters
+	 */
+	private static QueryParameters decode(String rawParams) {
+		QueryParameters params = new QueryParameters();
+		if (rawParams == null) return params;
+
+		for (String pair : rawParams.split("&")) {
+			if (pair.isEmpty()) continue;
+
+			int i = pair.indexOf('=');
+			String name = i < 0 ? pair : pair.substring(0, i);
+			String value = i < 0 ? "" : pair.substring(i + 1);
+			params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+
+		return params;
+	}
+
+	/**
+	 * Creates an executor of the server: one virtual thread per task if the runtime has them, looked up by
+	 * reflection so older runtimes still run the server, or else a pool of daemon threads
+	 * @param name name of the threads of the pool
+	 * @param threads number of threads of the pool, or 0 for as many as there are tasks, which the admission
+	 * controller already bounds
+	 * @return executor
+	 */
+	private ExecutorService newExecutor(final String name, int threads) {
+		try {
+			ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			this.virtual = true;
+			return executor;
+		} catch (ReflectiveOperationException e) {
+			this.virtual = false;
+			ThreadFactory factory = new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, name);
+					t.setDaemon(true);
+					return t;
+				}
+			};
+			return threads > 0 ? Executors.newFixedThreadPool(threads, factory) : Executors.newCachedThreadPool(factory);
+		}
+	}
+
+	/**
+	 * Serves the network read from the given file, a saved structure or a file of publications
+	 * @param args file name and, optionally, port
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: QueryServer FILE [PORT]");
+			return;
+		}
+
+		Crono.start();
+		AuthorNetwork network = AuthorNetwork.open(args[0]);
+		Crono.stop();
+		System.out.println(Crono.print());
+
+		QueryServer server = new QueryServer(network, args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+		server.start();
+		System.out.println("Listening on http://localhost:" + server.getPort() + "/ (" + (server.isVirtual() ? "virtual threads" : "thread pool") + ")");
+	}
+}
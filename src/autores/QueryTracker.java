@@ -0,0 +1,315 @@
+package autores;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Cancellation, deadline and progress of a running query.<br>
+ * A tracker is bound to the thread running the query, and the loops over years of the network call checkpoint()
+ * once per step; a checkpoint throws a QueryAbortedException, telling how many steps were done, as soon as the
+ * query is cancelled or its deadline has passed. Threads without a tracker pay only for a thread local lookup.<br>
+ * A tracker may also be given an allocation limit, checked at every checkpoint against the bytes allocated by
+ * the thread it was entered on, when the runtime counts them, and the bytes charged by the threads helping it.<br>
+ * A query expecting to read its result from the cache may leave its admission for later: it is then only admitted,
+ * and given its allocation limit, once it has to compute the result after all.
+ *
+ */
+
+public class QueryTracker {
+	private static final ThreadLocal<QueryTracker> CURRENT = new ThreadLocal<>();
+	private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+	private long start;
+	private long deadline;
+	private boolean timed;
+	private volatile boolean cancelled;
+	private volatile int done;
+	private volatile int total;
+	private long allocationLimit;
+	private long allocationStart;
+	private long threadId;
+	private volatile long helperAllocated;
+	private volatile boolean overAllocated;
+	private AdmissionController admission;
+	private QueryCost cost;
+	private AdmissionController.Ticket ticket;
+
+	/**
+	 * Creates a tracker for a query starting now
+	 * @param timeoutMillis time the query may take, or 0 or less for no deadline
+	 */
+	public QueryTracker(long timeoutMillis) {
+		this.start = System.nanoTime();
+		this.timed = timeoutMillis > 0;
+		this.deadline = this.start + Math.max(timeoutMillis, 0) * 1000000L;
+		this.cancelled = false;
+		this.done = 0;
+		this.total = 0;
+		this.allocationLimit = 0;
+		this.allocationStart = 0;
+		this.threadId = -1;
+		this.helperAllocated = 0;
+		this.overAllocated = false;
+		this.admission = null;
+		this.cost = null;
+		this.ticket = null;
+	}
+
+	/**
+	 * Returns the counter of the bytes allocated by each thread, or null if the runtime has none
+	 * @return counter of allocated bytes, or null
+	 */
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+		try {
+			if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+				if (threads.isThreadAllocatedMemorySupported()) {
+					threads.setThreadAllocatedMemoryEnabled(true);
+					return threads;
+				}
+			}
+		} catch (RuntimeException e) {
+			// not allowed to count allocations
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the bytes the query may allocate on its thread, from the moment the tracker is entered
+	 * @param bytes bytes the query may allocate, or 0 or less for no limit
+	 */
+	public void setAllocationLimit(long bytes) {
+		this.allocationLimit = Math.max(bytes, 0);
+	}
+
+	/**
+	 * Waits until the given controller admits the query, and limits what it may allocate from then on to what the
+	 * controller allows
+	 * @param admission
+	 * @param cost estimated cost of the query
+	 * @throws QueryRejectedException if the controller does not admit the query
+	 */
+	public void admit(AdmissionController admission, QueryCost cost) {
+		this.admitted(admission, admission.admit(cost));
+	}
+
+	/**
+	 * Takes the ticket the given controller admitted the query with, and limits what it may allocate from then on
+	 * to what the controller allows
+	 * @param admission
+	 * @param ticket ticket of the query, given back by release
+	 */
+	public void admitted(AdmissionController admission, AdmissionController.Ticket ticket) {
+		this.ticket = ticket;
+		this.admission = admission;
+		this.cost = null;
+		this.setAllocationLimit( this.ticket.getAllocationLimit() );
+		synchronized (this) {
+			this.helperAllocated = 0;
+		}
+		if (THREADS != null && this.threadId >= 0) this.allocationStart = THREADS.getThreadAllocatedBytes(this.threadId);
+	}
+
+	/**
+	 * Leaves the admission of the query for when it computes something, as it expects to read a result computed by
+	 * another query
+	 * @param admission
+	 * @param cost estimated cost of the query
+	 */
+	public void admitLater(AdmissionController admission, QueryCost cost) {
+		this.admission = admission;
+		this.cost = cost;
+	}
+
+	/**
+	 * Admits the query running on the current thread if its admission was left for later, before it computes a
+	 * result it expected to read
+	 * @throws QueryRejectedException if the controller does not admit the query
+	 */
+	public static void admitCurrent() {
+		QueryTracker tracker = CURRENT.get();
+		if (tracker != null && tracker.cost != null) tracker.admit(tracker.admission, tracker.cost);
+	}
+
+	/**
+	 * Gives back what the query reserved when it was admitted, if it was
+	 */
+	public void release() {
+		if (this.ticket != null) this.admission.release(this.ticket, this);
+		this.ticket = null;
+	}
+
+	/**
+	 * Checks if the allocations of a thread can be counted
+	 * @return true if the runtime counts the bytes allocated by each thread
+	 */
+	public static boolean countsAllocations() {
+		return THREADS != null;
+	}
+
+	/**
+	 * Returns the tracker of the query running on the current thread, or null if there is none
+	 * @return tracker of the current query, or null
+	 */
+	public static QueryTracker current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Binds this tracker to the current thread
+	 * @return tracker that was bound to the thread before, to be given back to exit
+	 */
+	public QueryTracker enter() {
+		QueryTracker previous = CURRENT.get();
+		CURRENT.set(this);
+		this.threadId = Thread.currentThread().getId();
+		if (THREADS != null) this.allocationStart = THREADS.getThreadAllocatedBytes(this.threadId);
+		return previous;
+	}
+
+	/**
+	 * Unbinds this tracker from the current thread, binding back the one it replaced
+	 * @param previous tracker returned by enter
+	 */
+	public void exit(QueryTracker previous) {
+		if (previous == null) CURRENT.remove();
+		else CURRENT.set(previous);
+	}
+
+	/**
+	 * Announces that the query running on the current thread has the given number of steps ahead
+	 * @param steps
+	 */
+	public static void begin(int steps) {
+		QueryTracker tracker = CURRENT.get();
+		if (tracker != null) tracker.total += Math.max(steps, 0);
+	}
+
+	/**
+	 * Marks one step of the query running on the current thread as done, aborting it if it was cancelled or is late
+	 * @throws QueryAbortedException
+	 */
+	public static void checkpoint() {
+		checkpoint(1);
+	}
+
+	/**
+	 * Marks the given number of steps of the query running on the current thread as done, aborting it if it was
+	 * cancelled or is late
+	 * @param steps
+	 * @throws QueryAbortedException
+	 */
+	public static void checkpoint(int steps) {
+		QueryTracker tracker = CURRENT.get();
+		if (tracker != null) tracker.advance(steps);
+	}
+
+	/**
+	 * Marks the given number of steps of this query as done, aborting it if it was cancelled or is late.<br>
+	 * Used by the threads helping the thread of the query, which have no tracker bound to them.
+	 * @param steps
+	 * @throws QueryAbortedException
+	 */
+	public void advance(int steps) {
+		synchronized (this) {
+			this.done += steps;
+		}
+		this.check();
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the current thread, to be given to charge once the thread did some work
+	 * for this query.<br>
+	 * The thread the tracker was entered on counts its allocations already, and gets -1, as does any thread when the
+	 * runtime does not count them.
+	 * @return bytes allocated by the current thread, or -1 if they shall not be charged
+	 */
+	public long allocationMark() {
+		if (THREADS == null) return -1;
+
+		long id = Thread.currentThread().getId();
+		return id == this.threadId ? -1 : Math.max(THREADS.getThreadAllocatedBytes(id), -1);
+	}
+
+	/**
+	 * Charges this query with the bytes allocated by the current thread since the given mark.<br>
+	 * Used by the threads helping the thread of the query, whose allocations it does not count otherwise.
+	 * @param mark mark returned by allocationMark, or by the previous charge
+	 * @return mark to give to the next charge
+	 */
+	public long charge(long mark) {
+		if (mark < 0) return mark;
+
+		long allocated = THREADS.getThreadAllocatedBytes( Thread.currentThread().getId() );
+		if (allocated < 0) return -1;
+		synchronized (this) {
+			this.helperAllocated += allocated - mark;
+		}
+		return allocated;
+	}
+
+	/**
+	 * Aborts the query if it was cancelled or its deadline has passed
+	 * @throws QueryAbortedException
+	 */
+	public void check() {
+		if (this.cancelled)
+			throw new QueryAbortedException("cancelled", this.done, this.total, this.getElapsedMillis());
+		if (this.timed && System.nanoTime() - this.deadline > 0)
+			throw new QueryAbortedException("timed out", this.done, this.total, this.getElapsedMillis());
+		if (this.allocationLimit > 0 && this.getAllocatedBytes() > this.allocationLimit) {
+			this.overAllocated = true;
+			throw new QueryAbortedException("over its allocation of " + (this.allocationLimit >> 20) + " MB", this.done, this.total, this.getElapsedMillis());
+		}
+	}
+
+	/**
+	 * Returns the bytes allocated by the thread of the query since the tracker was entered, and the ones charged by
+	 * the threads helping it
+	 * @return bytes allocated, or 0 if they are not counted
+	 */
+	public long getAllocatedBytes() {
+		if (THREADS == null || this.threadId < 0) return this.helperAllocated;
+		long allocated = THREADS.getThreadAllocatedBytes(this.threadId);
+		return (allocated < 0 ? 0 : allocated - this.allocationStart) + this.helperAllocated;
+	}
+
+	/**
+	 * Checks if the query was aborted for allocating more than its limit
+	 * @return true if the query went over its allocation limit
+	 */
+	public boolean isOverAllocated() {
+		return this.overAllocated;
+	}
+
+	/**
+	 * Asks the query to stop at its next checkpoint
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	public int getDone() {
+		return this.done;
+	}
+
+	public int getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * Returns the fraction of the announced steps that are done
+	 * @return fraction of the steps done, 0 if none was announced
+	 */
+	public double getProgress() {
+		int total = this.total;
+		return total == 0 ? 0 : Math.min(1.0, (double) this.done / total);
+	}
+
+	public long getElapsedMillis() {
+		return (System.nanoTime() - this.start) / 1000000L;
+	}
+}
@@ -0,0 +1,160 @@
+package autores;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Names read one at a time, in the order of an AuthorNameIndex, as a result is paged through.<br>
+ * The names come from a range of the index, from a sorted array of positions, or from several sorted arrays, one per
+ * year, intersected as the cursor advances: the intersection goes through the smallest array, looking for each of its
+ * positions in the other ones. Nothing is read past the last name asked for, so the first page of a large result
+ * costs about as much as the page itself.
+ *
+ */
+
+public abstract class RankCursor implements Iterator<String> {
+	protected AuthorNameIndex index;
+	private int next;
+
+	/**
+	 * Creates a cursor over the given index
+	 * @param index index the positions refer to
+	 */
+	protected RankCursor(AuthorNameIndex index) {
+		this.index = index;
+		this.next = -2;
+	}
+
+	/**
+	 * Returns the names at the positions from lo, inclusive, to hi, exclusive
+	 * @param index
+	 * @param lo first position
+	 * @param hi position after the last one
+	 * @return cursor over the names in the range
+	 */
+	public static RankCursor range(AuthorNameIndex index, final int lo, final int hi) {
+		return new RankCursor(index) {
+			private int rank = lo;
+
+			protected int advance() {
+				return this.rank < hi ? this.rank++ : -1;
+			}
+		};
+	}
+
+	/**
+	 * Returns the names at the positions of the given array
+	 * @param index
+	 * @param ranks sorted positions, each one once
+	 * @return cursor over the names at the positions
+	 */
+	public static RankCursor of(AuthorNameIndex index, final int[] ranks) {
+		return new RankCursor(index) {
+			private int at = 0;
+
+			protected int advance() {
+				return this.at < ranks.length ? ranks[this.at++] : -1;
+			}
+		};
+	}
+
+	/**
+	 * Returns the names at the positions found in every one of the given arrays
+	 * @param index
+	 * @param ranks sorted arrays of positions
+	 * @return cursor over the names in every array
+	 */
+	public static RankCursor intersection(AuthorNameIndex index, int[][] ranks) {
+		return new Intersection(index, ranks);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (this.next == -2) this.next = this.advance();
+		return this.next >= 0;
+	}
+
+	@Override
+	public String next() {
+		if (!this.hasNext()) throw new NoSuchElementException();
+
+		String name = this.index.nameAt(this.next);
+		this.next = -2;
+		return name;
+	}
+
+	/**
+	 * Moves to the next position of the result
+	 * @return next position, or -1 past the last one
+	 */
+	protected abstract int advance();
+
+	/**
+	 * Goes through the smallest array, moving forward in the other ones with a galloping search
+	 */
+	private static class Intersection extends RankCursor {
+		private int[][] ranks;
+		private int[] at;
+		private int smallest;
+
+		public Intersection(AuthorNameIndex index, int[][] ranks) {
+			super(index);
+			this.ranks = ranks;
+			this.at = new int[ranks.length];
+			this.smallest = 0;
+
+			for (int i = 1; i < ranks.length; i++)
+				if (ranks[i].length < ranks[this.smallest].length) this.smallest = i;
+		}
+
+		protected int advance() {
+			if (this.ranks.length == 0) return -1;
+
+			int[] candidates = this.ranks[this.smallest];
+			candidates:
+			while (this.at[this.smallest] < candidates.length) {
+				int rank = candidates[this.at[this.smallest]++];
+
+				for (int i = 0; i < this.ranks.length; i++) {
+					if (i == this.smallest) continue;
+
+					this.at[i] = gallop(this.ranks[i], this.at[i], rank);
+					if (this.at[i] >= this.ranks[i].length) {
+						this.at[this.smallest] = candidates.length;
+						return -1;
+					}
+					if (this.ranks[i][this.at[i]] != rank) continue candidates;
+				}
+
+				return rank;
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Returns the first position, from the given one, of an array whose value is not smaller than the key
+		 * @param array sorted array
+		 * @param from first position to look at
+		 * @param key
+		 * @return first position not smaller than the key, or the length of the array
+		 */
+		private static int gallop(int[] array, int from, int key) {
+			int step = 1, hi = from;
+			while (hi < array.length && array[hi] < key) {
+				from = hi + 1;
+				hi += step;
+				step <<= 1;
+			}
+
+			hi = Math.min(hi, array.length);
+			while (from < hi) {
+				int mid = (from + hi) >>> 1;
+				if (array[mid] < key) from = mid + 1;
+				else hi = mid;
+			}
+
+			return from;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package autores;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Page of a longer result, built without the items before or after it
+ *
+ */
+
+public class ResultPage<T> extends AbstractList<T> {
+	private List<T> items;
+	private int total;
+	private int offset;
+
+	/**
+	 * Creates a page
+	 * @param items items of the page
+	 * @param total number of items of the whole result
+	 * @param offset position of the first item of the page in the whole result
+	 */
+	public ResultPage(List<T> items, int total, int offset) {
+		this.items = items;
+		this.total = total;
+		this.offset = offset;
+	}
+
+	@Override
+	public T get(int index) {
+		return this.items.get(index);
+	}
+
+	/**
+	 * Returns the number of items of the page
+	 */
+	@Override
+	public int size() {
+		return this.items.size();
+	}
+
+	/**
+	 * Returns the number of items of the whole result
+	 * @return number of items of the whole result
+	 */
+	public int getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * Returns the position of the first item of the page in the whole result
+	 * @return position of the first item of the page
+	 */
+	public int getOffset() {
+		return this.offset;
+	}
+}
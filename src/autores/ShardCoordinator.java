@@ -0,0 +1,441 @@
+package autores;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Answers queries over a network partitioned by author among ShardWorkers, usually each one in its own process.<br>
+ * A query is sent to every shard at the same time and their answers are merged: the top publishers and pairs
+ * of each shard are exact, since an author, and any pair holding it, is only counted by the shard owning the author,
+ * so the best of the union of the top lists of the shards is the top list of the whole network. Queries about
+ * given authors are only sent to the shards owning them. The totals of the network are asked for once, the shards
+ * being read before they are connected to.
+ *
+ */
+
+public class ShardCoordinator {
+	private static final String JAVA = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+	private List<Connection> shards;
+	private List<Process> processes;
+	private ExecutorService executor;
+	private int[] stats;
+
+	/**
+	 * Connects to running shards
+	 * @param addresses address of every shard, in the order of their indexes
+	 * @throws IOException if a shard cannot be reached or does not have the index of its position
+	 */
+	public ShardCoordinator(List<InetSocketAddress> addresses) throws IOException {
+		final int nrShards = addresses.size();
+		this.shards = new ArrayList<>();
+		this.processes = new ArrayList<>();
+		this.executor = Executors.newFixedThreadPool(Math.max(1, nrShards), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "shard-coordinator");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		try {
+			for (InetSocketAddress address : addresses)
+				this.shards.add( new Connection(address) );
+
+			for (int i = 0; i < nrShards; i++) {
+				String[] info = this.shards.get(i).request("info").get(0);
+				if (Integer.parseInt(info[0]) != i || Integer.parseInt(info[1]) != nrShards)
+					throw new IOException("Shard " + info[0] + " of " + info[1] + " found at position " + i + " of " + nrShards);
+			}
+		} catch (IOException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Starts a process for every shard of a file of publications on this machine, and connects to them
+	 * @param filename file of publications
+	 * @param nrShards number of shards
+	 * @return coordinator of the shards, which stops them when closed
+	 * @throws IOException if a shard fails to start
+	 */
+	public static ShardCoordinator launch(String filename, int nrShards) throws IOException {
+		ArrayList<Process> processes = new ArrayList<>();
+		ArrayList<InetSocketAddress> addresses = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < nrShards; i++) {
+				ProcessBuilder pb = new ProcessBuilder(JAVA, "-cp", System.getProperty("java.class.path"), ShardWorker.class.getName(), filename, "" + i, "" + nrShards);
+				pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+				processes.add( pb.start() );
+			}
+
+			// the shards read the file at the same time
+			for (Process p : processes) {
+				BufferedReader out = new BufferedReader( new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8) );
+				String line = out.readLine();
+				if (line == null || !line.startsWith("READY "))
+					throw new IOException("Shard " + addresses.size() + " failed to start");
+
+				addresses.add( new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt( line.substring(6).trim() )) );
+			}
+		} catch (IOException e) {
+			for (Process p : processes) p.destroy();
+			throw e;
+		}
+
+		ShardCoordinator coordinator;
+		try {
+			coordinator = new ShardCoordinator(addresses);
+		} catch (IOException e) {
+			for (Process p : processes) p.destroy();
+			throw e;
+		}
+		coordinator.processes = processes;
+		return coordinator;
+	}
+
+	public int getNrShards() {
+		return this.shards.size();
+	}
+
+	public int getTotalPublications() throws IOException {
+		return this.sumStats(0);
+	}
+
+	public int getTotalNamesRead() throws IOException {
+		return this.sumStats(1);
+	}
+
+	public int getSoloPublications() throws IOException {
+		return this.sumStats(2);
+	}
+
+	public int getTotalAuthors() throws IOException {
+		return this.sumStats(3);
+	}
+
+	public int getTotalSoloAuthors() throws IOException {
+		return this.sumStats(4);
+	}
+
+	public int getTotalNonSoloAuthors() throws IOException {
+		return this.sumStats(5);
+	}
+
+	/**
+	 * Returns the number of publications of every year
+	 * @return number of publications by year
+	 * @throws IOException
+	 */
+	public NavigableMap<Integer, Integer> getYearTable() throws IOException {
+		TreeMap<Integer, Integer> table = new TreeMap<>();
+		for (List<String[]> rows : this.scatter("yearTable"))
+			for (String[] row : rows) {
+				int year = Integer.parseInt(row[0]);
+				Integer n = table.get(year);
+				table.put(year, (n == null ? 0 : n) + Integer.parseInt(row[1]));
+			}
+
+		return table;
+	}
+
+	/**
+	 * Returns the authors who published the most in the given interval
+	 * @param min first year
+	 * @param max last year
+	 * @param nrAuthors number of authors
+	 * @return set of the top publishers, by increasing number of publications
+	 * @throws IOException
+	 */
+	public NavigableSet<Tuple<String, Integer>> topPublishersInInterval(int min, int max, int nrAuthors) throws IOException {
+		HashMap<String, Integer> totals = new HashMap<>();
+		for (List<String[]> rows : this.scatter("topPublishers min=" + min + ", max=" + max + ", n=" + nrAuthors))
+			for (String[] row : rows)
+				totals.put(row[0], Integer.parseInt(row[1]));
+
+		TreeSet<Tuple<String, Integer>> res = new TreeSet<>( new AuthorPubsTupleComparator() );
+		for (Map.Entry<String, Integer> e : ShardWorker.selectTop(totals, nrAuthors, new ShardWorker.NameComparator()))
+			res.add( new Tuple<String, Integer>(e.getKey(), e.getValue()) );
+
+		return res;
+	}
+
+	/**
+	 * Returns the pairs of authors who published the most together in the given interval
+	 * @param min first year
+	 * @param max last year
+	 * @param nrAuthors number of pairs
+	 * @return set of the top pairs, by increasing number of publications
+	 * @throws IOException
+	 */
+	public NavigableSet<Tuple<Tuple<String, String>, Integer>> topPairs(int min, int max, int nrAuthors) throws IOException {
+		// a pair is counted by the owners of both of its authors, with the same total
+		TreeMap<Tuple<String, String>, Integer> totals = new TreeMap<>( new AuthorTupleComparator() );
+		for (List<String[]> rows : this.scatter("topPairs min=" + min + ", max=" + max + ", n=" + nrAuthors))
+			for (String[] row : rows)
+				totals.put(new Tuple<String, String>(row[0], row[1]), Integer.parseInt(row[2]));
+
+		TreeSet<Tuple<Tuple<String, String>, Integer>> res = new TreeSet<>( new PairPubsTupleComparator() );
+		for (Map.Entry<Tuple<String, String>, Integer> e : ShardWorker.selectTop(totals, nrAuthors, new AuthorTupleComparator()))
+			res.add( new Tuple<Tuple<String, String>, Integer>(e.getKey(), e.getValue()) );
+
+		return res;
+	}
+
+	/**
+	 * Returns the coauthors of an author, asking only the shard owning it
+	 * @param name
+	 * @return set with the names of the coauthors
+	 * @throws IOException
+	 */
+	public NavigableSet<String> getCoauthorsOf(String name) throws IOException {
+		return names( this.ownerOf(name).request("coauthorsOf name=" + name) );
+	}
+
+	/**
+	 * Returns the coauthors common to every one of the given authors in an interval
+	 * @param authors
+	 * @param min first year
+	 * @param max last year
+	 * @return set with the names of the common coauthors
+	 * @throws IOException
+	 */
+	public NavigableSet<String> commonCoauthors(Collection<String> authors, final int min, final int max) throws IOException {
+		ArrayList<Callable<List<String[]>>> requests = new ArrayList<>();
+		for (final String author : authors) {
+			final Connection owner = this.ownerOf(author);
+			requests.add(new Callable<List<String[]>>() {
+				public List<String[]> call() throws IOException {
+					return owner.request("coauthorsOf name=" + author + ", min=" + min + ", max=" + max);
+				}
+			});
+		}
+
+		NavigableSet<String> res = null;
+		for (List<String[]> rows : this.gather(requests)) {
+			if (res == null) res = names(rows);
+			else res.retainAll( names(rows) );
+		}
+
+		return res == null ? new TreeSet<String>() : res;
+	}
+
+	/**
+	 * Returns the authors who published in every year of the given interval
+	 * @param min first year
+	 * @param max last year
+	 * @return set with the names of the authors
+	 * @throws NoAuthorsInIntervalException if no author published in every year of the interval
+	 * @throws IOException
+	 */
+	public NavigableSet<String> authorsInInterval(int min, int max) throws NoAuthorsInIntervalException, IOException {
+		TreeSet<String> res = new TreeSet<>();
+		for (List<String[]> rows : this.scatter("authorsInInterval min=" + min + ", max=" + max))
+			res.addAll( names(rows) );
+
+		if (res.isEmpty()) throw new NoAuthorsInIntervalException();
+		return res;
+	}
+
+	/**
+	 * Returns the number of authors with more publications than the given number
+	 * @param nrPublications
+	 * @return number of authors
+	 * @throws IOException
+	 */
+	public int nrAuthorsWithOver(int nrPublications) throws IOException {
+		int total = 0;
+		for (List<String[]> rows : this.scatter("nrAuthorsWithOver n=" + nrPublications))
+			total += Integer.parseInt( rows.get(0)[0] );
+
+		return total;
+	}
+
+	/**
+	 * Closes the connections to the shards, stopping the ones started by launch
+	 */
+	public void close() {
+		for (Connection c : this.shards) c.close();
+		for (Process p : this.processes) p.destroy();
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Returns a total of the network, adding up the totals of every shard the first time one is asked for
+	 * @param field position of the total in the answer to "stats"
+	 * @return total of the network
+	 * @throws IOException
+	 */
+	private synchronized int sumStats(int field) throws IOException {
+		if (this.stats == null) {
+			int[] stats = null;
+			for (List<String[]> rows : this.scatter("stats")) {
+				String[] row = rows.get(0);
+				if (stats == null) stats = new int[row.length];
+				for (int i = 0; i < row.length; i++) stats[i] += Integer.parseInt(row[i]);
+			}
+			this.stats = stats;
+		}
+
+		return this.stats[field];
+	}
+
+	private Connection ownerOf(String name) {
+		return this.shards.get( ShardWorker.ownerOf(name, this.shards.size()) );
+	}
+
+	private static NavigableSet<String> names(List<String[]> rows) {
+		TreeSet<String> res = new TreeSet<>();
+		for (String[] row : rows) res.add(row[0]);
+		return res;
+	}
+
+	/**
+	 * Sends a request to every shard at the same time
+	 * @param request
+	 * @return answer of every shard, in the order of the shards
+	 * @throws IOException
+	 */
+	private List<List<String[]>> scatter(final String request) throws IOException {
+		ArrayList<Callable<List<String[]>>> requests = new ArrayList<>();
+		for (final Connection c : this.shards)
+			requests.add(new Callable<List<String[]>>() {
+				public List<String[]> call() throws IOException {
+					return c.request(request);
+				}
+			});
+
+		return this.gather(requests);
+	}
+
+	private List<List<String[]>> gather(List<Callable<List<String[]>>> requests) throws IOException {
+		ArrayList<Future<List<String[]>>> futures = new ArrayList<>();
+		for (Callable<List<String[]>> r : requests)
+			futures.add( this.executor.submit(r) );
+
+		ArrayList<List<String[]>> res = new ArrayList<>();
+		try {
+			for (Future<List<String[]>> f : futures)
+				res.add( f.get() );
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new IOException( e.getCause() );
+		}
+
+		return res;
+	}
+
+	/**
+	 * Connection to a shard, used by one request at a time
+	 */
+	private static class Connection {
+		private Socket socket;
+		private BufferedReader in;
+		private Writer out;
+
+		public Connection(InetSocketAddress address) throws IOException {
+			this.socket = new Socket(address.getAddress(), address.getPort());
+			this.socket.setTcpNoDelay(true);
+			this.in = new BufferedReader( new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8) );
+			this.out = new BufferedWriter( new OutputStreamWriter(this.socket.getOutputStream(), StandardCharsets.UTF_8) );
+		}
+
+		/**
+		 * Sends a request and reads its answer
+		 * @param request
+		 * @return fields of every line of the answer
+		 * @throws IOException if the shard cannot be reached
+		 * @throws IllegalArgumentException if the shard did not accept the request
+		 */
+		public synchronized List<String[]> request(String request) throws IOException {
+			this.out.write(request + "\n");
+			this.out.flush();
+
+			String status = this.in.readLine();
+			if (status == null) throw new IOException("Shard closed the connection");
+			if (status.startsWith("ERR ")) throw new IllegalArgumentException( status.substring(4) );
+
+			int n = Integer.parseInt( status.substring(3) );
+			ArrayList<String[]> rows = new ArrayList<>(n);
+			for (int i = 0; i < n; i++) {
+				String line = this.in.readLine();
+				if (line == null) throw new IOException("Shard closed the connection");
+				rows.add( line.split("\t", -1) );
+			}
+
+			return rows;
+		}
+
+		public void close() {
+			try {
+				this.socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Starts the shards of a file of publications and shows a few queries answered by them
+	 * @param args file of publications, number of shards
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.out.println("Usage: ShardCoordinator FILE SHARDS");
+			return;
+		}
+
+		Crono.start();
+		ShardCoordinator coordinator = launch(args[0], Integer.parseInt(args[1]));
+		Crono.stop();
+		System.out.println("Started " + args[1] + " shards - " + Crono.print());
+
+		try {
+			NavigableMap<Integer, Integer> years = coordinator.getYearTable();
+			System.out.println(coordinator.getTotalPublications() + " publications, " + coordinator.getTotalAuthors() + " authors");
+
+			Crono.start();
+			for (Tuple<String, Integer> t : coordinator.topPublishersInInterval(years.firstKey(), years.lastKey(), 10).descendingSet())
+				System.out.println(t.getSecond() + "\t" + t.getFirst());
+			Crono.stop();
+			System.out.println("Top publishers - " + Crono.print());
+
+			Crono.start();
+			for (Tuple<Tuple<String, String>, Integer> t : coordinator.topPairs(years.firstKey(), years.lastKey(), 10).descendingSet())
+				System.out.println(t.getSecond() + "\t" + t.getFirst().getFirst() + ", " + t.getFirst().getSecond());
+			Crono.stop();
+			System.out.println("Top pairs - " + Crono.print());
+		} finally {
+			coordinator.close();
+		}
+	}
+}
@@ -0,0 +1,342 @@
+package autores;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One shard of a network partitioned by author.<br>
+ * Every author is owned by the shard given by ownerOf, and the shard keeps every publication with at least one
+ * author it owns, but only the information of the authors it owns. The counts of an author, and of a pair of
+ * coauthors, are therefore exact on its owner and absent everywhere else, which lets a ShardCoordinator merge the
+ * answers of the shards without a second round. The publications, names and years are counted by the shard
+ * owning the first author of each publication only, so that they add up across shards.<br>
+ * The shard answers queries over a socket on the loopback interface, one line per request holding the name of
+ * the query followed by its parameters, as in
+ * <pre>topPublishers min=1990, max=2000, n=10</pre>
+ * and answers "OK n" followed by n lines of tab separated fields, or "ERR message". Author names never
+ * hold commas, tabs or line breaks, since commas separate them in the files read. Queries are answered at the same
+ * time, each connection on its own thread, and only wait for publications being added.
+ *
+ */
+
+public class ShardWorker {
+	private int shard;
+	private int nrShards;
+	private GlobalAuthorNetwork network;
+	private TreeMap<Integer, Integer> yearTable;
+	private int totalPublications;
+	private int totalNames;
+	private int soloPublications;
+	private ServerSocket server;
+	private ReentrantReadWriteLock lock;
+
+	/**
+	 * Creates an empty shard
+	 * @param shard index of the shard, from 0 to nrShards - 1
+	 * @param nrShards number of shards of the network
+	 */
+	public ShardWorker(int shard, int nrShards) {
+		if (shard < 0 || shard >= nrShards)
+			throw new IllegalArgumentException("Shard " + shard + " of " + nrShards);
+
+		this.shard = shard;
+		this.nrShards = nrShards;
+		this.network = new GlobalAuthorNetwork();
+		this.yearTable = new TreeMap<>();
+		this.totalPublications = 0;
+		this.totalNames = 0;
+		this.soloPublications = 0;
+		this.lock = new ReentrantReadWriteLock();
+	}
+
+	/**
+	 * Returns the shard owning the given author
+	 * @param name
+	 * @param nrShards number of shards of the network
+	 * @return index of the shard owning the author
+	 */
+	public static int ownerOf(String name, int nrShards) {
+		return Math.floorMod(name.hashCode(), nrShards);
+	}
+
+	public int getShard() {
+		return this.shard;
+	}
+
+	public int getNrShards() {
+		return this.nrShards;
+	}
+
+	/**
+	 * Reads the publications of a file that belong to this shard
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void readFromFile(String filename) throws IOException {
+		BufferedReader br = new BufferedReader( new FileReader(filename) );
+		String line = br.readLine();
+
+		while (line != null) {
+			if (line.length() > 1) {
+				List<String> args = AuthorNetwork.getLineArgs(line);
+				this.addPublication( Integer.parseInt( args.get(args.size() - 1) ), args.subList(0, args.size() - 1) );
+			}
+
+			line = br.readLine();
+		}
+
+		br.close();
+	}
+
+	/**
+	 * Adds a publication, keeping only the information of the authors this shard owns.<br>
+	 * The year is always added, even when the shard owns none of the authors, so that every shard goes through
+	 * the same years when looking for the authors who published in every year of an interval; nothing else is kept of
+	 * such a publication. A publication with no author at all is counted by the first shard.
+	 * @param year
+	 * @param authors
+	 */
+	public void addPublication(int year, List<String> authors) {
+		ArrayList<String> owned = new ArrayList<>();
+		for (String author : authors)
+			if (ownerOf(author, this.nrShards) == this.shard) owned.add(author);
+
+		this.lock.writeLock().lock();
+		try {
+			this.network.addPublication(year, authors, owned);
+
+			if (authors.isEmpty() ? this.shard == 0 : ownerOf(authors.get(0), this.nrShards) == this.shard) {
+				Integer n = this.yearTable.get(year);
+				this.yearTable.put(year, n == null ? 1 : n + 1);
+				this.totalPublications++;
+				this.totalNames += authors.size();
+				if (authors.size() == 1) this.soloPublications++;
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Answers a query of the protocol
+	 * @param name name of the query
+	 * @param params
+	 * @return lines of the answer, each one with its fields
+	 * @throws IllegalArgumentException if the query is unknown or its parameters are missing or malformed
+	 */
+	public List<String[]> answer(String name, QueryParameters params) {
+		this.lock.readLock().lock();
+		try {
+			return this.answerLocked(name, params);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	private List<String[]> answerLocked(String name, QueryParameters params) {
+		ArrayList<String[]> rows = new ArrayList<>();
+		// every shard has every year, even the ones where it counts no publication
+		NavigableMap<Integer, Integer> years = this.network.getYearTable();
+		int min = params.getInt("min", years.isEmpty() ? 0 : years.firstKey());
+		int max = params.getInt("max", years.isEmpty() ? 0 : years.lastKey());
+
+		switch (name) {
+		case "info":
+			rows.add( new String[] { "" + this.shard, "" + this.nrShards } );
+			break;
+		case "stats":
+			rows.add( new String[] { "" + this.totalPublications, "" + this.totalNames, "" + this.soloPublications, "" + this.network.nrAuthorsWithOver(0),
+					"" + this.network.getSoloAuthors().size(), "" + this.network.getNonSoloAuthors().size() } );
+			break;
+		case "yearTable":
+			for (Map.Entry<Integer, Integer> e : this.yearTable.entrySet())
+				rows.add( new String[] { "" + e.getKey(), "" + e.getValue() } );
+			break;
+		case "topPublishers":
+			for (Map.Entry<String, Integer> e : selectTop(this.network.authorTotals(min, max), params.getInt("n"), new NameComparator()))
+				rows.add( new String[] { e.getKey(), "" + e.getValue() } );
+			break;
+		case "topPairs":
+			for (Map.Entry<Tuple<String, String>, Integer> e : selectTop(this.network.pairTotals(min, max), params.getInt("n"), new AuthorTupleComparator()))
+				rows.add( new String[] { e.getKey().getFirst(), e.getKey().getSecond(), "" + e.getValue() } );
+			break;
+		case "coauthorsOf":
+			for (String s : this.network.getCommonCoauthors(Collections.singletonList( params.getString("name") ), min, max))
+				rows.add( new String[] { s } );
+			break;
+		case "authorsInInterval":
+			try {
+				for (String s : this.network.authorsInInterval(min, max))
+					rows.add( new String[] { s } );
+			} catch (NoAuthorsInIntervalException e) {
+				// none of the authors of this shard, which may not be the case of the others
+			}
+			break;
+		case "nrAuthorsWithOver":
+			rows.add( new String[] { "" + this.network.nrAuthorsWithOver( params.getInt("n") ) } );
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown query " + name);
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Returns the entries with the largest values, the largest first and ties by key
+	 * @param totals
+	 * @param n number of entries
+	 * @param keys order of the keys
+	 * @return entries with the largest values
+	 */
+	public static <K> List<Map.Entry<K, Integer>> selectTop(Map<K, Integer> totals, int n, final Comparator<? super K> keys) {
+		final Comparator<Map.Entry<K, Integer>> order = new Comparator<Map.Entry<K, Integer>>() {
+			public int compare(Map.Entry<K, Integer> e1, Map.Entry<K, Integer> e2) {
+				int c = Integer.compare(e2.getValue(), e1.getValue());
+				return c != 0 ? c : keys.compare(e1.getKey(), e2.getKey());
+			}
+		};
+
+		// the worst entry kept is at the head, to be replaced by a better one
+		PriorityQueue<Map.Entry<K, Integer>> heap = new PriorityQueue<>(Math.max(1, n), Collections.reverseOrder(order));
+		for (Map.Entry<K, Integer> e : totals.entrySet()) {
+			if (heap.size() < n) heap.add(e);
+			else if (n > 0 && order.compare(e, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(e);
+			}
+		}
+
+		ArrayList<Map.Entry<K, Integer>> res = new ArrayList<>(heap);
+		Collections.sort(res, order);
+		return res;
+	}
+
+	/**
+	 * Starts answering queries on a port of the loopback interface
+	 * @param port port to listen on, 0 for any free port
+	 * @return port listened on
+	 * @throws IOException
+	 */
+	public int start(int port) throws IOException {
+		this.server = new ServerSocket();
+		this.server.bind( new InetSocketAddress(InetAddress.getLoopbackAddress(), port) );
+
+		final ShardWorker worker = this;
+		Thread acceptor = new Thread(new Runnable() {
+			public void run() {
+				try {
+					for (;;) {
+						final Socket socket = worker.server.accept();
+						Thread t = new Thread(new Runnable() {
+							public void run() {
+								worker.serve(socket);
+							}
+						}, "shard-" + worker.shard + "-connection");
+						t.setDaemon(true);
+						t.start();
+					}
+				} catch (IOException e) {
+					// the server socket was closed
+				}
+			}
+		}, "shard-" + this.shard);
+		acceptor.setDaemon(true);
+		acceptor.start();
+
+		return this.server.getLocalPort();
+	}
+
+	/**
+	 * Answers the requests of a connection until it is closed
+	 * @param socket
+	 */
+	private void serve(Socket socket) {
+		try {
+			BufferedReader in = new BufferedReader( new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8) );
+			Writer out = new BufferedWriter( new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8) );
+			String line = in.readLine();
+
+			while (line != null) {
+				int space = line.indexOf(' ');
+				String name = space < 0 ? line : line.substring(0, space);
+
+				try {
+					List<String[]> rows = this.answer(name, QueryParameters.parse(space < 0 ? "" : line.substring(space + 1), ','));
+					out.write("OK " + rows.size() + "\n");
+					for (String[] row : rows)
+						out.write( String.join("\t", row) + "\n" );
+				} catch (RuntimeException e) {
+					out.write("ERR " + String.valueOf( e.getMessage() ).replace('\n', ' ') + "\n");
+				}
+
+				out.flush();
+				line = in.readLine();
+			}
+		} catch (IOException e) {
+			// the coordinator went away
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Stops answering queries
+	 * @throws IOException
+	 */
+	public void stop() throws IOException {
+		if (this.server != null) this.server.close();
+	}
+
+	/**
+	 * Orders names as strings
+	 */
+	static class NameComparator implements Comparator<String> {
+		public int compare(String s1, String s2) {
+			return s1.compareTo(s2);
+		}
+	}
+
+	/**
+	 * Reads a shard of a file of publications and answers queries about it until the process is killed.<br>
+	 * Prints "READY port" once it is listening.
+	 * @param args file of publications, index of the shard, number of shards and, optionally, port
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.out.println("Usage: ShardWorker FILE SHARD SHARDS [PORT]");
+			return;
+		}
+
+		ShardWorker worker = new ShardWorker( Integer.parseInt(args[1]), Integer.parseInt(args[2]) );
+		worker.readFromFile(args[0]);
+		int port = worker.start( args.length > 3 ? Integer.parseInt(args[3]) : 0 );
+
+		System.out.println("READY " + port);
+		System.out.flush();
+
+		Thread.currentThread().join();
+	}
+}
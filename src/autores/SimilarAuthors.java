@@ -0,0 +1,336 @@
+package autores;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Search for authors with similar sets of coauthors, by Jaccard similarity, over a CoauthorGraph.<br>
+ * Every author with coauthors gets a MinHash signature of SIGNATURE_SIZE values, computed in parallel, and the
+ * signatures are split in BANDS bands of ROWS values, of which only the hashes are kept. Each band is a sorted array
+ * of (band hash, vertex), so the authors sharing a band with a given one are found by binary search. Candidates are
+ * then ranked by their exact similarity, merging the sorted neighbor lists of the graph. With 16 bands of 4 rows, pairs with a similarity
+ * of 0.5 share a band with a probability of about 2/3, and pairs of 0.8 almost always do.
+ *
+ */
+
+public class SimilarAuthors {
+	public static final int BANDS = 16;
+	public static final int ROWS = 4;
+	public static final int SIGNATURE_SIZE = BANDS * ROWS;
+
+	/** buckets larger than this are too common to tell anything and are skipped */
+	private static final int MAX_BUCKET = 1000;
+	/** number of vertices hashed sequentially by a single task */
+	private static final int CHUNK = 4096;
+	private static final long SEED = 0x5DEECE66DL;
+
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	private CoauthorGraph graph;
+	private long[] multipliers;
+	private int[] bandHashes;
+	private long[][] bands;
+
+	/**
+	 * Computes the signatures and band index of every author of the given graph
+	 * @param graph
+	 */
+	public SimilarAuthors(CoauthorGraph graph) {
+		this.graph = graph;
+		this.multipliers = new long[SIGNATURE_SIZE];
+		Random random = new Random(SEED);
+		for (int i = 0; i < SIGNATURE_SIZE; i++)
+			this.multipliers[i] = random.nextLong() | 1;
+
+		int n = graph.nrVertices();
+		this.bandHashes = new int[n * BANDS];
+		ForkJoinPool.commonPool().invoke( new SignatureTask(QueryTracker.current(), 0, n) );
+
+		int linked = 0;
+		for (int v = 0; v < n; v++)
+			if (graph.degree(v) > 0) linked++;
+
+		this.bands = new long[BANDS][linked];
+		for (int v = 0, k = 0; v < n; v++)
+			if (graph.degree(v) > 0) {
+				for (int b = 0; b < BANDS; b++)
+					this.bands[b][k] = ((long) this.bandHash(v, b) << 32) | v;
+				k++;
+			}
+
+		for (int b = 0; b < BANDS; b++)
+			Arrays.parallelSort(this.bands[b]);
+	}
+
+	/**
+	 * Returns the exact Jaccard similarity of the coauthor sets of two vertices
+	 * @param u
+	 * @param v
+	 * @return similarity between 0 and 1
+	 */
+	public double jaccard(int u, int v) {
+		int[] offsets = this.graph.getOffsets();
+		int[] targets = this.graph.getTargets();
+		int i = offsets[u], j = offsets[v], common = 0;
+
+		while (i < offsets[u + 1] && j < offsets[v + 1]) {
+			if (targets[i] < targets[j]) i++;
+			else if (targets[i] > targets[j]) j++;
+			else {
+				common++;
+				i++;
+				j++;
+			}
+		}
+
+		int union = this.graph.degree(u) + this.graph.degree(v) - common;
+		return union == 0 ? 0 : (double) common / union;
+	}
+
+	/**
+	 * Returns the authors with the coauthor sets most similar to the one of the given vertex, most similar first
+	 * @param v
+	 * @param nrAuthors number of authors to return
+	 * @return names and similarities of the most similar authors
+	 */
+	public List<Tuple<String, Double>> similarTo(int v, int nrAuthors) {
+		TreeSet<Tuple<String, Double>> top = new TreeSet<>( new AuthorScoreTupleComparator() );
+		if (this.graph.degree(v) == 0 || nrAuthors < 1) return new ArrayList<>();
+
+		Scratch s = SCRATCH.get();
+		s.seen.clear();
+		s.seen.set(v);
+
+		for (int b = 0; b < BANDS; b++) {
+			long[] band = this.bands[b];
+			long hash = this.bandHash(v, b);
+			int from = lowerBound(band, hash << 32);
+			int to = from;
+			while (to < band.length && to - from <= MAX_BUCKET && band[to] >> 32 == hash) to++;
+			if (to - from > MAX_BUCKET) continue;
+
+			for (int i = from; i < to; i++) {
+				int w = (int) band[i];
+				if (s.seen.get(w)) continue;
+				s.seen.set(w);
+
+				Tuple<String, Double> t = new Tuple<String, Double>( this.graph.nameOf(w), this.jaccard(v, w) );
+				if (top.size() < nrAuthors)
+					top.add(t);
+				else if (top.comparator().compare(t, top.first()) > 0) {
+					top.pollFirst();
+					top.add(t);
+				}
+			}
+		}
+
+		ArrayList<Tuple<String, Double>> res = new ArrayList<>();
+		Iterator<Tuple<String, Double>> it = top.descendingIterator();
+		while (it.hasNext())
+			res.add( it.next() );
+
+		return res;
+	}
+
+	/**
+	 * Returns every pair of authors sharing a band whose coauthor sets have at least the given similarity, most similar first.<br>
+	 * Candidate pairs are gathered from the buckets of every band and checked exactly in parallel.
+	 * @param threshold
+	 * @return pairs of names and their similarity
+	 */
+	public List<Tuple<Tuple<String, String>, Double>> similarPairs(double threshold) {
+		LongList candidates = new LongList();
+		QueryTracker.begin(BANDS);
+
+		for (long[] band : this.bands) {
+			QueryTracker.checkpoint();
+			for (int from = 0, to; from < band.length; from = to) {
+				for (to = from + 1; to < band.length && band[to] >>> 32 == band[from] >>> 32; to++);
+				if (to - from > MAX_BUCKET) continue;
+
+				for (int i = from; i < to; i++)
+					for (int j = i + 1; j < to; j++) {
+						int u = (int) band[i], w = (int) band[j];
+						candidates.add( ((long) Math.min(u, w) << 32) | Math.max(u, w) );
+					}
+			}
+		}
+
+		long[] pairs = candidates.toSortedDistinct();
+		double[] similarity = new double[pairs.length];
+		ForkJoinPool.commonPool().invoke( new JaccardTask(pairs, similarity, QueryTracker.current(), 0, pairs.length) );
+
+		ArrayList<Tuple<Tuple<String, String>, Double>> res = new ArrayList<>();
+		for (int i = 0; i < pairs.length; i++)
+			if (similarity[i] >= threshold) {
+				Tuple<String, String> names = new Tuple<String, String>( this.graph.nameOf((int) (pairs[i] >>> 32)), this.graph.nameOf((int) pairs[i]) );
+				res.add( new Tuple<Tuple<String, String>, Double>(names, similarity[i]) );
+			}
+
+		Collections.sort(res, new Comparator<Tuple<Tuple<String, String>, Double>>() {
+			public int compare(Tuple<Tuple<String, String>, Double> a, Tuple<Tuple<String, String>, Double> b) {
+				int c = Double.compare(b.getSecond(), a.getSecond());
+				if (c == 0) c = a.getFirst().getFirst().compareTo( b.getFirst().getFirst() );
+				if (c == 0) c = a.getFirst().getSecond().compareTo( b.getFirst().getSecond() );
+				return c;
+			}
+		});
+
+		return res;
+	}
+
+	/**
+	 * Returns the hash of one band of the signature of a vertex
+	 * @param v
+	 * @param band
+	 * @return hash of the band
+	 */
+	private int bandHash(int v, int band) {
+		return this.bandHashes[v * BANDS + band];
+	}
+
+	/**
+	 * Returns the first position of the sorted array holding a value not smaller than key
+	 * @param array
+	 * @param key
+	 * @return first position not smaller than key
+	 */
+	private static int lowerBound(long[] array, long key) {
+		int lo = 0, hi = array.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (array[mid] < key) lo = mid + 1;
+			else hi = mid;
+		}
+
+		return lo;
+	}
+
+	/**
+	 * Computes the signatures of a range of vertices, splitting the range until it is small enough
+	 */
+	@SuppressWarnings("serial")
+	private class SignatureTask extends RecursiveAction {
+		private QueryTracker tracker;
+		private int from;
+		private int to;
+
+		public SignatureTask(QueryTracker tracker, int from, int to) {
+			this.tracker = tracker;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > CHUNK) {
+				int mid = (this.from + this.to) >>> 1;
+				invokeAll(new SignatureTask(this.tracker, this.from, mid), new SignatureTask(this.tracker, mid, this.to));
+				return;
+			}
+
+			if (this.tracker != null) this.tracker.check();
+
+			int[] offsets = graph.getOffsets();
+			int[] targets = graph.getTargets();
+			int[] signature = new int[SIGNATURE_SIZE];
+
+			for (int v = this.from; v < this.to; v++) {
+				Arrays.fill(signature, Integer.MAX_VALUE);
+
+				for (int e = offsets[v]; e < offsets[v + 1]; e++)
+					for (int i = 0; i < SIGNATURE_SIZE; i++) {
+						int h = (int) ((targets[e] + 1) * multipliers[i] >>> 33);
+						if (h < signature[i]) signature[i] = h;
+					}
+
+				for (int b = 0; b < BANDS; b++) {
+					int h = b;
+					for (int i = b * ROWS; i < (b + 1) * ROWS; i++)
+						h = h * 0x9E3779B1 + signature[i];
+					bandHashes[v * BANDS + b] = h ^ (h >>> 16);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the exact similarity of a range of candidate pairs
+	 */
+	@SuppressWarnings("serial")
+	private class JaccardTask extends RecursiveAction {
+		private long[] pairs;
+		private double[] similarity;
+		private QueryTracker tracker;
+		private int from;
+		private int to;
+
+		public JaccardTask(long[] pairs, double[] similarity, QueryTracker tracker, int from, int to) {
+			this.pairs = pairs;
+			this.similarity = similarity;
+			this.tracker = tracker;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > CHUNK) {
+				int mid = (this.from + this.to) >>> 1;
+				invokeAll(new JaccardTask(this.pairs, this.similarity, this.tracker, this.from, mid),
+						new JaccardTask(this.pairs, this.similarity, this.tracker, mid, this.to));
+				return;
+			}
+
+			if (this.tracker != null) this.tracker.check();
+
+			for (int i = this.from; i < this.to; i++)
+				this.similarity[i] = jaccard((int) (this.pairs[i] >>> 32), (int) this.pairs[i]);
+		}
+	}
+
+	/**
+	 * Growable array of candidate pairs
+	 */
+	private static class LongList {
+		private long[] values = new long[16];
+		private int size = 0;
+
+		private void add(long value) {
+			if (this.size == this.values.length)
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			this.values[this.size++] = value;
+		}
+
+		private long[] toSortedDistinct() {
+			Arrays.sort(this.values, 0, this.size);
+			int m = 0;
+			for (int i = 0; i < this.size; i++)
+				if (m == 0 || this.values[m - 1] != this.values[i])
+					this.values[m++] = this.values[i];
+
+			return Arrays.copyOf(this.values, m);
+		}
+	}
+
+	/**
+	 * Buffers reused by every search made on the same thread
+	 */
+	private static class Scratch {
+		private BitSet seen = new BitSet();
+	}
+}
@@ -0,0 +1,197 @@
+package autores;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeSet;
+
+/**
+ * Computes the statistics of every window of consecutive years in a single pass over the years.<br>
+ * Running per-author counters are kept in primitive arrays indexed by author identifier: each step adds the
+ * year entering the window and subtracts the one leaving it, so every year is read twice whatever the width.
+ * The authors are ranked by keeping them in one bucket per number of publications, doubly linked lists in primitive
+ * arrays, so moving an author after a change of its counter takes constant time and the top publishers of a window
+ * are read from the fullest buckets down, only the bucket where the top ends being sorted by name.
+ *
+ */
+
+public class SlidingWindowSweep {
+	private NavigableMap<Integer, AuthorCatalog> annualNetworks;
+	private AuthorDictionary dictionary;
+	private int[] publications;
+	private int[] activeYears;
+	private int[] activeHistogram;
+	private int nrActive;
+	/** first author of the bucket of each number of publications, or -1 */
+	private int[] bucketHead;
+	private int[] bucketNext;
+	private int[] bucketPrev;
+	private int maxPublications;
+
+	/**
+	 * Prepares a sweep over the given catalogs
+	 * @param annualNetworks catalogs of each year
+	 * @param dictionary dictionary holding every author in the catalogs
+	 */
+	public SlidingWindowSweep(NavigableMap<Integer, AuthorCatalog> annualNetworks, AuthorDictionary dictionary) {
+		this.annualNetworks = annualNetworks;
+		this.dictionary = dictionary;
+		this.publications = new int[dictionary.size()];
+		this.activeYears = new int[dictionary.size()];
+		this.nrActive = 0;
+		this.bucketHead = new int[16];
+		Arrays.fill(this.bucketHead, -1);
+		this.bucketNext = new int[dictionary.size()];
+		this.bucketPrev = new int[dictionary.size()];
+		this.maxPublications = 0;
+	}
+
+	/**
+	 * Returns the statistics of every window of the given width, from the one starting at the first year with publications
+	 * to the one ending at the last
+	 * @param width number of years in each window
+	 * @param nrAuthors number of top publishers to report for each window
+	 * @return statistics of every window, in order
+	 */
+	public List<WindowStats> sweep(int width, int nrAuthors) {
+		if (width < 1) throw new IllegalArgumentException("width " + width);
+		if (this.annualNetworks.isEmpty()) return Collections.emptyList();
+
+		ArrayList<WindowStats> windows = new ArrayList<>();
+		ArrayDeque<YearCounts> window = new ArrayDeque<>();
+		this.activeHistogram = new int[width + 1];
+		int first = this.annualNetworks.firstKey();
+		int last = Math.max(this.annualNetworks.lastKey(), first + width - 1);
+		int totalPublications = 0;
+
+		for (int year = first; year <= last; year++) {
+			int min = year - width + 1;
+
+			while (!window.isEmpty() && window.peekFirst().year < min) {
+				YearCounts leaving = window.pollFirst();
+				this.add(leaving, -1);
+				totalPublications -= leaving.nrPublications;
+			}
+
+			AuthorCatalog catalog = this.annualNetworks.get(year);
+			if (catalog != null) {
+				YearCounts entering = new YearCounts(year, catalog);
+				this.add(entering, 1);
+				window.addLast(entering);
+				totalPublications += entering.nrPublications;
+			}
+
+			if (min < first) continue;
+
+			windows.add( new WindowStats(min, year, totalPublications, this.nrActive,
+					window.isEmpty() ? 0 : this.activeHistogram[window.size()], this.top(nrAuthors)) );
+		}
+
+		return windows;
+	}
+
+	/**
+	 * Adds (sign 1) or subtracts (sign -1) the counts of a year to the running counters
+	 * @param year
+	 * @param sign
+	 */
+	private void add(YearCounts year, int sign) {
+		for (int i = 0; i < year.ids.length; i++) {
+			int id = year.ids[i];
+
+			if (this.publications[id] > 0) this.unlink(id);
+			else this.nrActive++;
+			this.publications[id] += sign * year.counts[i];
+			if (this.publications[id] > 0) this.link(id);
+			else this.nrActive--;
+
+			if (this.activeYears[id] > 0) this.activeHistogram[this.activeYears[id]]--;
+			this.activeYears[id] += sign;
+			if (this.activeYears[id] > 0) this.activeHistogram[this.activeYears[id]]++;
+		}
+
+		while (this.maxPublications > 0 && this.bucketHead[this.maxPublications] < 0) this.maxPublications--;
+	}
+
+	/**
+	 * Puts an author in the bucket of its number of publications
+	 * @param id
+	 */
+	private void link(int id) {
+		int n = this.publications[id];
+		if (n >= this.bucketHead.length) {
+			int length = this.bucketHead.length;
+			this.bucketHead = Arrays.copyOf(this.bucketHead, Math.max(2 * length, n + 1));
+			Arrays.fill(this.bucketHead, length, this.bucketHead.length, -1);
+		}
+
+		int head = this.bucketHead[n];
+		this.bucketNext[id] = head;
+		this.bucketPrev[id] = -1;
+		if (head >= 0) this.bucketPrev[head] = id;
+		this.bucketHead[n] = id;
+		this.maxPublications = Math.max(this.maxPublications, n);
+	}
+
+	/**
+	 * Takes an author out of the bucket of its number of publications
+	 * @param id
+	 */
+	private void unlink(int id) {
+		int next = this.bucketNext[id], prev = this.bucketPrev[id];
+		if (prev >= 0) this.bucketNext[prev] = next;
+		else this.bucketHead[ this.publications[id] ] = next;
+		if (next >= 0) this.bucketPrev[next] = prev;
+	}
+
+	/**
+	 * Returns the authors with the most publications in the current window, those with the same number of publications
+	 * in order of name
+	 * @param nrAuthors
+	 * @return authors with the most publications in the current window
+	 */
+	private TreeSet<Tuple<String, Integer>> top(int nrAuthors) {
+		TreeSet<Tuple<String, Integer>> top = new TreeSet<>(new AuthorPubsTupleComparator());
+
+		for (int n = this.maxPublications; n > 0 && top.size() < nrAuthors; n--) {
+			ArrayList<String> names = new ArrayList<>();
+			for (int id = this.bucketHead[n]; id >= 0; id = this.bucketNext[id])
+				names.add( this.dictionary.nameOf(id) );
+
+			if (names.size() > nrAuthors - top.size()) {
+				Collections.sort(names);
+				names = new ArrayList<>( names.subList(0, nrAuthors - top.size()) );
+			}
+			for (String name : names)
+				top.add( new Tuple<String, Integer>(name, n) );
+		}
+
+		return top;
+	}
+
+	/**
+	 * Publications of each author in one year, read once from its catalog
+	 */
+	private class YearCounts {
+		private int year;
+		private int nrPublications;
+		private int[] ids;
+		private int[] counts;
+
+		public YearCounts(int year, AuthorCatalog catalog) {
+			this.year = year;
+			this.nrPublications = catalog.getNrPublications();
+			this.ids = new int[catalog.getAuthorInfos().size()];
+			this.counts = new int[this.ids.length];
+
+			int i = 0;
+			for (AuthorInfo info : catalog.getAuthorInfos()) {
+				this.ids[i] = dictionary.idOf( info.getName() );
+				this.counts[i++] = info.getTotalPublications();
+			}
+		}
+	}
+}
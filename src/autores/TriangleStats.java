@@ -0,0 +1,287 @@
+package autores;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Triangles of a CoauthorGraph, with the local clustering coefficient of every author and the global transitivity.<br>
+ * Every edge is oriented from the endpoint of lower degree to the one of higher degree, so each triangle is found
+ * exactly once, from its lowest vertex, by intersecting two sorted forward lists. The vertices are counted by tasks
+ * of the common ForkJoinPool that split their range in halves, by forward edges, until it is small enough, so idle
+ * threads steal the halves left by the ones going through the vertices of highest degree. Every triangle found is
+ * added to its three vertices in a single array shared by the tasks, with atomic adds.
+ *
+ */
+
+public class TriangleStats {
+	/** forward edges below which a range of vertices is counted by a single task */
+	private static final int GRAIN = 1 << 12;
+
+	private CoauthorGraph graph;
+	private AtomicLongArray triangles;
+	private long totalTriangles;
+	private long connectedTriples;
+
+	private TriangleStats(CoauthorGraph graph, AtomicLongArray triangles, long totalTriangles, long connectedTriples) {
+		this.graph = graph;
+		this.triangles = triangles;
+		this.totalTriangles = totalTriangles;
+		this.connectedTriples = connectedTriples;
+	}
+
+	/**
+	 * Counts the triangles of the given graph
+	 * @param graph
+	 * @return triangles of the given graph
+	 */
+	public static TriangleStats of(CoauthorGraph graph) {
+		int n = graph.nrVertices();
+		AtomicLongArray triangles = new AtomicLongArray(n);
+		long[] counts = count(n, graph.getOffsets(), graph.getTargets(), triangles);
+		return new TriangleStats(graph, triangles, counts[0], counts[1]);
+	}
+
+	/**
+	 * Returns the global transitivity of the coauthorships of a single catalog.<br>
+	 * The graph is built over the authors of the catalog alone, numbered from 0, and no count is kept by vertex
+	 * @param catalog
+	 * @return global transitivity of the coauthorships of the catalog
+	 */
+	public static double transitivity(AuthorCatalog catalog) {
+		Map<String, Integer> ids = new HashMap<>();
+		for (AuthorInfo info : catalog.getAuthorInfos())
+			ids.put( info.getName(), ids.size() );
+
+		// every pair is added once, from the author whose name comes first if the catalog has both
+		IntList sources = new IntList(), targets = new IntList();
+		for (AuthorInfo info : catalog.getAuthorInfos()) {
+			String name = info.getName();
+			int source = ids.get(name);
+			for (String coauthor : info.getCoauthors()) {
+				if (name.compareTo(coauthor) > 0 && catalog.hasAuthor(coauthor)) continue;
+
+				Integer id = ids.get(coauthor);
+				if (id == null) {
+					id = ids.size();
+					ids.put(coauthor, id);
+				}
+				sources.add(source);
+				targets.add(id);
+			}
+		}
+
+		int n = ids.size();
+		int[] offsets = new int[n + 1];
+		for (int i = 0; i < sources.size(); i++) {
+			offsets[sources.get(i) + 1]++;
+			offsets[targets.get(i) + 1]++;
+		}
+		for (int v = 0; v < n; v++)
+			offsets[v + 1] += offsets[v];
+
+		int[] adjacent = new int[offsets[n]];
+		int[] cursor = Arrays.copyOf(offsets, n);
+		for (int i = 0; i < sources.size(); i++) {
+			adjacent[cursor[sources.get(i)]++] = targets.get(i);
+			adjacent[cursor[targets.get(i)]++] = sources.get(i);
+		}
+		for (int v = 0; v < n; v++)
+			Arrays.sort(adjacent, offsets[v], offsets[v + 1]);
+
+		long[] counts = count(n, offsets, adjacent, null);
+		return counts[1] == 0 ? 0 : 3.0 * counts[0] / counts[1];
+	}
+
+	/**
+	 * Counts the triangles and connected triples of a graph in compressed sparse row form, the neighbours of every
+	 * vertex sorted
+	 * @param n number of vertices
+	 * @param offsets
+	 * @param targets
+	 * @param triangles triangles of every vertex, to add to, or null not to count them by vertex
+	 * @return number of triangles and number of connected triples
+	 */
+	private static long[] count(int n, int[] offsets, int[] targets, AtomicLongArray triangles) {
+		int[] forwardOffsets = new int[n + 1];
+		int[] forward = new int[targets.length / 2];
+		long connectedTriples = 0;
+
+		for (int v = 0; v < n; v++) {
+			if ((v & CoauthorGraph.CHECK_MASK) == 0) QueryTracker.checkpoint(0);
+			long d = offsets[v + 1] - offsets[v];
+			connectedTriples += d * (d - 1) / 2;
+			forwardOffsets[v + 1] = forwardOffsets[v];
+
+			for (int e = offsets[v]; e < offsets[v + 1]; e++)
+				if (before(offsets, v, targets[e]))
+					forward[forwardOffsets[v + 1]++] = targets[e];
+		}
+
+		long total = ForkJoinPool.commonPool().invoke( new CountTask(forwardOffsets, forward, triangles, QueryTracker.current(), 0, n) );
+		return new long[]{total, connectedTriples};
+	}
+
+	/**
+	 * Returns the local clustering coefficient of a vertex, counting the triangles of its own coauthors only
+	 * @param graph
+	 * @param v
+	 * @return local clustering coefficient of the vertex
+	 */
+	public static double clusteringCoefficient(CoauthorGraph graph, int v) {
+		long d = graph.degree(v);
+		if (d < 2) return 0;
+
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		long links = 0;
+
+		for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+			if (((e - offsets[v]) & 0xFF) == 0) QueryTracker.checkpoint(0);
+			int u = targets[e];
+			int i = offsets[v], j = offsets[u];
+
+			while (i < offsets[v + 1] && j < offsets[u + 1]) {
+				if (targets[i] < targets[j]) i++;
+				else if (targets[i] > targets[j]) j++;
+				else {
+					links++;
+					i++;
+					j++;
+				}
+			}
+		}
+
+		// every link between two coauthors was found from both of them
+		return (double) links / (d * (d - 1));
+	}
+
+	/**
+	 * Checks if u comes before v in the orientation order: lower degree first, then lower identifier
+	 * @param offsets row offsets of the graph
+	 * @param u
+	 * @param v
+	 * @return true if the edge between u and v is oriented from u to v
+	 */
+	private static boolean before(int[] offsets, int u, int v) {
+		int du = offsets[u + 1] - offsets[u], dv = offsets[v + 1] - offsets[v];
+		return du < dv || (du == dv && u < v);
+	}
+
+	/**
+	 * Returns the number of triangles in the graph
+	 * @return number of triangles in the graph
+	 */
+	public long getTotalTriangles() {
+		return this.totalTriangles;
+	}
+
+	/**
+	 * Returns the global transitivity: the fraction of connected triples of authors that are closed into triangles
+	 * @return global transitivity
+	 */
+	public double getTransitivity() {
+		return this.connectedTriples == 0 ? 0 : 3.0 * this.totalTriangles / this.connectedTriples;
+	}
+
+	/**
+	 * Returns the number of triangles the given vertex is part of
+	 * @param v
+	 * @return number of triangles of the vertex
+	 */
+	public long getTriangles(int v) {
+		return this.triangles.get(v);
+	}
+
+	/**
+	 * Returns the local clustering coefficient of the given vertex: the fraction of pairs of its coauthors that
+	 * published together, or 0 if it has less than two coauthors
+	 * @param v
+	 * @return local clustering coefficient of the vertex
+	 */
+	public double getClusteringCoefficient(int v) {
+		long d = this.graph.degree(v);
+		return d < 2 ? 0 : 2.0 * this.triangles.get(v) / (d * (d - 1));
+	}
+
+	/**
+	 * Returns the local clustering coefficient of every vertex
+	 * @return local clustering coefficient of every vertex
+	 */
+	public double[] getClusteringCoefficients() {
+		double[] c = new double[this.triangles.length()];
+		for (int v = 0; v < c.length; v++)
+			c[v] = this.getClusteringCoefficient(v);
+
+		return c;
+	}
+
+	/**
+	 * Counts the triangles found from a range of vertices, splitting it in halves with as many forward edges each
+	 * while it has more than GRAIN of them
+	 */
+	@SuppressWarnings("serial")
+	private static class CountTask extends RecursiveTask<Long> {
+		private int[] offsets;
+		private int[] forward;
+		private AtomicLongArray triangles;
+		private QueryTracker tracker;
+		private int from;
+		private int to;
+
+		public CountTask(int[] offsets, int[] forward, AtomicLongArray triangles, QueryTracker tracker, int from, int to) {
+			this.offsets = offsets;
+			this.forward = forward;
+			this.triangles = triangles;
+			this.tracker = tracker;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Long compute() {
+			if (this.to - this.from > 1 && this.offsets[this.to] - this.offsets[this.from] > GRAIN) {
+				int mid = Arrays.binarySearch(this.offsets, this.from, this.to, (this.offsets[this.from] + this.offsets[this.to]) >>> 1);
+				mid = Math.min(Math.max(mid < 0 ? -mid - 1 : mid, this.from + 1), this.to - 1);
+				CountTask left = new CountTask(this.offsets, this.forward, this.triangles, this.tracker, this.from, mid);
+				left.fork();
+				long right = new CountTask(this.offsets, this.forward, this.triangles, this.tracker, mid, this.to).compute();
+				return left.join() + right;
+			}
+
+			if (this.tracker != null) this.tracker.check();
+			long total = 0;
+			for (int u = this.from; u < this.to; u++) {
+				long found = 0;
+
+				for (int e = this.offsets[u]; e < this.offsets[u + 1]; e++) {
+					int v = this.forward[e];
+					long common = 0;
+					int i = this.offsets[u], j = this.offsets[v];
+
+					while (i < this.offsets[u + 1] && j < this.offsets[v + 1]) {
+						if (this.forward[i] < this.forward[j]) i++;
+						else if (this.forward[i] > this.forward[j]) j++;
+						else {
+							if (this.triangles != null) this.triangles.getAndIncrement(this.forward[i]);
+							common++;
+							i++;
+							j++;
+						}
+					}
+
+					if (this.triangles != null && common > 0) this.triangles.getAndAdd(v, common);
+					found += common;
+				}
+
+				if (this.triangles != null && found > 0) this.triangles.getAndAdd(u, found);
+				total += found;
+			}
+
+			return total;
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package autores;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Inverted index from name trigrams to author identifiers, used to suggest names close to a misspelled one.<br>
+ * The dictionary only grows, so the index is extended with the names registered since the last update
+ * instead of being rebuilt.
+ *
+ */
+
+public class TrigramIndex {
+	/** posting lists longer than this are only read when nothing rarer matched */
+	private static final int MAX_POSTINGS = 5000;
+	/** maximum number of distinct names collected from the posting lists */
+	private static final int MAX_CANDIDATES = 5000;
+	/** minimum number of names rescored exactly for each query */
+	private static final int MIN_RESCORED = 64;
+
+	private AuthorDictionary dictionary;
+	private HashMap<Long, IntList> postings;
+	private IntList gramCounts;
+	private int[] shared;
+	private IntList touched;
+
+	/**
+	 * Creates an empty index over the given dictionary
+	 * @param dictionary
+	 */
+	public TrigramIndex(AuthorDictionary dictionary) {
+		this.dictionary = dictionary;
+		this.postings = new HashMap<>();
+		this.gramCounts = new IntList();
+		this.shared = new int[0];
+		this.touched = new IntList();
+	}
+
+	/**
+	 * Indexes every name registered in the dictionary since the last update
+	 */
+	public void update() {
+		for (int id = this.gramCounts.size(); id < this.dictionary.size(); id++) {
+			long[] grams = trigrams( this.dictionary.nameOf(id) );
+
+			for (long gram : grams) {
+				IntList ids = this.postings.get(gram);
+				if (ids == null) {
+					ids = new IntList(2);
+					this.postings.put(gram, ids);
+				}
+				ids.add(id);
+			}
+
+			this.gramCounts.add( grams.length );
+		}
+
+		if (this.shared.length < this.gramCounts.size())
+			this.shared = Arrays.copyOf(this.shared, this.gramCounts.size());
+	}
+
+	/**
+	 * Returns up to k indexed names ordered by decreasing similarity to the given name
+	 * @param name
+	 * @param k
+	 * @return names ordered by decreasing similarity to the given name
+	 */
+	public List<String> suggest(String name, int k) {
+		ArrayList<String> result = new ArrayList<>();
+		long[] query = trigrams(name);
+		if (k < 1 || query.length == 0) return result;
+
+		ArrayList<IntList> lists = new ArrayList<>();
+		for (long gram : query) {
+			IntList ids = this.postings.get(gram);
+			if (ids != null) lists.add(ids);
+		}
+
+		Collections.sort(lists, new Comparator<IntList>() {
+			public int compare(IntList l1, IntList l2) {
+				return Integer.compare(l1.size(), l2.size());
+			}
+		});
+
+		for (IntList ids : lists) {
+			if (ids.size() > MAX_POSTINGS && !this.touched.isEmpty()) continue;
+
+			for (int i = 0; i < ids.size(); i++) {
+				int id = ids.get(i);
+				if (this.shared[id] == 0) {
+					if (this.touched.size() >= MAX_CANDIDATES) continue;
+					this.touched.add(id);
+				}
+				this.shared[id]++;
+			}
+		}
+
+		int rescored = Math.max(k * 8, MIN_RESCORED);
+		PriorityQueue<Tuple<Integer, Double>> best = new PriorityQueue<>(rescored + 1, new ScoreComparator());
+
+		for (int i = 0; i < this.touched.size(); i++) {
+			int id = this.touched.get(i);
+			int common = this.shared[id];
+			this.shared[id] = 0;
+
+			double score = (double) common / (query.length + this.gramCounts.get(id) - common);
+			offer(best, new Tuple<Integer, Double>(id, score), rescored);
+		}
+		this.touched.clear();
+
+		PriorityQueue<Tuple<Integer, Double>> exact = new PriorityQueue<>(k + 1, new ScoreComparator());
+		for (Tuple<Integer, Double> t : best)
+			offer(exact, new Tuple<Integer, Double>(t.getFirst(), similarity(query, this.dictionary.nameOf(t.getFirst()))), k);
+
+		ArrayList<Tuple<Integer, Double>> ordered = new ArrayList<>(exact);
+		Collections.sort(ordered, Collections.reverseOrder(new ScoreComparator()));
+		for (Tuple<Integer, Double> t : ordered)
+			result.add( this.dictionary.nameOf(t.getFirst()) );
+
+		return result;
+	}
+
+	/**
+	 * Adds a scored identifier to a min-heap holding at most max elements
+	 * @param heap
+	 * @param t
+	 * @param max
+	 */
+	private static void offer(PriorityQueue<Tuple<Integer, Double>> heap, Tuple<Integer, Double> t, int max) {
+		if (heap.size() < max) heap.add(t);
+		else if (t.getSecond() > heap.peek().getSecond()) {
+			heap.poll();
+			heap.add(t);
+		}
+	}
+
+	/**
+	 * Returns the Jaccard similarity between a set of trigrams and the trigrams of a name
+	 * @param query
+	 * @param name
+	 * @return Jaccard similarity between both sets of trigrams
+	 */
+	private static double similarity(long[] query, String name) {
+		long[] grams = trigrams(name);
+		int common = 0;
+
+		for (int i = 0, j = 0; i < query.length && j < grams.length; ) {
+			if (query[i] < grams[j]) i++;
+			else if (query[i] > grams[j]) j++;
+			else {
+				common++;
+				i++;
+				j++;
+			}
+		}
+
+		return (double) common / (query.length + grams.length - common);
+	}
+
+	/**
+	 * Returns the sorted distinct trigrams of a name, lower cased and padded, each packed in a long
+	 * @param name
+	 * @return sorted distinct trigrams of the name
+	 */
+	private static long[] trigrams(String name) {
+		String s = "  " + name.trim().toLowerCase(Locale.ROOT) + " ";
+		if (s.length() == 3) return new long[0];
+
+		long[] grams = new long[s.length() - 2];
+		for (int i = 0; i < grams.length; i++)
+			grams[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+
+		Arrays.sort(grams);
+		int n = 0;
+		for (int i = 0; i < grams.length; i++)
+			if (n == 0 || grams[i] != grams[n - 1]) grams[n++] = grams[i];
+
+		return Arrays.copyOf(grams, n);
+	}
+
+	/**
+	 * Orders scored identifiers by score, then by identifier
+	 */
+	private static class ScoreComparator implements Comparator<Tuple<Integer, Double>> {
+		public int compare(Tuple<Integer, Double> t1, Tuple<Integer, Double> t2) {
+			int c = Double.compare(t1.getSecond(), t2.getSecond());
+			return c != 0 ? c : Integer.compare(t2.getFirst(), t1.getFirst());
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package autores;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 @SuppressWarnings("serial")
 public class Tuple<F, S> implements Serializable {
@@ -32,4 +35,45 @@ public class Tuple<F, S> implements Serializable {
 	public void setSecond(S second) {
 		this.second = second;
 	}
+	
+	/**
+	 * Returns the given value made immutable: a tuple is copied into one whose setters throw, and a list into an
+	 * unmodifiable one, along with the tuples and lists they hold. Any other value is returned as it is
+	 * @param value
+	 * @return value that cannot be changed
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T immutable(T value) {
+		if (value instanceof ImmutableTuple) return value;
+		if (value instanceof Tuple) {
+			Tuple<?, ?> t = (Tuple<?, ?>) value;
+			return (T) new ImmutableTuple<Object, Object>( immutable(t.first), immutable(t.second) );
+		}
+		if (value instanceof List) {
+			ArrayList<Object> res = new ArrayList<>();
+			for (Object o : (List<?>) value) res.add( immutable(o) );
+			return (T) Collections.unmodifiableList(res);
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Tuple shared by several callers, such as the results kept in a cache, which none of them may change
+	 */
+	private static final class ImmutableTuple<F, S> extends Tuple<F, S> {
+		public ImmutableTuple(F first, S second) {
+			super(first, second);
+		}
+		
+		@Override
+		public void setFirst(F first) {
+			throw new UnsupportedOperationException("Shared tuple");
+		}
+		
+		@Override
+		public void setSecond(S second) {
+			throw new UnsupportedOperationException("Shared tuple");
+		}
+	}
 }
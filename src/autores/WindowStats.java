@@ -0,0 +1,80 @@
+package autores;
+
+import java.util.NavigableSet;
+
+/**
+ * Statistics of one window of consecutive years, as produced by a sliding window sweep
+ *
+ */
+
+public class WindowStats {
+	private int min;
+	private int max;
+	private int publications;
+	private int activeAuthors;
+	private int authorsEveryYear;
+	private NavigableSet<Tuple<String, Integer>> topPublishers;
+
+	public WindowStats(int min, int max, int publications, int activeAuthors, int authorsEveryYear, NavigableSet<Tuple<String, Integer>> topPublishers) {
+		this.min = min;
+		this.max = max;
+		this.publications = publications;
+		this.activeAuthors = activeAuthors;
+		this.authorsEveryYear = authorsEveryYear;
+		this.topPublishers = topPublishers;
+	}
+
+	/**
+	 * Returns the first year of the window
+	 * @return first year of the window
+	 */
+	public int getMin() {
+		return this.min;
+	}
+
+	/**
+	 * Returns the last year of the window
+	 * @return last year of the window
+	 */
+	public int getMax() {
+		return this.max;
+	}
+
+	/**
+	 * Returns the number of publications in the window
+	 * @return number of publications in the window
+	 */
+	public int getPublications() {
+		return this.publications;
+	}
+
+	/**
+	 * Returns the number of authors that published at least once in the window
+	 * @return number of authors that published at least once in the window
+	 */
+	public int getActiveAuthors() {
+		return this.activeAuthors;
+	}
+
+	/**
+	 * Returns the number of authors that published in every year of the window that has publications
+	 * @return number of authors that published in every year of the window that has publications
+	 */
+	public int getAuthorsEveryYear() {
+		return this.authorsEveryYear;
+	}
+
+	/**
+	 * Returns the authors with the most publications in the window, ordered as the result of topPublishers
+	 * @return authors with the most publications in the window
+	 */
+	public NavigableSet<Tuple<String, Integer>> getTopPublishers() {
+		return this.topPublishers;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + this.min + ", " + this.max + "]: " + this.publications + " publications, "
+				+ this.activeAuthors + " authors, " + this.authorsEveryYear + " every year";
+	}
+}
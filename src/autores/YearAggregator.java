@@ -0,0 +1,25 @@
+package autores;
+
+/**
+ * Counter fed with the catalogs of the years of an interval, one year at a time, by a QueryBatch.<br>
+ * Every year is started before its authors are added, and the authors of a year are read once for every counter
+ * holding that year, each one with its identifier already looked up.
+ *
+ */
+
+public interface YearAggregator {
+	/**
+	 * Starts a year, before its authors are added
+	 * @param year
+	 * @param catalog catalog of the year, to be read only
+	 */
+	public void addYear(int year, AuthorCatalog catalog);
+
+	/**
+	 * Adds an author of the year started last
+	 * @param id identifier of the author
+	 * @param info information of the author in the year, to be read only
+	 * @param catalog catalog of the year, to be read only
+	 */
+	public void addAuthor(int id, AuthorInfo info, AuthorCatalog catalog);
+}
@@ -0,0 +1,129 @@
+package autores;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+/**
+ * Precomputed aggregates for a range of years: publications per author, publications per pair of authors
+ * and the authors that published in every year of the range that has publications.<br>
+ * Only the range is kept when the rollup is saved; the aggregates are built on the first query that needs them
+ * and dropped whenever a publication is added to one of its years.
+ *
+ */
+
+@SuppressWarnings("serial")
+public class YearRollup implements Serializable {
+	private int min;
+	private int max;
+	private transient boolean built;
+	private transient TreeMap<String, Integer> authorTotals;
+	private transient TreeMap<Tuple<String, String>, Integer> pairTotals;
+	private transient NavigableSet<String> authorsEveryYear;
+
+	/**
+	 * Creates an unbuilt rollup for the given range of years
+	 * @param min first year of the range
+	 * @param max last year of the range
+	 */
+	public YearRollup(int min, int max) {
+		this.min = min;
+		this.max = max;
+		this.invalidate();
+	}
+
+	public int getMin() {
+		return this.min;
+	}
+
+	public int getMax() {
+		return this.max;
+	}
+
+	/**
+	 * Returns a rollup of the same range sharing the aggregates built so far, which are never changed once built,
+	 * so dropping them in the copy does not drop them here
+	 * @return copy of the rollup
+	 */
+	public synchronized YearRollup copy() {
+		YearRollup copy = new YearRollup(this.min, this.max);
+		copy.built = this.built;
+		copy.authorTotals = this.authorTotals;
+		copy.pairTotals = this.pairTotals;
+		copy.authorsEveryYear = this.authorsEveryYear;
+		return copy;
+	}
+
+	/**
+	 * Drops the aggregates, so they are built again when next needed
+	 */
+	public synchronized void invalidate() {
+		this.built = false;
+		this.authorTotals = null;
+		this.pairTotals = null;
+		this.authorsEveryYear = null;
+	}
+
+	/**
+	 * Returns the publications of each author in the range
+	 * @param annualNetworks catalogs to build the aggregates from, if needed
+	 * @return publications of each author in the range
+	 */
+	public synchronized Map<String, Integer> getAuthorTotals(NavigableMap<Integer, AuthorCatalog> annualNetworks) {
+		this.build(annualNetworks);
+		return this.authorTotals;
+	}
+
+	/**
+	 * Returns the publications of each pair of authors in the range
+	 * @param annualNetworks catalogs to build the aggregates from, if needed
+	 * @return publications of each pair of authors in the range
+	 */
+	public synchronized Map<Tuple<String, String>, Integer> getPairTotals(NavigableMap<Integer, AuthorCatalog> annualNetworks) {
+		this.build(annualNetworks);
+		return this.pairTotals;
+	}
+
+	/**
+	 * Returns the authors that published in every year of the range that has publications,
+	 * or null if no year of the range has publications
+	 * @param annualNetworks catalogs to build the aggregates from, if needed
+	 * @return authors that published in every year with publications, or null
+	 */
+	public synchronized NavigableSet<String> getAuthorsEveryYear(NavigableMap<Integer, AuthorCatalog> annualNetworks) {
+		this.build(annualNetworks);
+		return this.authorsEveryYear;
+	}
+
+	/**
+	 * Builds the aggregates from the catalogs of the years in range, unless they are already built
+	 * @param annualNetworks
+	 */
+	private void build(NavigableMap<Integer, AuthorCatalog> annualNetworks) {
+		if (this.built) return;
+
+		TreeMap<String, Integer> authorTotals = new TreeMap<>();
+		TreeMap<Tuple<String, String>, Integer> pairTotals = new TreeMap<>( new AuthorTupleComparator() );
+		NavigableSet<String> authorsEveryYear = null;
+
+		for (AuthorCatalog catalog : annualNetworks.subMap(this.min, true, this.max, true).values()) {
+			GlobalAuthorNetwork.functorMapAdd( authorTotals, catalog.authorByPublications() );
+			GlobalAuthorNetwork.functorMapAdd( pairTotals, catalog.authorPairs() );
+
+			if (authorsEveryYear == null) authorsEveryYear = catalog.getAuthors();
+			else {
+				Iterator<String> it = authorsEveryYear.iterator();
+				while (it.hasNext())
+					if (!catalog.hasAuthor( it.next() )) it.remove();
+			}
+		}
+
+		this.authorTotals = authorTotals;
+		this.pairTotals = pairTotals;
+		this.authorsEveryYear = authorsEveryYear;
+		this.built = true;
+	}
+}
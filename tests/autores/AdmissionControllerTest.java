@@ -0,0 +1,192 @@
+package autores;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdmissionControllerTest {
+
+	private AdmissionController admission;
+
+	@Before
+	public void setUp() throws Exception {
+		admission = new AdmissionController(1, 100L << 20, Long.MAX_VALUE, 1, 200);
+	}
+
+	@Test
+	public void testQueueAndReject() throws Exception {
+		final QueryCost cost = new QueryCost(1L << 20, 10);
+		AdmissionController.Ticket first = admission.admit(cost);
+		assertEquals(1, admission.getRunning());
+		assertEquals(AdmissionController.MIN_ALLOCATION, first.getAllocationLimit());
+
+		final CountDownLatch started = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<AdmissionController.Ticket> queued = executor.submit(new Callable<AdmissionController.Ticket>() {
+			public AdmissionController.Ticket call() {
+				started.countDown();
+				return admission.admit(cost);
+			}
+		});
+		started.await();
+		while (admission.getQueued() == 0) Thread.sleep(1);
+
+		try {
+			admission.admit(cost);
+			fail("the queue is full");
+		} catch (QueryRejectedException e) {
+		}
+		try {
+			admission.admit( new QueryCost(200L << 20, 10) );
+			fail("over the memory budget");
+		} catch (QueryRejectedException e) {
+		}
+
+		admission.release(first, null);
+		AdmissionController.Ticket second = queued.get();
+		assertEquals(0, admission.getQueued());
+		assertEquals(1L << 20, admission.getReservedBytes());
+
+		try {
+			admission.admit(cost);
+			fail("waited longer than allowed");
+		} catch (QueryRejectedException e) {
+		}
+
+		admission.release(second, null);
+		executor.shutdown();
+		assertEquals(0, admission.getRunning());
+		assertEquals(2, admission.getAdmitted());
+		assertEquals(3, admission.getRejected());
+		assertEquals(3L, (long) admission.getMetrics().get("rejected"));
+	}
+
+	@Test
+	public void testAllocationLimit() throws Exception {
+		if (!QueryTracker.countsAllocations()) return;
+
+		QueryTracker tracker = new QueryTracker(0);
+		tracker.setAllocationLimit(1L << 20);
+		QueryTracker previous = tracker.enter();
+		try {
+			int[][] garbage = new int[16][];
+			for (int i = 0; i < garbage.length; i++) garbage[i] = new int[256 * 1024];
+			assertEquals(256 * 1024, garbage[15].length);
+			QueryTracker.checkpoint();
+			fail("query allocated more than allowed");
+		} catch (QueryAbortedException e) {
+			assertTrue( tracker.isOverAllocated() );
+		} finally {
+			tracker.exit(previous);
+		}
+
+		AdmissionController.Ticket ticket = admission.admit( new QueryCost(1, 1) );
+		admission.release(ticket, tracker);
+		assertEquals(1, admission.getOverAllocation());
+	}
+
+	@Test
+	public void testHelperAllocations() throws Exception {
+		if (!QueryTracker.countsAllocations()) return;
+
+		final QueryTracker tracker = new QueryTracker(0);
+		tracker.setAllocationLimit(1L << 20);
+		QueryTracker previous = tracker.enter();
+		ExecutorService helpers = Executors.newSingleThreadExecutor();
+		try {
+			assertEquals(-1, tracker.allocationMark());
+
+			Future<Integer> helped = helpers.submit(new Callable<Integer>() {
+				public Integer call() {
+					long mark = tracker.allocationMark();
+					int[][] garbage = new int[16][];
+					for (int i = 0; i < garbage.length; i++) garbage[i] = new int[256 * 1024];
+					tracker.charge(mark);
+					return garbage[15].length;
+				}
+			});
+			assertEquals(256 * 1024, (int) helped.get());
+			assertTrue(tracker.getAllocatedBytes() >= 16L << 20);
+
+			QueryTracker.checkpoint();
+			fail("helpers allocated more than allowed");
+		} catch (QueryAbortedException e) {
+			assertTrue( tracker.isOverAllocated() );
+		} finally {
+			tracker.exit(previous);
+			helpers.shutdown();
+		}
+	}
+
+	@Test
+	public void testAdmitLater() throws Exception {
+		QueryTracker tracker = new QueryTracker(0);
+		tracker.admitLater(admission, new QueryCost(1L << 20, 10));
+		QueryTracker previous = tracker.enter();
+		try {
+			assertEquals(0, admission.getRunning());
+
+			// the query has to compute the result it expected to read
+			QueryTracker.admitCurrent();
+			assertEquals(1, admission.getRunning());
+			assertEquals(1L << 20, admission.getReservedBytes());
+			QueryTracker.admitCurrent();
+			assertEquals(1, admission.getAdmitted());
+		} finally {
+			tracker.exit(previous);
+			tracker.release();
+		}
+		assertEquals(0, admission.getRunning());
+
+		tracker = new QueryTracker(0);
+		tracker.admitLater(admission, new QueryCost(1L << 20, 10));
+		tracker.release();
+		assertEquals(1, admission.getAdmitted());
+	}
+
+	@Test
+	public void testAdmitAsync() throws Exception {
+		QueryCost cost = new QueryCost(1L << 20, 10);
+		AdmissionController.Ticket first = admission.admit(cost);
+
+		CompletableFuture<AdmissionController.Ticket> queued = admission.admitAsync(cost);
+		assertFalse(queued.isDone());
+		assertEquals(1, admission.getQueued());
+		assertTrue( admission.admitAsync(cost).isCompletedExceptionally() );
+		try {
+			admission.admit(cost);
+			fail("the queue is full");
+		} catch (QueryRejectedException e) {
+		}
+
+		// the query releasing its ticket admits the one waiting
+		admission.release(first, null);
+		AdmissionController.Ticket second = queued.getNow(null);
+		assertNotNull(second);
+		assertEquals(0, admission.getQueued());
+		assertEquals(1, admission.getRunning());
+
+		CompletableFuture<AdmissionController.Ticket> expiring = admission.admitAsync(cost);
+		try {
+			expiring.get();
+			fail("waited longer than allowed");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof QueryRejectedException);
+		}
+		assertEquals(0, admission.getQueued());
+
+		admission.release(second, null);
+		assertEquals(0, admission.getRunning());
+		assertEquals(2, admission.getAdmitted());
+		assertEquals(3, admission.getRejected());
+	}
+}
@@ -0,0 +1,89 @@
+package autores;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncAuthorNetworkTest {
+
+	private AsyncAuthorNetwork async;
+
+	@Before
+	public void setUp() throws Exception {
+		async = new AsyncAuthorNetwork(new AuthorNetwork(), 1, 1);
+	}
+
+	@Test
+	public void testResult() throws Exception {
+		AsyncAuthorNetwork.QueryFuture<Integer> f = async.submit(new AsyncAuthorNetwork.Query<Integer>() {
+			public Integer exec(AuthorNetwork network) {
+				QueryTracker.begin(2);
+				QueryTracker.checkpoint();
+				QueryTracker.checkpoint();
+				return 42;
+			}
+		}, 0);
+
+		assertEquals(42, (int) f.get());
+		assertEquals(1.0, f.getProgress(), 1e-9);
+		assertEquals(2, f.getTracker().getDone());
+	}
+
+	@Test
+	public void testCancelAndDeadline() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		AsyncAuthorNetwork.Query<Integer> endless = new AsyncAuthorNetwork.Query<Integer>() {
+			public Integer exec(AuthorNetwork network) {
+				QueryTracker.begin(1000);
+				started.countDown();
+				for (;;) QueryTracker.checkpoint();
+			}
+		};
+
+		AsyncAuthorNetwork.QueryFuture<Integer> f = async.submit(endless, 0);
+		started.await();
+		assertTrue( f.cancel(true) );
+		assertTrue( f.isCancelled() );
+		assertTrue( f.getTracker().isCancelled() );
+
+		AsyncAuthorNetwork.QueryFuture<Integer> late = async.submit(endless, 50);
+		try {
+			late.get();
+			fail("query past its deadline should abort");
+		} catch (ExecutionException e) {
+			assertTrue( e.getCause() instanceof QueryAbortedException );
+			assertTrue( ((QueryAbortedException) e.getCause()).getDone() > 0 );
+			assertEquals(1000, ((QueryAbortedException) e.getCause()).getTotal());
+		}
+	}
+
+	@Test
+	public void testRejected() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		AsyncAuthorNetwork.Query<Integer> blocked = new AsyncAuthorNetwork.Query<Integer>() {
+			public Integer exec(AuthorNetwork network) throws InterruptedException {
+				release.await();
+				return 0;
+			}
+		};
+
+		AsyncAuthorNetwork.QueryFuture<Integer> running = async.submit(blocked, 0);
+		AsyncAuthorNetwork.QueryFuture<Integer> queued = async.submit(blocked, 0);
+		AsyncAuthorNetwork.QueryFuture<Object> rejected = async.submit("commonCoauthors", new QueryParameters(), 0);
+		try {
+			rejected.get();
+			fail("query beyond the queue should be rejected");
+		} catch (ExecutionException e) {
+			assertTrue( e.getCause() instanceof RejectedExecutionException );
+		}
+
+		release.countDown();
+		assertEquals(0, (int) running.get());
+		assertEquals(0, (int) queued.get());
+	}
+}
@@ -2,6 +2,10 @@ package autores;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
@@ -112,6 +116,40 @@ public class AuthorInfoTest {
 		assertEquals(true, b);
 	}
 	
+	@Test
+	public void testCoauthorStrengths() {
+		authorInfo.addPublication(Arrays.asList(new String[]{"Tua Prima", "Not Tua Prima"}));
+		authorInfo.addPublication(Arrays.asList(new String[]{"Tua Prima", "Maybe Tua Prima", "Not Tua Prima"}));
+		authorInfo.addPublication(Arrays.asList(new String[]{"Tua Prima", "Trol", "Not Tua Prima", "Crol", "Brol"}));
+		Map<String, Double> map = authorInfo.getCoauthorStrengths();
+		assertEquals(5, map.size());
+		assertEquals(1.75, map.get("Not Tua Prima"), 1e-9);
+		assertEquals(0.5, map.get("Maybe Tua Prima"), 1e-9);
+		assertEquals(0.25, map.get("Trol"), 1e-9);
+		assertEquals(3, (int) authorInfo.getCoauthorsInfo().get("Not Tua Prima"));
+		
+		Set<Tuple<String, Double>> set = authorInfo.topCoauthorsByStrength(1);
+		assertEquals(true, set.contains(new Tuple<String, Double>("Not Tua Prima", 1.75)));
+	}
+	
+	@Test
+	public void testStrengthsSurviveSaving() throws Exception {
+		for (int i = 0; i < 20; i++)
+			authorInfo.addPublication(Arrays.asList(new String[]{"Tua Prima", "Coauthor " + i, "Not Tua Prima"}));
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(authorInfo);
+		out.close();
+		AuthorInfo loaded = (AuthorInfo) new ObjectInputStream( new ByteArrayInputStream(bytes.toByteArray()) ).readObject();
+		
+		assertEquals(21, loaded.totalCoauthors());
+		assertEquals(10.0, loaded.getStrength("Not Tua Prima"), 1e-9);
+		assertEquals(0.5, loaded.getStrength("Coauthor 7"), 1e-9);
+		assertEquals(0.0, loaded.getStrength("Trol"), 0);
+		assertEquals(20, (int) loaded.getCoauthorsInfo().get("Not Tua Prima"));
+	}
+	
 	@Test
 	public void testGetAuthorsPairs() {
 		//authorInfo.addPublication(Arrays.asList(new String[]{"Tua Prima", "Trol"}));
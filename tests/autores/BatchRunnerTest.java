@@ -0,0 +1,91 @@
+package autores;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchRunnerTest {
+
+	private AuthorNetwork network;
+
+	@Before
+	public void setUp() throws Exception {
+		File file = File.createTempFile("publications", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), Arrays.asList(
+				"Tua Prima, Trol, 1991",
+				"Tua Prima, Crol, Brol, 1992",
+				"Tua Prima, Brol, 1993",
+				"Solo, 1993"), StandardCharsets.UTF_8);
+
+		network = new AuthorNetwork();
+		network.readFromFile(file.getPath());
+	}
+
+	@Test
+	public void testRun() throws Exception {
+		File dir = Files.createTempDirectory("batch").toFile();
+		List<String> script = Arrays.asList(
+				"topPublishers min=1991, max=1993, n=2",
+				"commonCoauthors authors=Trol;Brol, min=1991, max=1993",
+				"career name=Nobody",
+				"yearTable");
+
+		List<BatchRunner.Timing> timings = new BatchRunner(network, 3).run(script, dir);
+
+		assertEquals(4, timings.size());
+		assertEquals(2, timings.get(0).getItems());
+		assertNull(timings.get(1).getError());
+		assertNotNull(timings.get(2).getError());
+		assertEquals(3, timings.get(3).getItems());
+
+		assertEquals("{\"query\":\"topPublishers\",\"total\":2,\"offset\":0,\"items\":[[\"Tua Prima\",3],[\"Brol\",2]]}",
+				new String(Files.readAllBytes(new File(dir, "0001-topPublishers.json").toPath()), StandardCharsets.UTF_8).trim());
+		assertEquals("{\"query\":\"commonCoauthors\",\"total\":1,\"offset\":0,\"items\":[\"Tua Prima\"]}",
+				new String(Files.readAllBytes(new File(dir, "0002-commonCoauthors.json").toPath()), StandardCharsets.UTF_8).trim());
+		assertTrue(new String(Files.readAllBytes(new File(dir, "0003-career.json").toPath()), StandardCharsets.UTF_8)
+				.startsWith("{\"status\":404,"));
+		assertEquals(5, Files.readAllLines(new File(dir, "timings.tsv").toPath()).size());
+	}
+
+	@Test
+	public void testBatchedQueries() throws Exception {
+		File dir = Files.createTempDirectory("batch").toFile();
+		List<String> script = Arrays.asList(
+				"topPublishers min=1991, max=1993, n=2",
+				"topPairs min=1991, max=1993, n=3",
+				"topPublishers min=1992, max=1993, n=1",
+				"topPublishers min=1991, max=1993, n=5",
+				"topPairs min=1992, max=1992, n=1, timeout=1000",
+				"topPairs",
+				"topPublishers min=1991",
+				"topPairs min=1990, max=1990, n=2");
+
+		List<BatchRunner.Timing> timings = new BatchRunner(network, 2).run(script, dir);
+
+		assertEquals(script.size(), timings.size());
+		for (int i = 0; i < script.size(); i++) {
+			assertEquals(i + 1, timings.get(i).getIndex());
+			assertEquals(script.get(i), timings.get(i).getQuery());
+		}
+		assertNotNull(timings.get(5).getError());
+		assertNotNull(timings.get(6).getError());
+
+		// the same results as the queries run one by one
+		for (int i : new int[] { 0, 1, 2, 3, 4, 7 }) {
+			String line = script.get(i);
+			String query = line.substring(0, line.indexOf(' '));
+			StringWriter expected = new StringWriter();
+			new JsonWriter(expected).writePage(query, QueryCommands.run(network, query, QueryParameters.parse(line.substring(query.length() + 1), ',')), 0, Integer.MAX_VALUE);
+			assertEquals(expected.toString(), new String(Files.readAllBytes(new File(dir, String.format("%04d-%s.json", i + 1, query)).toPath()), StandardCharsets.UTF_8).trim());
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package autores;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoauthorGraphTest {
+
+	private GlobalAuthorNetwork globalAuthorNetwork;
+	private CoauthorGraph graph;
+
+	@Before
+	public void setUp() throws Exception {
+		globalAuthorNetwork = new GlobalAuthorNetwork();
+		globalAuthorNetwork.addPublication(1991, Arrays.asList(new String[]{"Tua Prima", "Trol"}));
+		globalAuthorNetwork.addPublication(1992, Arrays.asList(new String[]{"Tua Prima", "Crol", "Maybe Tua Prima"}));
+		globalAuthorNetwork.addPublication(1993, Arrays.asList(new String[]{"Tua Prima", "Brol"}));
+		globalAuthorNetwork.addPublication(1993, Arrays.asList(new String[]{"Tua Prima", "Brol"}));
+		globalAuthorNetwork.addPublication(1993, Arrays.asList(new String[]{"Tua Prima", "Crol", "Brol"}));
+		globalAuthorNetwork.addPublication(1994, Arrays.asList(new String[]{"Tua Prima", "Trol"}));
+		globalAuthorNetwork.addPublication(1995, Arrays.asList(new String[]{"Solo"}));
+		globalAuthorNetwork.addPublication(1995, Arrays.asList(new String[]{"Brol", "Drol"}));
+		graph = globalAuthorNetwork.getCoauthorGraph();
+	}
+
+	@Test
+	public void testBuild() {
+		assertEquals(7, graph.nrVertices());
+		assertEquals(7, graph.nrEdges());
+		assertEquals(4, graph.degree(graph.vertexOf("Tua Prima")));
+		assertEquals(0, graph.degree(graph.vertexOf("Solo")));
+		assertEquals(-1, graph.vertexOf("Nobody"));
+
+		int e = graph.edgeIndex(graph.vertexOf("Tua Prima"), graph.vertexOf("Brol"));
+		assertEquals(3, graph.getWeights()[e]);
+		e = graph.edgeIndex(graph.vertexOf("Trol"), graph.vertexOf("Tua Prima"));
+		assertEquals(2, graph.getWeights()[e]);
+		assertEquals(-1, graph.edgeIndex(graph.vertexOf("Trol"), graph.vertexOf("Brol")));
+	}
+
+	@Test
+	public void testCollaborationPath() throws NoSuchAuthorException {
+		assertEquals(Arrays.asList(new String[]{"Trol", "Tua Prima", "Brol", "Drol"}),
+				globalAuthorNetwork.collaborationPath("Trol", "Drol", 1991, 1995, 100));
+		assertEquals(0, globalAuthorNetwork.collaborationPath("Trol", "Drol", 1991, 1994, 100).size());
+		assertEquals(0, globalAuthorNetwork.collaborationPath("Trol", "Solo", 1991, 1995, 100).size());
+	}
+
+	@Test
+	public void testCancelledGraphQueries() throws Exception {
+		QueryTracker tracker = new QueryTracker(0);
+		tracker.cancel();
+		QueryTracker previous = tracker.enter();
+		try {
+			globalAuthorNetwork.topCentralAuthors(1991, 1994, 2);
+			fail("cancelled graph query should abort");
+		} catch (QueryAbortedException e) {
+			assertTrue(e.getMessage().startsWith("Query cancelled"));
+		} finally {
+			tracker.exit(previous);
+		}
+
+		// the aborted build is not kept, and the algorithms over a built graph abort as well
+		CoauthorGraph built = globalAuthorNetwork.getCoauthorGraph(1991, 1994);
+		assertEquals(4, built.degree(built.vertexOf("Tua Prima")));
+		previous = tracker.enter();
+		try {
+			new LabelPropagation(built).compute();
+			fail("cancelled label propagation should abort");
+		} catch (QueryAbortedException e) {
+		} finally {
+			tracker.exit(previous);
+		}
+	}
+
+		@Test
+	public void testGraphCache() throws Exception {
+		CoauthorGraph early = globalAuthorNetwork.getCoauthorGraph(1991, 1993);
+		CoauthorGraph late = globalAuthorNetwork.getCoauthorGraph(1993, 1995);
+		assertSame(graph, globalAuthorNetwork.getCoauthorGraph());
+		assertSame(early, globalAuthorNetwork.getCoauthorGraph(1991, 1993));
+		assertSame(late, globalAuthorNetwork.getCoauthorGraph(1993, 1995));
+		assertEquals(4, early.degree(early.vertexOf("Tua Prima")));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<CoauthorGraph>> graphs = new ArrayList<>();
+			for (int i = 0; i < 8; i++)
+				graphs.add( executor.submit(new Callable<CoauthorGraph>() {
+					public CoauthorGraph call() {
+						return globalAuthorNetwork.getCoauthorGraph(1992, 1994);
+					}
+				}) );
+			for (Future<CoauthorGraph> f : graphs)
+				assertSame(graphs.get(0).get(), f.get());
+		} finally {
+			executor.shutdown();
+		}
+
+		globalAuthorNetwork.addPublication(1991, Arrays.asList(new String[]{"Trol", "Drol"}));
+		CoauthorGraph rebuilt = globalAuthorNetwork.getCoauthorGraph(1991, 1993);
+		assertTrue(rebuilt != early);
+		assertEquals(2, rebuilt.degree(rebuilt.vertexOf("Trol")));
+	}
+
+	@Test
+	public void testPageRank() {
+		PageRank pageRank = new PageRank(graph);
+		double[] rank = pageRank.compute();
+
+		double total = 0;
+		for (double r : rank) total += r;
+		assertEquals(1.0, total, 1e-6);
+		assertEquals(0.0, rank[graph.vertexOf("Solo")], 0);
+		assertTrue(pageRank.getIterations() > 1);
+
+		NavigableSet<Tuple<String, Double>> top = globalAuthorNetwork.topCentralAuthors(1991, 1995, 2);
+		assertEquals("Tua Prima", top.last().getFirst());
+		assertEquals("Brol", top.first().getFirst());
+		for (Tuple<String, Double> t : globalAuthorNetwork.topCentralAuthors(1991, 1995, 10))
+			assertTrue(t.getSecond() > 0);
+		assertEquals(6, globalAuthorNetwork.topCentralAuthors(1991, 1995, 10).size());
+	}
+
+	@Test
+	public void testTriangles() throws NoSuchAuthorException {
+		TriangleStats stats = TriangleStats.of(graph);
+		assertEquals(2, stats.getTotalTriangles());
+		assertEquals(6.0 / 13, stats.getTransitivity(), 1e-9);
+		assertEquals(2, stats.getTriangles(graph.vertexOf("Crol")));
+		assertEquals(1.0 / 3, stats.getClusteringCoefficient(graph.vertexOf("Tua Prima")), 1e-9);
+		assertEquals(0.0, stats.getClusteringCoefficient(graph.vertexOf("Trol")), 0);
+		for (int v = 0; v < graph.nrVertices(); v++)
+			assertEquals(stats.getClusteringCoefficient(v), TriangleStats.clusteringCoefficient(graph, v), 1e-9);
+		assertEquals(1.0, globalAuthorNetwork.clusteringCoefficient("Maybe Tua Prima", 1991, 1995), 1e-9);
+
+		NavigableMap<Integer, Double> byYear = globalAuthorNetwork.transitivityByYear();
+		assertEquals(0.0, byYear.get(1991), 0);
+		assertEquals(1.0, byYear.get(1992), 1e-9);
+		assertEquals(1.0, byYear.get(1993), 1e-9);
+	}
+
+	@Test
+	public void testTrianglesOfLargeGraph() {
+		// enough forward edges for the count to be split in many tasks, with a few authors of much higher degree
+		GlobalAuthorNetwork network = new GlobalAuthorNetwork();
+		for (int i = 0; i < 3000; i++) {
+			network.addPublication(2000, Arrays.asList(new String[]{"Author " + i, "Author " + (i + 1) % 3000, "Author " + (i * 7 + 3) % 3000}));
+			network.addPublication(2001, Arrays.asList(new String[]{"Hub " + i % 5, "Author " + i, "Author " + (i * 13 + 1) % 3000}));
+		}
+		CoauthorGraph large = network.getCoauthorGraph();
+		TriangleStats stats = TriangleStats.of(large);
+
+		long total = 0;
+		for (int v = 0; v < large.nrVertices(); v++) {
+			long d = large.degree(v);
+			assertEquals(stats.getClusteringCoefficient(v), TriangleStats.clusteringCoefficient(large, v), 1e-9);
+			total += stats.getTriangles(v);
+			assertEquals(d < 2 ? 0 : 2.0 * stats.getTriangles(v) / (d * (d - 1)), stats.getClusteringCoefficient(v), 1e-9);
+		}
+		assertEquals(3 * stats.getTotalTriangles(), total);
+		assertTrue(stats.getTotalTriangles() > 3000);
+
+		NavigableMap<Integer, Double> byYear = network.transitivityByYear();
+		for (int year = 2000; year <= 2001; year++) {
+			CoauthorGraph single = CoauthorGraph.build( network.catalogsIn(year, year).values(), network.getDictionary() );
+			assertEquals(TriangleStats.of(single).getTransitivity(), byYear.get(year), 1e-12);
+		}
+	}
+
+	@Test
+	public void testCommunities() {
+		Communities communities = new LabelPropagation(graph).compute();
+		int total = 0;
+		for (int c = 0; c < communities.nrCommunities(); c++) {
+			total += communities.size(c);
+			if (c > 0) assertTrue(communities.size(c) <= communities.size(c - 1));
+		}
+		assertEquals(6, total);
+		assertEquals(-1, communities.communityOf(graph.vertexOf("Solo")));
+		Communities again = new LabelPropagation(graph).compute();
+		for (int v = 0; v < graph.nrVertices(); v++)
+			assertEquals(communities.communityOf(v), again.communityOf(v));
+
+		GlobalAuthorNetwork cliques = new GlobalAuthorNetwork();
+		cliques.addPublication(2000, Arrays.asList(new String[]{"A", "B", "C"}));
+		cliques.addPublication(2000, Arrays.asList(new String[]{"A", "B"}));
+		cliques.addPublication(2000, Arrays.asList(new String[]{"X", "Y", "Z"}));
+		cliques.addPublication(2000, Arrays.asList(new String[]{"X", "Y"}));
+		communities = cliques.communities(2000, 2000);
+		assertEquals(2, communities.nrCommunities());
+		assertEquals(3, communities.size(0));
+		assertEquals(2, communities.topMembers(0, 2).size());
+		assertEquals(1, communities.summary(1, 3).size());
+	}
+
+	@Test
+	public void testEgoNetwork() throws NoSuchAuthorException {
+		EgoNetwork ego = globalAuthorNetwork.egoNetwork("Trol", 1, 1991, 1995, 100);
+		assertEquals(2, ego.nrVertices());
+		assertEquals(1, ego.nrEdges());
+		assertEquals(2, ego.getWeights()[0]);
+
+		ego = globalAuthorNetwork.egoNetwork("Trol", 2, 1991, 1995, 100);
+		assertEquals(5, ego.nrVertices());
+		assertEquals(6, ego.nrEdges());
+		assertEquals(2, ego.distanceOf(ego.indexOf("Brol")));
+		assertEquals(-1, ego.indexOf("Drol"));
+		assertFalse(ego.isTruncated());
+
+		ego = globalAuthorNetwork.egoNetwork("Trol", 3, 1991, 1995, 3);
+		assertEquals(3, ego.nrVertices());
+		assertTrue(ego.isTruncated());
+	}
+
+	@Test
+	public void testSimilarAuthors() throws NoSuchAuthorException {
+		GlobalAuthorNetwork twins = new GlobalAuthorNetwork();
+		twins.addPublication(2000, Arrays.asList(new String[]{"A", "C", "D", "E"}));
+		twins.addPublication(2001, Arrays.asList(new String[]{"B", "C", "D", "E"}));
+		twins.addPublication(2001, Arrays.asList(new String[]{"X", "Y"}));
+
+		List<Tuple<String, Double>> similar = twins.similarAuthors("A", 1);
+		assertEquals("B", similar.get(0).getFirst());
+		assertEquals(1.0, similar.get(0).getSecond(), 1e-9);
+
+		List<Tuple<Tuple<String, String>, Double>> pairs = twins.similarPairs(1.0);
+		assertEquals(1, pairs.size());
+		assertEquals("A", pairs.get(0).getFirst().getFirst());
+		assertEquals("B", pairs.get(0).getFirst().getSecond());
+		assertEquals(0.4, twins.getSimilarAuthors().jaccard(twins.getCoauthorGraph().vertexOf("C"), twins.getCoauthorGraph().vertexOf("A")), 1e-9);
+	}
+
+	@Test
+	public void testPairTimelines() throws NoSuchAuthorException {
+		NavigableMap<Integer, Integer> timeline = globalAuthorNetwork.pairTimeline("Brol", "Tua Prima");
+		assertEquals(1, timeline.size());
+		assertEquals(3, (int) timeline.get(1993));
+
+		timeline = globalAuthorNetwork.pairTimeline("Tua Prima", "Trol");
+		assertEquals(2, timeline.size());
+		assertEquals(1991, (int) timeline.firstKey());
+		assertEquals(1994, (int) timeline.lastKey());
+
+		assertEquals(2, globalAuthorNetwork.pairPublications("Tua Prima", "Crol", 1991, 1995));
+		assertEquals(1, globalAuthorNetwork.pairPublications("Tua Prima", "Crol", 1993, 1995));
+		assertEquals(0, globalAuthorNetwork.pairPublications("Trol", "Drol", 1991, 1995));
+		assertEquals(1992, (int) globalAuthorNetwork.pairStreak("Crol", "Tua Prima").getFirst());
+		assertEquals(2, (int) globalAuthorNetwork.pairStreak("Crol", "Tua Prima").getSecond());
+		assertNull(globalAuthorNetwork.pairStreak("Trol", "Drol"));
+	}
+
+	@Test
+	public void testStrengths() throws NoSuchAuthorException {
+		int e = graph.edgeIndex(graph.vertexOf("Tua Prima"), graph.vertexOf("Brol"));
+		assertEquals(2.5, graph.getStrengths()[e], 1e-9);
+		e = graph.edgeIndex(graph.vertexOf("Crol"), graph.vertexOf("Maybe Tua Prima"));
+		assertEquals(0.5, graph.getStrengths()[e], 1e-9);
+
+		NavigableSet<Tuple<Tuple<String, String>, Double>> pairs = globalAuthorNetwork.topPairsByStrength(1991, 1995, 2);
+		assertEquals(2, pairs.size());
+		assertEquals("Brol", pairs.last().getFirst().getFirst());
+		assertEquals("Tua Prima", pairs.last().getFirst().getSecond());
+		assertEquals(2.0, pairs.first().getSecond(), 1e-9);
+
+		NavigableSet<Tuple<String, Double>> coauthors = globalAuthorNetwork.topCoauthorsByStrength("Crol", 1991, 1995, 1);
+		assertEquals("Tua Prima", coauthors.first().getFirst());
+		assertEquals(1.0, coauthors.first().getSecond(), 1e-9);
+
+		double[] rank = new PageRank(graph, true).compute();
+		double total = 0;
+		for (double r : rank) total += r;
+		assertEquals(1.0, total, 1e-6);
+	}
+}
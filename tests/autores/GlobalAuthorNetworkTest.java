@@ -2,8 +2,19 @@ package autores;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -104,4 +115,469 @@ public class GlobalAuthorNetworkTest {
 		boolean b = set.containsAll(Arrays.asList(new String[]{"Tua Prima", "Crol", "Maybe Tua Prima", "Brol"}));
 		assertEquals(true, b);
 	}
+	
+	@Test
+	public void testGetAuthorsByPrefix() {
+		List<String> list = globalAuthorNetwork.getAuthorsByPrefix("tua", 0, 10);
+		
+		assertEquals(1, list.size());
+		assertEquals("Tua Prima", list.get(0));
+		assertEquals(2, globalAuthorNetwork.countAuthorsByPrefix("T"));
+		assertEquals(Arrays.asList(new String[]{"Trol"}), globalAuthorNetwork.getAuthorsByPrefix("t", 0, 1));
+		assertEquals(Arrays.asList(new String[]{"Tua Prima"}), globalAuthorNetwork.getAuthorsByPrefix("t", 1, 10));
+		assertEquals(0, globalAuthorNetwork.countAuthorsByPrefix("Z"));
+		
+		Set<String> set = globalAuthorNetwork.getAuthorsBy('s');
+		assertEquals(1, set.size());
+		assertEquals(true, set.contains("Solo"));
+	}
+	
+	@Test
+	public void testTotalAuthors() {
+		assertEquals(7, globalAuthorNetwork.totalAuthors());
+	}
+	
+	@Test
+	public void testSuggestAuthors() {
+		List<String> list = globalAuthorNetwork.suggestAuthors("Tua Prma", 2);
+		
+		assertEquals(2, list.size());
+		assertEquals("Tua Prima", list.get(0));
+		assertEquals("Maybe Tua Prima", list.get(1));
+		
+		globalAuthorNetwork.addPublication(2000, Arrays.asList(new String[]{"Brolly"}));
+		assertEquals("Brolly", globalAuthorNetwork.suggestAuthors("brolly", 1).get(0));
+	}
+	
+	@Test
+	public void testRollups() throws NoAuthorsInIntervalException {
+		globalAuthorNetwork.registerAlignedRollups(2);
+		globalAuthorNetwork.registerRollup(1992, 1993);
+		
+		Set<Tuple<String, Integer>> publishers = globalAuthorNetwork.topPublishers(1991, 1997, 4);
+		assertEquals(4, publishers.size());
+		assertEquals(true, publishers.contains(new Tuple<String, Integer>("Tua Prima", 10)));
+		assertEquals(true, publishers.contains(new Tuple<String, Integer>("Trol", 5)));
+		
+		Set<Tuple<Tuple<String, String>, Integer>> pairs = globalAuthorNetwork.topPairs(1991, 1997, 1);
+		assertEquals(true, pairs.contains(new Tuple<Tuple<String, String>, Integer>(new Tuple<String, String>("Trol", "Tua Prima"), 5)));
+		
+		Set<String> authors = globalAuthorNetwork.authorsInInterval(1992, 1993);
+		assertEquals(2, authors.size());
+		assertEquals(true, authors.containsAll(Arrays.asList(new String[]{"Tua Prima", "Crol"})));
+		
+		globalAuthorNetwork.addPublication(1992, Arrays.asList(new String[]{"Brol"}));
+		authors = globalAuthorNetwork.authorsInInterval(1992, 1993);
+		assertEquals(3, authors.size());
+		
+		publishers = globalAuthorNetwork.topPublishers(1992, 1993, 2);
+		assertEquals(true, publishers.contains(new Tuple<String, Integer>("Tua Prima", 5)));
+		assertEquals(true, publishers.contains(new Tuple<String, Integer>("Brol", 5)));
+	}
+	
+	@Test
+	public void testSlidingWindows() throws NoAuthorsInIntervalException {
+		List<WindowStats> windows = globalAuthorNetwork.slidingWindows(3, 2);
+		
+		assertEquals(7, windows.size());
+		for (WindowStats w : windows) {
+			List<Map.Entry<String, Integer>> totals = new ArrayList<>(globalAuthorNetwork.authorTotals(w.getMin(), w.getMax()).entrySet());
+			Collections.sort(totals, new Comparator<Map.Entry<String, Integer>>() {
+				public int compare(Map.Entry<String, Integer> e1, Map.Entry<String, Integer> e2) {
+					if (!e1.getValue().equals(e2.getValue())) return e2.getValue() - e1.getValue();
+					return e1.getKey().compareTo(e2.getKey());
+				}
+			});
+			TreeSet<Tuple<String, Integer>> top = new TreeSet<>(new AuthorPubsTupleComparator());
+			for (Map.Entry<String, Integer> e : totals.subList(0, Math.min(2, totals.size())))
+				top.add(new Tuple<String, Integer>(e.getKey(), e.getValue()));
+			assertEquals(names(top), names(w.getTopPublishers()));
+			
+			int everyYear;
+			try {
+				everyYear = globalAuthorNetwork.authorsInInterval(w.getMin(), w.getMax()).size();
+			} catch (NoAuthorsInIntervalException e) {
+				everyYear = 0;
+			}
+			assertEquals(everyYear, w.getAuthorsEveryYear());
+		}
+		
+		WindowStats first = windows.get(0);
+		assertEquals(1991, first.getMin());
+		assertEquals(1993, first.getMax());
+		assertEquals(6, first.getPublications());
+		assertEquals(5, first.getActiveAuthors());
+		assertEquals(true, first.getTopPublishers().contains(new Tuple<String, Integer>("Tua Prima", 6)));
+		assertEquals(true, first.getTopPublishers().contains(new Tuple<String, Integer>("Brol", 4)));
+	}
+	
+	@Test
+	public void testComponents() {
+		AuthorComponents components = globalAuthorNetwork.getComponents();
+		
+		assertEquals(3, components.nrComponents());
+		assertEquals(5, components.largestComponentSize());
+		assertEquals(5, globalAuthorNetwork.componentSize("Maybe Tua Prima"));
+		assertEquals(1, globalAuthorNetwork.componentSize("Solo"));
+		assertEquals(true, globalAuthorNetwork.inSameComponent("Brol", "Trol"));
+		assertEquals(false, globalAuthorNetwork.inSameComponent("Solo", "Another Solo"));
+		assertEquals(2, (int) components.getSizeDistribution().get(1));
+		
+		AuthorComponents interval = globalAuthorNetwork.getComponents(1993, 1999);
+		assertEquals(3, interval.nrComponents());
+		assertEquals(4, interval.largestComponentSize());
+		
+		globalAuthorNetwork.addPublication(2000, Arrays.asList(new String[]{"Solo", "Another Solo"}));
+		assertEquals(2, components.nrComponents());
+	}
+
+	@Test
+	public void testCareers() throws NoSuchAuthorException {
+		CareerProfile career = globalAuthorNetwork.careerOf("Tua Prima");
+		assertEquals(1991, career.getFirstYear());
+		assertEquals(1997, career.getLastYear());
+		assertEquals(7, career.getActiveYears());
+		assertEquals(1993, career.getPeakYear());
+		assertEquals(4, career.getPeakPublications());
+		assertEquals(10, career.getTotalPublications());
+		assertEquals(0.0, career.getSoloRatio(), 0);
+
+		career = globalAuthorNetwork.careerOf("Trol");
+		assertEquals(9, career.getSpan());
+		assertEquals(6, career.getActiveYears());
+		assertEquals(1991, career.getPeakYear());
+		assertEquals(1, career.getSoloPublications());
+
+		assertEquals(1, globalAuthorNetwork.getCareers().withCareerSpan(9).size());
+		assertTrue(globalAuthorNetwork.getCareers().withCareerSpan(9).contains("Trol"));
+		assertTrue(globalAuthorNetwork.getCareers().withActiveYears(7).contains("Tua Prima"));
+	}
+
+	@Test
+	public void testCopyForWrite() throws NoSuchAuthorException {
+		GlobalAuthorNetwork copy = globalAuthorNetwork.copyForWrite();
+		copy.addPublication(1993, Arrays.asList(new String[]{"Trol", "Drol"}));
+		copy.addPublication(2000, Arrays.asList(new String[]{"New Author"}));
+
+		assertFalse(globalAuthorNetwork.getCoauthorsOf("Trol").contains("Drol"));
+		assertFalse(globalAuthorNetwork.hasAuthor("Drol"));
+		assertEquals(6, globalAuthorNetwork.careerOf("Trol").getActiveYears());
+		assertEquals(1999, (int) globalAuthorNetwork.getYearInterval().getSecond());
+
+		assertTrue(copy.getCoauthorsOf("Trol").contains("Drol"));
+		assertEquals(7, copy.careerOf("Trol").getActiveYears());
+		assertEquals(2000, (int) copy.getYearInterval().getSecond());
+		assertEquals(copy.getCoauthorsOf("Tua Prima"), globalAuthorNetwork.getCoauthorsOf("Tua Prima"));
+
+		globalAuthorNetwork.addPublication(1993, Arrays.asList(new String[]{"Tua Prima", "Grol"}));
+		assertTrue(globalAuthorNetwork.getCoauthorsOf("Tua Prima").contains("Grol"));
+		assertFalse(copy.getCoauthorsOf("Tua Prima").contains("Grol"));
+	}
+
+	@Test
+	public void testSnapshotDuringConcurrentAppend() throws Exception {
+		final int authors = globalAuthorNetwork.totalAuthors();
+		final GlobalAuthorNetwork[] copy = new GlobalAuthorNetwork[1];
+		final Exception[] failure = new Exception[1];
+		// copies the network while it is being read, as a writer starting to read a file does
+		Thread append = new Thread() {
+			public void run() {
+				try {
+					copy[0] = globalAuthorNetwork.copyForWrite();
+					for (int i = 0; i < 50000; i++)
+						copy[0].addPublication(2000 + i % 10, Arrays.asList(new String[]{"Author " + i, "Trol"}));
+				} catch (Exception e) {
+					failure[0] = e;
+				}
+			}
+		};
+		append.start();
+		int checked = 0;
+		do {
+			assertEquals(authors, globalAuthorNetwork.totalAuthors());
+			assertFalse(globalAuthorNetwork.hasAuthor("Author " + checked % 50000));
+			assertTrue(globalAuthorNetwork.hasAuthor("Trol"));
+			checked++;
+		} while (append.isAlive());
+		append.join();
+
+		assertNull(failure[0]);
+		assertEquals(authors, globalAuthorNetwork.totalAuthors());
+		assertFalse(globalAuthorNetwork.hasAuthor("Author 0"));
+		assertEquals(authors + 50000, copy[0].totalAuthors());
+		assertTrue(copy[0].hasAuthor("Author 0"));
+	}
+
+	@Test
+	public void testSnapshotDuringAppend() throws Exception {
+		File base = File.createTempFile("publications", ".txt");
+		base.deleteOnExit();
+		Files.write(base.toPath(), Arrays.asList("Tua Prima, Trol, 1991", "Crol, Brol, 1992"), StandardCharsets.UTF_8);
+		final AuthorNetwork network = new AuthorNetwork();
+		network.readFromFile(base.getPath());
+		long version = network.getVersion();
+
+		// fails after its first publications reached the dictionary, components and careers of the copy
+		File broken = File.createTempFile("publications", ".txt");
+		broken.deleteOnExit();
+		Files.write(broken.toPath(), Arrays.asList("Trol, Crol, 1993", "New Author, Brol, 1994", "Tua Prima, not a year"),
+				StandardCharsets.UTF_8);
+		try {
+			network.appendFromFile(broken.getPath());
+			fail("a line without a year should stop the read");
+		} catch (NumberFormatException e) {
+		}
+		assertEquals(version, network.getVersion());
+		assertEquals(4, network.getTotalAuthors());
+		assertFalse(network.hasAuthor("New Author"));
+		assertFalse(network.inSameComponent("Trol", "Crol"));
+		assertEquals(2, network.componentSize("Brol"));
+		assertEquals(1, network.getCareer("Trol").getActiveYears());
+
+		final File big = File.createTempFile("publications", ".txt");
+		big.deleteOnExit();
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 20000; i++)
+			lines.add("Author " + i + ", Trol, Crol, " + (2000 + i % 10));
+		Files.write(big.toPath(), lines, StandardCharsets.UTF_8);
+
+		final Exception[] failure = new Exception[1];
+		Thread append = new Thread() {
+			public void run() {
+				try {
+					network.appendFromFile(big.getPath());
+				} catch (Exception e) {
+					failure[0] = e;
+				}
+			}
+		};
+		append.start();
+		do {
+			long before = network.getVersion();
+			int authors = network.getTotalAuthors();
+			boolean linked = network.inSameComponent("Trol", "Crol");
+			int years = network.getCareer("Trol").getActiveYears();
+			if (before == version && network.getVersion() == version) {
+				assertEquals(4, authors);
+				assertFalse(linked);
+				assertEquals(1, years);
+			}
+		} while (append.isAlive());
+		append.join();
+
+		assertNull(failure[0]);
+		assertEquals(version + 1, network.getVersion());
+		assertEquals(20004, network.getTotalAuthors());
+		assertTrue(network.inSameComponent("Trol", "Crol"));
+		assertEquals(20004, network.componentSize("Brol"));
+		assertEquals(11, network.getCareer("Trol").getActiveYears());
+	}
+
+	@Test
+	public void testQueryTracker() throws Exception {
+		QueryTracker tracker = new QueryTracker(0);
+		QueryTracker previous = tracker.enter();
+		try {
+			globalAuthorNetwork.topPublishers(1991, 1997, 2);
+			assertEquals(7, tracker.getDone());
+			assertEquals(7, tracker.getTotal());
+			assertEquals(1.0, tracker.getProgress(), 1e-9);
+			
+			tracker.cancel();
+			globalAuthorNetwork.topPairs(1991, 1993, 2);
+			fail("cancelled query should abort");
+		} catch (QueryAbortedException e) {
+			assertEquals(8, e.getDone());
+			assertEquals(10, e.getTotal());
+		} finally {
+			tracker.exit(previous);
+		}
+		
+		assertNull( QueryTracker.current() );
+		assertEquals(2, globalAuthorNetwork.topPairs(1991, 1993, 2).size());
+	}
+
+	@Test
+	public void testParallelScan() throws Exception {
+		globalAuthorNetwork.registerRollup(1994, 1995);
+		GlobalAuthorNetwork shard = new GlobalAuthorNetwork();
+		shard.addPublication(1991, Arrays.asList(new String[]{"Tua Prima", "Trol"}), Arrays.asList(new String[]{"Trol"}));
+		shard.addPublication(1992, Arrays.asList(new String[]{"Tua Prima", "Crol", "Maybe Tua Prima"}), Arrays.asList(new String[]{"Crol", "Tua Prima"}));
+		shard.addPublication(1993, Arrays.asList(new String[]{"Brol", "Tua Prima"}), Arrays.asList(new String[]{"Brol"}));
+		shard.addPublication(1994, Arrays.asList(new String[]{"Tua Prima", "Trol"}), Arrays.asList(new String[]{"Trol", "Tua Prima"}));
+		
+		List<Object> sequential = parallelScanResults(globalAuthorNetwork, shard);
+		GlobalAuthorNetwork.setParallel(true);
+		try {
+			QueryTracker tracker = new QueryTracker(0);
+			QueryTracker previous = tracker.enter();
+			try {
+				assertEquals(sequential, parallelScanResults(globalAuthorNetwork, shard));
+			} finally {
+				tracker.exit(previous);
+			}
+			assertEquals(tracker.getTotal(), tracker.getDone());
+		} finally {
+			GlobalAuthorNetwork.setParallel(false);
+		}
+	}
+	
+	@Test
+	public void testShardKeepsOnlyItsPublications() throws NoAuthorsInIntervalException {
+		GlobalAuthorNetwork shard = new GlobalAuthorNetwork();
+		shard.addPublication(1991, Arrays.asList(new String[]{"Tua Prima", "Trol"}), Arrays.asList(new String[]{"Trol"}));
+		shard.addPublication(1993, Arrays.asList(new String[]{"Brol", "Crol"}), Arrays.<String>asList());
+		
+		assertEquals(2, shard.totalAuthors());
+		assertFalse(shard.hasAuthor("Brol"));
+		assertEquals(Arrays.asList(1991, 1993), new ArrayList<Integer>(shard.getYearTable().keySet()));
+		assertEquals(Integer.valueOf(0), shard.getYearTable().get(1993));
+		
+		// a year only added by another shard's publication still changes the rollups holding it
+		shard.registerRollup(1990, 1992);
+		assertEquals(1, shard.authorsInInterval(1990, 1992).size());
+		shard.addPublication(1992, Arrays.asList(new String[]{"Brol", "Crol"}), Arrays.<String>asList());
+		assertTrue(shard.authorsInInterval(1990, 1992).isEmpty());
+		
+		// a publication without authors is still counted when nothing is sharded
+		globalAuthorNetwork.addPublication(2005, Arrays.<String>asList());
+		assertEquals(Integer.valueOf(1), globalAuthorNetwork.getYearTable().get(2005));
+	}
+	
+	@Test
+	public void testQueryBatch() throws Exception {
+		globalAuthorNetwork.registerRollup(1994, 1995);
+		QueryBatch batch = new QueryBatch(globalAuthorNetwork);
+		QueryBatch.Result<NavigableSet<Tuple<String, Integer>>> top = batch.topPublishers(1991, 1997, 2);
+		QueryBatch.Result<NavigableSet<Tuple<String, Integer>>> wide = batch.topPublishers(1990, 2001, 3);
+		QueryBatch.Result<Integer> over = batch.nrAuthorsWithOver(1991, 1997, 4);
+		QueryBatch.Result<NavigableSet<Tuple<Tuple<String, String>, Integer>>> pairs = batch.topPairs(1991, 1993, 2);
+		QueryBatch.Result<Set<String>> solo = batch.soloAuthors(1990, 2001);
+		QueryBatch.Result<Set<String>> nonSolo = batch.nonSoloAuthors(1990, 2001);
+		QueryBatch.Result<NavigableMap<Integer, Integer>> years = batch.yearTable(1992, 1994);
+		QueryBatch.Result<NavigableSet<String>> every = batch.authorsInInterval(1991, 1997);
+		assertEquals(6, batch.getNrAggregators());
+		try {
+			top.get();
+			fail("batch not run yet");
+		} catch (IllegalStateException e) {
+		}
+		
+		QueryTracker tracker = new QueryTracker(0);
+		QueryTracker previous = tracker.enter();
+		try {
+			batch.run();
+		} finally {
+			tracker.exit(previous);
+		}
+		assertEquals(9, tracker.getDone());
+		
+		assertEquals(names(globalAuthorNetwork.topPublishers(1991, 1997, 2)), names(top.get()));
+		assertEquals(names(globalAuthorNetwork.topPublishers(1990, 2001, 3)), names(wide.get()));
+		assertEquals(Integer.valueOf(2), over.get());
+		assertEquals(names(globalAuthorNetwork.topPairs(1991, 1993, 2)), names(pairs.get()));
+		assertEquals(globalAuthorNetwork.getSoloAuthors(), solo.get());
+		assertEquals(globalAuthorNetwork.getNonSoloAuthors(), nonSolo.get());
+		assertEquals(globalAuthorNetwork.getYearTable().subMap(1992, true, 1994, true), years.get());
+		assertEquals(globalAuthorNetwork.authorsInInterval(1991, 1997), every.get());
+	}
+	
+	@Test
+	public void testQueryBatchRollups() throws Exception {
+		globalAuthorNetwork.registerAlignedRollups(2);
+		QueryBatch batch = new QueryBatch(globalAuthorNetwork);
+		QueryBatch.Result<NavigableSet<Tuple<String, Integer>>> top = batch.topPublishers(1990, 1997, 4);
+		QueryBatch.Result<NavigableSet<Tuple<Tuple<String, String>, Integer>>> pairs = batch.topPairs(1991, 1997, 3);
+		QueryBatch.Result<NavigableSet<String>> every = batch.authorsInInterval(1992, 1993);
+		QueryBatch.Result<NavigableMap<Integer, Integer>> years = batch.yearTable(1990, 2001);
+		batch.run();
+		
+		assertEquals(names(globalAuthorNetwork.topPublishers(1990, 1997, 4)), names(top.get()));
+		assertEquals(names(globalAuthorNetwork.topPairs(1991, 1997, 3)), names(pairs.get()));
+		assertEquals(globalAuthorNetwork.authorsInInterval(1992, 1993), every.get());
+		assertEquals(globalAuthorNetwork.getYearTable(), years.get());
+	}
+	
+	@Test
+	public void testCursors() throws Exception {
+		assertEquals(new ArrayList<String>(globalAuthorNetwork.getCoauthorsOf("Tua Prima")), read(globalAuthorNetwork.cursorCoauthorsOf("Tua Prima")));
+		assertEquals(new ArrayList<String>(globalAuthorNetwork.getCoauthorsOf("Trol")), read(globalAuthorNetwork.cursorCoauthorsOf("Trol")));
+		assertTrue(read(globalAuthorNetwork.cursorCoauthorsOf("Nobody")).isEmpty());
+		assertEquals(new ArrayList<String>(globalAuthorNetwork.authorsInInterval(1991, 1997)), read(globalAuthorNetwork.cursorAuthorsInInterval(1991, 1997)));
+		assertEquals(new ArrayList<String>(globalAuthorNetwork.authorsInInterval(1993, 1999)), read(globalAuthorNetwork.cursorAuthorsInInterval(1993, 1999)));
+		assertEquals(globalAuthorNetwork.getAuthorsByPrefix("t", 0, 10), read(globalAuthorNetwork.cursorAuthorsByPrefix("t")));
+		try {
+			globalAuthorNetwork.cursorAuthorsInInterval(2001, 2010);
+			fail("no year with publications");
+		} catch (NoAuthorsInIntervalException e) {
+		}
+		
+		final List<Integer> numbers = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) numbers.add(i);
+		final int[] iterations = new int[1];
+		Navigator<Integer> nav = new Navigator<Integer>(new Iterable<Integer>() {
+			public java.util.Iterator<Integer> iterator() {
+				iterations[0]++;
+				return numbers.iterator();
+			}
+		});
+		assertEquals(Arrays.asList(0, 1, 2), nav.getNext(3));
+		assertFalse(nav.isSizeKnown());
+		assertTrue(nav.size() < 3000);
+		while (nav.itemsLeft() > 0) nav.getNext(20);
+		assertTrue(nav.isSizeKnown());
+		assertEquals(3000, nav.size());
+		assertEquals(1, iterations[0]);
+		
+		nav.back(3000);
+		assertEquals(Arrays.asList(0, 1), nav.getNext(2));
+		assertEquals(2, iterations[0]);
+		try {
+			new Navigator<Integer>(new ArrayList<Integer>()).getNext();
+			fail("no items");
+		} catch (NoMoreItemsException e) {
+		}
+		
+		Navigator<Integer> shorter = new Navigator<Integer>(new Iterable<Integer>() {
+			public java.util.Iterator<Integer> iterator() {
+				return numbers.subList(0, 100).iterator();
+			}
+		}, 200);
+		assertEquals(100, shorter.getNext(150).size());
+		assertEquals(100, shorter.size());
+		assertEquals(0, shorter.itemsLeft());
+		
+		List<String> coauthors = read(globalAuthorNetwork.cursorCoauthorsOf("Trol"));
+		globalAuthorNetwork.addPublication(1999, Arrays.asList(new String[]{"Trol", "Brol"}));
+		assertFalse(coauthors.contains("Brol"));
+		assertTrue(read(globalAuthorNetwork.cursorCoauthorsOf("Trol")).contains("Brol"));
+		assertEquals(new ArrayList<String>(globalAuthorNetwork.getCoauthorsOf("Trol")), read(globalAuthorNetwork.cursorCoauthorsOf("Trol")));
+	}
+	
+	private static List<String> read(Iterable<String> it) {
+		List<String> res = new ArrayList<>();
+		for (String s : it) res.add(s);
+		return res;
+	}
+	
+	private static <K> List<String> names(Set<? extends Tuple<K, Integer>> tuples) {
+		List<String> res = new ArrayList<>();
+		for (Tuple<K, Integer> t : tuples) {
+			Object key = t.getFirst();
+			if (key instanceof Tuple)
+				key = ((Tuple<?, ?>) key).getFirst() + "&" + ((Tuple<?, ?>) key).getSecond();
+			res.add(key + "=" + t.getSecond());
+		}
+		
+		return res;
+	}
+	
+	private static List<Object> parallelScanResults(GlobalAuthorNetwork network, GlobalAuthorNetwork shard) {
+		return Arrays.<Object>asList(
+			network.authorTotals(1991, 1999), network.authorTotals(1990, 2001), network.pairTotals(1991, 1997), network.pairTotals(1993, 1993),
+			network.getCommonCoauthors(Arrays.asList("Crol", "Brol"), 1990, 1999), network.getCommonCoauthors(Arrays.asList("Trol"), 1991, 1999),
+			network.nrAuthorsWithOver(1), network.nrAuthorsWithOver(4),
+			shard.pairTotals(1991, 1994), shard.authorTotals(1991, 1994)
+		);
+	}
 }
@@ -0,0 +1,148 @@
+package autores;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryCacheTest {
+
+	private QueryCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		cache = new QueryCache(500);
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		assertNull(cache.get(new QueryKey("topPairs", 1990, 2000, 5), 1));
+		cache.put(new QueryKey("topPairs", 1990, 2000, 5), 1, "Tua Prima");
+
+		assertEquals("Tua Prima", cache.get(new QueryKey("topPairs", 1990, 2000, 5), 1));
+		assertNull(cache.get(new QueryKey("topPairs", 1990, 2000, 6), 1));
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testVersionInvalidation() {
+		cache.put(new QueryKey("coauthorsOf", "Trol"), 1, "Tua Prima");
+
+		assertNull(cache.get(new QueryKey("coauthorsOf", "Trol"), 2));
+		assertEquals(0, cache.size());
+
+		cache.put(new QueryKey("coauthorsOf", "Trol"), 1, "Tua Prima");
+		assertEquals(0, cache.size());
+
+		cache.put(new QueryKey("coauthorsOf", "Trol"), 2, "Tua Prima");
+		assertNull(cache.get(new QueryKey("coauthorsOf", "Trol"), 1));
+		assertEquals("Tua Prima", cache.get(new QueryKey("coauthorsOf", "Trol"), 2));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		cache.put(new QueryKey("coauthorsOf", "Trol"), 1, "Tua Prima");
+		cache.put(new QueryKey("coauthorsOf", "Brol"), 1, "Tua Prima");
+		cache.get(new QueryKey("coauthorsOf", "Trol"), 1);
+		cache.put(new QueryKey("commonCoauthors", Arrays.asList("Brol", "Crol")), 1, Arrays.asList("Tua Prima", "Trol", "Maybe Tua Prima"));
+
+		assertNotNull(cache.get(new QueryKey("coauthorsOf", "Trol"), 1));
+		assertNull(cache.get(new QueryKey("coauthorsOf", "Brol"), 1));
+		assertNotNull(cache.get(new QueryKey("commonCoauthors", Arrays.asList("Brol", "Crol")), 1));
+		assertEquals(1, cache.getEvictions());
+		assertTrue(cache.getBytes() <= 500);
+	}
+
+	@Test
+	public void testStaleResults() {
+		cache.put(new QueryKey("coauthorsOf", "Trol"), 1, "Tua Prima");
+		assertNull(cache.get(new QueryKey("coauthorsOf", "Trol"), 2));
+		assertNull(cache.getStale(new QueryKey("coauthorsOf", "Trol")));
+
+		cache.setKeepStale(true);
+		cache.put(new QueryKey("coauthorsOf", "Trol"), 2, "Tua Prima");
+		cache.put(new QueryKey("coauthorsOf", "Brol"), 2, "Crol");
+		assertNull(cache.get(new QueryKey("coauthorsOf", "Trol"), 3));
+		assertEquals("Tua Prima", cache.getStale(new QueryKey("coauthorsOf", "Trol")));
+
+		cache.put(new QueryKey("coauthorsOf", "Trol"), 3, "Maybe Tua Prima");
+		assertNull(cache.getStale(new QueryKey("coauthorsOf", "Trol")));
+		assertEquals("Crol", cache.getStale(new QueryKey("coauthorsOf", "Brol")));
+		assertEquals(2, cache.getStaleHits());
+	}
+
+	@Test
+	public void testStaleResultsWithinBudget() {
+		cache.setKeepStale(true);
+		cache.put(new QueryKey("coauthorsOf", "Trol"), 1, Arrays.asList("Tua Prima", "Brol"));
+		cache.put(new QueryKey("coauthorsOf", "Brol"), 1, Arrays.asList("Tua Prima", "Trol"));
+		assertNull(cache.get(new QueryKey("coauthorsOf", "Trol"), 2));
+
+		assertEquals(500, cache.getBytes());
+
+		cache.put(new QueryKey("coauthorsOf", "Crol"), 2, "Tua Prima");
+		assertTrue(cache.getBytes() <= 500);
+		assertNull(cache.getStale(new QueryKey("coauthorsOf", "Trol")));
+		assertNotNull(cache.getStale(new QueryKey("coauthorsOf", "Brol")));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void testFlights() {
+		CompletableFuture<Object> first = new CompletableFuture<>();
+		CompletableFuture<Object> second = new CompletableFuture<>();
+
+		assertNull(cache.joinFlight(new QueryKey("topPairs", 1990, 2000, 5), 1, first));
+		assertSame(first, cache.joinFlight(new QueryKey("topPairs", 1990, 2000, 5), 1, second));
+		assertNull(cache.joinFlight(new QueryKey("topPairs", 1990, 2000, 5), 2, second));
+		assertEquals(1, cache.getCoalesced());
+
+		cache.endFlight(new QueryKey("topPairs", 1990, 2000, 5), 1, first);
+		assertNull(cache.joinFlight(new QueryKey("topPairs", 1990, 2000, 5), 1, second));
+	}
+
+	@Test
+	public void testCachedResultsImmutable() throws Exception {
+		File file = File.createTempFile("publications", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), Arrays.asList("Tua Prima, Trol, 1991", "Tua Prima, Crol, Trol, 1992", "Tua Prima, Trol, 1993"),
+				StandardCharsets.UTF_8);
+		AuthorNetwork network = new AuthorNetwork();
+		network.readFromFile(file.getPath());
+
+		NavigableSet<Tuple<String, Integer>> top = network.topPublishersInInterval(1991, 1993, 2);
+		try {
+			top.first().setSecond(100);
+			fail("cached tuples are shared");
+		} catch (UnsupportedOperationException e) {
+		}
+
+		NavigableSet<Tuple<Tuple<String, String>, Integer>> pairs = network.topPairs(1991, 1993, 2);
+		try {
+			pairs.last().getFirst().setFirst("Brol");
+			fail("tuples inside cached tuples are shared too");
+		} catch (UnsupportedOperationException e) {
+		}
+
+		List<Tuple<Integer, List<String>>> communities = network.getCommunities(1991, 1993, 1, 2);
+		try {
+			communities.get(0).getSecond().clear();
+			fail("lists inside cached tuples are shared too");
+		} catch (UnsupportedOperationException e) {
+		}
+
+		assertSame(top, network.topPublishersInInterval(1991, 1993, 2));
+		assertEquals("Trol", top.first().getFirst());
+		assertEquals(3, (int) pairs.last().getSecond());
+	}
+}
@@ -0,0 +1,197 @@
+package autores;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryServerTest {
+
+	private AuthorNetwork network;
+
+	@Before
+	public void setUp() throws Exception {
+		File file = File.createTempFile("publications", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), Arrays.asList(
+				"Tua Prima, Trol, 1991",
+				"Tua Prima, Crol, Maybe Tua Prima, 1992",
+				"Tua Prima, Brol, 1993",
+				"Tua Prima, Brol, 1993",
+				"Tua Prima, Crol, Brol, 1993",
+				"Solo, 1998"), StandardCharsets.UTF_8);
+
+		network = new AuthorNetwork();
+		network.readFromFile(file.getPath());
+	}
+
+	@Test
+	public void testQueries() throws Exception {
+		QueryServer server = new QueryServer(network, 0);
+		server.start();
+		try {
+			String base = "http://localhost:" + server.getPort();
+
+			assertEquals("{\"query\":\"topPublishers\",\"total\":3,\"offset\":0,\"items\":[[\"Tua Prima\",5],[\"Brol\",3]]}",
+					get(base + "/query/topPublishers?min=1991&max=1993&n=3&limit=2"));
+			assertEquals("{\"query\":\"coauthorsOf\",\"total\":4,\"offset\":2,\"items\":[\"Maybe Tua Prima\",\"Trol\"]}",
+					get(base + "/query/coauthorsOf?name=Tua+Prima&offset=2"));
+			assertEquals("{\"query\":\"authorsBy\",\"total\":2,\"offset\":1,\"items\":[\"Tua Prima\"]}",
+					get(base + "/query/authorsBy?prefix=t&offset=1&limit=1"));
+			assertEquals("{\"query\":\"pairPublications\",\"result\":3}",
+					get(base + "/query/pairPublications?a=Brol&b=Tua%20Prima"));
+			assertTrue( get(base + "/queries").contains("\"topPairs\"") );
+			assertTrue( get(base + "/metrics").contains("[\"rejected\",0]") );
+
+			assertEquals(404, status(base + "/query/career?name=Nobody"));
+			assertEquals(400, status(base + "/query/topPairs?min=1991"));
+			assertEquals(400, status(base + "/query/noSuchQuery"));
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		QueryServer server = new QueryServer(network, 0);
+		server.start();
+		ExecutorService clients = Executors.newFixedThreadPool(16);
+		try {
+			final String url = "http://localhost:" + server.getPort() + "/query/topPairs?n=2";
+			List<Future<String>> responses = new ArrayList<>();
+			for (int i = 0; i < 200; i++)
+				responses.add( clients.submit(new Callable<String>() {
+					public String call() throws IOException {
+						return get(url);
+					}
+				}) );
+
+			for (Future<String> f : responses)
+				assertEquals("{\"query\":\"topPairs\",\"total\":2,\"offset\":0,\"items\":[[[\"Brol\",\"Tua Prima\"],3],[[\"Crol\",\"Tua Prima\"],2]]}", f.get());
+			assertEquals(200, server.getRequests());
+			assertEquals(0, server.getFailures());
+		} finally {
+			clients.shutdown();
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void testBurstOfCachedQueries() throws Exception {
+		QueryServer server = new QueryServer(network, 0);
+		server.start();
+		ExecutorService clients = Executors.newFixedThreadPool(32);
+		try {
+			final String url = "http://localhost:" + server.getPort() + "/query/topPairs?min=1991&max=1998&n=3";
+			final String first = get(url);
+			final CountDownLatch start = new CountDownLatch(1);
+			List<Future<String>> responses = new ArrayList<>();
+			for (int i = 0; i < 300; i++)
+				responses.add( clients.submit(new Callable<String>() {
+					public String call() throws Exception {
+						start.await();
+						return get(url);
+					}
+				}) );
+
+			start.countDown();
+			for (Future<String> f : responses)
+				assertEquals(first, f.get());
+			assertEquals(1, server.getAdmission().getAdmitted());
+			assertEquals(0, server.getFailures());
+		} finally {
+			clients.shutdown();
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void testQueuedQueriesLeaveHandlersFree() throws Exception {
+		AdmissionController admission = new AdmissionController(1, 1L << 30, Long.MAX_VALUE, 64, 10000);
+		QueryServer server = new QueryServer(network, 0, admission);
+		server.start();
+		ExecutorService clients = Executors.newFixedThreadPool(32);
+		AdmissionController.Ticket held = admission.admit( new QueryCost(1, 1) );
+		try {
+			final String base = "http://localhost:" + server.getPort();
+			List<Future<Integer>> responses = new ArrayList<>();
+			for (int i = 1; i <= 32; i++) {
+				final String url = base + "/query/topPairs?n=" + i;
+				responses.add( clients.submit(new Callable<Integer>() {
+					public Integer call() throws IOException {
+						return status(url);
+					}
+				}) );
+			}
+
+			// more queries wait than there are handler threads, and the server still answers
+			long deadline = System.currentTimeMillis() + 5000;
+			while (admission.getQueued() < 32 && System.currentTimeMillis() < deadline) Thread.sleep(1);
+			assertEquals(32, admission.getQueued());
+			assertTrue( get(base + "/metrics").contains("[\"queued\",32]") );
+
+			admission.release(held, null);
+			held = null;
+			for (Future<Integer> f : responses)
+				assertEquals(200, (int) f.get());
+			assertEquals(33, admission.getAdmitted());
+		} finally {
+			if (held != null) admission.release(held, null);
+			clients.shutdown();
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void testCoalescedQueries() throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			List<Future<Object>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++)
+				results.add( clients.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						start.await();
+						return network.topPairs(1991, 1998, 3);
+					}
+				}) );
+
+			start.countDown();
+			for (Future<Object> f : results)
+				assertSame(results.get(0).get(), f.get());
+			assertTrue(network.getQueryCache().getHits() + network.getQueryCache().getCoalesced() >= 7);
+		} finally {
+			clients.shutdown();
+		}
+	}
+
+	private static String get(String url) throws IOException {
+		HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+		try (InputStream in = c.getInputStream()) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static int status(String url) throws IOException {
+		HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+		int status = c.getResponseCode();
+		c.disconnect();
+		return status;
+	}
+}
@@ -0,0 +1,159 @@
+package autores;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardCoordinatorTest {
+
+	private String filename;
+	private AuthorNetwork network;
+	private List<String> names;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(46);
+		names = new ArrayList<>();
+		for (int i = 0; i < 40; i++) names.add("Author " + i);
+
+		ArrayList<String> lines = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			TreeSet<String> authors = new TreeSet<>();
+			int n = 1 + random.nextInt(4);
+			while (authors.size() < n) authors.add( names.get( (int) Math.min(names.size() - 1, Math.abs(random.nextGaussian()) * 12) ) );
+
+			ArrayList<String> line = new ArrayList<>(authors);
+			Collections.shuffle(line, random);
+			lines.add( String.join(", ", line) + ", " + (2000 + random.nextInt(10)) );
+		}
+
+		File file = File.createTempFile("publications", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		filename = file.getPath();
+
+		network = new AuthorNetwork();
+		network.readFromFile(filename);
+	}
+
+	private ShardCoordinator start(int nrShards, List<ShardWorker> workers) throws IOException {
+		ArrayList<InetSocketAddress> addresses = new ArrayList<>();
+		for (int i = 0; i < nrShards; i++) {
+			ShardWorker worker = new ShardWorker(i, nrShards);
+			worker.readFromFile(filename);
+			workers.add(worker);
+			addresses.add( new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.start(0)) );
+		}
+
+		return new ShardCoordinator(addresses);
+	}
+
+	@Test
+	public void testScatterGather() throws Exception {
+		ArrayList<ShardWorker> workers = new ArrayList<>();
+		ShardCoordinator coordinator = start(3, workers);
+		try {
+			assertEquals(network.getTotalPublications(), coordinator.getTotalPublications());
+			assertEquals(network.getTotalNamesRead(), coordinator.getTotalNamesRead());
+			assertEquals(network.getSoloPublications(), coordinator.getSoloPublications());
+			assertEquals(network.getTotalAuthors(), coordinator.getTotalAuthors());
+			assertEquals(network.getTotalSoloAuthors(), coordinator.getTotalSoloAuthors());
+			assertEquals(network.getTotalNonSoloAuthors(), coordinator.getTotalNonSoloAuthors());
+			assertEquals(network.getYearTable(), coordinator.getYearTable());
+			assertEquals(network.nrAuthorsWithOver(20), coordinator.nrAuthorsWithOver(20));
+
+			for (String name : names)
+				assertEquals(network.getCoauthorsOf(name), coordinator.getCoauthorsOf(name));
+			assertEquals(network.commonCoauthors(Arrays.asList("Author 0", "Author 1", "Author 2"), 2002, 2006),
+					coordinator.commonCoauthors(Arrays.asList("Author 0", "Author 1", "Author 2"), 2002, 2006));
+			assertEquals(network.authorsInInterval(2000, 2009), coordinator.authorsInInterval(2000, 2009));
+			try {
+				coordinator.authorsInInterval(1990, 1995);
+				fail("no author published in every year of the interval");
+			} catch (NoAuthorsInIntervalException e) {
+			}
+
+			// ties may be broken differently, but the counts are the same
+			assertEquals(counts(network.topPublishersInInterval(2001, 2007, 8)), counts(coordinator.topPublishersInInterval(2001, 2007, 8)));
+			assertEquals(pairCounts(network.topPairs(2000, 2009, 8)), pairCounts(coordinator.topPairs(2000, 2009, 8)));
+
+			Map<String, Integer> totals = new HashMap<>();
+			for (Tuple<String, Integer> t : network.topPublishersInInterval(2001, 2007, names.size()))
+				totals.put(t.getFirst(), t.getSecond());
+			for (Tuple<String, Integer> t : coordinator.topPublishersInInterval(2001, 2007, 8))
+				assertEquals(totals.get(t.getFirst()), t.getSecond());
+		} finally {
+			coordinator.close();
+			for (ShardWorker w : workers) w.stop();
+		}
+	}
+
+	@Test
+	public void testSameTopAsSingleShard() throws Exception {
+		ArrayList<ShardWorker> workers = new ArrayList<>();
+		ShardCoordinator single = start(1, workers);
+		ShardCoordinator sharded = start(4, workers);
+		try {
+			for (int k : new int[] { 1, 5, 13 }) {
+				assertEquals(names(single.topPublishersInInterval(2000, 2009, k)), names(sharded.topPublishersInInterval(2000, 2009, k)));
+				assertEquals(pairNames(single.topPairs(2003, 2008, k)), pairNames(sharded.topPairs(2003, 2008, k)));
+			}
+
+			try {
+				sharded.topPairs(2000, 2009, -1);
+			} catch (IllegalArgumentException e) {
+				fail("negative number of pairs is an empty list");
+			}
+			try {
+				new ShardCoordinator( Arrays.asList( new InetSocketAddress(InetAddress.getLoopbackAddress(), workers.get(2).start(0)) ) );
+				fail("shard 1 of 4 is not a network of a single shard");
+			} catch (IOException e) {
+			}
+		} finally {
+			single.close();
+			sharded.close();
+			for (ShardWorker w : workers) w.stop();
+		}
+	}
+
+	private static List<Integer> counts(NavigableSet<Tuple<String, Integer>> top) {
+		ArrayList<Integer> res = new ArrayList<>();
+		for (Tuple<String, Integer> t : top.descendingSet()) res.add(t.getSecond());
+		return res;
+	}
+
+	private static List<String> names(NavigableSet<Tuple<String, Integer>> top) {
+		ArrayList<String> res = new ArrayList<>();
+		for (Tuple<String, Integer> t : top.descendingSet()) res.add(t.getFirst() + "=" + t.getSecond());
+		return res;
+	}
+
+	private static List<String> pairCounts(NavigableSet<Tuple<Tuple<String, String>, Integer>> top) {
+		ArrayList<String> res = new ArrayList<>();
+		for (Tuple<Tuple<String, String>, Integer> t : top.descendingSet()) res.add("" + t.getSecond());
+		return res;
+	}
+
+	private static List<String> pairNames(NavigableSet<Tuple<Tuple<String, String>, Integer>> top) {
+		ArrayList<String> res = new ArrayList<>();
+		for (Tuple<Tuple<String, String>, Integer> t : top.descendingSet()) res.add(t.getFirst().getFirst() + "+" + t.getFirst().getSecond() + "=" + t.getSecond());
+		return res;
+	}
+}